@@ -0,0 +1,137 @@
+package de.uni_hildesheim.sse.monitoring.runtime.boot;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Implements a bounded, preallocated multi-producer/multi-consumer queue
+ * without locks. Each slot carries a sequence number which tells producers
+ * and consumers whether the slot may be written or read in the current
+ * round, i.e. producers and consumers claim positions by compare-and-set
+ * and do not allocate any objects.
+ *
+ * @param <E> the element type
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+class BoundedConcurrentQueue<E> {
+
+    /**
+     * Stores the elements.
+     */
+    private final AtomicReferenceArray<E> elements;
+
+    /**
+     * Stores the sequence numbers of the slots.
+     */
+    private final AtomicLongArray sequences;
+
+    /**
+     * Stores the mask to turn positions into slot indexes.
+     */
+    private final int mask;
+
+    /**
+     * Stores the next position to be written.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Stores the next position to be read.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Creates a queue.
+     *
+     * @param capacity the minimum capacity, rounded up to the next power
+     *   of 2
+     *
+     * @since 1.30
+     */
+    BoundedConcurrentQueue(int capacity) {
+        int size = 2;
+        while (size < capacity && size < (1 << 30)) {
+            size <<= 1;
+        }
+        elements = new AtomicReferenceArray<E>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an element if the queue is not full.
+     *
+     * @param element the element to be added (must not be <b>null</b>)
+     * @return <code>true</code> if <code>element</code> was added,
+     *   <code>false</code> if the queue is full
+     *
+     * @since 1.30
+     */
+    boolean offer(E element) {
+        boolean result = false;
+        boolean done = false;
+        while (!done) {
+            long pos = tail.get();
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (0 == diff) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.set(index, pos + 1);
+                    result = true;
+                    done = true;
+                }
+            } else if (diff < 0) {
+                done = true; // full
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Takes an element if the queue is not empty.
+     *
+     * @return the element or <b>null</b> if the queue is empty
+     *
+     * @since 1.30
+     */
+    E poll() {
+        E result = null;
+        boolean done = false;
+        while (!done) {
+            long pos = head.get();
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - (pos + 1);
+            if (0 == diff) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    result = elements.get(index);
+                    elements.lazySet(index, null);
+                    sequences.set(index, pos + mask + 1);
+                    done = true;
+                }
+            } else if (diff < 0) {
+                done = true; // empty
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of elements in this queue (an estimate in case of
+     * concurrent modifications).
+     *
+     * @return the number of elements
+     *
+     * @since 1.30
+     */
+    int size() {
+        return (int) Math.max(0, Math.min(mask + 1, tail.get() - head.get()));
+    }
+
+}
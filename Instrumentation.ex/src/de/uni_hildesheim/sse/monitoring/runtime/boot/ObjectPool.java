@@ -1,78 +1,215 @@
 package de.uni_hildesheim.sse.monitoring.runtime.boot;
 
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Defines an reusable object pool.
+ * Defines an reusable object pool. Obtaining and releasing instances does not
+ * require a lock. Each thread caches instances in a thread-local magazine,
+ * i.e. a small array. Only if the magazine of a thread is empty (when
+ * obtaining) or full (when releasing), the thread exchanges the entire
+ * magazine with a full or an empty one from a shared lock-free depot. Thus,
+ * instances obtained by one thread and released by another thread (as usual
+ * for recording elements) flow back via the depot.<p>
+ * The maximum size of the pool limits the number of instances in the depot,
+ * i.e. in addition each thread may cache up to one magazine of instances.
+ * The pool counts hits (instance taken from the magazine of the calling
+ * thread), misses (magazine of the calling thread is empty) and creations
+ * (neither magazine nor depot provided an instance). Counting is done per
+ * thread and summed up from time to time, i.e. the counters are
+ * approximations.
  *
  * @param <T> the poolable type
  * @author  Holger Eichelberger
+ * @since 1.00
+ * @version 1.30
  */
 public class ObjectPool<T extends Poolable<T>> {
 
     /**
-    * Stores the pool.
-    */
-    private ArrayList<T> pool; // TODO check replace by linked list
-    
+     * Defines the maximum number of instances in a magazine.
+     */
+    private static final int MAGAZINE_SIZE = 16;
+
+    /**
+     * Defines the number of thread-local hits after which the hits are
+     * added to the shared counter.
+     */
+    private static final int HITS_FLUSH = 1024;
+
+    /**
+     * Implements a magazine, i.e. the thread-local cache of instances.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class Magazine {
+
+        /**
+         * Stores the cached instances.
+         */
+        private Object[] instances;
+
+        /**
+         * Stores the number of cached instances.
+         */
+        private int size;
+
+        /**
+         * Stores the hits not yet added to the shared counter.
+         */
+        private int hits;
+
+        /**
+         * Creates a magazine.
+         *
+         * @param capacity the capacity of the magazine
+         */
+        private Magazine(int capacity) {
+            instances = new Object[capacity];
+        }
+    }
+
     /**
      * Stores a prototype instance for creating instances.
      */
     private T prototype;
-    
+
     /**
      * Stores the maximum size of the pool. If 0, no maximum size is given
      * ant the pool may grow as needed (may be inefficient).
      */
     private int maxSize = 0;
-    
+
+    /**
+     * Stores the capacity of a magazine.
+     */
+    private int magazineSize;
+
+    /**
+     * Stores the maximum number of full magazines in the depot (only if
+     * {@link #maxSize} is given).
+     */
+    private int depotSize;
+
+    /**
+     * Stores the full magazines if {@link #maxSize} is given.
+     */
+    private BoundedConcurrentQueue<Object[]> depot;
+
+    /**
+     * Stores the empty magazines if {@link #maxSize} is given.
+     */
+    private BoundedConcurrentQueue<Object[]> empty;
+
+    /**
+     * Stores the full magazines if no {@link #maxSize} is given.
+     */
+    private ConcurrentLinkedQueue<Object[]> unboundedDepot;
+
+    /**
+     * Stores the magazines of the threads.
+     */
+    private final ThreadLocal<Magazine> magazines = new ThreadLocal<Magazine>();
+
+    /**
+     * Stores the number of hits.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Stores the number of misses.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Stores the number of created instances.
+     */
+    private final AtomicLong creations = new AtomicLong();
+
     /**
      * Creates a new unlimited pool.
-     * 
-     * @param prototype the prototype instance for object creation (must not 
+     *
+     * @param prototype the prototype instance for object creation (must not
      * be <b>null</b>)
-     * 
+     *
      * @since 1.00
      */
     public ObjectPool(T prototype) {
-        this.prototype = prototype;
-        this.pool = new ArrayList<T>(10);
+        this(prototype, 0);
     }
-    
+
     /**
      * Creates a new pool.
-     * 
-     * @param prototype the prototype instance for object creation (must not 
+     *
+     * @param prototype the prototype instance for object creation (must not
      * be <b>null</b>)
      * @param maxSize the maximum size of the pool
-     * 
+     *
      * @since 1.00
      */
     public ObjectPool(T prototype, int maxSize) {
         this.prototype = prototype;
-        this.maxSize = maxSize;
-        // reversing the usual capacity increase of ArrayList
-        int poolSize = maxSize; // ((maxSize - 1) * 2) / 3 - 1;
-        if (poolSize < 10) {
-            poolSize = 10;
+        this.maxSize = Math.max(0, maxSize);
+        if (this.maxSize > 0) {
+            magazineSize = Math.min(MAGAZINE_SIZE, this.maxSize);
+            depotSize = this.maxSize / magazineSize;
+            depot = new BoundedConcurrentQueue<Object[]>(depotSize);
+            empty = new BoundedConcurrentQueue<Object[]>(depotSize);
+        } else {
+            magazineSize = MAGAZINE_SIZE;
+            unboundedDepot = new ConcurrentLinkedQueue<Object[]>();
         }
-        this.pool = new ArrayList<T>(poolSize);
     }
-    
+
+    /**
+     * Returns the magazine of the calling thread.
+     *
+     * @return the magazine
+     *
+     * @since 1.30
+     */
+    private Magazine getMagazine() {
+        Magazine result = magazines.get();
+        if (null == result) {
+            result = new Magazine(magazineSize);
+            magazines.set(result);
+        }
+        return result;
+    }
+
    /**
     * Returns an instance from the shared pool.
-    * 
-    * @return  the instance from the pool. This instance has 
+    *
+    * @return  the instance from the pool. This instance has
     *          to be released by {@link #release(Poolable)}.
     *
     * @since   SugiBib 1.20
-    */    
-    public final synchronized T getFromPool() {
-        int size = pool.size();
+    */
+    @SuppressWarnings("unchecked")
+    public final T getFromPool() {
+        Magazine magazine = getMagazine();
+        if (0 == magazine.size) {
+            flushHits(magazine);
+            misses.incrementAndGet();
+            Object[] full = takeFull();
+            if (null != full) {
+                putEmpty(magazine.instances);
+                magazine.instances = full;
+                magazine.size = full.length;
+            }
+        } else if (++magazine.hits >= HITS_FLUSH) {
+            flushHits(magazine);
+        }
         T result;
-        if (0 == size) {
+        if (0 == magazine.size) {
+            creations.incrementAndGet();
             result = prototype.create();
         } else {
-            result = pool.remove(size - 1);
+            int pos = --magazine.size;
+            result = (T) magazine.instances[pos];
+            magazine.instances[pos] = null;
         }
         return result;
     }
@@ -82,23 +219,160 @@ public class ObjectPool<T extends Poolable<T>> {
     * to the shared pool.
     *
     * @param instance the instance to be released (must not be <b>null</b>)
-    */  
-    public final synchronized void release(T instance) {
+    */
+    public final void release(T instance) {
         instance.clear();
-        if (maxSize == 0 || (maxSize > 0 && pool.size() < maxSize)) {
-            pool.add(instance);   
+        Magazine magazine = getMagazine();
+        if (magazine.size == magazine.instances.length) {
+            Object[] full = magazine.instances;
+            Object[] tmp = takeEmpty();
+            if (putFull(full)) {
+                magazine.instances = tmp;
+                magazine.size = 0;
+            } else {
+                putEmpty(tmp);
+            }
+        }
+        if (magazine.size < magazine.instances.length) {
+            magazine.instances[magazine.size++] = instance;
+        } // else pool is full, discard instance
+    }
+
+    /**
+     * Takes a full magazine from the depot.
+     *
+     * @return the magazine or <b>null</b> if the depot is empty
+     *
+     * @since 1.30
+     */
+    private Object[] takeFull() {
+        Object[] result;
+        if (null != depot) {
+            result = depot.poll();
+        } else {
+            result = unboundedDepot.poll();
+        }
+        return result;
+    }
+
+    /**
+     * Puts a full magazine into the depot.
+     *
+     * @param magazine the magazine
+     * @return <code>true</code> if the magazine was stored,
+     *   <code>false</code> if the depot is full
+     *
+     * @since 1.30
+     */
+    private boolean putFull(Object[] magazine) {
+        boolean result;
+        if (null != depot) {
+            result = depot.size() < depotSize && depot.offer(magazine);
+        } else {
+            result = unboundedDepot.offer(magazine);
+        }
+        return result;
+    }
+
+    /**
+     * Takes an empty magazine from the depot or creates one.
+     *
+     * @return the magazine
+     *
+     * @since 1.30
+     */
+    private Object[] takeEmpty() {
+        Object[] result = null;
+        if (null != empty) {
+            result = empty.poll();
+        }
+        if (null == result) {
+            result = new Object[magazineSize];
+        }
+        return result;
+    }
+
+    /**
+     * Puts an empty magazine into the depot for reuse (if there is space).
+     *
+     * @param magazine the magazine
+     *
+     * @since 1.30
+     */
+    private void putEmpty(Object[] magazine) {
+        if (null != empty) {
+            empty.offer(magazine);
         }
     }
-    
+
     /**
-     * Returns the size of the pool.
-     * 
+     * Adds the thread-local hits of the given magazine to the shared
+     * counter.
+     *
+     * @param magazine the magazine
+     *
+     * @since 1.30
+     */
+    private void flushHits(Magazine magazine) {
+        if (magazine.hits > 0) {
+            hits.addAndGet(magazine.hits);
+            magazine.hits = 0;
+        }
+    }
+
+    /**
+     * Returns the size of the pool, i.e. the number of instances in the
+     * depot and in the magazine of the calling thread (an estimate in case
+     * of concurrent modifications).
+     *
      * @return the current size of the pool
-     * 
+     *
      * @since 1.00
      */
-    public synchronized int size() {
-        return pool.size();
+    public int size() {
+        int result = getMagazine().size;
+        if (null != depot) {
+            result += depot.size() * magazineSize;
+        } else {
+            result += unboundedDepot.size() * magazineSize;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of hits, i.e. how often an instance was taken from
+     * the magazine of the calling thread (approximation).
+     *
+     * @return the number of hits
+     *
+     * @since 1.30
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of misses, i.e. how often the magazine of the
+     * calling thread was empty and the depot was accessed.
+     *
+     * @return the number of misses
+     *
+     * @since 1.30
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of created instances, i.e. how often neither the
+     * magazine of the calling thread nor the depot provided an instance.
+     *
+     * @return the number of created instances
+     *
+     * @since 1.30
+     */
+    public long getCreationCount() {
+        return creations.get();
     }
 
 }
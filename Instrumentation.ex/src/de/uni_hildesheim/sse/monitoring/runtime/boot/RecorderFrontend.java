@@ -210,6 +210,34 @@ public abstract class RecorderFrontend {
     public abstract void exit(String caller, String recId, boolean exclude, 
         boolean directId, long instanceId);
 
+    /**
+     * Notifies the recorder about a method being called for a direct 
+     * recorder id, which was mapped to a numeric id during instrumentation.
+     * [Java call]
+     * 
+     * @param recId the numeric recorder id
+     * @param exclude is this an exclusion from monitoring
+     * @param instanceId the optional instance identifier, <code>0</code> means 
+     *    disabled
+     * 
+     * @since 1.30
+     */
+    public abstract void enter(int recId, boolean exclude, long instanceId);
+
+    /**
+     * Notifies the recorder about a method being exited for a direct 
+     * recorder id, which was mapped to a numeric id during instrumentation.
+     * [Java call]
+     * 
+     * @param recId the numeric recorder id
+     * @param exclude is this an exclusion from monitoring
+     * @param instanceId the optional instance identifier, <code>0</code> means 
+     *    disabled
+     * 
+     * @since 1.30
+     */
+    public abstract void exit(int recId, boolean exclude, long instanceId);
+
     /**
      * Notify the recorder that a new variability configuration might have 
      * been entered. The recorder should resolve the concrete configuration
@@ -6,8 +6,9 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -33,7 +34,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.StreamUtilities;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.21
+ * @version 1.30
  */
 public class Configuration {
 
@@ -65,6 +66,15 @@ public class Configuration {
      */
     private static final String JVM_PROPERTY_CONFIGURATION_ARGS 
         = "spass-meter.config";
+
+    /**
+     * Defines the key of the TCP protocol offer in the transferred
+     * configuration. Servers not knowing this key take it as unrecognized
+     * parameter.
+     * 
+     * @since 1.30
+     */
+    private static final String TCP_PROTOCOL_PARAM = "#tcpProtocol";
     
     /**
      * May carry the initial arguments for initializing an instance of this
@@ -137,12 +147,102 @@ public class Configuration {
     @Variability(id = AnnotationConstants.STRATEGY_TCP)
     private TcpConnectionInfo tcp = null;
 
+    /**
+     * Stores the (maximum) TCP wire protocol version to be used. Version
+     * <code>1</code> sends individual events, version <code>2</code> sends
+     * compact event batches if supported by the server. On the server side,
+     * this is the version offered by the client.
+     * 
+     * @since 1.30
+     */
+    @Variability(id = AnnotationConstants.STRATEGY_TCP)
+    private int tcpProtocol = 2;
+
+    /**
+     * Stores the compression of event batches (TCP wire protocol version 
+     * <code>2</code> and above).
+     * 
+     * @since 1.30
+     */
+    @Variability(id = AnnotationConstants.STRATEGY_TCP)
+    private TcpCompressionType tcpCompression = TcpCompressionType.NONE;
+
     /**
      * If <code>true</code>, performs asynchronous event processing all the 
      * time, if <code>false</code> use local asynchronous calls as long as
      * no network-based recorder strategy is running.
      */
     private boolean localEventProcessing = true;
+
+    /**
+     * If <code>true</code>, events are recorded into per-thread buffers and
+     * processed locally without global synchronization (takes precedence
+     * over {@link #localEventProcessing} if no network-based recorder
+     * strategy is running).
+     * 
+     * @since 1.30
+     */
+    private boolean threadBufferedRecording = false;
+
+    /**
+     * Stores the directory of the binary event log, i.e. if given, events
+     * are appended to memory-mapped log segments in that directory instead
+     * of being processed locally (<b>null</b> if disabled, ignored if a
+     * network-based recorder strategy is running).
+     * 
+     * @since 1.30
+     */
+    private String eventLog = null;
+
+    /**
+     * Stores the size of an event log segment in megabytes.
+     * 
+     * @since 1.30
+     */
+    private int eventLogSegmentSize = 64;
+
+    /**
+     * Stores the maximum size of all event log segments in megabytes, i.e.
+     * the oldest segments are deleted if exceeded (<code>0</code> for 
+     * unbounded).
+     * 
+     * @since 1.30
+     */
+    private int eventLogMaxSize = 0;
+
+    /**
+     * Stores the file of the time series store, i.e. if given, the 
+     * periodic snapshots of the current state are appended to that file
+     * (<b>null</b> if disabled).
+     * 
+     * @since 1.30
+     */
+    private String timeSeries = null;
+
+    /**
+     * Stores the (minimum) capacity of the event buffer of the asynchronous
+     * recorder strategies.
+     * 
+     * @since 1.30
+     */
+    private int eventBufferSize = 65536;
+
+    /**
+     * Stores how the asynchronous recorder strategies wait for events or
+     * free event buffer slots.
+     * 
+     * @since 1.30
+     */
+    private EventBufferWaitType eventBufferWait = EventBufferWaitType.PARK;
+
+    /**
+     * Stores how the asynchronous recorder strategies handle a full event
+     * buffer.
+     * 
+     * @since 1.30
+     */
+    private EventBufferOverflowType eventBufferOverflow 
+        = EventBufferOverflowType.BLOCK;
     
     /**
      * Stores the name of the bootpath jar file.
@@ -280,14 +380,19 @@ public class Configuration {
     private ConfigurationListener listener = null;
     
     /**
-     * Stores the names of instrumented classes (preliminary solution).
+     * Stores the names of instrumented classes (preliminary solution, 
+     * concurrent as classes may be instrumented in parallel).
      */
-    private Set<String> instrumented = new HashSet<String>();
+    private Set<String> instrumented = Collections.newSetFromMap(
+        new ConcurrentHashMap<String, Boolean>());
     
     /**
-     * Stores recorderId/pseudoId mappings for multiple recorder ids.
+     * Stores recorderId/pseudoId mappings for multiple recorder ids. Access
+     * is synchronized on this map as class transformations may run in
+     * parallel.
      */
-    private HashMap<String, String> pseudoId = new HashMap<String, String>();
+    private final HashMap<String, String> pseudoId 
+        = new HashMap<String, String>();
 
     /**
      * Stores whether excluded parts should be accounted in a global monitoring
@@ -313,6 +418,115 @@ public class Configuration {
      * Returns whether specific classes shall be excluded.
      */
     private String excludeClasses = null;
+
+    /**
+     * Stores the directory of the persistent cache of transformed classes 
+     * (<b>null</b> if disabled).
+     * 
+     * @since 1.30
+     */
+    private String transformCache = null;
+
+    /**
+     * Stores the path of the XML configuration file (<b>null</b> if none was
+     * given).
+     * 
+     * @since 1.30
+     */
+    private String xmlConfigPath = null;
+
+    /**
+     * Stores the sampling rate of the pure Java unallocation recording, i.e.
+     * only every n-th allocated object is tracked.
+     * 
+     * @since 1.30
+     */
+    private int unallocationSampling = 1;
+
+    /**
+     * If <code>true</code>, I/O bytes are accumulated per thread and passed
+     * to the recorder strategy only at monitoring group boundaries or 
+     * snapshots.
+     * 
+     * @since 1.30
+     */
+    private boolean ioAccumulation = false;
+
+    /**
+     * If <code>true</code>, the system and CPU time of the individual 
+     * invocations of monitoring groups are recorded in latency histograms.
+     * 
+     * @since 1.30
+     */
+    private boolean latencyHistograms = false;
+
+    /**
+     * Stores the default sampling rate of monitoring groups, i.e. only every
+     * n-th invocation is recorded (<code>1</code> records all invocations).
+     * 
+     * @since 1.30
+     */
+    private int samplingRate = 1;
+
+    /**
+     * Stores the default sampling interval of monitoring groups in micro 
+     * seconds, i.e. an invocation is only recorded if the interval elapsed 
+     * since the last recorded invocation of the same group in the same 
+     * thread (<code>0</code> disables time-based sampling).
+     * 
+     * @since 1.30
+     */
+    private int samplingInterval = 0;
+
+    /**
+     * Stores whether sampling was configured for an individual monitoring
+     * group.
+     * 
+     * @since 1.30
+     */
+    private boolean groupSampling = false;
+
+    /**
+     * Stores the overhead budget in percent of the execution time of a 
+     * monitoring group which may be spent in the probes before the group is
+     * folded into its caller (<code>0</code> disables the governor).
+     * 
+     * @since 1.30
+     */
+    private int overheadBudget = 0;
+
+    /**
+     * Stores the interval in milliseconds in which the overhead governor
+     * evaluates the monitoring groups.
+     * 
+     * @since 1.30
+     */
+    private int overheadInterval = 1000;
+
+    /**
+     * Stores how the CPU time of the current thread is determined in the 
+     * probes.
+     * 
+     * @since 1.30
+     */
+    private CpuClockType cpuClock = CpuClockType.EXACT;
+
+    /**
+     * Stores the interval in micro seconds in which the CPU time is queried
+     * by {@link CpuClockType#INTERPOLATED}.
+     * 
+     * @since 1.30
+     */
+    private int cpuClockInterval = 1000;
+
+    /**
+     * Stores the maximum number of instances tracked individually per
+     * monitoring group with an instance identifier (<code>0</code> for
+     * unbounded).
+     * 
+     * @since 1.30
+     */
+    private int instanceLimit = 0;
     
     /**
      * Allow initialization of constants, particularly those injected by
@@ -349,6 +563,10 @@ public class Configuration {
             "sumResources", ConfigurationEntry.Type.ARRAY_ENUM, 
             ResourceType.class);
         ConfigurationEntry.registerEntry("tcp", ConfigurationEntry.Type.TCP_CONNECTION_INFO);
+        ConfigurationEntry.registerEntry("tcpProtocol", 
+            ConfigurationEntry.Type.INTEGER);
+        ConfigurationEntry.registerEntry("tcpCompression", "tcpCompression", 
+            ConfigurationEntry.Type.ENUM, TcpCompressionType.class);
         ConfigurationEntry.registerEntry("outInterval", 
             "outInterval", ConfigurationEntry.Type.INTEGER);
         ConfigurationEntry.registerEntry("printStatistics", "printStatistics", 
@@ -370,12 +588,51 @@ public class Configuration {
             "accountExcluded", ConfigurationEntry.Type.BOOLEAN);
         ConfigurationEntry.registerEntry("localEventProcessing", 
             ConfigurationEntry.Type.BOOLEAN);
+        ConfigurationEntry.registerEntry("threadBufferedRecording", 
+            ConfigurationEntry.Type.BOOLEAN);
+        ConfigurationEntry.registerEntry("eventLog", 
+            ConfigurationEntry.Type.STRING);
+        ConfigurationEntry.registerEntry("eventLogSegmentSize", 
+            ConfigurationEntry.Type.INTEGER);
+        ConfigurationEntry.registerEntry("eventLogMaxSize", 
+            ConfigurationEntry.Type.INTEGER);
+        ConfigurationEntry.registerEntry("timeSeries", 
+            ConfigurationEntry.Type.STRING);
+        ConfigurationEntry.registerEntry("eventBufferSize", 
+            ConfigurationEntry.Type.INTEGER);
+        ConfigurationEntry.registerEntry("eventBufferWait", "eventBufferWait",
+            ConfigurationEntry.Type.ENUM, EventBufferWaitType.class);
+        ConfigurationEntry.registerEntry("eventBufferOverflow", 
+            "eventBufferOverflow", ConfigurationEntry.Type.ENUM, 
+            EventBufferOverflowType.class);
         ConfigurationEntry.registerEntry("scopeType", "scopeType",
             ConfigurationEntry.Type.ENUM, ScopeType.class);
         ConfigurationEntry.registerEntry("exclude", 
             "excludeClasses", ConfigurationEntry.Type.STRING);
         ConfigurationEntry.registerEntry("allClassMembers", 
             ConfigurationEntry.Type.BOOLEAN);
+        ConfigurationEntry.registerEntry("transformCache", 
+            "transformCache", ConfigurationEntry.Type.STRING);
+        ConfigurationEntry.registerEntry("unallocationSampling", 
+            ConfigurationEntry.Type.INTEGER);
+        ConfigurationEntry.registerEntry("ioAccumulation", 
+            ConfigurationEntry.Type.BOOLEAN);
+        ConfigurationEntry.registerEntry("latencyHistograms", 
+            ConfigurationEntry.Type.BOOLEAN);
+        ConfigurationEntry.registerEntry("samplingRate", 
+            ConfigurationEntry.Type.INTEGER);
+        ConfigurationEntry.registerEntry("samplingInterval", 
+            ConfigurationEntry.Type.INTEGER);
+        ConfigurationEntry.registerEntry("overheadBudget", 
+            ConfigurationEntry.Type.INTEGER);
+        ConfigurationEntry.registerEntry("overheadInterval", 
+            ConfigurationEntry.Type.INTEGER);
+        ConfigurationEntry.registerEntry("cpuClock", "cpuClock", 
+            ConfigurationEntry.Type.ENUM, CpuClockType.class);
+        ConfigurationEntry.registerEntry("cpuClockInterval", 
+            ConfigurationEntry.Type.INTEGER);
+        ConfigurationEntry.registerEntry("instanceLimit", 
+            ConfigurationEntry.Type.INTEGER);
         
         
         // SYSTEM_GATHER_INTERVAL_ARG, Integer
@@ -401,6 +658,31 @@ public class Configuration {
         }
     }
 
+    /**
+     * Creates an instance for the configuration of a remote agent. 
+     * 
+     * @param remote just to distinguish this constructor from the default 
+     *   one, the agent arguments of this JVM are not considered
+     * 
+     * @since 1.30
+     */
+    private Configuration(boolean remote) {
+    }
+
+    /**
+     * Creates an instance for the configuration of a remote agent, e.g., in
+     * the recording server in order to keep the configuration of each 
+     * connected agent. The instance does not consider the agent arguments of
+     * this JVM and shall be initialized via {@link #read(DataInputStream)}.
+     * 
+     * @return the created instance
+     * 
+     * @since 1.30
+     */
+    public static Configuration createRemoteConfiguration() {
+        return new Configuration(true);
+    }
+
     /**
      * Writes this instance to the given output stream.
      * 
@@ -444,11 +726,18 @@ public class Configuration {
         for (int i = 0; i < sumResources.length; i++) {
             out.writeInt(sumResources[i].ordinal());
         }
-        out.writeInt(unrecognizedParams.size());
+        // offer the protocol version as (for old servers unrecognized) param
+        boolean offer = tcpProtocol > 1;
+        out.writeInt(unrecognizedParams.size() + (offer ? 1 : 0));
         for (HashMap.Entry<String, String> entry : unrecognizedParams.entries()) {
             StreamUtilities.writeString(out, entry.getKey());
             StreamUtilities.writeString(out, entry.getValue());
         }
+        if (offer) {
+            StreamUtilities.writeString(out, TCP_PROTOCOL_PARAM);
+            StreamUtilities.writeString(out, tcpProtocol + ":" 
+                + tcpCompression.name());
+        }
     }
     
 
@@ -504,9 +793,37 @@ public class Configuration {
         }
         tmp = in.readInt();
         unrecognizedParams.clear();
+        tcpProtocol = 1;
+        tcpCompression = TcpCompressionType.NONE;
         for (int i = 0; i < tmp; i++) {
-            unrecognizedParams.put(StreamUtilities.readString(in), 
-                StreamUtilities.readString(in));
+            String key = StreamUtilities.readString(in);
+            String value = StreamUtilities.readString(in);
+            if (TCP_PROTOCOL_PARAM.equals(key)) {
+                readTcpProtocol(value);
+            } else {
+                unrecognizedParams.put(key, value);
+            }
+        }
+    }
+
+    /**
+     * Reads the TCP protocol offer of a client.
+     * 
+     * @param offer the offer in the form version:compression
+     * 
+     * @since 1.30
+     */
+    private void readTcpProtocol(String offer) {
+        int pos = null == offer ? -1 : offer.indexOf(':');
+        if (pos > 0) {
+            try {
+                tcpProtocol = Integer.parseInt(offer.substring(0, pos));
+                tcpCompression = TcpCompressionType.valueOf(
+                    offer.substring(pos + 1));
+            } catch (IllegalArgumentException e) {
+                tcpProtocol = 1;
+                tcpCompression = TcpCompressionType.NONE;
+            }
         }
     }
     
@@ -685,6 +1002,7 @@ public class Configuration {
      */
     @Variability(id = AnnotationConstants.CONFIG_XML)
     public void setXMLConfig(String xmlConfig) {
+        xmlConfigPath = xmlConfig;
         try {
             instrumenterConfig = XMLConfiguration.read(xmlConfig);
         } catch (IOException e) {
@@ -703,6 +1021,19 @@ public class Configuration {
     public XMLConfiguration getXMLConfig() {
         return instrumenterConfig;
     }
+
+    /**
+     * Returns the path of the XML configuration file.
+     * 
+     * @return the path of the XML configuration file, <b>null</b> if no
+     *   XML configuration was given
+     * 
+     * @since 1.30
+     */
+    @Variability(id = AnnotationConstants.CONFIG_XML)
+    public String getXMLConfigPath() {
+        return xmlConfigPath;
+    }
     
     /**
      * Returns the name of the bootpath jar file .
@@ -986,6 +1317,31 @@ public class Configuration {
     public int getTCPPort() {
         return null == tcp ? -1 : tcp.getPort();
     }
+
+    /**
+     * Returns the (maximum) TCP wire protocol version to be used, on the
+     * server side after {@link #read(DataInputStream)} the version offered by
+     * the client.
+     * 
+     * @return the protocol version
+     * 
+     * @since 1.30
+     */
+    public int getTcpProtocol() {
+        return tcpProtocol;
+    }
+
+    /**
+     * Returns the compression of event batches (TCP wire protocol version 
+     * <code>2</code> and above).
+     * 
+     * @return the compression type
+     * 
+     * @since 1.30
+     */
+    public TcpCompressionType getTcpCompression() {
+        return tcpCompression;
+    }
    
     /**
      * Reads the configuration parameters from an agent command line.
@@ -1209,12 +1565,13 @@ public class Configuration {
         if (count > 1) {
             // create pseudo id
             recId = tmp.toString();
-            if (!pseudoId.containsKey(recId)) {
-                String pseudo = Helper.createPseudo(pseudoId.size());
-                pseudoId.put(recId, pseudo);
+            synchronized (pseudoId) {
+                String pseudo = pseudoId.get(recId);
+                if (null == pseudo) {
+                    pseudo = Helper.createPseudo(pseudoId.size());
+                    pseudoId.put(recId, pseudo);
+                }
                 recId = pseudo;
-            } else {
-                recId = pseudoId.get(recId);
             }
         } else if (1 == count) {
             recId = tmp.toString();
@@ -1235,9 +1592,11 @@ public class Configuration {
      * @since 1.00
      */
     public String getPseudoMapping(String recId) {
-        for (HashMap.Entry<String, String> ent : pseudoId.entries()) {
-            if (ent.getValue().equals(recId)) {
-                return ent.getKey();
+        synchronized (pseudoId) {
+            for (HashMap.Entry<String, String> ent : pseudoId.entries()) {
+                if (ent.getValue().equals(recId)) {
+                    return ent.getKey();
+                }
             }
         }
         return null;
@@ -1354,6 +1713,42 @@ public class Configuration {
         return instrumenterFactory;
     }
     
+    /**
+     * Returns the (minimum) capacity of the event buffer of the asynchronous
+     * recorder strategies.
+     * 
+     * @return the capacity in events
+     * 
+     * @since 1.30
+     */
+    public int getEventBufferSize() {
+        return eventBufferSize;
+    }
+
+    /**
+     * Returns how the asynchronous recorder strategies wait for events or
+     * free event buffer slots.
+     * 
+     * @return the wait type
+     * 
+     * @since 1.30
+     */
+    public EventBufferWaitType getEventBufferWait() {
+        return eventBufferWait;
+    }
+
+    /**
+     * Returns how the asynchronous recorder strategies handle a full event
+     * buffer.
+     * 
+     * @return the overflow type
+     * 
+     * @since 1.30
+     */
+    public EventBufferOverflowType getEventBufferOverflow() {
+        return eventBufferOverflow;
+    }
+    
     /**
      * Returns whether local event processing shall be done or whether
      * local synchronous calls shall be used instead.
@@ -1367,8 +1762,12 @@ public class Configuration {
         RecordingType type;
         if (null != getTCPHostname() && getTCPPort() > 0) {
             type = RecordingType.TCP;
+        } else if (null != eventLog && eventLog.length() > 0) {
+            type = RecordingType.EVENT_LOG;
         } else {
-            if (localEventProcessing) {
+            if (threadBufferedRecording) {
+                type = RecordingType.LOCAL_THREAD_BUFFERED;
+            } else if (localEventProcessing) {
                 type = RecordingType.LOCAL_ASYNCHRONOUS;
             } else {
                 type = RecordingType.LOCAL_SYNCHRONOUS;
@@ -1391,4 +1790,234 @@ public class Configuration {
         return allClassMembers;
     }
 
+    /**
+     * Returns the directory of the persistent cache of transformed classes. 
+     * Transformed classes are then stored for subsequent runs with the same 
+     * configuration and the same class path.
+     * 
+     * @return the directory, <b>null</b> if the cache is disabled
+     * 
+     * @since 1.30
+     */
+    public String getTransformCache() {
+        return transformCache;
+    }
+
+    /**
+     * Returns the sampling rate of the unallocation recording if the native
+     * library is not available. Only every n-th allocated object is tracked
+     * then and its size is scaled by n.
+     * 
+     * @return the sampling rate (positive)
+     * 
+     * @since 1.30
+     */
+    public int getUnallocationSampling() {
+        return Math.max(1, unallocationSampling);
+    }
+
+    /**
+     * Returns whether I/O bytes shall be accumulated per thread instead of
+     * notifying the recorder strategy about each individual I/O operation.
+     * 
+     * @return <code>true</code> if I/O bytes shall be accumulated, 
+     *   <code>false</code> else
+     * 
+     * @since 1.30
+     */
+    public boolean accumulateIo() {
+        return ioAccumulation;
+    }
+
+    /**
+     * Returns whether the system and CPU time of individual invocations of
+     * monitoring groups shall be recorded in latency histograms.
+     * 
+     * @return <code>true</code> if latency histograms shall be recorded, 
+     *   <code>false</code> else
+     * 
+     * @since 1.30
+     */
+    public boolean recordLatencyHistograms() {
+        return latencyHistograms;
+    }
+
+    /**
+     * Returns the default sampling rate of monitoring groups. Only every 
+     * n-th invocation of a monitoring group is recorded then while the 
+     * remaining invocations are just counted in order to estimate the 
+     * resource consumption of the group. 
+     * 
+     * @return the sampling rate (positive, <code>1</code> if all invocations
+     *   shall be recorded)
+     * 
+     * @since 1.30
+     */
+    public int getSamplingRate() {
+        return Math.max(1, samplingRate);
+    }
+
+    /**
+     * Returns the default sampling interval of monitoring groups. If 
+     * positive, an invocation of a monitoring group is only recorded if the
+     * interval elapsed since the last recorded invocation of the group in 
+     * the same thread. The time-based sampling takes precedence over 
+     * {@link #getSamplingRate()}.
+     * 
+     * @return the sampling interval in micro seconds (<code>0</code> if 
+     *   time-based sampling is disabled)
+     * 
+     * @since 1.30
+     */
+    public int getSamplingInterval() {
+        return Math.max(0, samplingInterval);
+    }
+
+    /**
+     * Returns whether sampling may apply to any monitoring group, i.e. 
+     * whether it is enabled by default or for an individual group.
+     * 
+     * @return <code>true</code> if sampling may apply, <code>false</code> 
+     *   else
+     * 
+     * @since 1.30
+     */
+    public boolean isSampling() {
+        return groupSampling || getSamplingRate() > 1 
+            || getSamplingInterval() > 0;
+    }
+
+    /**
+     * Records that sampling was configured for an individual monitoring
+     * group.
+     * 
+     * @since 1.30
+     */
+    void enableGroupSampling() {
+        groupSampling = true;
+    }
+
+    /**
+     * Returns the overhead budget. If positive, the time spent in the probes
+     * of each monitoring group is measured and groups exceeding the budget 
+     * are folded, i.e. their probes are removed by retransforming the 
+     * affected classes and their resource consumption is accounted to the 
+     * calling group. Pinned groups (see 
+     * {@link MonitoringGroupConfiguration#isPinned()}) are never folded.
+     * 
+     * @return the overhead budget in percent of the execution time of a 
+     *   group (<code>0</code> if the governor is disabled)
+     * 
+     * @since 1.30
+     */
+    public int getOverheadBudget() {
+        return Math.max(0, overheadBudget);
+    }
+
+    /**
+     * Returns the interval in which the overhead governor evaluates the 
+     * monitoring groups.
+     * 
+     * @return the interval in milliseconds (positive)
+     * 
+     * @since 1.30
+     */
+    public int getOverheadInterval() {
+        return Math.max(1, overheadInterval);
+    }
+
+    /**
+     * Returns how the CPU time of the current thread is determined in the
+     * probes (see {@link CpuClockType} for the accuracy trade-offs).
+     * 
+     * @return the CPU clock type
+     * 
+     * @since 1.30
+     */
+    public CpuClockType getCpuClock() {
+        return cpuClock;
+    }
+
+    /**
+     * Returns the interval in which the CPU time is queried by
+     * {@link CpuClockType#INTERPOLATED}.
+     * 
+     * @return the interval in micro seconds (positive)
+     * 
+     * @since 1.30
+     */
+    public int getCpuClockInterval() {
+        return Math.max(1, cpuClockInterval);
+    }
+
+    /**
+     * Returns the maximum number of instances tracked individually per
+     * monitoring group with an instance identifier. If the limit is
+     * exceeded, only the most frequently used instances are kept and the
+     * remaining ones are accounted together. Individual groups may override
+     * this limit (see {@link MonitoringGroupConfiguration#getInstanceLimit()}).
+     * 
+     * @return the maximum number of instances, <code>0</code> for unbounded
+     * 
+     * @since 1.30
+     */
+    public int getInstanceLimit() {
+        return Math.max(0, instanceLimit);
+    }
+
+    /**
+     * Returns the directory of the binary event log.
+     * 
+     * @return the directory, <b>null</b> if the event log is disabled
+     * 
+     * @since 1.30
+     */
+    public String getEventLog() {
+        return eventLog;
+    }
+
+    /**
+     * Returns the size of an event log segment.
+     * 
+     * @return the size in megabytes (positive)
+     * 
+     * @since 1.30
+     */
+    public int getEventLogSegmentSize() {
+        return Math.max(1, eventLogSegmentSize);
+    }
+
+    /**
+     * Returns the maximum size of all event log segments.
+     * 
+     * @return the size in megabytes, <code>0</code> for unbounded
+     * 
+     * @since 1.30
+     */
+    public int getEventLogMaxSize() {
+        return Math.max(0, eventLogMaxSize);
+    }
+
+    /**
+     * Returns the file of the time series store.
+     * 
+     * @return the file, <b>null</b> if the time series store is disabled
+     * 
+     * @since 1.30
+     */
+    public String getTimeSeries() {
+        return timeSeries;
+    }
+
+    /**
+     * Returns the agent arguments this configuration was read from.
+     * 
+     * @return the agent arguments, <b>null</b> if none were given
+     * 
+     * @since 1.30
+     */
+    public String getAgentArguments() {
+        return System.getProperty(JVM_PROPERTY_CONFIGURATION_ARGS);
+    }
+
 }
@@ -0,0 +1,48 @@
+package de.uni_hildesheim.sse.monitoring.runtime.configuration;
+
+/**
+ * Defines how the CPU time of the current thread is determined upon the
+ * enter and exit of a monitoring group. Determining the thread CPU time is
+ * typically the most expensive part of a probe, so the cheaper clocks trade
+ * accuracy for overhead.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public enum CpuClockType {
+
+    /**
+     * Queries the CPU time of the thread via its identifier upon each enter
+     * and exit. Most accurate, most expensive.
+     */
+    EXACT,
+
+    /**
+     * Queries the CPU time of the current thread without looking up the
+     * thread via its identifier. As accurate as {@link #EXACT} but cheaper
+     * on most JVMs.
+     */
+    CURRENT,
+
+    /**
+     * Queries the CPU time of the current thread only if the monitoring
+     * group changes, i.e. nested invocations of the group being recorded
+     * reuse the previous value. As accurate as {@link #CURRENT} as the
+     * values of nested invocations are not accounted, but the CPU time of
+     * the nested invocations is not available, e.g., to latency histograms
+     * or plugins.
+     */
+    TRANSITION,
+
+    /**
+     * Queries the CPU time of the current thread at most once per interval
+     * (see {@link Configuration#getCpuClockInterval()}) and interpolates in
+     * between using the elapsed system time and the ratio of CPU to system
+     * time in the last interval. Cheap also if the groups change, but the
+     * CPU time of short invocations may be wrong by up to the interval, 
+     * e.g., if a thread blocks in between. Values never decrease.
+     */
+    INTERPOLATED;
+
+}
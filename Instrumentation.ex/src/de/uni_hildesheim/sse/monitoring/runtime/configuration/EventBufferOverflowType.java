@@ -0,0 +1,34 @@
+package de.uni_hildesheim.sse.monitoring.runtime.configuration;
+
+/**
+ * Defines the behavior of the asynchronous recorder strategies if the event
+ * buffer runs full, i.e. if event processing is slower than the monitored
+ * program. Events which are required for consistent recording (e.g., method
+ * enter and exit) are never dropped, i.e. their producers block in any case.
+ * Only events for which loss just reduces accuracy (memory and I/O
+ * accounting) are subject to dropping. Dropped events are counted.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public enum EventBufferOverflowType {
+
+    /**
+     * Producers wait until a slot becomes free.
+     */
+    BLOCK,
+
+    /**
+     * Droppable events are dropped if the buffer is full.
+     */
+    DROP,
+
+    /**
+     * Only a sample of the droppable events is kept if the buffer is at least
+     * half full, the remaining ones are dropped (as well as all droppable
+     * events if the buffer is full).
+     */
+    SAMPLE;
+
+}
@@ -0,0 +1,29 @@
+package de.uni_hildesheim.sse.monitoring.runtime.configuration;
+
+/**
+ * Defines how the event processing thread of the asynchronous recorder
+ * strategies waits for new events and how producers wait for free slots
+ * in a full event buffer.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public enum EventBufferWaitType {
+
+    /**
+     * Busy waiting, lowest latency but occupies a CPU core.
+     */
+    SPIN,
+
+    /**
+     * Yields the processor while waiting.
+     */
+    YIELD,
+
+    /**
+     * Parks the waiting thread until signaled (or for a short time).
+     */
+    PARK;
+
+}
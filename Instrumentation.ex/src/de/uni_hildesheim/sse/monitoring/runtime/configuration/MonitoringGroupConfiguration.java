@@ -14,7 +14,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.boot.ResourceType;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.20
+ * @version 1.30
  */
 public class MonitoringGroupConfiguration {
 
@@ -56,6 +56,38 @@ public class MonitoringGroupConfiguration {
      * @since 1.20
      */
     private InstanceIdentifierKind instanceIdentifierKind = InstanceIdentifierKind.DEFAULT;
+
+    /**
+     * Stores the sampling rate, i.e. only every n-th invocation is recorded
+     * (<code>0</code> refers to the global configuration).
+     * 
+     * @since 1.30
+     */
+    private int samplingRate = 0;
+
+    /**
+     * Stores the sampling interval in micro seconds (negative values refer
+     * to the global configuration).
+     * 
+     * @since 1.30
+     */
+    private int samplingInterval = -1;
+
+    /**
+     * Stores whether the monitoring group shall always be instrumented, i.e.
+     * never be folded by the overhead governor.
+     * 
+     * @since 1.30
+     */
+    private boolean pinned = false;
+
+    /**
+     * Stores the maximum number of instances tracked individually for this
+     * monitoring group (negative values refer to the global configuration).
+     * 
+     * @since 1.30
+     */
+    private int instanceLimit = -1;
     
     /**
      * Creates the default instance.
@@ -96,6 +128,39 @@ public class MonitoringGroupConfiguration {
             this.instanceIdentifierKind = instanceIdentifierKind;
         }
     }
+
+    /**
+     * Creates a new monitoring group configuration.
+     * 
+     * @param debug any combination of debug states for additional information 
+     *   to be emitted during monitoring
+     * @param accounting the group accounting strategy (may be <b>null</b>, then
+     *   the default accounting specified in the configuration is applied)
+     * @param resourceTypes the accountable resources (may be <b>null</b>, then
+     *   all available resources are accounted).
+     * @param instanceIdentifierKind the instance identifier (may be 
+     *   <b>null</b>, leads to default)
+     * @param samplingRate the sampling rate (<code>0</code> refers to the 
+     *   global configuration)
+     * @param samplingInterval the sampling interval in micro seconds 
+     *   (negative values refer to the global configuration)
+     * @param pinned whether the group shall never be folded by the overhead
+     *   governor
+     * @param instanceLimit the maximum number of individual instances 
+     *   (negative values refer to the global configuration)
+     * 
+     * @since 1.30
+     */
+    private MonitoringGroupConfiguration(DebugState[] debug, 
+        GroupAccountingType accounting, ResourceType[] resourceTypes, 
+        InstanceIdentifierKind instanceIdentifierKind, int samplingRate, 
+        int samplingInterval, boolean pinned, int instanceLimit) {
+        this(debug, accounting, resourceTypes, instanceIdentifierKind);
+        this.samplingRate = samplingRate;
+        this.samplingInterval = samplingInterval;
+        this.pinned = pinned;
+        this.instanceLimit = instanceLimit;
+    }
     
     /**
      * Returns the group accounting to be applied. 
@@ -143,6 +208,88 @@ public class MonitoringGroupConfiguration {
         return instanceIdentifierKind;
     }
 
+    /**
+     * Returns the sampling rate, i.e. only every n-th invocation of the 
+     * monitoring group is recorded.
+     * 
+     * @return the sampling rate (positive, <code>1</code> if all invocations
+     *   shall be recorded)
+     * 
+     * @see Configuration#getSamplingRate()
+     * @since 1.30
+     */
+    public int getSamplingRate() {
+        int result = samplingRate;
+        if (result <= 0) {
+            result = Configuration.INSTANCE.getSamplingRate();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the sampling interval, i.e. an invocation of the monitoring 
+     * group is only recorded if the interval elapsed since the last recorded
+     * invocation in the same thread.
+     * 
+     * @return the sampling interval in micro seconds (<code>0</code> if 
+     *   time-based sampling is disabled)
+     * 
+     * @see Configuration#getSamplingInterval()
+     * @since 1.30
+     */
+    public int getSamplingInterval() {
+        int result = samplingInterval;
+        if (result < 0) {
+            result = Configuration.INSTANCE.getSamplingInterval();
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the monitoring group shall always be instrumented, i.e.
+     * whether the overhead governor must not fold it into its caller.
+     * 
+     * @return <code>true</code> if the group is pinned, <code>false</code> 
+     *   else
+     * 
+     * @see Configuration#getOverheadBudget()
+     * @since 1.30
+     */
+    public boolean isPinned() {
+        return pinned;
+    }
+
+    /**
+     * Returns the maximum number of instances tracked individually for this
+     * monitoring group.
+     * 
+     * @return the maximum number of instances, <code>0</code> for unbounded
+     * 
+     * @see Configuration#getInstanceLimit()
+     * @since 1.30
+     */
+    public int getInstanceLimit() {
+        int result = instanceLimit;
+        if (result < 0) {
+            result = Configuration.INSTANCE.getInstanceLimit();
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the maximum number of individual instances is 
+     * defined for this monitoring group rather than by the global 
+     * configuration.
+     * 
+     * @return <code>true</code> if the limit is defined for this group, 
+     *   <code>false</code> else
+     * 
+     * @since 1.30
+     */
+    public boolean hasInstanceLimit() {
+        return instanceLimit >= 0;
+    }
+
     /**
      * Creates a new monitoring group configuration and checks for references
      * to {@link #DEFAULT}.
@@ -158,6 +305,36 @@ public class MonitoringGroupConfiguration {
      */
     public static final MonitoringGroupConfiguration create(DebugState[] debug, 
         GroupAccountingType accounting, ResourceType[] resourceTypes, InstanceIdentifierKind instanceIdentifierKind) {
+        return create(debug, accounting, resourceTypes, instanceIdentifierKind,
+            0, -1, false, -1);
+    }
+
+    /**
+     * Creates a new monitoring group configuration including sampling and
+     * overhead settings and checks for references to {@link #DEFAULT}.
+     * 
+     * @param debug any combination of debug states for additional information 
+     *   to be emitted during monitoring (must not be <b>null</b>)
+     * @param accounting the group accounting strategy (must not be <b>null</b>)
+     * @param resourceTypes the accountable resources (must not be <b>null</b>)
+     * @param instanceIdentifierKind instance identifier kind (must not be 
+     *   <b>null</b>)
+     * @param samplingRate the sampling rate (<code>0</code> refers to the 
+     *   global configuration)
+     * @param samplingInterval the sampling interval in micro seconds 
+     *   (negative values refer to the global configuration)
+     * @param pinned whether the group shall never be folded by the overhead
+     *   governor
+     * @param instanceLimit the maximum number of individual instances 
+     *   (negative values refer to the global configuration)
+     * @return the created monitoring group configuration or {@link #DEFAULT}
+     * 
+     * @since 1.30
+     */
+    public static final MonitoringGroupConfiguration create(DebugState[] debug, 
+        GroupAccountingType accounting, ResourceType[] resourceTypes, 
+        InstanceIdentifierKind instanceIdentifierKind, int samplingRate, 
+        int samplingInterval, boolean pinned, int instanceLimit) {
         Configuration conf = Configuration.INSTANCE;
 
         resourceTypes = ResourceType.ensureSubset(
@@ -200,13 +377,27 @@ public class MonitoringGroupConfiguration {
         isDflt &= Arrays.deepEquals(resourceTypes, DEFAULT.resourceTypes);
         isDflt &= Arrays.deepEquals(debug, DEFAULT.debug);
         isDflt &= (null == instanceIdentifierKind || InstanceIdentifierKind.DEFAULT == instanceIdentifierKind);
+        if (samplingRate < 0) {
+            samplingRate = 0;
+        }
+        if (samplingRate > 0 || samplingInterval >= 0) {
+            isDflt = false;
+            conf.enableGroupSampling();
+        }
+        isDflt &= !pinned;
+        if (instanceLimit < 0) {
+            instanceLimit = -1;
+        } else {
+            isDflt = false;
+        }
         if (isDflt) {
             // unify references and safe memory
             result = DEFAULT;
         } else {
             // create new instance
             result = new MonitoringGroupConfiguration(debug, accounting, 
-                resourceTypes, instanceIdentifierKind);
+                resourceTypes, instanceIdentifierKind, samplingRate, 
+                samplingInterval, pinned, instanceLimit);
         }
         return result;
     }
@@ -228,6 +419,38 @@ public class MonitoringGroupConfiguration {
      */
     public static MonitoringGroupConfiguration create(
         String debug, String accounting, String resources, String instanceIdentifierKind) {
+        return create(debug, accounting, resources, instanceIdentifierKind, 
+            null, null, null, null);
+    }
+
+    /**
+     * Creates a new monitoring group configuration including sampling and
+     * overhead settings from equivalent string values.
+     * 
+     * @param debug the debug states (may be <b>null</b>, then no debug state
+     *   is considered; comma separated)
+     * @param accounting the group accounting strategy (may be <b>null</b>, then
+     *   the default accounting specified in the configuration is applied)
+     * @param resources the accountable resources (may be <b>null</b>, then
+     *   all available resources are accounted; comma separated).
+     * @param instanceIdentifierKind the instance identifier kind, may be 
+     *   <b>null</b> then the default is used
+     * @param samplingRate the sampling rate (may be <b>null</b>, then the
+     *   global configuration applies)
+     * @param samplingInterval the sampling interval in micro seconds (may be
+     *   <b>null</b>, then the global configuration applies)
+     * @param pinned whether the group shall never be folded by the overhead
+     *   governor (may be <b>null</b>, then the group is not pinned)
+     * @param instanceLimit the maximum number of individual instances (may 
+     *   be <b>null</b>, then the global configuration applies)
+     * @return the created monitoring group configuration or {@link #DEFAULT}
+     * 
+     * @since 1.30
+     */
+    public static MonitoringGroupConfiguration create(String debug, 
+        String accounting, String resources, String instanceIdentifierKind, 
+        String samplingRate, String samplingInterval, String pinned, 
+        String instanceLimit) {
         DebugState[] aDebug = DebugState.DEFAULT;
         GroupAccountingType aAccounting = GroupAccountingType.DEFAULT;
         ResourceType[] aResources = ResourceType.SET_DEFAULT;
@@ -283,7 +506,31 @@ public class MonitoringGroupConfiguration {
                 }
             }
         }
-        return create(aDebug, aAccounting, aResources, aInstanceIdentifierKind);
+        return create(aDebug, aAccounting, aResources, aInstanceIdentifierKind,
+            parseInt(samplingRate, 0), parseInt(samplingInterval, -1),
+            Boolean.valueOf(pinned), parseInt(instanceLimit, -1));
+    }
+
+    /**
+     * Parses an integer value.
+     * 
+     * @param value the value to be parsed (may be <b>null</b>)
+     * @param dflt the default value to be returned if <code>value</code> is
+     *   <b>null</b> or cannot be parsed
+     * @return the parsed value or <code>dflt</code>
+     * 
+     * @since 1.30
+     */
+    private static int parseInt(String value, int dflt) {
+        int result = dflt;
+        if (null != value) {
+            try {
+                result = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                Configuration.LOG.config("illegal number '" + value + "'");
+            }
+        }
+        return result;
     }
     
     /**
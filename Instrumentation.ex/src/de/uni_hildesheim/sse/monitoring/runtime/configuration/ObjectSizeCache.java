@@ -1,390 +1,336 @@
 package de.uni_hildesheim.sse.monitoring.runtime.configuration;
 
+import java.lang.reflect.Array;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
 import de.uni_hildesheim.sse.monitoring.runtime.recording.ObjectSizeProvider;
 
 /**
- * Implements an object size cache, a simplified and typed version the 
- * hashmap <code>java.util.HashMap</code>.
- * 
- * @author from SUN/ORACLE
+ * Implements a thread-safe object size cache. Sizes of (non-array) classes
+ * are stored in a slot attached to the Class via a {@link ClassValue}, i.e.
+ * querying a known size does neither lock nor hash class names. Sizes
+ * provided by class name (while instrumenting, when the Class may not be
+ * loaded yet) are kept in a concurrent map and moved into the slot of the
+ * Class when it is queried for the first time. Sizes of arrays are
+ * calculated from the length of the array and the layout of the array class
+ * (header size and element size), which is determined once per array class
+ * by querying the object size provider for some sample arrays.
+ *
+ * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public class ObjectSizeCache {
 
     /**
-     * Implements a bucket entry.
-     * 
-     * @author from SUN/ORACLE
-     * @since 1.00
-     * @version 1.00
+     * Denotes an unknown size.
+     */
+    private static final long UNKNOWN = -1;
+
+    /**
+     * Defines the assumed alignment of objects in memory (in bytes). The
+     * array layout is verified against the object size provider, i.e. in case
+     * of a different alignment array sizes are queried from the provider.
+     */
+    private static final int ALIGNMENT = 8;
+
+    /**
+     * Defines the array lengths used to determine the size of an array
+     * element. Both must be multiples of the alignment.
+     */
+    private static final int[] ELEMENT_PROBES = {32, 64};
+
+    /**
+     * Defines the array lengths used to verify a determined array layout.
+     */
+    private static final int[] VERIFY_PROBES = {1, 3, 13, 100};
+
+    /**
+     * Stores the size slot of a class.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
      */
-    private static class Entry {
-        
+    private static class Slot {
+
         /**
-         * Stores the key (initially the class name, later the Class itself).
+         * Atomically updates {@link #size}.
          */
-        private final Object key;
-        
+        private static final AtomicLongFieldUpdater<Slot> SIZE
+            = AtomicLongFieldUpdater.newUpdater(Slot.class, "size");
+
         /**
-         * Stores the associated size.
+         * Stores the size of instances of a non-array class
+         * ({@link ObjectSizeCache#UNKNOWN} if not known).
          */
-        private long size;
-        
+        private volatile long size = UNKNOWN;
+
         /**
-         * Stores the next entry.
+         * Stores whether the class is an array class.
          */
-        private Entry next;
-        
+        private boolean isArray;
+
         /**
-         * Stores the hash value.
+         * Stores the size of an array element, negative if the size of arrays
+         * cannot be calculated.
          */
-        private final int hash;
+        private long elementSize = UNKNOWN;
 
         /**
-         * Creates new entry.
-         * 
-         * @param hash the hash value
-         * @param key the class name or the Class
-         * @param size the memory size of the class
-         * @param next the next entry
+         * Stores the size of the array header.
          */
-        Entry(int hash, Object key, long size, Entry next) {
-            this.size = size;
-            this.next = next;
-            this.key = key;
-            this.hash = hash;
-        }
-
+        private long headerSize;
     }
 
     /**
-     * Stores the singleton instance of this class.
-     */
-    public static final ObjectSizeCache INSTANCE = new ObjectSizeCache();
-    
-    /**
-     * Stores the object size provider.
-     */
-    private static IObjectSizeProvider objectSizeProvider 
-        = ObjectSizeProvider.getInstance();
-    
-    /**
-     * The default initial capacity - MUST be a power of two.
+     * Creates the slots on demand.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
      */
-    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+    private class SlotValue extends ClassValue<Slot> {
 
-    /**
-     * The maximum capacity, used if a higher value is implicitly specified
-     * by either of the constructors with arguments.
-     * MUST be a power of two &lt;= 1&lt;&lt;30.
-     */
-    private static final int MAXIMUM_CAPACITY = 1 << 30;
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected Slot computeValue(Class<?> type) {
+            Slot slot = new Slot();
+            if (type.isArray()) {
+                slot.isArray = true;
+                determineArrayLayout(type.getComponentType(), slot);
+            } else {
+                Long size = names.remove(type.getName());
+                if (null != size) {
+                    slot.size = size;
+                    classCount.incrementAndGet();
+                }
+            }
+            return slot;
+        }
+    }
 
     /**
-     * The load factor used when none specified in constructor.
+     * Stores the singleton instance of this class.
      */
-    private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    public static final ObjectSizeCache INSTANCE = new ObjectSizeCache();
 
     /**
-     * The table, resized as necessary. Length MUST Always be a power of two.
+     * Stores the slots of the classes. This attribute is replaced when
+     * clearing the cache.
      */
-    private transient Entry[] table;
+    private volatile SlotValue slots = new SlotValue();
 
     /**
-     * The number of key-value mappings contained in this map.
+     * Stores the sizes given by class names (or other keys than classes).
      */
-    private transient int size;
-    
-    /**
-     * The next size value at which to resize (capacity * load factor).
-     * @serial
-     */
-    private int threshold;
+    private final ConcurrentHashMap<Object, Long> names
+        = new ConcurrentHashMap<Object, Long>();
 
     /**
-     * The load factor for the hash table.
-     *
-     * @serial
+     * Stores the number of classes with known size.
      */
-    private final float loadFactor;
+    private final AtomicInteger classCount = new AtomicInteger();
 
     /**
-     * Constructs an empty <tt>HashMap</tt> with the default initial capacity
-     * (16) and the default load factor (0.75).
+     * Prevents this class from being instantiated from outside.
      */
     private ObjectSizeCache() {
-        this.loadFactor = DEFAULT_LOAD_FACTOR;
-        threshold = (int) (DEFAULT_INITIAL_CAPACITY * DEFAULT_LOAD_FACTOR);
-        table = new Entry[DEFAULT_INITIAL_CAPACITY];
-    }
-    
-    /**
-     * Applies a supplemental hash function to a given hashCode, which
-     * defends against poor quality hash functions.  This is critical
-     * because HashMap uses power-of-two length hash tables, that
-     * otherwise encounter collisions for hashCodes that do not differ
-     * in lower bits. Note: Null keys always map to hash 0, thus index 0.
-     * 
-     * @param key the key to hash
-     * @return the hash value
-     */
-    static int hash(int key) {
-        // This function ensures that hashCodes that differ only by
-        // constant multiples at each bit position have a bounded
-        // number of collisions (approximately 8 at default load factor).
-        key ^= (key >>> 20) ^ (key >>> 12);
-        return key ^ (key >>> 7) ^ (key >>> 4);
     }
-    
-    /**
-     * Returns index for hash code h.
-     * 
-     * @param hash the hash code
-     * @param length the length of the table
-     * @return the index
-     */
-    static int indexFor(int hash, int length) {
-        return hash & (length - 1);
-    } 
-    
+
     /**
-     * Associates the specified value with the specified key in this map.
-     * If the map previously contained a mapping for the key, the old
-     * value is replaced.
+     * Associates the specified size with the specified key. A size given for
+     * an array class is ignored as array sizes are calculated.
      *
      * @param key the name of the class or the Class to associate the size to
-     * @param size the memory size to be associated with 
-     *   the <code>className</code>
+     * @param size the memory size to be associated with <code>key</code>
      */
     public void setSize(Object key, long size) {
-        int hash = hash(key.hashCode());
-        int i = indexFor(hash, table.length);
-        for (Entry e = table[i]; e != null; e = e.next) {
-            Object k;
-            if (e.hash == hash 
-                && ((k = e.key) == key || key.equals(k))) {
-                e.size = size;
-                return;
+        if (key instanceof Class) {
+            Slot slot = slots.get((Class<?>) key);
+            if (!slot.isArray
+                && UNKNOWN == Slot.SIZE.getAndSet(slot, size)) {
+                classCount.incrementAndGet();
             }
+        } else {
+            names.put(key, size);
         }
-        addEntry(hash, key, size, i);
     }
 
     /**
-     * Adds a new entry with the specified key, value and hash code to
-     * the specified bucket.  It is the responsibility of this
-     * method to resize the table if appropriate.
-     *
-     * Subclass overrides this to alter the behavior of put method.
-     * @param hash the hash code
-     * @param key the class name of the class or the Class 
-     * @param size the memory size of the class with <code>className</code>
-     * @param bucketIndex the target bucket index
-     */
-    void addEntry(int hash, Object key, long size, int bucketIndex) {
-        Entry e = table[bucketIndex];
-        table[bucketIndex] = new Entry(hash, key, size, e);
-        if (size++ >= threshold) {
-            resize(2 * table.length);
-        }
-    }
-    
-    /**
-     * Rehashes the contents of this map into a new array with a
-     * larger capacity.  This method is called automatically when the
-     * number of keys in this map reaches its threshold.
-     *
-     * If current capacity is MAXIMUM_CAPACITY, this method does not
-     * resize the map, but sets threshold to Integer.MAX_VALUE.
-     * This has the effect of preventing future calls.
-     *
-     * @param newCapacity the new capacity, MUST be a power of two;
-     *        must be greater than current capacity unless current
-     *        capacity is MAXIMUM_CAPACITY (in which case value
-     *        is irrelevant).
-     */
-    void resize(int newCapacity) {
-        Entry[] oldTable = table;
-        int oldCapacity = oldTable.length;
-        if (oldCapacity == MAXIMUM_CAPACITY) {
-            threshold = Integer.MAX_VALUE;
-            return;
-        }
-
-        Entry[] newTable = new Entry[newCapacity];
-        transfer(newTable);
-        table = newTable;
-        threshold = (int) (newCapacity * loadFactor);
-    }
-    
-    /**
-     * Transfers all entries from current table to newTable.
-     * 
-     * @param newTable the target table
-     */
-    void transfer(Entry[] newTable) {
-        Entry[] src = table;
-        int newCapacity = newTable.length;
-        for (int j = 0; j < src.length; j++) {
-            Entry e = src[j];
-            if (e != null) {
-                src[j] = null;
-                do {
-                    Entry next = e.next;
-                    int i = indexFor(e.hash, newCapacity);
-                    e.next = newTable[i];
-                    newTable[i] = e;
-                    e = next;
-                } while (e != null);
-            }
-        }
-    }
-    
-    /**
-     * Returns the size of the class specified by <code>className</code>. 
-     * Please note that this method is intended to be used while 
+     * Returns the size of the class specified by <code>className</code>.
+     * Please note that this method is intended to be used while
      * instrumentation for improving the runtime performance of the memory size
-     * determination. 
-     * 
+     * determination.
+     *
      * @param className the name of the class
-     * @return the memory size of the class denoted by <code>className</code>, 
+     * @return the memory size of the class denoted by <code>className</code>,
      *   <code>0</code> if the class is not known to this cache.
-     * 
+     *
      * @since 1.00
      */
     public long getClassSize(String className) {
-        int hash = hash(className.hashCode());
-        Object k;
-        for (Entry e = table[indexFor(hash, table.length)]; e != null; 
-            e = e.next) {
-            if (e.hash == hash 
-                && ((k = e.key) == className || className.equals(k))) {
-                return e.size;
-            }
-        }
-        return 0;
+        Long size = names.get(className);
+        return null == size ? 0 : size;
     }
-    
+
     /**
      * Returns the memory size of <code>object</code>. In case that the class
      * of <code>object</code> is already known to this cache, the stored size
-     * is returned. Else the {@link #objectSizeProvider} is used to determine 
-     * the size.
+     * is returned. In case of arrays, the size is calculated from the array
+     * layout. Else the object size provider is used to determine the size.
      *
      * @param object the object to determine the size for
-     * @param remember if <code>true</code> remember an unknown size, 
-     *   <code>false</code> if an unknown size may be ignroed
+     * @param remember if <code>true</code> remember an unknown size,
+     *   <code>false</code> if an unknown size may be ignored
      * @return the memory size of <code>object</code>
      */
     public long getSize(Object object, boolean remember) {
-        Class<?> cls = object.getClass();
-        boolean isArray = cls.isArray();
-        /*if (isArray) {
-            // not faster than directly querying the objectSizeProvider
-            // do not query cache as in case of references it is just 
-            // the reference
-            int length = Array.getLength(object);
-            long componentSize;
-            if (length > 0) {
-                componentSize = ObjectSizeEstimator.getTypeSize(
-                    cls.getComponentType());
+        Slot slot = slots.get(object.getClass());
+        long result = slot.size;
+        if (UNKNOWN == result) {
+            if (slot.isArray) {
+                if (slot.elementSize >= 0) {
+                    result = arraySize(slot.headerSize, slot.elementSize,
+                        Array.getLength(object));
+                } else {
+                    result = getObjectSize(object);
+                }
             } else {
-                componentSize = 0;
-            }
-            return ObjectSizeEstimator.getArraySize(length, componentSize);
-        } else*/ 
-        if (!isArray) {
-            int hash = hash(cls.hashCode());
-            Object k;
-            for (Entry e = table[indexFor(hash, table.length)]; e != null;
-                 e = e.next) {
-                if (e.hash == hash && ((k = e.key) == cls 
-                    || cls.equals(k))) {
-                    return e.size;
+                result = getObjectSize(object);
+                if (remember && Slot.SIZE.compareAndSet(slot, UNKNOWN,
+                    result)) {
+                    classCount.incrementAndGet();
                 }
             }
+        }
+        return result;
+    }
 
-            String className = cls.getName();
-            hash = hash(className.hashCode());
-            for (Entry e = table[indexFor(hash, table.length)]; e != null;
-                 e = e.next) {
-                if (e.hash == hash && ((k = e.key) == className 
-                    || className.equals(k))) {
-                    long result = e.size;
-                    remove(className);
-                    setSize(cls, result);
-                    return result;
-                }
+    /**
+     * Returns the size of an object as determined by the object size
+     * provider.
+     *
+     * @param object the object
+     * @return the size of <code>object</code>
+     *
+     * @since 1.30
+     */
+    private static long getObjectSize(Object object) {
+        return ObjectSizeProvider.getInstance().getObjectSize(object);
+    }
+
+    /**
+     * Calculates the size of an array.
+     *
+     * @param headerSize the size of the array header
+     * @param elementSize the size of an array element
+     * @param length the length of the array
+     * @return the aligned size of the array
+     *
+     * @since 1.30
+     */
+    private static long arraySize(long headerSize, long elementSize,
+        int length) {
+        long size = headerSize + elementSize * length;
+        return (size + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+    }
+
+    /**
+     * Determines the layout of arrays with the given component type by
+     * querying the object size provider for sample arrays. In case that the
+     * layout cannot be determined or does not match the sizes of the
+     * provider, the element size of <code>slot</code> remains negative.
+     *
+     * @param componentType the component type of the array
+     * @param slot the slot to store the layout into
+     *
+     * @since 1.30
+     */
+    private static void determineArrayLayout(Class<?> componentType,
+        Slot slot) {
+        long emptySize = getObjectSize(Array.newInstance(componentType, 0));
+        long first = getObjectSize(
+            Array.newInstance(componentType, ELEMENT_PROBES[0]));
+        long second = getObjectSize(
+            Array.newInstance(componentType, ELEMENT_PROBES[1]));
+        long elementSize = (second - first)
+            / (ELEMENT_PROBES[1] - ELEMENT_PROBES[0]);
+        if (emptySize > 0 && elementSize > 0) {
+            // padding of the empty array may hold some elements
+            int fitting = 0;
+            while (fitting < ALIGNMENT && emptySize == getObjectSize(
+                Array.newInstance(componentType, fitting + 1))) {
+                fitting++;
             }
-        } 
-        long value = objectSizeProvider.getObjectSize(object);
-        if (!isArray && remember) {
-            setSize(cls, value);
+            long headerSize = emptySize - fitting * elementSize;
+            boolean matches = true;
+            for (int i = 0; matches && i < VERIFY_PROBES.length; i++) {
+                int length = VERIFY_PROBES[i];
+                matches = arraySize(headerSize, elementSize, length)
+                    == getObjectSize(Array.newInstance(componentType, length));
+            }
+            if (matches) {
+                slot.headerSize = headerSize;
+                slot.elementSize = elementSize;
+            }
+        } else if (0 == emptySize && 0 == first && 0 == second) {
+            // no sizes available at all, keep provider behavior
+            slot.headerSize = 0;
+            slot.elementSize = 0;
         }
-        return value;
     }
-    
+
     /**
      * Removes the mapping of <code>key</code> to its memory size.
-     * 
-     * @param key the name of the class or the Class the mapping to the 
+     *
+     * @param key the name of the class or the Class the mapping to the
      *     memory size shall be removed
-     * 
+     *
      * @since 1.00
      */
     public void remove(Object key) {
-        int hash = hash(key.hashCode());
-        int i = indexFor(hash, table.length);
-        Entry prev = table[i];
-        Entry e = prev;
-
-        while (e != null) {
-            Entry next = e.next;
-            Object k;
-            if (e.hash == hash && ((k = e.key) == key || key.equals(k))) {
-                size--;
-                if (prev == e) {
-                    table[i] = next;
-                } else {
-                    prev.next = next;
-                }
-                return;
+        if (key instanceof Class) {
+            Slot slot = slots.get((Class<?>) key);
+            if (UNKNOWN != Slot.SIZE.getAndSet(slot, UNKNOWN)) {
+                classCount.decrementAndGet();
             }
-            prev = e;
-            e = next;
+        } else {
+            names.remove(key);
         }
     }
 
     /**
-     * Returns the number of key-value mappings in this map.
+     * Returns the number of key-value mappings in this cache (an estimate
+     * in case of concurrent modifications).
      *
-     * @return the number of key-value mappings in this map
+     * @return the number of key-value mappings in this cache
      */
     public int size() {
-        return size;
+        return names.size() + classCount.get();
     }
 
     /**
-     * Returns <tt>true</tt> if this map contains no key-value mappings.
+     * Returns <tt>true</tt> if this cache contains no key-value mappings.
      *
-     * @return <tt>true</tt> if this map contains no key-value mappings
+     * @return <tt>true</tt> if this cache contains no key-value mappings
      */
     public boolean isEmpty() {
-        return size == 0;
+        return 0 == size();
     }
 
     /**
-     * Removes all of the mappings from this map.
-     * The map will be empty after this call returns.
+     * Removes all of the mappings from this cache. Array layouts are
+     * determined again on demand.
      */
     public void clear() {
-        for (int i = 0; i < table.length; i++) {
-            table[i] = null;
-        }
-        size = 0;
+        slots = new SlotValue();
+        names.clear();
+        classCount.set(0);
     }
-    
-    // TODO entries
 
 }
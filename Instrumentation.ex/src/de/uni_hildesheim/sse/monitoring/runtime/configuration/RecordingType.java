@@ -5,7 +5,7 @@ package de.uni_hildesheim.sse.monitoring.runtime.configuration;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public enum RecordingType {
 
@@ -19,11 +19,26 @@ public enum RecordingType {
      */
     LOCAL_ASYNCHRONOUS(false),
 
+    /**
+     * Local monitoring buffering the events per thread without global 
+     * synchronization, processed when the monitoring state is requested.
+     * 
+     * @since 1.30
+     */
+    LOCAL_THREAD_BUFFERED(false),
+
     /**
      * Remote TCP-based monitoring (external event style). Implies a probably
      * valid TCP configuration.
      */
-    TCP(true); // legacy setting, check
+    TCP(true), // legacy setting, check
+
+    /**
+     * Local binary event log to be analyzed offline (external event style).
+     * 
+     * @since 1.30
+     */
+    EVENT_LOG(true);
     
     /**
      * Stores whether a synchronized recorder frontend shall be used.
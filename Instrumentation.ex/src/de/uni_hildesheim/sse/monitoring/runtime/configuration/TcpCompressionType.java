@@ -0,0 +1,23 @@
+package de.uni_hildesheim.sse.monitoring.runtime.configuration;
+
+/**
+ * Defines the compression of the event batches transferred by the TCP
+ * recorder strategy (wire protocol version 2 and above).
+ * 
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public enum TcpCompressionType {
+
+    /**
+     * No compression.
+     */
+    NONE,
+
+    /**
+     * Deflate compression (fastest level, context kept across batches).
+     */
+    DEFLATE;
+
+}
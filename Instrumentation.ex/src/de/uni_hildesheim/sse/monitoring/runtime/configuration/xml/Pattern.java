@@ -9,18 +9,45 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.xml.QdParserException;
 
 /**
  * Defines a pattern, i.e. a qualified path to a programming language element
- * as a regular expression or a type restriction.
+ * as a regular expression or a type restriction. The regular expression is
+ * compiled once. Patterns consisting of a literal prefix (or only of literal
+ * characters) are indexed by {@link PatternIndex}.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 class Pattern {
+
+    /**
+     * Defines the characters which are not literal in regular expressions.
+     */
+    private static final String META_CHARACTERS = "\\[](){}.*+?^$|";
+
+    /**
+     * Defines the characters which quantify the preceding element.
+     */
+    private static final String QUANTIFIERS = "*+?{";
     
     /**
      * Stores the name pattern.
      */
     private String pattern;
+
+    /**
+     * Stores the compiled name pattern (<b>null</b> if all names match).
+     */
+    private java.util.regex.Pattern compiled;
+
+    /**
+     * Stores the literal prefix of all names matching this pattern.
+     */
+    private String literalPrefix = "";
+
+    /**
+     * Stores whether the name pattern consists of literal characters only.
+     */
+    private boolean isLiteral;
     
     /**
      * Stores the type pattern, i.e. the matching type must be equal or a 
@@ -44,13 +71,13 @@ class Pattern {
      */
     public Pattern(String pattern, String typeOf) throws QdParserException {
         try {
-            if (null != pattern) {
+            if (null != pattern && !pattern.equals(".*")) {
                 // replace all non-escaped "." by "\."
 //                pattern = pattern.replaceAll("([^\\\\])\\.", "$1\\\\.");
                 // replace all non-escaped "$" by "\$"
  //               pattern = pattern.replaceAll("([^\\\\])\\$", "$1\\\\\\$");
-                // test pattern
-                "".matches(pattern);
+                compiled = java.util.regex.Pattern.compile(pattern);
+                analyzeLiteralPrefix(pattern);
             }
         } catch (PatternSyntaxException e) {
             throw new QdParserException(e);
@@ -60,6 +87,81 @@ class Pattern {
         builders = new AnnotationBuilderMap();
     }
     
+    /**
+     * Determines the literal prefix of the given regular expression, i.e. the
+     * characters all matching names start with. Alternatives are not 
+     * analyzed, i.e. the prefix is empty if <code>regEx</code> contains 
+     * <code>|</code>.
+     * 
+     * @param regEx the regular expression
+     * 
+     * @since 1.30
+     */
+    private void analyzeLiteralPrefix(String regEx) {
+        StringBuilder prefix = new StringBuilder();
+        int length = regEx.length();
+        int pos = 0;
+        boolean done = regEx.indexOf('|') >= 0;
+        while (!done && pos < length) {
+            char literal = regEx.charAt(pos);
+            int next = pos + 1;
+            if ('\\' == literal) {
+                // escaped meta character, but no character class
+                done = next >= length 
+                    || Character.isLetterOrDigit(regEx.charAt(next));
+                if (!done) {
+                    literal = regEx.charAt(next++);
+                }
+            } else {
+                done = META_CHARACTERS.indexOf(literal) >= 0;
+            }
+            if (!done) {
+                // a quantified literal may be missing or repeated
+                done = next < length 
+                    && QUANTIFIERS.indexOf(regEx.charAt(next)) >= 0;
+            }
+            if (!done) {
+                prefix.append(literal);
+                pos = next;
+            }
+        }
+        literalPrefix = prefix.toString();
+        isLiteral = pos == length;
+    }
+
+    /**
+     * Returns whether the given name matches the name pattern.
+     * 
+     * @param name the name to be matched
+     * @return <code>true</code> if <code>name</code> matches, 
+     *   <code>false</code> else
+     * 
+     * @since 1.30
+     */
+    public boolean matches(String name) {
+        boolean result;
+        if (null == compiled) {
+            result = true;
+        } else if (isLiteral) {
+            result = literalPrefix.equals(name);
+        } else {
+            result = name.startsWith(literalPrefix) 
+                && compiled.matcher(name).matches();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the literal prefix of all names matching the name pattern.
+     * 
+     * @return the literal prefix (may be empty)
+     * 
+     * @since 1.30
+     */
+    public String getLiteralPrefix() {
+        return literalPrefix;
+    }
+
     /**
      * Returns a builder for a given annotation.
      * 
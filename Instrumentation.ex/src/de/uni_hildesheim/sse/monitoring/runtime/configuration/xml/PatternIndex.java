@@ -0,0 +1,235 @@
+package de.uni_hildesheim.sse.monitoring.runtime.configuration.xml;
+
+import de.uni_hildesheim.sse.monitoring.runtime.boot.ArrayList;
+
+/**
+ * Implements an index over the patterns of an XML configuration. The
+ * patterns are stored in a trie over their literal prefixes, i.e. a single
+ * pass over a name determines the patterns which may match. Only these
+ * candidates are matched against their (precompiled) regular expression.
+ * The result of the last query is memoized per thread, as the instrumenter
+ * usually queries several annotation types for the same signature. Instances
+ * are immutable after creation and may be used concurrently.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+class PatternIndex {
+
+    /**
+     * Denotes that no pattern matches.
+     */
+    private static final int[] NONE = new int[0];
+
+    /**
+     * Implements a node of the trie.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class Node {
+
+        /**
+         * Stores the characters leading to the children.
+         */
+        private char[] keys = new char[0];
+
+        /**
+         * Stores the children (same order as {@link #keys}).
+         */
+        private Node[] children = new Node[0];
+
+        /**
+         * Stores the (ascending) positions of the patterns whose literal
+         * prefix ends at this node.
+         */
+        private int[] patterns = NONE;
+
+        /**
+         * Returns the child for the given character.
+         *
+         * @param key the character
+         * @return the child or <b>null</b> if there is none
+         */
+        private Node getChild(char key) {
+            Node result = null;
+            for (int k = 0; null == result && k < keys.length; k++) {
+                if (key == keys[k]) {
+                    result = children[k];
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns the child for the given character and creates it if
+         * required.
+         *
+         * @param key the character
+         * @return the child
+         */
+        private Node obtainChild(char key) {
+            Node result = getChild(key);
+            if (null == result) {
+                int length = keys.length;
+                char[] tmpKeys = new char[length + 1];
+                System.arraycopy(keys, 0, tmpKeys, 0, length);
+                tmpKeys[length] = key;
+                Node[] tmpChildren = new Node[length + 1];
+                System.arraycopy(children, 0, tmpChildren, 0, length);
+                result = new Node();
+                tmpChildren[length] = result;
+                keys = tmpKeys;
+                children = tmpChildren;
+            }
+            return result;
+        }
+
+        /**
+         * Adds a pattern position to this node.
+         *
+         * @param position the position of the pattern
+         */
+        private void addPattern(int position) {
+            int length = patterns.length;
+            int[] tmp = new int[length + 1];
+            System.arraycopy(patterns, 0, tmp, 0, length);
+            tmp[length] = position;
+            patterns = tmp;
+        }
+    }
+
+    /**
+     * Stores the last query of a thread.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class Memo {
+
+        /**
+         * Stores the queried name.
+         */
+        private String name;
+
+        /**
+         * Stores the positions of the matching patterns.
+         */
+        private int[] matches;
+    }
+
+    /**
+     * Stores the indexed patterns.
+     */
+    private final Pattern[] patterns;
+
+    /**
+     * Stores the root of the trie.
+     */
+    private final Node root = new Node();
+
+    /**
+     * Stores the last query per thread.
+     */
+    private final ThreadLocal<Memo> memo = new ThreadLocal<Memo>();
+
+    /**
+     * Creates an index for the given patterns.
+     *
+     * @param patterns the patterns in the order of their priority
+     *
+     * @since 1.30
+     */
+    PatternIndex(ArrayList<Pattern> patterns) {
+        this.patterns = new Pattern[patterns.size()];
+        for (int p = 0; p < this.patterns.length; p++) {
+            Pattern pattern = patterns.get(p);
+            this.patterns[p] = pattern;
+            String prefix = pattern.getLiteralPrefix();
+            Node node = root;
+            for (int c = 0; c < prefix.length(); c++) {
+                node = node.obtainChild(prefix.charAt(c));
+            }
+            node.addPattern(p);
+        }
+    }
+
+    /**
+     * Returns the pattern at the given position.
+     *
+     * @param position the position as returned by {@link #matches(String)}
+     * @return the pattern
+     *
+     * @since 1.30
+     */
+    Pattern get(int position) {
+        return patterns[position];
+    }
+
+    /**
+     * Returns the positions of the patterns whose name pattern matches
+     * <code>name</code>.
+     *
+     * @param name the name to be matched
+     * @return the positions of the matching patterns in ascending order
+     *   (must not be modified)
+     *
+     * @since 1.30
+     */
+    int[] matches(String name) {
+        Memo last = memo.get();
+        if (null == last) {
+            last = new Memo();
+            memo.set(last);
+        }
+        if (!name.equals(last.name)) {
+            last.matches = match(name);
+            last.name = name;
+        }
+        return last.matches;
+    }
+
+    /**
+     * Determines the positions of the patterns whose name pattern matches
+     * <code>name</code>.
+     *
+     * @param name the name to be matched
+     * @return the positions of the matching patterns in ascending order
+     *
+     * @since 1.30
+     */
+    private int[] match(String name) {
+        int[] result = null;
+        int count = 0;
+        Node node = root;
+        int length = name.length();
+        for (int c = 0; null != node && c <= length; c++) {
+            int[] candidates = node.patterns;
+            for (int i = 0; i < candidates.length; i++) {
+                int position = candidates[i];
+                if (patterns[position].matches(name)) {
+                    if (null == result) {
+                        result = new int[patterns.length];
+                    }
+                    result[count++] = position;
+                }
+            }
+            if (c < length) {
+                node = node.getChild(name.charAt(c));
+            }
+        }
+        if (null == result) {
+            result = NONE;
+        } else {
+            int[] tmp = new int[count];
+            System.arraycopy(result, 0, tmp, 0, count);
+            java.util.Arrays.sort(tmp);
+            result = tmp;
+        }
+        return result;
+    }
+
+}
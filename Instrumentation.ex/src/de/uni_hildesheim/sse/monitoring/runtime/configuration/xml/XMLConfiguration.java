@@ -3,7 +3,6 @@ package de.uni_hildesheim.sse.monitoring.runtime.configuration.xml;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
-import java.util.regex.PatternSyntaxException;
 
 import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
 import de.uni_hildesheim.sse.monitoring.runtime.AnnotationConstants;
@@ -25,7 +24,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.wrap.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.11
+ * @version 1.30
  */
 @Variability(id = AnnotationConstants.CONFIG_XML)
 public class XMLConfiguration {
@@ -37,9 +36,9 @@ public class XMLConfiguration {
     private HashMap<String, AnnotationBuilderMap> configuration;
     
     /**
-     * Stores the patterns.
+     * Stores the index over the patterns (<b>null</b> if there are none).
      */
-    private ArrayList<Pattern> patterns;
+    private PatternIndex patterns;
     
     /**
      * Stores the group configurations.
@@ -87,7 +86,10 @@ public class XMLConfiguration {
             parser.parse(handler, fis, false);
             result.configuration = handler.getConfiguration();
             result.exclusive = handler.isExclusive();
-            result.patterns = handler.getPatterns();
+            ArrayList<Pattern> patterns = handler.getPatterns();
+            if (null != patterns && !patterns.isEmpty()) {
+                result.patterns = new PatternIndex(patterns);
+            }
             result.groupConfigurations = handler.getGroupConfigurations();
             result.analyzeMembers = handler.getAnalyzeMembers();
         } catch (QdParserException e) {
@@ -209,27 +211,15 @@ public class XMLConfiguration {
         IResolver resolver) {
         IAnnotationBuilder<?> result = null;
         if (null != patterns) {
-            for (int p = 0; null == result && p < patterns.size(); p++) {
-                Pattern pattern = patterns.get(p);
-                boolean matchesPattern = true;
-                if (null != pattern.getPattern()) {
-                    if (!pattern.getPattern().equals(".*")) {
-                        try {
-                            matchesPattern 
-                                = signature.matches(pattern.getPattern());
-                        } catch (PatternSyntaxException e) {
-                            // should be handled in pattern before!
-                        }
-                    } // otherways initialized to "true"
-                }
-                if (matchesPattern) {
-                    if (null != pattern.getTypeOf()) {
-                        matchesPattern = resolver.isInstanceOf(
-                            classOfSignature, pattern.getTypeOf());
-                    }
-                }
-                if (matchesPattern) {
-                    result = pattern.get(cls);
+            // matching is memoized for subsequent queries of other types
+            int[] matches = patterns.matches(signature);
+            for (int m = 0; null == result && m < matches.length; m++) {
+                Pattern pattern = patterns.get(matches[m]);
+                IAnnotationBuilder<?> builder = pattern.get(cls);
+                if (null != builder && (null == pattern.getTypeOf() 
+                    || resolver.isInstanceOf(classOfSignature, 
+                        pattern.getTypeOf()))) {
+                    result = builder;
                 }
             }
         }
@@ -21,7 +21,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.xml.QdParserException;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.23
+ * @version 1.30
  */
 class XMLHandler implements DocHandler {
 
@@ -375,7 +375,11 @@ class XMLHandler implements DocHandler {
                             attributes.get("debug"),
                             attributes.get("groupAccounting"), 
                             attributes.get("resources"), 
-                            attributes.get("instanceIdentification"));
+                            attributes.get("instanceIdentification"),
+                            attributes.get("samplingRate"),
+                            attributes.get("samplingInterval"),
+                            attributes.get("pinned"),
+                            attributes.get("instanceLimit"));
                     groupConfigurations.put(id, conf); 
                 }
             }
@@ -1,7 +1,10 @@
 package de.uni_hildesheim.sse.monitoring.runtime.instrumentation;
 
 import java.lang.annotation.Annotation;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
 import de.uni_hildesheim.sse.monitoring.runtime.AnnotationConstants;
@@ -24,7 +27,6 @@ import de.uni_hildesheim.sse.monitoring.runtime.annotations.internal.
 import de.uni_hildesheim.sse.monitoring.runtime.boot.GroupAccountingType;
 import de.uni_hildesheim.sse.monitoring.runtime.boot.MainDefaultType;
 import de.uni_hildesheim.sse.monitoring.runtime.boot.MonitoringGroupSettings;
-import de.uni_hildesheim.sse.monitoring.runtime.boot.RecorderFrontend;
 import de.uni_hildesheim.sse.monitoring.runtime.boot.ResourceType;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.HashMap;
 import de.uni_hildesheim.sse.monitoring.runtime.wrap.
@@ -45,11 +47,12 @@ import de.uni_hildesheim.sse.monitoring.runtime.recording.Recorder;
  * for instrumentation. Note that some methods in this class require the class
  * name to be given in in the internal form of fully qualified class and 
  * interface names as defined in The Java Virtual Machine Specification. This is
- * due to performance reasons for runtime instrumentation.
+ * due to performance reasons for runtime instrumentation. Classes may be 
+ * transformed concurrently if supported by the instrumenter factory.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.13
+ * @version 1.30
  */
 public class AbstractClassTransformer implements ISemanticsCollector {
 
@@ -72,13 +75,14 @@ public class AbstractClassTransformer implements ISemanticsCollector {
     /**
      * Stores registered classes.
      */
-    private HashSet<String> registeredClasses = new HashSet<String>(); 
+    private final Set<String> registeredClasses = Collections.newSetFromMap(
+        new ConcurrentHashMap<String, Boolean>()); 
     
     /**
      * Counts the number of main methods (usually only the first one 
      * is relevant).
      */
-    private int mainCount = 0;
+    private final AtomicInteger mainCount = new AtomicInteger();
 
     /**
      * Stores classes to be excluded.
@@ -93,10 +97,45 @@ public class AbstractClassTransformer implements ISemanticsCollector {
     private HashMap<String, Boolean> analyzeMembers;
     
     /**
-     * Stores the assignments.
+     * Stores the assignments (synchronized on the map itself).
      */
     private final HashMap<String, HashMap<String, Monitor>> assignments 
         = new HashMap<String, HashMap<String, Monitor>>();
+
+    /**
+     * Stores whether monitoring groups may be folded by the overhead 
+     * governor, i.e. whether the classes containing the probes of a group
+     * are recorded for retransformation.
+     * 
+     * @since 1.30
+     */
+    private final boolean foldable;
+
+    /**
+     * Stores the classes containing probes of a monitoring group (Java 
+     * notation) by recorder id (only if {@link #foldable}).
+     * 
+     * @since 1.30
+     */
+    private final ConcurrentHashMap<String, Set<String>> groupClasses 
+        = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * Stores the recorder ids of the folded monitoring groups.
+     * 
+     * @since 1.30
+     */
+    private final Set<String> foldedGroups = Collections.newSetFromMap(
+        new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Stores the class containing the instrumented first main method, which
+     * is not retransformed when folding as the first main is instrumented 
+     * only once.
+     * 
+     * @since 1.30
+     */
+    private volatile String firstMainClass;
     
     /**
      * Creates a new monitoring class file transformer.
@@ -115,6 +154,8 @@ public class AbstractClassTransformer implements ISemanticsCollector {
         if (null != xmlCfg && !cfg.allClassMembers()) {
             analyzeMembers = xmlCfg.getAnalyzeMembers();
         }
+        foldable = !isStatic && cfg.getOverheadBudget() > 0 
+            && ScopeType.GROUP_INHERIT != cfg.getScopeType();
     }
 
     /**
@@ -400,7 +441,9 @@ public class AbstractClassTransformer implements ISemanticsCollector {
         Configuration config = Configuration.INSTANCE;
         String clName = cl.getName();
         if (ScopeType.GROUP_INHERIT == config.getScopeType()) { 
-            assignedSemantics = assignments.remove(clName);
+            synchronized (assignments) {
+                assignedSemantics = assignments.remove(clName);
+            }
         } else {
             assignedSemantics = null;
         }
@@ -470,15 +513,20 @@ public class AbstractClassTransformer implements ISemanticsCollector {
                         try {
                             transformed |= doMethod(behavior, mSem, inherited, 
                                 type, methodEditor);
-                            if (0 == mainCount && "main".equals(
+                            if ("main".equals(behavior.getName())) {
+                                // depends on the order of loading
+                                TransformedClassCache.notifyUncacheable();
+                            }
+                            if (0 == mainCount.get() && "main".equals(
                                 behavior.getName())) {
                                 int pCount = behavior.getParameterCount();
                                 if (pCount == 1 
                                     && Constants.JAVA_LANG_STRING_ARRAY1.equals(
-                                        behavior.getParameterTypeName(0))) {
+                                        behavior.getParameterTypeName(0))
+                                    && mainCount.compareAndSet(0, 1)) {
+                                    firstMainClass = clName;
                                     transformed |= doFirstMain(cl, behavior, 
                                         mSem, type);
-                                    mainCount++;
                                 }
                             }
                         } catch (InstrumenterException e) {
@@ -512,17 +560,21 @@ public class AbstractClassTransformer implements ISemanticsCollector {
             }
         } // has Instrumented annotation
         Configuration.INSTANCE.instrumented(clName);
-        assignments.remove(clName);
+        String[] classes = null;
+        synchronized (assignments) {
+            assignments.remove(clName);
+            if (mayAlterStructure) {
+                int size = assignments.keySize();
+                if (size > 0) {
+                    classes = new String[size];
+                    assignments.keysToArray(classes);
+                }
+            }
+        }
 
         // trigger retransformation
-        if (mayAlterStructure) {
-            // concurrent modification!!!
-            int size = assignments.keySize();
-            if (size > 0) {
-                String[] classes = new String[size];
-                assignments.keysToArray(classes);
-                retransformAssigned(classes);
-            }
+        if (null != classes) {
+            retransformAssigned(classes);
         }
         //assignments.clear();
         return transformed;
@@ -605,7 +657,7 @@ public class AbstractClassTransformer implements ISemanticsCollector {
      * 
      * @since 1.00
      */
-    private final synchronized boolean registerRecorderId(
+    private final boolean registerRecorderId(
         Monitor mGroup, IClass cl) throws InstrumenterException {
         boolean modified = false;
         if (null != mGroup) {
@@ -616,11 +668,10 @@ public class AbstractClassTransformer implements ISemanticsCollector {
             } else if (!Helper.ignore(mGroup)) {
                 if (isStatic) {
                     String className = cl.getName();
-                    if (!registeredClasses.contains(className)) {
-                        // avoid duplicated registering initializers
+                    // avoid duplicated registering initializers
+                    if (registeredClasses.add(className)) {
                         IFactory.getInstance().getCodeModifier().
                             addRegisteringInitializer(cl, mGroup);
-                        registeredClasses.add(className);
                         modified = true;
                     }
                 } else {
@@ -643,7 +694,7 @@ public class AbstractClassTransformer implements ISemanticsCollector {
                         settings.setMulti(mGroup.distributeValues(), 
                             mGroup.considerContained());
                     }
-                    RecorderFrontend.instance.registerForRecording(
+                    TransformedClassCache.registerForRecording(
                         cl.getName(), settings);
                     MonitoringGroupSettings.release(settings);
                 }
@@ -981,7 +1032,8 @@ public class AbstractClassTransformer implements ISemanticsCollector {
             modified = true;
         }
         if (!isExcluded) {
-            if (null != mGroupClass && !inherited) {
+            if (null != mGroupClass && !inherited 
+                && !isFolded(behavior, mGroupClass, type)) {
                 modifier.instrumentTiming(behavior, mGroupClass, false, 
                     null != mGroup);
                 modified = true;
@@ -1020,7 +1072,8 @@ public class AbstractClassTransformer implements ISemanticsCollector {
                 modified = true;
             }
         } else {
-            if (null != mGroupClass && !inherited) {
+            if (null != mGroupClass && !inherited 
+                && !isFolded(behavior, mGroupClass, type)) {
                 modifier.instrumentTiming(behavior, mGroupClass, true, true);
                 modified = true;
             }
@@ -1049,6 +1102,77 @@ public class AbstractClassTransformer implements ISemanticsCollector {
         return modified;
     }
     
+    /**
+     * Returns whether the probes of the given monitoring group shall be 
+     * omitted as the group was folded by the overhead governor. Otherwise,
+     * records the declaring class of <code>behavior</code> for a later 
+     * retransformation if the group is folded.
+     * 
+     * @param behavior the behavior to be instrumented
+     * @param mGroup the monitoring group of <code>behavior</code>
+     * @param type the type of the transformation
+     * @return <code>true</code> if the probes shall be omitted, 
+     *   <code>false</code> else
+     * @throws InstrumenterException in case that the declaring class cannot
+     *   be determined
+     * 
+     * @since 1.30
+     */
+    private boolean isFolded(IBehavior behavior, Monitor mGroup, 
+        TransformationType type) throws InstrumenterException {
+        boolean folded = false;
+        if (foldable) {
+            String recId = Helper.getCheckedId(
+                Configuration.INSTANCE.getRecId(mGroup.id()));
+            if (null != recId) {
+                folded = foldedGroups.contains(recId);
+                if (!folded && TransformationType.ON_LOAD == type) {
+                    Set<String> classes = groupClasses.get(recId);
+                    if (null == classes) {
+                        classes = Collections.newSetFromMap(
+                            new ConcurrentHashMap<String, Boolean>());
+                        Set<String> tmp 
+                            = groupClasses.putIfAbsent(recId, classes);
+                        if (null != tmp) {
+                            classes = tmp;
+                        }
+                    }
+                    classes.add(behavior.getDeclaringClassName());
+                }
+            }
+        }
+        return folded;
+    }
+
+    /**
+     * Marks the given monitoring group as folded, i.e. its probes are 
+     * omitted in subsequent transformations.
+     * 
+     * @param recId the recorder id of the group
+     * @return the names of the loaded classes containing probes of the group
+     *   (Java notation) which may be retransformed 
+     * 
+     * @since 1.30
+     */
+    protected String[] foldGroup(String recId) {
+        String[] result;
+        Set<String> classes = null;
+        if (foldable) {
+            foldedGroups.add(recId);
+            classes = groupClasses.remove(recId);
+        }
+        if (null != classes) {
+            String mainClass = firstMainClass;
+            if (null != mainClass) {
+                classes.remove(mainClass);
+            }
+            result = classes.toArray(new String[classes.size()]);
+        } else {
+            result = new String[0];
+        }
+        return result;
+    }
+
     /**
      * Processes value notifications on the given method.
      * 
@@ -1073,7 +1197,7 @@ public class AbstractClassTransformer implements ISemanticsCollector {
             if (annId.length() > 0) {
                 recId = annId;
             } else if (null != mGroup) {
-                recId = Configuration.INSTANCE.getRecId(mGroup.id());
+                recId = TransformedClassCache.getRecId(mGroup.id());
             }
             modifier.valueNotification(behavior, recId, ann);
             modified = true;
@@ -1198,12 +1322,14 @@ public class AbstractClassTransformer implements ISemanticsCollector {
             // ---- EXPERIMENT
 
             if (!exclude) {
-                HashMap<String, Monitor> sem = assignments.get(cls);
-                if (null == sem) {
-                    sem = new HashMap<String, Monitor>();
-                    assignments.put(cls, sem);
+                synchronized (assignments) {
+                    HashMap<String, Monitor> sem = assignments.get(cls);
+                    if (null == sem) {
+                        sem = new HashMap<String, Monitor>();
+                        assignments.put(cls, sem);
+                    }
+                    sem.put(methodSignature, semantics);
                 }
-                sem.put(methodSignature, semantics);
             }
         }
     }
@@ -1217,7 +1343,9 @@ public class AbstractClassTransformer implements ISemanticsCollector {
      * @since 1.00
      */
     public void deleteSemantics(String cls) {
-        assignments.remove(cls);
+        synchronized (assignments) {
+            assignments.remove(cls);
+        }
     }
 
 }
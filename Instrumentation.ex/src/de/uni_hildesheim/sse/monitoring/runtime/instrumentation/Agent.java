@@ -256,6 +256,7 @@ public class Agent implements IObjectSizeProvider, IRecordingEndListener {
         }
         transformer = new MonitoringClassFileTransformer();
         instrumentation.addTransformer(transformer, true);
+        InternalPluginRegistry.attachGroupFolding(transformer);
         if (ScopeType.GROUP_INHERIT != Configuration.INSTANCE.getScopeType()) {
             retransformLoadedClasses(RETRANSFORM, true);
         }
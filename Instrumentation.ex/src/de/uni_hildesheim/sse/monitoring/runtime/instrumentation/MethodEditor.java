@@ -59,6 +59,64 @@ public class MethodEditor extends BehaviorEditor {
     public static final String[] GET_OPEN_STREAM_CLASSES = {
     };
 
+    /**
+     * Defines the package of the NIO channels.
+     */
+    private static final String CHANNELS_PACKAGE = "java.nio.channels.";
+
+    /**
+     * Defines the class providing the static channel stream factory methods.
+     */
+    private static final String CHANNELS = CHANNELS_PACKAGE + "Channels";
+
+    /**
+     * Defines the NIO channel calls to be redirected to 
+     * {@link ChannelIo}, i.e. the name and the descriptor of the method, the 
+     * type of the receiver in the redirected call (<b>null</b> for static 
+     * methods of {@link #CHANNELS}) and the name of the stream type which 
+     * must be instrumented (<b>null</b> for file or network I/O).
+     */
+    private static final String[][] CHANNEL_CALLS = {
+        {"read", "(Ljava/nio/ByteBuffer;)I", 
+            CHANNELS_PACKAGE + "ReadableByteChannel", null},
+        {"write", "(Ljava/nio/ByteBuffer;)I", 
+            CHANNELS_PACKAGE + "WritableByteChannel", null},
+        {"read", "([Ljava/nio/ByteBuffer;)J", 
+            CHANNELS_PACKAGE + "ScatteringByteChannel", null},
+        {"read", "([Ljava/nio/ByteBuffer;II)J", 
+            CHANNELS_PACKAGE + "ScatteringByteChannel", null},
+        {"write", "([Ljava/nio/ByteBuffer;)J", 
+            CHANNELS_PACKAGE + "GatheringByteChannel", null},
+        {"write", "([Ljava/nio/ByteBuffer;II)J", 
+            CHANNELS_PACKAGE + "GatheringByteChannel", null},
+        {"read", "(Ljava/nio/ByteBuffer;J)I", 
+            CHANNELS_PACKAGE + "FileChannel", "FILE"},
+        {"write", "(Ljava/nio/ByteBuffer;J)I", 
+            CHANNELS_PACKAGE + "FileChannel", "FILE"},
+        {"transferTo", "(JJLjava/nio/channels/WritableByteChannel;)J", 
+            CHANNELS_PACKAGE + "FileChannel", "FILE"},
+        {"transferFrom", "(Ljava/nio/channels/ReadableByteChannel;JJ)J", 
+            CHANNELS_PACKAGE + "FileChannel", "FILE"},
+        {"send", "(Ljava/nio/ByteBuffer;Ljava/net/SocketAddress;)I", 
+            CHANNELS_PACKAGE + "DatagramChannel", "NET"},
+        {"receive", "(Ljava/nio/ByteBuffer;)Ljava/net/SocketAddress;", 
+            CHANNELS_PACKAGE + "DatagramChannel", "NET"},
+        {"read", "(Ljava/nio/ByteBuffer;J)Ljava/util/concurrent/Future;", 
+            CHANNELS_PACKAGE + "AsynchronousFileChannel", "FILE"},
+        {"write", "(Ljava/nio/ByteBuffer;J)Ljava/util/concurrent/Future;", 
+            CHANNELS_PACKAGE + "AsynchronousFileChannel", "FILE"},
+        {"read", "(Ljava/nio/ByteBuffer;JLjava/lang/Object;"
+            + "Ljava/nio/channels/CompletionHandler;)V", 
+            CHANNELS_PACKAGE + "AsynchronousFileChannel", "FILE"},
+        {"write", "(Ljava/nio/ByteBuffer;JLjava/lang/Object;"
+            + "Ljava/nio/channels/CompletionHandler;)V", 
+            CHANNELS_PACKAGE + "AsynchronousFileChannel", "FILE"},
+        {"newInputStream", "(Ljava/nio/channels/ReadableByteChannel;)"
+            + "Ljava/io/InputStream;", null, null},
+        {"newOutputStream", "(Ljava/nio/channels/WritableByteChannel;)"
+            + "Ljava/io/OutputStream;", null, null}
+    };
+
     /**
      * Defines the call to determine the type of a stream.
      */
@@ -467,6 +525,27 @@ public class MethodEditor extends BehaviorEditor {
         synchronized (annotatedFields) {
             annotatedFields.put(getFieldId(field), id);
         }
+        // instrumentation of other classes depends on this field
+        TransformedClassCache.notifyUncacheable();
+    }
+
+    /**
+     * Returns whether annotated fields are stored, i.e. whether the 
+     * instrumentation of field accesses depends on previously instrumented
+     * classes.
+     * 
+     * @return <code>true</code> if annotated fields are stored, 
+     *   <code>false</code> else
+     * 
+     * @since 1.30
+     */
+    @Variability(id = AnnotationConstants.MONITOR_VALUES, value = "false")
+    static boolean hasAnnotatedFields() {
+        boolean result;
+        synchronized (annotatedFields) {
+            result = !annotatedFields.isEmpty();
+        }
+        return result;
     }
 
     /**
@@ -531,7 +610,10 @@ public class MethodEditor extends BehaviorEditor {
         boolean done = true;
         IStatementModifier mod = getCodeModifier();
         String cRecId = getContextValueChangeCallRecId(mod);
-        if ("start".equals(name)) {
+        String[] channelCall = getChannelCall(name, signature, targetClass);
+        if (null != channelCall) {
+            mod.redirectChannelIo(cRecId, channelCall[2]);
+        } else if ("start".equals(name)) {
             if (mod.mcDeclaringClassInstanceOf("java.lang.Thread")) {
                 mod.notifyThreadStarted(cRecId);
             }
@@ -570,6 +652,42 @@ public class MethodEditor extends BehaviorEditor {
         assignSemantics(targetClass, name, signature);
     }
     
+    /**
+     * Returns the description of a NIO channel call to be redirected to 
+     * {@link ChannelIo}.
+     * 
+     * @param name the name of the method being called
+     * @param signature the JVM signature of the method
+     * @param targetClass the class being called
+     * @return the description from {@link #CHANNEL_CALLS}, <b>null</b> if 
+     *   the call shall not be redirected
+     * 
+     * @since 1.30
+     */
+    private String[] getChannelCall(String name, String signature, 
+        String targetClass) {
+        String[] result = null;
+        if (null != targetClass && targetClass.startsWith(CHANNELS_PACKAGE)
+            && (instrumentFileIo() || instrumentNetIo())) {
+            boolean isStatic = CHANNELS.equals(targetClass);
+            for (int c = 0; null == result && c < CHANNEL_CALLS.length; c++) {
+                String[] call = CHANNEL_CALLS[c];
+                if (call[0].equals(name) && call[1].equals(signature) 
+                    && isStatic == (null == call[2])) {
+                    result = call;
+                }
+            }
+            if (null != result && null != result[3]) {
+                if ("FILE".equals(result[3]) && !instrumentFileIo()) {
+                    result = null;
+                } else if ("NET".equals(result[3]) && !instrumentNetIo()) {
+                    result = null;
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns the context id for the current method call. If there is a last
      * field access with the same type where the method is accessed and the 
@@ -3,6 +3,9 @@ package de.uni_hildesheim.sse.monitoring.runtime.instrumentation;
 import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.IllegalClassFormatException;
 import java.security.ProtectionDomain;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 import de.uni_hildesheim.sse.monitoring.runtime.boot.ArrayList;
@@ -11,18 +14,36 @@ import de.uni_hildesheim.sse.monitoring.runtime.instrumentation.lib.
     InstrumenterException;
 import de.uni_hildesheim.sse.monitoring.runtime.instrumentation.lib.IClass;
 import de.uni_hildesheim.sse.monitoring.runtime.instrumentation.lib.IFactory;
+import de.uni_hildesheim.sse.monitoring.runtime.plugins.internal.GroupFolding;
 import de.uni_hildesheim.sse.monitoring.runtime.recording.Lock;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.HashMap;
 import de.uni_hildesheim.sse.system.GathererFactory;
 
 /**
- * Implements the frontend for dynamic bytecode instrumentation.
+ * Implements the frontend for dynamic bytecode instrumentation. Folded 
+ * monitoring groups are removed by retransforming the classes containing 
+ * their probes from their original bytecode as on loading, but without the
+ * probes of the folded groups.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public class MonitoringClassFileTransformer extends AbstractClassTransformer 
-    implements ClassFileTransformer {
+    implements ClassFileTransformer, GroupFolding {
+
+    /**
+     * Stores the persistent cache of transformed classes (<b>null</b> if 
+     * disabled).
+     */
+    private TransformedClassCache cache;
+
+    /**
+     * Stores the classes being retransformed due to folding (Java 
+     * notation).
+     */
+    private final Set<String> folding = Collections.newSetFromMap(
+        new ConcurrentHashMap<String, Boolean>());
 
     /**
      * Creates a new monitoring class file transformer.
@@ -31,6 +52,10 @@ public class MonitoringClassFileTransformer extends AbstractClassTransformer
      */
     public MonitoringClassFileTransformer() {
         super(false);
+        String cacheDir = Configuration.INSTANCE.getTransformCache();
+        if (null != cacheDir) {
+            cache = TransformedClassCache.open(cacheDir);
+        }
     }
     
     /**
@@ -97,27 +122,108 @@ public class MonitoringClassFileTransformer extends AbstractClassTransformer
     private final byte[] doClass(ClassLoader loader, String name, 
         byte[] classBytes, boolean isRedefinition) {
         byte[] result = null;
-        if (!Configuration.INSTANCE.isInstrumented(name.replace('/', '.'))) {
-            synchronized (IFactory.LOCK) {
-            //IFactory.aquireReentrantLock();
+        String javaName = name.replace('/', '.');
+        boolean refold = isRedefinition && folding.contains(javaName);
+        if (refold || !Configuration.INSTANCE.isInstrumented(javaName)) {
+            // folding repeats the on-load transformation on the original code
+            TransformationType type = isRedefinition && !refold
+                ? TransformationType.REDEFINITION 
+                : TransformationType.ON_LOAD;
+            IFactory factory = IFactory.getInstance();
+            TransformedClassCache.Transformation cached = null;
+            if (null != cache && !isRedefinition) {
+                cached = cache.lookup(factory, loader, name, classBytes);
+            }
+            if (null == cached) {
+                result = doClassLocked(factory, loader, name, classBytes, 
+                    isRedefinition, type);
+            } else if (cached.isCached()) {
+                result = cached.getBytecode();
+            } else {
+                cached.start();
                 try {
-                    IFactory factory = IFactory.getInstance();
-                    IClass cl = factory.obtainClass(
-                        loader, name, classBytes, isRedefinition);
-                    TransformationType type = isRedefinition 
-                        ? TransformationType.REDEFINITION 
-                        : TransformationType.ON_LOAD;
-                    result = transform0(name, cl, type);
-                } catch (InstrumenterException e) {
-                    log("Error instrumenting" + name, e, Level.SEVERE);
-                } //finally {
-               // IFactory.releaseReentrantLock();            
-            //}
+                    result = doClassLocked(factory, loader, name, classBytes, 
+                        isRedefinition, type);
+                    cache.store(cached, result);
+                } finally {
+                    cached.stop();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Processes the given class under the lock required by 
+     * <code>factory</code>.
+     * 
+     * @param factory the instrumenter factory
+     * @param loader the class loader
+     * @param name the name of the class given in in the internal form of 
+     *   fully qualified class and interface names as defined in The Java 
+     *   Virtual Machine Specification, i.e. slashes instead of dots.
+     * @param classBytes the loaded class as a byte array
+     * @param isRedefinition <code>true</code> in case that the class is being
+     *   redefined / retransformed, <code>false</code> else
+     * @param type the type of the transformation
+     * @return the new bytecode for the class in case that it was instrumented,
+     *   <b>null</b> if the class was not modified
+     * 
+     * @since 1.30
+     */
+    private byte[] doClassLocked(IFactory factory, ClassLoader loader, 
+        String name, byte[] classBytes, boolean isRedefinition, 
+        TransformationType type) {
+        byte[] result;
+        if (factory.supportsConcurrentTransformation()) {
+            IFactory.acquireReentrantLock();
+            try {
+                result = doClass(factory, loader, name, classBytes, 
+                    isRedefinition, type);
+            } finally {
+                IFactory.releaseReentrantLock();
+            }
+        } else {
+            synchronized (IFactory.LOCK) {
+                result = doClass(factory, loader, name, classBytes, 
+                    isRedefinition, type);
             }
         }
         return result;
     }
     
+    /**
+     * Processes the given class. The caller is responsible for appropriate
+     * locking.
+     * 
+     * @param factory the instrumenter factory
+     * @param loader the class loader
+     * @param name the name of the class given in in the internal form of 
+     *   fully qualified class and interface names as defined in The Java 
+     *   Virtual Machine Specification, i.e. slashes instead of dots.
+     * @param classBytes the loaded class as a byte array
+     * @param isRedefinition <code>true</code> in case that the class is being
+     *   redefined / retransformed, <code>false</code> else
+     * @param type the type of the transformation
+     * @return the new bytecode for the class in case that it was instrumented,
+     *   <b>null</b> if the class was not modified
+     * 
+     * @since 1.30
+     */
+    private byte[] doClass(IFactory factory, ClassLoader loader, String name, 
+        byte[] classBytes, boolean isRedefinition, TransformationType type) {
+        byte[] result = null;
+        try {
+            IClass cl = factory.obtainClass(
+                loader, name, classBytes, isRedefinition);
+            result = transform0(name, cl, type);
+        } catch (InstrumenterException e) {
+            TransformedClassCache.notifyUncacheable();
+            log("Error instrumenting" + name, e, Level.SEVERE);
+        }
+        return result;
+    }
+    
     /**
      * Top-level call of {@link #transform(String, IClass, TransformationType)}.
      * 
@@ -139,8 +245,10 @@ public class MonitoringClassFileTransformer extends AbstractClassTransformer
                 result = cl.toBytecode();
             }
         } catch (InstrumenterException e) {
+            TransformedClassCache.notifyUncacheable();
             log("Cannot instrument " + name, e, Level.SEVERE);
         } catch (Throwable e) {
+            TransformedClassCache.notifyUncacheable();
             log("Cannot instrument " + name, e, Level.SEVERE);
         } finally {
             cl.release();
@@ -223,6 +331,36 @@ public class MonitoringClassFileTransformer extends AbstractClassTransformer
         return found;
     }
     
+    /**
+     * Removes the probes of the given monitoring group by retransforming 
+     * the loaded classes containing them.
+     * 
+     * @param recId the recorder id of the group
+     * @return <code>true</code> if classes were retransformed, 
+     *   <code>false</code> else
+     * 
+     * @since 1.30
+     */
+    @Override
+    public boolean fold(String recId) {
+        String[] classes = foldGroup(recId);
+        if (classes.length > 0) {
+            HashMap<String, Boolean> names = new HashMap<String, Boolean>();
+            for (int c = 0; c < classes.length; c++) {
+                folding.add(classes[c]);
+                names.put(classes[c], Boolean.TRUE);
+            }
+            try {
+                Agent.retransformLoadedClasses(names, false);
+            } finally {
+                for (int c = 0; c < classes.length; c++) {
+                    folding.remove(classes[c]);
+                }
+            }
+        }
+        return classes.length > 0;
+    }
+
     /**
      * Retransforms the specified classes.
      * 
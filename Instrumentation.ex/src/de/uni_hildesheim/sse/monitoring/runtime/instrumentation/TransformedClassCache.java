@@ -0,0 +1,1095 @@
+package de.uni_hildesheim.sse.monitoring.runtime.instrumentation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import de.uni_hildesheim.sse.monitoring.runtime.annotations.Helper;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.BooleanValue;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.DebugState;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.GroupAccountingType;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.InstanceIdentifierKind;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.MonitoringGroupSettings;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.RecorderFrontend;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.ResourceType;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.ScopeType;
+import de.uni_hildesheim.sse.monitoring.runtime.instrumentation.lib.IFactory;
+import de.uni_hildesheim.sse.monitoring.runtime.recording.Lock;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.HashMap;
+
+/**
+ * Implements a persistent cache of transformed classes. The cache stores the
+ * bytecode produced by dynamic instrumentation on class loading for
+ * subsequent runs, i.e. cached classes are neither parsed nor instrumented
+ * again. Entries are identified by the class name and the SHA-1 hash of the
+ * original bytecode. The cache file is named after a fingerprint of the
+ * agent arguments, the effective configuration, the XML configuration, the
+ * agent and the class path, i.e. changing one of them leads to a new cache
+ * file.<p>
+ * Besides the bytecode, the cache records the side effects of the
+ * transformation which must be repeated in subsequent runs, i.e. the numeric
+ * recorder ids and the pseudo ids of multi-id groups embedded into the
+ * bytecode as well as the registrations of monitoring groups. As numeric ids
+ * follow the order of class loading, the numeric ids of all cached records
+ * are reserved for their recorder ids when opening the cache, i.e. cached
+ * bytecode is matched by the recorder ids and remains valid in any loading
+ * order. If a numeric id cannot be reserved (e.g., records of concurrent
+ * JVMs) or a pseudo id cannot be reproduced (registration in different
+ * order), the class is instrumented again. Transformations depending on
+ * other classes or on the state of the agent (value change fields, first
+ * main method, inherited monitoring groups) are not cached.<p>
+ * The cache file consists of a header and records appended at the end. Each
+ * record is stored with its length and a checksum so that incomplete records
+ * (crash while appending) are detected and removed when opening the cache.
+ * Records of previous runs are read from a memory mapped buffer. Records of
+ * the current run are appended under a file lock so that several JVMs may use
+ * the same cache.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public class TransformedClassCache {
+
+    /**
+     * Defines the magic number of a cache file.
+     */
+    private static final int MAGIC = 0x53434331;
+
+    /**
+     * Defines the version of the file format.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Defines the size of the file header (magic number and version).
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * Defines the size of a record frame (length and checksum).
+     */
+    private static final int FRAME_SIZE = 8;
+
+    /**
+     * Defines the name of the digest algorithm.
+     */
+    private static final String DIGEST = "SHA-1";
+
+    /**
+     * Defines the length of a digest.
+     */
+    private static final int DIGEST_LENGTH = 20;
+
+    /**
+     * Denotes a class which was not modified by the transformation.
+     */
+    private static final int NOT_MODIFIED = -1;
+
+    /**
+     * Defines the size of the direct buffer for appending records.
+     */
+    private static final int OUTPUT_SIZE = 64 * 1024;
+
+    /**
+     * Stores the transformation being recorded by the current thread.
+     */
+    private static final ThreadLocal<Transformation> RECORDING
+        = new ThreadLocal<Transformation>();
+
+    /**
+     * Stores a digest instance per thread.
+     */
+    private static final ThreadLocal<MessageDigest> DIGESTS
+        = new ThreadLocal<MessageDigest>();
+
+    /**
+     * Stores the cache file.
+     */
+    private File file;
+
+    /**
+     * Stores the records of previous runs (<b>null</b> if there are none).
+     */
+    private MappedByteBuffer records;
+
+    /**
+     * Stores the positions of the records of previous runs by their keys.
+     * This map is not modified after construction.
+     */
+    private final HashMap<String, Integer> index
+        = new HashMap<String, Integer>();
+
+    /**
+     * Stores the keys of the records appended during this run.
+     */
+    private final Set<String> appended = Collections.newSetFromMap(
+        new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Stores the channel for appending records.
+     */
+    private FileChannel channel;
+
+    /**
+     * Stores the direct buffer for appending records. Writing heap buffers
+     * allocates temporary direct buffers, i.e., may load JDK classes while
+     * transforming exactly these classes, causing class circularity errors.
+     */
+    private ByteBuffer output;
+
+    /**
+     * Stores whether records may be appended.
+     */
+    private volatile boolean writable = true;
+
+    /**
+     * Implements a transformation of a class which is either taken from the
+     * cache or recorded for being stored in the cache.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    public static class Transformation {
+
+        /**
+         * Stores the name of the class (internal form).
+         */
+        private String name;
+
+        /**
+         * Stores the digest of the original bytecode.
+         */
+        private byte[] digest;
+
+        /**
+         * Stores the cache key.
+         */
+        private String key;
+
+        /**
+         * Stores whether the transformation was taken from the cache.
+         */
+        private boolean cached;
+
+        /**
+         * Stores the cached bytecode (<b>null</b> if not modified).
+         */
+        private byte[] bytecode;
+
+        /**
+         * Stores whether the recorded transformation may be cached.
+         */
+        private boolean cacheable = true;
+
+        /**
+         * Stores the number of recorded pseudo ids.
+         */
+        private int pseudoCount;
+
+        /**
+         * Stores the recorded pseudo ids and the ids they stand for.
+         */
+        private ByteArrayOutputStream pseudoIds = new ByteArrayOutputStream();
+
+        /**
+         * Stores the number of recorded recorder ids.
+         */
+        private int idCount;
+
+        /**
+         * Stores the recorded recorder ids.
+         */
+        private ByteArrayOutputStream ids = new ByteArrayOutputStream();
+
+        /**
+         * Stores the number of recorded registrations.
+         */
+        private int registrationCount;
+
+        /**
+         * Stores the recorded registrations.
+         */
+        private ByteArrayOutputStream registrations
+            = new ByteArrayOutputStream();
+
+        /**
+         * Stores the transformation recorded before by the current thread
+         * (nested class loading).
+         */
+        private Transformation outer;
+
+        /**
+         * Creates a transformation.
+         *
+         * @param name the name of the class (internal form)
+         * @param digest the digest of the original bytecode
+         */
+        private Transformation(String name, byte[] digest) {
+            this.name = name;
+            this.digest = digest;
+            this.key = getKey(name, digest);
+        }
+
+        /**
+         * Returns whether this transformation was taken from the cache.
+         *
+         * @return <code>true</code> if taken from the cache,
+         *   <code>false</code> if the class must be transformed
+         *
+         * @since 1.30
+         */
+        public boolean isCached() {
+            return cached;
+        }
+
+        /**
+         * Returns the cached bytecode.
+         *
+         * @return the transformed bytecode, <b>null</b> if the class was not
+         *   modified
+         *
+         * @since 1.30
+         */
+        public byte[] getBytecode() {
+            return bytecode;
+        }
+
+        /**
+         * Starts recording the side effects of the transformation in the
+         * current thread.
+         *
+         * @since 1.30
+         */
+        public void start() {
+            outer = RECORDING.get();
+            RECORDING.set(this);
+        }
+
+        /**
+         * Stops recording the side effects of the transformation in the
+         * current thread.
+         *
+         * @since 1.30
+         */
+        public void stop() {
+            if (null == outer) {
+                RECORDING.remove();
+            } else {
+                RECORDING.set(outer);
+                outer = null;
+            }
+        }
+    }
+
+    /**
+     * Creates a cache instance.
+     *
+     * @param file the cache file
+     *
+     * @since 1.30
+     */
+    private TransformedClassCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the cache in the given directory for the current configuration.
+     *
+     * @param dir the cache directory
+     * @return the cache, <b>null</b> if the cache cannot be used
+     *
+     * @since 1.30
+     */
+    public static TransformedClassCache open(String dir) {
+        TransformedClassCache result = null;
+        if (ScopeType.GROUP_INHERIT == Configuration.INSTANCE.getScopeType()
+            || Configuration.INSTANCE.isStaticInstrumentation()) {
+            Configuration.LOG.warning("transformed class cache not supported "
+                + "for this configuration - ignored");
+        } else {
+            try {
+                File directory = new File(dir);
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException("cannot create " + dir);
+                }
+                result = new TransformedClassCache(
+                    new File(directory, toHex(fingerprint()) + ".cache"));
+                result.load();
+                result.prepare();
+            } catch (IOException e) {
+                Configuration.LOG.warning("transformed class cache disabled: "
+                    + e.getMessage());
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads the records of previous runs and removes an incomplete last
+     * record.
+     *
+     * @throws IOException in case that reading the cache file fails
+     *
+     * @since 1.30
+     */
+    private void load() throws IOException {
+        if (file.length() > 0) {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                long size = raf.length();
+                if (size <= Integer.MAX_VALUE) {
+                    records = raf.getChannel().map(
+                        FileChannel.MapMode.READ_ONLY, 0, size);
+                }
+            } finally {
+                raf.close(); // mapping stays valid
+            }
+            int end = null == records ? 0 : scan();
+            if (null == records || end < records.limit()) {
+                repair(end);
+            }
+        }
+    }
+
+    /**
+     * Prepares appending records so that no classes need to be loaded when
+     * appending from within a transformation. Disables appending in case of
+     * failures.
+     *
+     * @since 1.30
+     */
+    private void prepare() {
+        try {
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            channel.lock().release();
+            output = ByteBuffer.allocateDirect(OUTPUT_SIZE);
+        } catch (IOException e) {
+            writable = false;
+            Configuration.LOG.warning("transformed class cache: "
+                + e.getMessage());
+        }
+    }
+
+    /**
+     * Scans the records of previous runs, builds the index and reserves the
+     * numeric recorder ids embedded into the cached bytecode.
+     *
+     * @return the end position of the last valid record, <code>0</code> if
+     *   the header is invalid
+     *
+     * @since 1.30
+     */
+    private int scan() {
+        int limit = records.limit();
+        int end = 0;
+        if (limit >= HEADER_SIZE && MAGIC == records.getInt(0)
+            && VERSION == records.getInt(4)) {
+            end = HEADER_SIZE;
+            ByteBuffer buf = records.duplicate();
+            CRC32 crc = new CRC32();
+            byte[] payload = new byte[1024];
+            boolean valid = true;
+            while (valid && end + FRAME_SIZE <= limit) {
+                int length = records.getInt(end);
+                int checksum = records.getInt(end + 4);
+                int start = end + FRAME_SIZE;
+                valid = length > 0 && length <= limit - start;
+                if (valid) {
+                    if (payload.length < length) {
+                        payload = new byte[length];
+                    }
+                    buf.position(start);
+                    buf.get(payload, 0, length);
+                    crc.reset();
+                    crc.update(payload, 0, length);
+                    valid = checksum == (int) crc.getValue();
+                }
+                if (valid) {
+                    try {
+                        DataInputStream in = new DataInputStream(
+                            new ByteArrayInputStream(payload, 0, length));
+                        String name = in.readUTF();
+                        byte[] digest = new byte[DIGEST_LENGTH];
+                        in.readFully(digest);
+                        reserveIds(in);
+                        index.put(getKey(name, digest), end);
+                        end = start + length;
+                    } catch (IOException e) {
+                        valid = false;
+                    }
+                }
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Reserves the numeric recorder ids of a cached record so that they are 
+     * assigned to the same recorder ids as in the run which stored the 
+     * record (see {@link Lock#reserveRecorderId(String, int)}). Ids which 
+     * cannot be reserved lead to instrumenting the class again.
+     *
+     * @param in the record positioned after the digest
+     * @throws IOException in case that the record cannot be read
+     *
+     * @since 1.30
+     */
+    private static void reserveIds(DataInputStream in) throws IOException {
+        int pseudoCount = in.readInt();
+        for (int p = 0; p < pseudoCount; p++) {
+            in.readUTF();
+            int idLength = in.readInt();
+            for (int i = 0; i < idLength; i++) {
+                in.readUTF();
+            }
+        }
+        int idCount = in.readInt();
+        for (int i = 0; i < idCount; i++) {
+            String recId = in.readUTF();
+            Lock.reserveRecorderId(recId, in.readInt());
+        }
+    }
+
+    /**
+     * Replaces the cache file by its valid part. Other JVMs may still use
+     * the replaced file. If replacing fails, no records are appended in this
+     * run.
+     *
+     * @param end the end of the valid part
+     *
+     * @since 1.30
+     */
+    private void repair(int end) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            FileOutputStream out = new FileOutputStream(tmp);
+            try {
+                if (end > 0) {
+                    ByteBuffer buf = records.duplicate();
+                    buf.position(0);
+                    buf.limit(end);
+                    out.getChannel().write(buf);
+                }
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(file)) {
+                file.delete();
+                writable = tmp.renameTo(file);
+            }
+        } catch (IOException e) {
+            writable = false;
+        }
+        if (0 == end) {
+            records = null; // invalid header
+        }
+    }
+
+    /**
+     * Looks up the transformation of a class being loaded. In case of a
+     * cache hit, the side effects of the transformation are repeated.
+     *
+     * @param factory the instrumenter factory
+     * @param loader the defining loader of the class
+     * @param name the name of the class given in in the internal form of
+     *   fully qualified class and interface names as defined in The Java
+     *   Virtual Machine Specification, i.e. slashes instead of dots.
+     * @param classBytes the original bytecode of the class
+     * @return the transformation, <b>null</b> if the cache cannot be
+     *   applied
+     *
+     * @since 1.30
+     */
+    public Transformation lookup(IFactory factory, ClassLoader loader,
+        String name, byte[] classBytes) {
+        Transformation result = null;
+        MessageDigest md = getDigest();
+        if (null != md && !MethodEditor.hasAnnotatedFields()) {
+            result = new Transformation(name, md.digest(classBytes));
+            Integer pos = index.get(result.key);
+            if (null != pos) {
+                try {
+                    replay(factory, loader, result, read(pos));
+                } catch (IOException e) {
+                    result.cached = false;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the payload of a record of a previous run.
+     *
+     * @param pos the position of the record
+     * @return the payload
+     *
+     * @since 1.30
+     */
+    private byte[] read(int pos) {
+        ByteBuffer buf = records.duplicate();
+        byte[] payload = new byte[buf.getInt(pos)];
+        buf.position(pos + FRAME_SIZE);
+        buf.get(payload);
+        return payload;
+    }
+
+    /**
+     * Repeats the side effects of a cached transformation if the recorded
+     * pseudo ids can be reproduced and the recorded numeric recorder ids 
+     * were reserved for their recorder ids (see {@link #reserveIds}).
+     *
+     * @param factory the instrumenter factory
+     * @param loader the defining loader of the class
+     * @param transformation the transformation to be completed
+     * @param payload the cached record
+     * @throws IOException in case that the record cannot be read
+     *
+     * @since 1.30
+     */
+    private static void replay(IFactory factory, ClassLoader loader,
+        Transformation transformation, byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(
+            new ByteArrayInputStream(payload));
+        in.readUTF();
+        in.skipBytes(DIGEST_LENGTH);
+        boolean matches = true;
+        int pseudoCount = in.readInt();
+        for (int p = 0; matches && p < pseudoCount; p++) {
+            String pseudo = in.readUTF();
+            String[] id = new String[in.readInt()];
+            for (int i = 0; i < id.length; i++) {
+                id[i] = in.readUTF();
+            }
+            matches = pseudo.equals(Configuration.INSTANCE.getRecId(id));
+        }
+        int idCount = matches ? in.readInt() : 0;
+        for (int i = 0; matches && i < idCount; i++) {
+            String recId = in.readUTF();
+            matches = in.readInt() == Lock.getRegisteredRecorderId(recId);
+        }
+        if (matches) {
+            int regCount = in.readInt();
+            for (int r = 0; r < regCount; r++) {
+                String className = in.readUTF();
+                MonitoringGroupSettings settings
+                    = MonitoringGroupSettings.getFromPool();
+                readSettings(in, settings);
+                RecorderFrontend.instance.registerForRecording(className,
+                    settings);
+                MonitoringGroupSettings.release(settings);
+            }
+            int length = in.readInt();
+            if (NOT_MODIFIED != length) {
+                transformation.bytecode = new byte[length];
+                in.readFully(transformation.bytecode);
+            }
+            transformation.cached = true;
+            factory.notifyCachedClass(loader);
+            Configuration.INSTANCE.instrumented(
+                AbstractClassTransformer.internalVmFqnToJavaFqn(
+                    transformation.name));
+        }
+    }
+
+    /**
+     * Stores a recorded transformation if it may be cached. Records are
+     * appended to the cache file under a file lock.
+     *
+     * @param transformation the recorded transformation
+     * @param bytecode the transformed bytecode, <b>null</b> if the class was
+     *   not modified
+     *
+     * @since 1.30
+     */
+    public void store(Transformation transformation, byte[] bytecode) {
+        if (writable && transformation.cacheable
+            && !MethodEditor.hasAnnotatedFields()
+            && appended.add(transformation.key)) {
+            try {
+                ByteArrayOutputStream buf = new ByteArrayOutputStream(
+                    (null == bytecode ? 0 : bytecode.length) + 256);
+                DataOutputStream out = new DataOutputStream(buf);
+                out.writeInt(0); // length, see below
+                out.writeInt(0); // checksum, see below
+                out.writeUTF(transformation.name);
+                out.write(transformation.digest);
+                out.writeInt(transformation.pseudoCount);
+                transformation.pseudoIds.writeTo(out);
+                out.writeInt(transformation.idCount);
+                transformation.ids.writeTo(out);
+                out.writeInt(transformation.registrationCount);
+                transformation.registrations.writeTo(out);
+                if (null == bytecode) {
+                    out.writeInt(NOT_MODIFIED);
+                } else {
+                    out.writeInt(bytecode.length);
+                    out.write(bytecode);
+                }
+                out.flush();
+                ByteBuffer record = ByteBuffer.wrap(buf.toByteArray());
+                int length = record.limit() - FRAME_SIZE;
+                CRC32 crc = new CRC32();
+                crc.update(record.array(), FRAME_SIZE, length);
+                record.putInt(0, length);
+                record.putInt(4, (int) crc.getValue());
+                append(record);
+            } catch (IOException e) {
+                writable = false;
+                Configuration.LOG.warning("transformed class cache: "
+                    + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Appends a record to the cache file.
+     *
+     * @param record the record
+     * @throws IOException in case that writing fails
+     *
+     * @since 1.30
+     */
+    private synchronized void append(ByteBuffer record) throws IOException {
+        FileLock lock = channel.lock();
+        try {
+            long pos = channel.size();
+            if (0 == pos) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC);
+                header.putInt(VERSION);
+                header.flip();
+                pos = write(header, pos);
+            }
+            if (pos + record.limit() <= Integer.MAX_VALUE) {
+                write(record, pos);
+            }
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Writes the given buffer via {@link #output} to the cache file.
+     *
+     * @param buf the buffer to be written
+     * @param pos the file position to write to
+     * @return the file position after writing
+     * @throws IOException in case that writing fails
+     *
+     * @since 1.30
+     */
+    private long write(ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            ByteBuffer chunk = buf.duplicate();
+            chunk.limit(chunk.position()
+                + Math.min(chunk.remaining(), output.capacity()));
+            buf.position(chunk.limit());
+            output.clear();
+            output.put(chunk);
+            output.flip();
+            while (output.hasRemaining()) {
+                pos += channel.write(output, pos);
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Closes the cache.
+     *
+     * @since 1.30
+     */
+    public synchronized void close() {
+        writable = false;
+        if (null != channel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Returns the recorder id for the given ids of a monitoring group and
+     * records pseudo ids for the transformation recorded by the current
+     * thread, as pseudo ids depend on the order of class loading. Code
+     * modifiers shall call this method instead of
+     * {@link Configuration#getRecId(String[])} when embedding recorder ids
+     * into bytecode.
+     *
+     * @param id the ids of the monitoring group
+     * @return the recorder id (may be a pseudo id)
+     *
+     * @since 1.30
+     */
+    public static String getRecId(String[] id) {
+        String result = Configuration.INSTANCE.getRecId(id);
+        Transformation transformation = RECORDING.get();
+        if (null != transformation && Helper.isPseudo(result)) {
+            try {
+                DataOutputStream out
+                    = new DataOutputStream(transformation.pseudoIds);
+                out.writeUTF(result);
+                out.writeInt(id.length);
+                for (int i = 0; i < id.length; i++) {
+                    out.writeUTF(id[i]);
+                }
+                transformation.pseudoCount++;
+            } catch (IOException e) {
+                transformation.cacheable = false;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Registers a recorder id and records the numeric id for the
+     * transformation recorded by the current thread. Code modifiers shall
+     * call this method instead of {@link Lock#registerRecorderId(String)}
+     * when embedding numeric ids into bytecode.
+     *
+     * @param recId the recorder id
+     * @return the numeric id
+     *
+     * @since 1.30
+     */
+    public static int registerRecorderId(String recId) {
+        int result = Lock.registerRecorderId(recId);
+        Transformation transformation = RECORDING.get();
+        if (null != transformation) {
+            try {
+                DataOutputStream out
+                    = new DataOutputStream(transformation.ids);
+                out.writeUTF(recId);
+                out.writeInt(result);
+                transformation.idCount++;
+            } catch (IOException e) {
+                transformation.cacheable = false;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Registers a monitoring group for recording and records the
+     * registration for the transformation recorded by the current thread.
+     *
+     * @param className the name of the class
+     * @param settings the monitoring group settings
+     *
+     * @since 1.30
+     */
+    public static void registerForRecording(String className,
+        MonitoringGroupSettings settings) {
+        RecorderFrontend.instance.registerForRecording(className, settings);
+        Transformation transformation = RECORDING.get();
+        if (null != transformation) {
+            try {
+                DataOutputStream out
+                    = new DataOutputStream(transformation.registrations);
+                out.writeUTF(className);
+                writeSettings(out, settings);
+                transformation.registrationCount++;
+            } catch (IOException e) {
+                transformation.cacheable = false;
+            }
+        }
+    }
+
+    /**
+     * Notifies that the transformation recorded by the current thread
+     * depends on other classes or on the state of the agent and shall not be
+     * cached.
+     *
+     * @since 1.30
+     */
+    public static void notifyUncacheable() {
+        Transformation transformation = RECORDING.get();
+        if (null != transformation) {
+            transformation.cacheable = false;
+        }
+    }
+
+    /**
+     * Writes monitoring group settings.
+     *
+     * @param out the output stream
+     * @param settings the settings
+     * @throws IOException in case of I/O errors
+     *
+     * @since 1.30
+     */
+    private static void writeSettings(DataOutputStream out,
+        MonitoringGroupSettings settings) throws IOException {
+        String[] id = settings.getId();
+        out.writeInt(id.length);
+        for (int i = 0; i < id.length; i++) {
+            out.writeUTF(id[i]);
+        }
+        writeEnums(out, settings.getDebugStates());
+        writeEnum(out, settings.getAccountingType());
+        writeEnums(out, settings.getResources());
+        writeEnum(out, settings.getInstanceIdentifierKind());
+        writeEnum(out, settings.getDistributeValues());
+        writeEnum(out, settings.getConsiderContained());
+    }
+
+    /**
+     * Reads monitoring group settings.
+     *
+     * @param in the input stream
+     * @param settings the settings to be modified
+     * @throws IOException in case of I/O errors
+     *
+     * @since 1.30
+     */
+    private static void readSettings(DataInputStream in,
+        MonitoringGroupSettings settings) throws IOException {
+        String[] id = new String[in.readInt()];
+        for (int i = 0; i < id.length; i++) {
+            id[i] = in.readUTF();
+        }
+        DebugState[] debugStates = readEnums(in, DebugState.class);
+        GroupAccountingType gType = readEnum(in, GroupAccountingType.class);
+        ResourceType[] resources = readEnums(in, ResourceType.class);
+        InstanceIdentifierKind kind
+            = readEnum(in, InstanceIdentifierKind.class);
+        settings.setBasics(id, debugStates, gType, resources, kind);
+        BooleanValue distributeValues = readEnum(in, BooleanValue.class);
+        BooleanValue considerContained = readEnum(in, BooleanValue.class);
+        if (id.length > 1) {
+            settings.setMulti(distributeValues, considerContained);
+        }
+    }
+
+    /**
+     * Writes an enum constant.
+     *
+     * @param out the output stream
+     * @param value the constant (may be <b>null</b>)
+     * @throws IOException in case of I/O errors
+     *
+     * @since 1.30
+     */
+    private static void writeEnum(DataOutputStream out, Enum<?> value)
+        throws IOException {
+        out.writeUTF(null == value ? "" : value.name());
+    }
+
+    /**
+     * Reads an enum constant.
+     *
+     * @param <T> the enum type
+     * @param in the input stream
+     * @param type the enum type
+     * @return the constant (may be <b>null</b>)
+     * @throws IOException in case of I/O errors or unknown constants
+     *
+     * @since 1.30
+     */
+    private static <T extends Enum<T>> T readEnum(DataInputStream in,
+        Class<T> type) throws IOException {
+        String name = in.readUTF();
+        T result = null;
+        if (name.length() > 0) {
+            try {
+                result = Enum.valueOf(type, name);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes an array of enum constants.
+     *
+     * @param out the output stream
+     * @param values the constants (may be <b>null</b>)
+     * @throws IOException in case of I/O errors
+     *
+     * @since 1.30
+     */
+    private static void writeEnums(DataOutputStream out, Enum<?>[] values)
+        throws IOException {
+        if (null == values) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(values.length);
+            for (int i = 0; i < values.length; i++) {
+                writeEnum(out, values[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads an array of enum constants.
+     *
+     * @param <T> the enum type
+     * @param in the input stream
+     * @param type the enum type
+     * @return the constants (may be <b>null</b>)
+     * @throws IOException in case of I/O errors or unknown constants
+     *
+     * @since 1.30
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Enum<T>> T[] readEnums(DataInputStream in,
+        Class<T> type) throws IOException {
+        int length = in.readInt();
+        T[] result = null;
+        if (length >= 0) {
+            result = (T[]) Array.newInstance(type, length);
+            for (int i = 0; i < length; i++) {
+                result[i] = readEnum(in, type);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the digest instance of the current thread.
+     *
+     * @return the digest instance, <b>null</b> if the digest algorithm is
+     *   not available
+     *
+     * @since 1.30
+     */
+    private static MessageDigest getDigest() {
+        MessageDigest result = DIGESTS.get();
+        if (null == result) {
+            try {
+                result = MessageDigest.getInstance(DIGEST);
+                DIGESTS.set(result);
+            } catch (NoSuchAlgorithmException e) {
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the cache key of a class.
+     *
+     * @param name the name of the class (internal form)
+     * @param digest the digest of the original bytecode
+     * @return the key
+     *
+     * @since 1.30
+     */
+    private static String getKey(String name, byte[] digest) {
+        return name + ":" + toHex(digest);
+    }
+
+    /**
+     * Calculates the fingerprint of the configuration, i.e. of the agent
+     * arguments, the effective configuration, the XML configuration, the
+     * agent, the JVM and the class path.
+     *
+     * @return the fingerprint
+     * @throws IOException in case that the fingerprint cannot be calculated
+     *
+     * @since 1.30
+     */
+    private static byte[] fingerprint() throws IOException {
+        MessageDigest md = getDigest();
+        if (null == md) {
+            throw new IOException(DIGEST + " not available");
+        }
+        Configuration conf = Configuration.INSTANCE;
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buf);
+        out.writeInt(VERSION);
+        out.writeUTF(String.valueOf(conf.getAgentArguments()));
+        conf.write(out);
+        out.writeUTF(conf.getScopeType().name());
+        out.writeUTF(IFactory.getInstance().getClass().getName());
+        out.writeUTF(String.valueOf(System.getProperty("java.version")));
+        CodeSource source = TransformedClassCache.class.getProtectionDomain()
+            .getCodeSource();
+        if (null != source && null != source.getLocation()) {
+            writeFile(out, source.getLocation().getPath());
+        }
+        String[] classpath = System.getProperty("java.class.path", "")
+            .split(File.pathSeparator);
+        for (int i = 0; i < classpath.length; i++) {
+            writeFile(out, classpath[i]);
+        }
+        out.flush();
+        md.update(buf.toByteArray());
+        String xmlConfig = conf.getXMLConfigPath();
+        if (null != xmlConfig) {
+            File xmlFile = new File(xmlConfig);
+            byte[] content = new byte[(int) xmlFile.length()];
+            DataInputStream in = new DataInputStream(
+                new FileInputStream(xmlFile));
+            try {
+                in.readFully(content);
+            } finally {
+                in.close();
+            }
+            md.update(content);
+        }
+        return md.digest();
+    }
+
+    /**
+     * Writes the identification of a file, i.e. its path, length and the
+     * time of the last modification.
+     *
+     * @param out the output stream
+     * @param path the path of the file
+     * @throws IOException in case of I/O errors
+     *
+     * @since 1.30
+     */
+    private static void writeFile(DataOutputStream out, String path)
+        throws IOException {
+        File file = new File(path);
+        out.writeUTF(file.getAbsolutePath());
+        out.writeLong(file.length());
+        out.writeLong(file.lastModified());
+    }
+
+    /**
+     * Turns bytes into a hexadecimal string.
+     *
+     * @param bytes the bytes
+     * @return the hexadecimal string
+     *
+     * @since 1.30
+     */
+    private static String toHex(byte[] bytes) {
+        char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            result[2 * i] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+            result[2 * i + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+        }
+        return new String(result);
+    }
+
+}
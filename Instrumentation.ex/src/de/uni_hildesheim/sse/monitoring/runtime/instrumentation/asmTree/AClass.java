@@ -24,11 +24,12 @@ import de.uni_hildesheim.sse.monitoring.runtime.instrumentation.lib.*;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.*;
 
 /**
- * Implements the class abstraction for asm.
+ * Implements the class abstraction for asm. Cached instances may be shared
+ * among concurrent transformations, i.e. the usage count is synchronized.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public class AClass extends AType {
 
@@ -88,7 +89,7 @@ public class AClass extends AType {
      * 
      * @since 1.00
      */
-    void notifyExternalUsage() {
+    synchronized void notifyExternalUsage() {
         usageCount++;
     }
     
@@ -512,20 +513,34 @@ public class AClass extends AType {
      */
     @Override
     public void release() {
-        if (!Factory.getLocalFactory().isCached(this)) {
-            if (usageCount > 0) {
-                usageCount--;
-            } else {
-                super.release();
-                node = null;
-                componentType = null;
-                if (null != loader) {
-                    Factory.getLocalFactory().removeClassLoader(loader);
-                    loader = null;
-                }
-                releaseClass(this);
+        if (!Factory.getLocalFactory().isCached(this) && isLastUsage()) {
+            super.release();
+            node = null;
+            componentType = null;
+            if (null != loader) {
+                Factory.getLocalFactory().removeClassLoader(loader);
+                loader = null;
             }
+            releaseClass(this);
+        }
+    }
+    
+    /**
+     * Decrements the usage count if references were passed outside this 
+     * package.
+     * 
+     * @return <code>true</code> if this was the last usage and the instance
+     *   may be released, <code>false</code> else
+     * 
+     * @since 1.30
+     */
+    private synchronized boolean isLastUsage() {
+        boolean result = true;
+        if (usageCount > 0) {
+            usageCount--;
+            result = false;
         }
+        return result;
     }
 
     /**
@@ -42,6 +42,8 @@ import de.uni_hildesheim.sse.monitoring.runtime.boot.MonitoringGroupSettings;
 import de.uni_hildesheim.sse.monitoring.runtime.boot.ResourceType;
 import de.uni_hildesheim.sse.monitoring.runtime.boot.StreamType;
 import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
+import de.uni_hildesheim.sse.monitoring.runtime.instrumentation.
+    TransformedClassCache;
 import de.uni_hildesheim.sse.monitoring.runtime.instrumentation.lib.*;
 import de.uni_hildesheim.sse.monitoring.runtime.recording.Recorder;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.HashMap;
@@ -57,7 +59,7 @@ import static de.uni_hildesheim.sse.monitoring.runtime.instrumentation.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.20
+ * @version 1.30
  */
 public class CodeModifier implements ICodeModifier, Opcodes {
 
@@ -91,6 +93,12 @@ public class CodeModifier implements ICodeModifier, Opcodes {
     private static final String ENTER_EXIT_DESCR 
         = "(" + STRING_DESCR + STRING_DESCR + "ZZJ)V";
 
+    /**
+     * Stores the descriptor for the enter/exit notification calls using 
+     * numeric recorder ids.
+     */
+    private static final String ENTER_EXIT_NUM_DESCR = "(IZJ)V";
+
     /**
      * Stores the descriptor for the assignAllTo notification calls.
      */
@@ -1100,39 +1108,51 @@ public class CodeModifier implements ICodeModifier, Opcodes {
         
         int tmp = Utils.appendRecorderCallProlog(instr, false);
         maxStack = Math.max(maxStack, getLSB(tmp));
-        String staticClsName = null;
-        if (behavior.isStatic() || behavior.isConstructor()) {
-            staticClsName = Factory.toInternalName(
-                behavior.getDeclaringClassName());
-        }
-        maxStack += classNameToStack(instr, staticClsName);
-
         String recId = null;
-        int varInUse = -1;
         if (null != mGroup) {
-            recId = Configuration.INSTANCE.getRecId(mGroup.id());
-            if (null == recId) {
+            recId = TransformedClassCache.getRecId(mGroup.id());
+        }
+        String descr;
+        if (directId && null != recId 
+            && !Configuration.INSTANCE.isStaticInstrumentation()) {
+            // numeric ids are valid only within this JVM
+            instr.add(integerToNode(TransformedClassCache.registerRecorderId(
+                recId)));
+            instr.add(booleanToNode(exclude));
+            maxStack += 2;
+            descr = ENTER_EXIT_NUM_DESCR;
+        } else {
+            String staticClsName = null;
+            if (behavior.isStatic() || behavior.isConstructor()) {
+                staticClsName = Factory.toInternalName(
+                    behavior.getDeclaringClassName());
+            }
+            maxStack += classNameToStack(instr, staticClsName);
+    
+            int varInUse = -1;
+            if (null != mGroup && null == recId) {
                 // we need class name as second param
                 varInUse = maxLocals++;
                 instr.add(new VarInsnNode(ASTORE, varInUse));
                 // keep as first param
                 instr.add(new VarInsnNode(ALOAD, varInUse));
             } // otherwise class name is first param
-        } // otherwise class name is first param
-        
-        if (null != mGroup) {
-            if (null == recId) {
-                instr.add(new VarInsnNode(ALOAD, varInUse));
-                maxStack++;
+            
+            if (null != mGroup) {
+                if (null == recId) {
+                    instr.add(new VarInsnNode(ALOAD, varInUse));
+                    maxStack++;
+                } else {
+                    instr.add(new LdcInsnNode(recId));    
+                }
             } else {
-                instr.add(new LdcInsnNode(recId));    
+                instr.add(new LdcInsnNode(""));
             }
-        } else {
-            instr.add(new LdcInsnNode(""));
+            instr.add(booleanToNode(exclude));
+            instr.add(booleanToNode(directId));
+            maxStack += 3;
+            descr = ENTER_EXIT_DESCR;
         }
-        instr.add(booleanToNode(exclude));
-        instr.add(booleanToNode(directId));
-        maxStack += 3;
 
         maxStack += addInstanceIdentifier(behavior, mGroup, instr);
 
@@ -1143,13 +1163,13 @@ public class CodeModifier implements ICodeModifier, Opcodes {
         // add method call before original method
         LabelNode methodStartLabel = new LabelNode(new Label());
         instr.insertBefore(instr.getFirst(), methodStartLabel);
-        tmp = appendRecorderCall(instr, "enter", ENTER_EXIT_DESCR);
+        tmp = appendRecorderCall(instr, "enter", descr);
         maxStack += getLSB(tmp);
         
         insertAtBeginning(instr, instructions);
 
         // add exit call
-        tmp = Utils.appendRecorderCall(paramCopy, "exit", ENTER_EXIT_DESCR);
+        tmp = Utils.appendRecorderCall(paramCopy, "exit", descr);
         // stack same as above
         instr.clear();
         copy(paramCopy, instr, null);
@@ -7,21 +7,24 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.tree.ClassNode;
 
 import de.uni_hildesheim.sse.codeEraser.util.OnCreationJarProvider;
-import de.uni_hildesheim.sse.monitoring.runtime.boot.ArrayList;
 import de.uni_hildesheim.sse.monitoring.runtime.instrumentation.lib.*;
-import de.uni_hildesheim.sse.monitoring.runtime.utils.HashMap;
 
 /**
- * Implements the factory interface for the tree API of asm.
+ * Implements the factory interface for the tree API of asm. This factory
+ * supports concurrent transformations, i.e. the cache of types and the class 
+ * loaders may be accessed in parallel while cleanup operations are 
+ * exclusive.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.20
+ * @version 1.30
  */
 public class Factory extends IFactory {
 
@@ -153,15 +156,17 @@ public class Factory extends IFactory {
     private static Factory instance;
     
     /**
-     * Stores the class loader.
+     * Stores the class loaders (copy-on-write as loaders are changed rarely
+     * but read while resolving each type).
      */
-    private ArrayList<ClassLoader> loader = new ArrayList<ClassLoader>();
+    private volatile ClassLoader[] loader = new ClassLoader[0];
 
     /**
      * Stores the local cache of class representants. Maps from JVM 
      * internal names to representant instances.
      */
-    private HashMap<String, AType> cache = new HashMap<String, AType>();
+    private final ConcurrentHashMap<String, AType> cache 
+        = new ConcurrentHashMap<String, AType>();
 
     /**
      * Stores the representant for "java.lang.Object".
@@ -262,8 +267,9 @@ public class Factory extends IFactory {
         name = name.replace('.', '/') + ".class";
         AClass result = null;
         InputStream stream = null;
-        for (int l = 0; null == stream && l < loader.size(); l++) {
-            stream = loader.get(l).getResourceAsStream(name);
+        ClassLoader[] loaders = loader;
+        for (int l = 0; null == stream && l < loaders.length; l++) {
+            stream = loaders[l].getResourceAsStream(name);
         }
         if (null != stream) {
             try {
@@ -291,9 +297,10 @@ public class Factory extends IFactory {
      */
     public Class<?> getLoadedClass(String name) {
         Class<?> result = null;
-        for (int l = 0; null == result && l < loader.size(); l++) {
+        ClassLoader[] loaders = loader;
+        for (int l = 0; null == result && l < loaders.length; l++) {
             try {
-                result = loader.get(l).loadClass(name);
+                result = loaders[l].loadClass(name);
             } catch (ClassNotFoundException e) {
                 // handled below
             }
@@ -354,9 +361,9 @@ public class Factory extends IFactory {
                 if (null != loader) {
                     in = loader.getResourceAsStream(fileName);
                 }
-                int size = this.loader.size();
-                for (int l = 0; null == in && l < size; l++) {
-                    in = this.loader.get(l).getResourceAsStream(fileName);
+                ClassLoader[] loaders = this.loader;
+                for (int l = 0; null == in && l < loaders.length; l++) {
+                    in = loaders[l].getResourceAsStream(fileName);
                 }
                 if (null == in) {
                     in = getClass().getClassLoader().getResourceAsStream(
@@ -367,18 +374,16 @@ public class Factory extends IFactory {
                         ClassNode node = new ClassNode();
                         ClassReader reader = new ClassReader(in);
                         reader.accept(node, 0);
-                        nonArrayType = AClass.getClassFromPool(
-                            node, loader, null, null);
-                        cache(nonArrayType);
+                        nonArrayType = cache(AClass.getClassFromPool(
+                            node, loader, null, null));
                     } catch (IOException e) {
                         throw new InstrumenterException(e);
                     }
                 }
             }
             if (arrayDimension > 0) {
-                result = AClass.getClassFromPool(
-                    objectNode, loader, nonArrayType, internalName);
-                cache(result);
+                result = cache(AClass.getClassFromPool(
+                    objectNode, loader, nonArrayType, internalName));
             } else {
                 result = nonArrayType;
             }
@@ -412,10 +417,10 @@ public class Factory extends IFactory {
             } catch (ClassNotFoundException e) {
             }
         }
-        int size = this.loader.size();
-        for (int l = 0; null == result && l < size; l++) {
+        ClassLoader[] loaders = this.loader;
+        for (int l = 0; null == result && l < loaders.length; l++) {
             try {
-                result = Class.forName(className, false, this.loader.get(l));
+                result = Class.forName(className, false, loaders[l]);
             } catch (ClassNotFoundException e) {
             }
         }
@@ -708,10 +713,10 @@ public class Factory extends IFactory {
      */
     private void doCleanup() {
         // TODO check performance vs. cleanup attribute in AClass
-        Iterator<HashMap.Entry<String, AType>> iter 
-            = cache.entries().iterator();
+        Iterator<Map.Entry<String, AType>> iter 
+            = cache.entrySet().iterator();
         while (iter.hasNext()) {
-            HashMap.Entry<String, AType> entry = iter.next();
+            Map.Entry<String, AType> entry = iter.next();
             if (!entry.getValue().isPrimitive() && entry.getValue() != object) {
                 iter.remove();
                 entry.getValue().release();
@@ -721,36 +726,48 @@ public class Factory extends IFactory {
     
     /**
      * Clears temporary memory if required. This method is synchronized by
-     * {@link #acquireExclusiveLock()} and {@link #releaseReentrantLock()}.
+     * {@link #acquireExclusiveLock()} and {@link #releaseExclusiveLock()}.
      * 
      * @since 1.00
      */
     @Override
     public void cleanup() {
-        synchronized (LOCK) {
-        //acquireExclusiveLock();
+        acquireExclusiveLock();
+        try {
             doCleanup();
-        //releaseExclusiveLock();
+        } finally {
+            releaseExclusiveLock();
         }
     }
 
     /**
      * Do memory cleanup if required. This method is synchronized by
-     * {@link #acquireExclusiveLock()} and {@link #releaseReentrantLock()}.
+     * {@link #tryAcquireExclusiveLock()} and {@link #releaseExclusiveLock()},
+     * i.e. the cleanup is deferred to a later call if transformations are
+     * running.
      * 
      * @since 1.00
      */
     @Override
     public void cleanupIfRequired() {
-        synchronized (LOCK) {
-        //acquireExclusiveLock();
-            if ((cache.size() > classPoolSizeThreshold)) {
+        if (cache.size() > classPoolSizeThreshold 
+            && tryAcquireExclusiveLock()) {
+            try {
                 doCleanup();
+            } finally {
+                releaseExclusiveLock();
             }
-        //releaseExclusiveLock();
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean supportsConcurrentTransformation() {
+        return true;
+    }
+
     /**
      * Returns the global code modifier.
      * 
@@ -772,7 +789,22 @@ public class Factory extends IFactory {
      */
     @Override
     public void addClassLoader(ClassLoader loader) {
-        this.loader.add(loader);
+        addLoader(loader);
+    }
+    
+    /**
+     * Adds a class loader to {@link #loader} (copy-on-write).
+     * 
+     * @param loader the class loader to be added
+     * 
+     * @since 1.30
+     */
+    private synchronized void addLoader(ClassLoader loader) {
+        ClassLoader[] loaders = this.loader;
+        ClassLoader[] tmp = new ClassLoader[loaders.length + 1];
+        System.arraycopy(loaders, 0, tmp, 0, loaders.length);
+        tmp[loaders.length] = loader;
+        this.loader = tmp;
     }
 
     /**
@@ -789,7 +821,7 @@ public class Factory extends IFactory {
             File file = new File(pathname);
             URL[] url = new URL[1];
             url[0] = file.toURI().toURL();
-            this.loader.add(new URLClassLoader(url));
+            addLoader(new URLClassLoader(url));
         } catch (MalformedURLException e) {
             throw new InstrumenterException(e);
         }
@@ -802,8 +834,20 @@ public class Factory extends IFactory {
      * 
      * @since 1.00
      */
-    public void removeClassLoader(ClassLoader loader) {
-        this.loader.remove(loader);
+    public synchronized void removeClassLoader(ClassLoader loader) {
+        ClassLoader[] loaders = this.loader;
+        int pos = -1;
+        for (int l = 0; pos < 0 && l < loaders.length; l++) {
+            if (loaders[l] == loader) {
+                pos = l;
+            }
+        }
+        if (pos >= 0) {
+            ClassLoader[] tmp = new ClassLoader[loaders.length - 1];
+            System.arraycopy(loaders, 0, tmp, 0, pos);
+            System.arraycopy(loaders, pos + 1, tmp, pos, tmp.length - pos);
+            this.loader = tmp;
+        }
     }
     
     /**
@@ -839,7 +883,7 @@ public class Factory extends IFactory {
                         File file = new File(add[u]);
                         url[u] = file.toURI().toURL();
                     }
-                    this.loader.add(new URLClassLoader(url));
+                    addLoader(new URLClassLoader(url));
                 } catch (MalformedURLException e) {
                     System.err.println("while adding additional jars: " + e);
                 }
@@ -860,14 +904,23 @@ public class Factory extends IFactory {
     }
     
     /**
-     * Caches a type.
+     * Caches a type. If a concurrent transformation cached the same type in
+     * the meantime, <code>type</code> is released and the cached type is
+     * returned.
      * 
      * @param type the type to be cached
+     * @return the cached type
      * 
      * @since 1.00
      */
-    private void cache(AType type) {
-        cache.put(type.getInternalName(), type);
+    private AType cache(AType type) {
+        AType result = cache.putIfAbsent(type.getInternalName(), type);
+        if (null == result) {
+            result = type;
+        } else {
+            type.release();
+        }
+        return result;
     }
 
     /**
@@ -892,7 +945,7 @@ public class Factory extends IFactory {
      * @since 1.00
      */
     public boolean isCached(AType type) {
-        return cache.containsKey(type.getInternalName());
+        return cache.get(type.getInternalName()) == type;
     }
 
 }
@@ -23,6 +23,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
 import de.uni_hildesheim.sse.monitoring.runtime.configuration.xml.
     XMLConfiguration;
 import de.uni_hildesheim.sse.monitoring.runtime.instrumentation.lib.*;
+import de.uni_hildesheim.sse.monitoring.runtime.wrap.ChannelIo;
 import de.uni_hildesheim.sse.monitoring.runtime.wrap.DelegatingInputStream;
 import de.uni_hildesheim.sse.monitoring.runtime.wrap.DelegatingOutputStream;
 
@@ -37,7 +38,7 @@ import static de.uni_hildesheim.sse.monitoring.runtime.instrumentation.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 class StatementModifier extends MethodVisitor implements IStatementModifier, 
     Opcodes {
@@ -72,6 +73,12 @@ class StatementModifier extends MethodVisitor implements IStatementModifier,
     private static final String DELEGATING_OUTPUTSTREAM = 
         Factory.toInternalName(DelegatingOutputStream.class.getName());
 
+    /**
+     * Defines the internal name of {@link ChannelIo}.
+     */
+    private static final String CHANNEL_IO = 
+        Factory.toInternalName(ChannelIo.class.getName());
+
     /**
      * Stores the descriptor of the read/write IO methods in the recorder.
      */
@@ -830,6 +837,36 @@ class StatementModifier extends MethodVisitor implements IStatementModifier,
         instructions.insert(instruction, tempInstructions);
     }
 
+    /**
+     * Redirects the current NIO channel call to the accounting method of
+     * the same name in {@link ChannelIo}, which takes the receiver as first
+     * parameter. As the receiver is on the stack anyway, only the call
+     * instruction is modified.
+     * 
+     * @param contextId the id for value context changes (may be <b>null</b>)
+     * @param receiverType the (code) name of the type of the first parameter
+     *   of the accounting method, <b>null</b> in case of a static call
+     * @throws InstrumenterException in case that the new code does not compile
+     * 
+     * @since 1.30
+     */
+    @Override
+    public void redirectChannelIo(String contextId, String receiverType)
+        throws InstrumenterException {
+        MethodInsnNode mNode = (MethodInsnNode) instruction;
+        appendContextNotification(contextId, true);
+        insertBefore(instruction);
+        if (null != receiverType) {
+            mNode.desc = "(" + getClassTypeDescriptor(receiverType, false) 
+                + mNode.desc.substring(1);
+        }
+        mNode.setOpcode(INVOKESTATIC);
+        mNode.owner = CHANNEL_IO;
+        mNode.itf = false;
+        appendContextNotification(contextId, false);
+        instructions.insert(instruction, tempInstructions);
+    }
+
     /**
      * Leave the underlying code as it is and just insert value context change
      * notifications if appropriate.
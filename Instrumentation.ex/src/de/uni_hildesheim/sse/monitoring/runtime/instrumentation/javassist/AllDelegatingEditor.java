@@ -22,6 +22,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
 import de.uni_hildesheim.sse.monitoring.runtime.configuration.xml.
     XMLConfiguration;
 import de.uni_hildesheim.sse.monitoring.runtime.instrumentation.lib.*;
+import de.uni_hildesheim.sse.monitoring.runtime.wrap.ChannelIo;
 import de.uni_hildesheim.sse.monitoring.runtime.wrap.DelegatingInputStream;
 import de.uni_hildesheim.sse.monitoring.runtime.wrap.DelegatingOutputStream;
 
@@ -34,7 +35,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.wrap.DelegatingOutputStream;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 class AllDelegatingEditor extends ExprEditor 
     implements IStatementModifier {
@@ -483,6 +484,44 @@ class AllDelegatingEditor extends ExprEditor
         }
     }
 
+    /**
+     * Redirects the current NIO channel call to the accounting method of
+     * the same name in {@link ChannelIo}, which takes the receiver as first
+     * parameter.
+     * 
+     * @param contextId the id for value context changes (may be <b>null</b>)
+     * @param receiverType the (code) name of the type of the first parameter
+     *   of the accounting method, <b>null</b> in case of a static call
+     * @throws InstrumenterException in case that the new code does not compile
+     * 
+     * @since 1.30
+     */
+    @Override
+    public void redirectChannelIo(String contextId, String receiverType)
+        throws InstrumenterException {
+        StringBuilder call = new StringBuilder();
+        insertContextNotificationCode(call, contextId, true);
+        if (!methodCall.getSignature().endsWith(")V")) { 
+            call.append("$_ = ");
+        }
+        call.append(ChannelIo.class.getName());
+        call.append(".");
+        call.append(methodCall.getMethodName());
+        if (null == receiverType) {
+            call.append("($$);");
+        } else {
+            call.append("((");
+            call.append(receiverType);
+            call.append(") $0, $$);");
+        }
+        insertContextNotificationCode(call, contextId, false);
+        try {
+            expression.replace(call.toString());
+        } catch (CannotCompileException e) {
+            throw new InstrumenterException(e);
+        }
+    }
+
     /**
      * Leave the underlying code as it is and just insert value context change
      * notifications if appropriate.
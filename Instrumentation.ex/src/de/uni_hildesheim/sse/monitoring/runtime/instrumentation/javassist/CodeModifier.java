@@ -52,6 +52,8 @@ import de.uni_hildesheim.sse.monitoring.runtime.boot.RecorderFrontend;
 import de.uni_hildesheim.sse.monitoring.runtime.boot.ResourceType;
 import de.uni_hildesheim.sse.monitoring.runtime.boot.StreamType;
 import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
+import de.uni_hildesheim.sse.monitoring.runtime.instrumentation.
+    TransformedClassCache;
 import de.uni_hildesheim.sse.monitoring.runtime.instrumentation.lib.*;
 //import de.uni_hildesheim.sse.monitoring.runtime.recording.Recorder;
 import de.uni_hildesheim.sse.monitoring.runtime.recording.Recorder;
@@ -64,7 +66,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.wrap.ShutdownMonitor;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public class CodeModifier implements ICodeModifier {
 
@@ -620,12 +622,14 @@ public class CodeModifier implements ICodeModifier {
             StringBuilder startCode = new StringBuilder();
             switch (Configuration.INSTANCE.getRecordingType()) {
             case LOCAL_ASYNCHRONOUS:
+            case LOCAL_THREAD_BUFFERED:
                 startCode.append(Recorder.class.getName());
                 // TODO legacy, change
                 //startCode.append(SynchronizedRecorder.class.getName()); 
                 break;
             case LOCAL_SYNCHRONOUS:
             case TCP:
+            case EVENT_LOG:
             default:
                 startCode.append(SynchronizedRecorder.class.getName());
                 break;
@@ -751,8 +755,15 @@ public class CodeModifier implements ICodeModifier {
             JABehavior jaBehavior = (JABehavior) behavior;
             String clsStr = jaBehavior.getClassNameExpression();
             String recId;
+            String numId = null;
             if (null != mGroup) {
-                recId = Configuration.INSTANCE.getRecId(mGroup.id());
+                recId = TransformedClassCache.getRecId(mGroup.id());
+                if (null != recId && directId 
+                    && !Configuration.INSTANCE.isStaticInstrumentation()) {
+                    // numeric ids are valid only within this JVM
+                    numId = String.valueOf(
+                        TransformedClassCache.registerRecorderId(recId));
+                }
                 if (null != recId) {
                     recId = "\"" + recId + "\"";
                 }
@@ -764,11 +775,16 @@ public class CodeModifier implements ICodeModifier {
             }
             
             String instanceIdentifier = instanceIdentifierParameter(behavior, mGroup);
-            String entryCode = RECORDER + ".enter(" + clsStr + "," + recId 
-                + "," + exclude + "," + directId + "," + instanceIdentifier + ");";
+            String params;
+            if (null != numId) {
+                params = numId + "," + exclude + "," + instanceIdentifier;
+            } else {
+                params = clsStr + "," + recId + "," + exclude + "," 
+                    + directId + "," + instanceIdentifier;
+            }
+            String entryCode = RECORDER + ".enter(" + params + ");";
             jaBehavior.insertBefore(entryCode);
-            String exitCode = RECORDER + ".exit(" + clsStr + "," + recId 
-                + "," + exclude + "," + directId + "," + instanceIdentifier + ");";
+            String exitCode = RECORDER + ".exit(" + params + ");";
             try {
                 CtClass ctThrowable = ClassPool.get("java.lang.Throwable");
                 jaBehavior.addCatch(
@@ -14,7 +14,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.instrumentation.lib.*;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public class Factory extends IFactory {
 
@@ -171,6 +171,22 @@ public class Factory extends IFactory {
         ClassPool.addClassLoader(loader);
     }
 
+    /**
+     * Is called when a class was taken from the cache of transformed classes.
+     * Registers <code>loader</code> as done by 
+     * {@link #obtainClass(ClassLoader, String, byte[], boolean)}.
+     * 
+     * @param loader the defining loader of the class (may be <b>null</b>)
+     * 
+     * @since 1.30
+     */
+    @Override
+    public void notifyCachedClass(ClassLoader loader) {
+        if (null != loader) {
+            ClassPool.addClassLoader(loader);
+        }
+    }
+
     /**
      * Appends the given path to the class path.
      * 
@@ -2,7 +2,7 @@ package de.uni_hildesheim.sse.monitoring.runtime.instrumentation.lib;
 
 import java.io.IOException;
 import java.io.InputStream;
-//import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
 import de.uni_hildesheim.sse.monitoring.runtime.configuration.xml.IResolver;
@@ -14,17 +14,26 @@ import de.uni_hildesheim.sse.monitoring.runtime.plugins.internal.*;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public abstract class IFactory implements IResolver, Cleanup {
     
     /**
      * Defines a general lock on the byte code modifier. Use this lock
-     * to shield the modifier from parallel cleanup operations.
+     * to shield the modifier from parallel cleanup operations if the factory
+     * does not support concurrent transformations.
+     * 
+     * @see #supportsConcurrentTransformation()
      */
     public static final Object LOCK = new Object();
-//    private static final ReentrantReadWriteLock LOCK 
-//        = new ReentrantReadWriteLock(true);
+    
+    /**
+     * Defines the lock for factories supporting concurrent transformations.
+     * Transformations share the read lock, cleanup operations require the
+     * write lock.
+     */
+    private static final ReentrantReadWriteLock TRANSFORMATION_LOCK 
+        = new ReentrantReadWriteLock();
     
     /**
      * Stores the factory instance.
@@ -80,45 +89,76 @@ public abstract class IFactory implements IResolver, Cleanup {
         return instance;
     }
     
+    /**
+     * Returns whether this factory may transform multiple classes in 
+     * parallel. In this case, transformations shall be shielded by 
+     * {@link #acquireReentrantLock()} instead of {@link #LOCK}.
+     * 
+     * @return <code>true</code> if classes may be transformed in parallel,
+     *   <code>false</code> else
+     * 
+     * @since 1.30
+     */
+    public boolean supportsConcurrentTransformation() {
+        return false;
+    }
+    
     /**
      * Acquires a reentrant lock for byte code manipulation. Multiple byte code
      * manipulations may run in parallel.
      * 
-     * @since 1.00
+     * @since 1.30
      */
-    //public static final void aquireReentrantLock() {
-    //    LOCK.readLock().lock();
-   // }
+    public static final void acquireReentrantLock() {
+        TRANSFORMATION_LOCK.readLock().lock();
+    }
 
     /**
      * Releases a lock for byte code manipulation acquired 
-     * by {@link #aquireReentrantLock()}.
+     * by {@link #acquireReentrantLock()}.
      * 
-     * @since 1.00
+     * @since 1.30
      */
-    //public static final void releaseReentrantLock() {
-    //    LOCK.readLock().unlock();
-    //}
+    public static final void releaseReentrantLock() {
+        TRANSFORMATION_LOCK.readLock().unlock();
+    }
 
     /**
      * Acquires an exclusive lock for byte code manipulation, e.g. for
-     * parallel memory cleanup.
+     * parallel memory cleanup. Waits until running byte code manipulations 
+     * are finished.
      * 
-     * @since 1.00
+     * @since 1.30
      */
-    //protected static final void acquireExclusiveLock() {
-    //    LOCK.writeLock().lock();
-    //}
+    protected static final void acquireExclusiveLock() {
+        TRANSFORMATION_LOCK.writeLock().lock();
+    }
+    
+    /**
+     * Acquires an exclusive lock for byte code manipulation if no byte code 
+     * manipulation is running. As this method does not wait, it may also 
+     * be called from code executed while transforming a class, e.g. from 
+     * instrumented class loaders.
+     * 
+     * @return <code>true</code> if the lock was acquired and must be released
+     *   by {@link #releaseExclusiveLock()}, <code>false</code> else
+     * 
+     * @since 1.30
+     */
+    protected static final boolean tryAcquireExclusiveLock() {
+        return TRANSFORMATION_LOCK.writeLock().tryLock();
+    }
     
     /**
      * Releases an exclusive lock for byte code manipulation acquired 
-     * by {@link #acquireExclusiveLock()}.
+     * by {@link #acquireExclusiveLock()} or 
+     * {@link #tryAcquireExclusiveLock()}.
      * 
-     * @since 1.00
+     * @since 1.30
      */
-    //protected static final void releaseExclusiveLock() {
-    //    LOCK.writeLock().unlock();
-   // }
+    protected static final void releaseExclusiveLock() {
+        TRANSFORMATION_LOCK.writeLock().unlock();
+    }
 
     /**
      * Obtains a class instance. Must released explicitly
@@ -197,6 +237,19 @@ public abstract class IFactory implements IResolver, Cleanup {
      */
     public abstract void addClassLoader(ClassLoader loader);
 
+    /**
+     * Is called when a class was taken from the cache of transformed classes,
+     * i.e., {@link #obtainClass(ClassLoader, String, byte[], boolean)} was
+     * not called for that class. Factories which learn class loaders from
+     * the obtained classes shall consider <code>loader</code> here.
+     * 
+     * @param loader the defining loader of the class (may be <b>null</b>)
+     * 
+     * @since 1.30
+     */
+    public void notifyCachedClass(ClassLoader loader) {
+    }
+
     /**
      * Appends the given path to the class path.
      * 
@@ -112,6 +112,21 @@ public interface IStatementModifier {
      */
     public void notifyRandomIoAccess(String contextId, boolean write)
         throws InstrumenterException;
+
+    /**
+     * Redirects the current NIO channel call to the accounting method of
+     * the same name in {@link de.uni_hildesheim.sse.monitoring.runtime.wrap.
+     * ChannelIo}, which takes the receiver as first parameter.
+     * 
+     * @param contextId the id for value context changes (may be <b>null</b>)
+     * @param receiverType the (code) name of the type of the first parameter
+     *   of the accounting method, <b>null</b> in case of a static call
+     * @throws InstrumenterException in case that the new code does not compile
+     * 
+     * @since 1.30
+     */
+    public void redirectChannelIo(String contextId, String receiverType)
+        throws InstrumenterException;
     
     /**
      * Leave the underlying code as it is and just insert value context change
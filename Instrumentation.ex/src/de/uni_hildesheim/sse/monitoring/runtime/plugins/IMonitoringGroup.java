@@ -15,10 +15,20 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.LongHashMap.MapElement;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.20
+ * @version 1.30
  */
 public interface IMonitoringGroup {
 
+    /**
+     * Defines the instance identifier of the instance recorder element which
+     * accounts for all instances not tracked individually if the number of
+     * instances is bounded (configuration option 
+     * <code>instanceLimit</code>).
+     * 
+     * @since 1.30
+     */
+    public static final long OTHER_INSTANCES = 0;
+
     /**
      * Returns if data on this instance was recorded or if it a dummy instance
      * created e.g. for some unused (automatic detected) variants.
@@ -50,6 +60,34 @@ public interface IMonitoringGroup {
      * @since 1.00
      */
     public long getCpuTimeTicks();
+
+    /**
+     * Returns the system time of an individual invocation at the given 
+     * percentile. Requires latency histograms to be enabled in the 
+     * configuration.
+     * 
+     * @param percentile the percentile in the range [0;100]
+     * @return the system time in nano seconds, <code>0</code> if latency 
+     *   histograms are not recorded
+     * 
+     * @since 1.30
+     */
+    @Variability(id = AnnotationConstants.MONITOR_TIME_SYSTEM)
+    public long getSystemTimePercentile(double percentile);
+
+    /**
+     * Returns the CPU time of an individual invocation at the given 
+     * percentile. Requires latency histograms to be enabled in the 
+     * configuration.
+     * 
+     * @param percentile the percentile in the range [0;100]
+     * @return the CPU time in nano seconds, <code>0</code> if latency 
+     *   histograms are not recorded
+     * 
+     * @since 1.30
+     */
+    @Variability(id = AnnotationConstants.MONITOR_TIME_CPU)
+    public long getCpuTimePercentile(double percentile);
     
     /**
      * Returns the amount of memory allocated for this instance.
@@ -143,7 +181,9 @@ public interface IMonitoringGroup {
     public RecorderElement getInstanceRecorderElement(long instanceId);
 
     /**
-     * Returns all instance recorder elements.
+     * Returns all instance recorder elements. If the number of instances is
+     * bounded, only the most frequently used instances are contained and
+     * all others are accounted in the element for {@link #OTHER_INSTANCES}.
      * 
      * @return the instance recorder elements
      * 
@@ -153,7 +193,9 @@ public interface IMonitoringGroup {
 
 
     /**
-     * Returns all instance recorder keys.
+     * Returns all instance recorder keys. If the number of instances is
+     * bounded, this includes {@link #OTHER_INSTANCES} as soon as instances
+     * were folded.
      * 
      * @return the instance recorder keys
      * 
@@ -4,11 +4,12 @@ import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
 import de.uni_hildesheim.sse.monitoring.runtime.AnnotationConstants;
 
 /**
- * Defines a listener for timer events, i.e. when a user defined timer ends
+ * Defines a listener for timer events, i.e. when a user defined timer ends.
+ * A listener may additionally implement {@link TimerDistributionListener}.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 @Variability(id = AnnotationConstants.MONITOR_TIMERS)
 public interface TimerChangeListener {
@@ -17,7 +18,7 @@ public interface TimerChangeListener {
      * Is called when a user defined timer ends.
      * 
      * @param recId the recorder identification
-     * @param value the value of the timer
+     * @param value the value of the timer in milliseconds
      * 
      * @since 1.00
      */
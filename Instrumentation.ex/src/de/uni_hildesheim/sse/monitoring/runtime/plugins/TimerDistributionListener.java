@@ -0,0 +1,32 @@
+package de.uni_hildesheim.sse.monitoring.runtime.plugins;
+
+import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
+import de.uni_hildesheim.sse.monitoring.runtime.AnnotationConstants;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LatencyHistogram;
+
+/**
+ * Defines an optional listener for the distribution of the values of user
+ * defined timers. This interface is considered only if it is implemented
+ * by the registered {@link TimerChangeListener}.
+ * 
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+@Variability(id = AnnotationConstants.MONITOR_TIMERS)
+public interface TimerDistributionListener {
+
+    /**
+     * Is called after {@link TimerChangeListener#timerFinished(String, long)}
+     * to provide the distribution of the values of all finished periods of 
+     * the timer (regardless of the thread).
+     * 
+     * @param recId the recorder identification
+     * @param histogram the values of the timer in nano seconds (shall not be
+     *   modified)
+     * 
+     * @since 1.30
+     */
+    public void timerDistributionChanged(String recId, 
+        LatencyHistogram histogram);
+}
@@ -0,0 +1,27 @@
+package de.uni_hildesheim.sse.monitoring.runtime.plugins.internal;
+
+/**
+ * Allows the recorder to remove the probes of a monitoring group from the
+ * instrumented code.
+ * 
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public interface GroupFolding {
+
+    /**
+     * Removes the probes of the given monitoring group by retransforming 
+     * the classes containing them. Further probes of the group, e.g. in 
+     * classes which cannot be retransformed, shall be skipped by the 
+     * recorder.
+     * 
+     * @param recId the recorder id of the group
+     * @return <code>true</code> if classes were retransformed, 
+     *   <code>false</code> else
+     * 
+     * @since 1.30
+     */
+    public boolean fold(String recId);
+    
+}
@@ -9,7 +9,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.configuration
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public class InternalPluginRegistry {
 
@@ -23,6 +23,12 @@ public class InternalPluginRegistry {
      * cleanups.
      */
     private static Cleanup instrumenterCleanup = null;
+
+    /**
+     * Stores the instance being responsible for removing the probes of 
+     * folded monitoring groups.
+     */
+    private static GroupFolding groupFolding = null;
     
     /**
      * Prevents this instance from being instantiated from outside.
@@ -82,4 +88,26 @@ public class InternalPluginRegistry {
         return instrumenterCleanup;
     }
 
+    /**
+     * Attaches the internal group folding instance.
+     * 
+     * @param folding the folding instance
+     * 
+     * @since 1.30
+     */
+    public static final void attachGroupFolding(GroupFolding folding) {
+        groupFolding = folding;
+    }
+    
+    /**
+     * Returns the internal group folding instance.
+     * 
+     * @return the instance (may be <b>null</b>)
+     * 
+     * @since 1.30
+     */
+    public static final GroupFolding getGroupFolding() {
+        return groupFolding;
+    }
+
 }
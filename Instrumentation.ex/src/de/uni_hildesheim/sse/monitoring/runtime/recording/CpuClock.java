@@ -0,0 +1,234 @@
+package de.uni_hildesheim.sse.monitoring.runtime.recording;
+
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.CpuClockType;
+import de.uni_hildesheim.sse.system.IThreadDataGatherer;
+
+/**
+ * Determines the CPU time of the current thread upon the enter and exit of
+ * monitoring groups according to a {@link CpuClockType}. The clocks
+ * {@link CpuClockType#TRANSITION} and {@link CpuClockType#INTERPOLATED}
+ * keep a state per thread and, thus, must be called for the enter and exit
+ * of the same invocation.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public class CpuClock {
+
+    /**
+     * Stores the thread data gatherer.
+     */
+    private final IThreadDataGatherer gatherer;
+
+    /**
+     * Stores the type of this clock.
+     */
+    private final CpuClockType type;
+
+    /**
+     * Stores the interval of {@link CpuClockType#INTERPOLATED} in nano
+     * seconds.
+     */
+    private final long interval;
+
+    /**
+     * Stores the state of the current thread.
+     */
+    private final ThreadLocal<State> state = new ThreadLocal<State>();
+
+    /**
+     * Implements the clock state of a thread.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class State {
+
+        /**
+         * Stores the recorder ids of the active invocations.
+         */
+        private String[] groups = new String[16];
+
+        /**
+         * Stores the number of entries in {@link #groups}.
+         */
+        private int depth;
+
+        /**
+         * Stores the CPU time returned last (negative if none).
+         */
+        private long ticks = -1;
+
+        /**
+         * Stores the CPU time queried last (negative if none).
+         */
+        private long sampleTicks = -1;
+
+        /**
+         * Stores the system time of {@link #sampleTicks}.
+         */
+        private long sampleTime;
+
+        /**
+         * Stores the ratio of CPU time to system time in the last interval.
+         */
+        private double ratio = 1;
+
+        /**
+         * Records the enter or exit of a monitoring group and returns
+         * whether the current monitoring group changes.
+         *
+         * @param recId the recorder id of the group (may be <b>null</b>)
+         * @param enter <code>true</code> if the group is entered,
+         *   <code>false</code> if it is exited
+         * @return <code>true</code> if the group changes, <code>false</code>
+         *   if the group is nested into itself
+         *
+         * @since 1.30
+         */
+        private boolean transition(String recId, boolean enter) {
+            boolean result;
+            if (enter) {
+                result = !isTop(recId);
+                if (depth == groups.length) {
+                    String[] tmp = new String[2 * groups.length];
+                    System.arraycopy(groups, 0, tmp, 0, depth);
+                    groups = tmp;
+                }
+                groups[depth++] = recId;
+            } else {
+                if (depth > 0) {
+                    groups[--depth] = null;
+                }
+                result = !isTop(recId);
+            }
+            return result;
+        }
+
+        /**
+         * Returns whether <code>recId</code> is on top of {@link #groups}.
+         *
+         * @param recId the recorder id (may be <b>null</b>)
+         * @return <code>true</code> if <code>recId</code> is on top,
+         *   <code>false</code> else
+         *
+         * @since 1.30
+         */
+        private boolean isTop(String recId) {
+            String top = depth > 0 ? groups[depth - 1] : null;
+            return null != recId && (recId == top || recId.equals(top));
+        }
+    }
+
+    /**
+     * Creates a CPU clock.
+     *
+     * @param gatherer the thread data gatherer
+     * @param type the type of the clock
+     * @param interval the interval of {@link CpuClockType#INTERPOLATED} in
+     *   micro seconds
+     *
+     * @since 1.30
+     */
+    public CpuClock(IThreadDataGatherer gatherer, CpuClockType type,
+        int interval) {
+        this.gatherer = gatherer;
+        this.type = type;
+        this.interval = interval * 1000L;
+    }
+
+    /**
+     * Returns the type of this clock.
+     *
+     * @return the type
+     *
+     * @since 1.30
+     */
+    public CpuClockType getType() {
+        return type;
+    }
+
+    /**
+     * Returns the state of the current thread.
+     *
+     * @return the state
+     *
+     * @since 1.30
+     */
+    private State state() {
+        State result = state.get();
+        if (null == result) {
+            result = new State();
+            state.set(result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the CPU time of the current thread upon the enter or exit of a
+     * monitoring group.
+     *
+     * @param tid the identifier of the current thread
+     * @param recId the recorder id of the group (may be <b>null</b>)
+     * @param enter <code>true</code> if the group is entered,
+     *   <code>false</code> if it is exited
+     * @return the CPU time in nano seconds
+     *
+     * @since 1.30
+     */
+    public long getTicks(long tid, String recId, boolean enter) {
+        long result;
+        switch (type) {
+        case CURRENT:
+            result = gatherer.getCurrentCpuTime();
+            break;
+        case TRANSITION:
+            State trans = state();
+            if (trans.transition(recId, enter) || trans.ticks < 0) {
+                trans.ticks = gatherer.getCurrentCpuTime();
+            }
+            result = trans.ticks;
+            break;
+        case INTERPOLATED:
+            result = interpolate(state());
+            break;
+        case EXACT:
+        default:
+            result = gatherer.getCpuTime(tid);
+            break;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the CPU time of the current thread, queried at most once per
+     * {@link #interval} and interpolated in between.
+     *
+     * @param state the state of the current thread
+     * @return the CPU time in nano seconds
+     *
+     * @since 1.30
+     */
+    private long interpolate(State state) {
+        long result;
+        long now = System.nanoTime();
+        long elapsed = now - state.sampleTime;
+        if (state.sampleTicks < 0 || elapsed >= interval) {
+            result = gatherer.getCurrentCpuTime();
+            if (state.sampleTicks >= 0 && elapsed > 0) {
+                double ratio = (result - state.sampleTicks) / (double) elapsed;
+                state.ratio = Math.max(0, Math.min(1, ratio));
+            }
+            state.sampleTicks = result;
+            state.sampleTime = now;
+        } else {
+            result = state.sampleTicks + (long) (elapsed * state.ratio);
+        }
+        result = Math.max(result, state.ticks);
+        state.ticks = result;
+        return result;
+    }
+
+}
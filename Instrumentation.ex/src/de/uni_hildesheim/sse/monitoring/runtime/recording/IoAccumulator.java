@@ -0,0 +1,260 @@
+package de.uni_hildesheim.sse.monitoring.runtime.recording;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import de.uni_hildesheim.sse.monitoring.runtime.boot.ArrayList;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.StreamType;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    RecorderStrategy;
+
+/**
+ * Accumulates the bytes read and written by a thread per stream type so that
+ * the recorder strategy is not called for each individual I/O operation. The
+ * accumulated bytes must be flushed to the strategy whenever the monitoring
+ * group of the thread may change, i.e. before entering or exiting a group,
+ * so that the strategy attributes them as it would attribute the individual
+ * operations. Snapshots request a flush by incrementing the epoch, which is
+ * then performed by the individual threads upon their next I/O operation
+ * (threads not performing further I/O flush at their next group boundary).
+ * Only at the end of recording or of a thread, the bytes of other threads
+ * are flushed. As the owning thread may accumulate or flush at the same
+ * time, the counters are atomic and taken over by a flush via
+ * <code>getAndSet</code>, i.e. bytes are neither lost nor counted twice.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+class IoAccumulator {
+
+    /**
+     * Defines the number of counters, i.e. read and write per stream type.
+     */
+    private static final int COUNTERS = 2 * StreamType.values().length;
+
+    /**
+     * Stores the accumulator of the current thread.
+     */
+    private static final ThreadLocal<IoAccumulator> CURRENT
+        = new ThreadLocal<IoAccumulator>();
+
+    /**
+     * Stores all registered accumulators (synchronized by itself).
+     */
+    private static final ArrayList<IoAccumulator> ACCUMULATORS
+        = new ArrayList<IoAccumulator>();
+
+    /**
+     * Stores the current flush epoch.
+     */
+    private static volatile int epoch;
+
+    /**
+     * Stores the identification of the thread.
+     */
+    private final long threadId;
+
+    /**
+     * Stores the accumulated bytes, read and write per stream type (modified
+     * by the owning thread and by flushing at the end of recording).
+     */
+    private final AtomicLongArray counters = new AtomicLongArray(COUNTERS);
+
+    /**
+     * Stores whether bytes were accumulated since the last flush (set after
+     * accumulating, reset before taking over the counters).
+     */
+    private volatile boolean pending;
+
+    /**
+     * Stores the epoch of the last flush.
+     */
+    private int flushEpoch;
+
+    /**
+     * Stores whether this accumulator is registered in
+     * {@link #ACCUMULATORS}.
+     */
+    private boolean registered;
+
+    /**
+     * Creates an accumulator.
+     *
+     * @param threadId the identification of the owning thread
+     *
+     * @since 1.30
+     */
+    private IoAccumulator(long threadId) {
+        this.threadId = threadId;
+        this.flushEpoch = epoch;
+    }
+
+    /**
+     * Returns the accumulator of the current thread and creates it if
+     * required.
+     *
+     * @return the accumulator
+     *
+     * @since 1.30
+     */
+    static IoAccumulator current() {
+        IoAccumulator result = CURRENT.get();
+        if (null == result) {
+            result = new IoAccumulator(SystemMonitoring.getCurrentThreadId());
+            CURRENT.set(result);
+        }
+        if (!result.registered) {
+            register(result);
+        }
+        return result;
+    }
+
+    /**
+     * Registers an accumulator.
+     *
+     * @param accumulator the accumulator to be registered
+     *
+     * @since 1.30
+     */
+    private static void register(IoAccumulator accumulator) {
+        synchronized (ACCUMULATORS) {
+            if (!accumulator.registered) {
+                ACCUMULATORS.add(accumulator);
+                accumulator.registered = true;
+            }
+        }
+    }
+
+    /**
+     * Accumulates the given bytes.
+     *
+     * @param type the stream type
+     * @param write <code>true</code> if bytes were written,
+     *   <code>false</code> if bytes were read
+     * @param bytes the number of bytes
+     * @return <code>true</code> if a flush was requested by a snapshot,
+     *   <code>false</code> else
+     *
+     * @since 1.30
+     */
+    boolean add(StreamType type, boolean write, int bytes) {
+        int pos = 2 * type.ordinal();
+        if (write) {
+            pos++;
+        }
+        counters.addAndGet(pos, bytes);
+        pending = true;
+        return flushEpoch != epoch;
+    }
+
+    /**
+     * Returns the identification of the owning thread.
+     *
+     * @return the thread identification
+     *
+     * @since 1.30
+     */
+    long getThreadId() {
+        return threadId;
+    }
+
+    /**
+     * Passes the accumulated bytes to <code>strategy</code> and resets this
+     * accumulator. The caller is responsible for disabling memory accounting.
+     *
+     * @param strategy the recorder strategy
+     *
+     * @since 1.30
+     */
+    void flush(RecorderStrategy strategy) {
+        flushEpoch = epoch;
+        if (pending) {
+            pending = false;
+            StreamType[] types = StreamType.values();
+            for (int c = 0; c < COUNTERS; c++) {
+                long bytes = counters.getAndSet(c, 0);
+                if (bytes > 0) {
+                    StreamType type = types[c / 2];
+                    while (bytes > 0) {
+                        int amount = (int) Math.min(bytes, Integer.MAX_VALUE);
+                        if (0 == c % 2) {
+                            strategy.readIo(null, null, threadId, amount,
+                                type);
+                        } else {
+                            strategy.writeIo(null, null, threadId, amount,
+                                type);
+                        }
+                        bytes -= amount;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the accumulator of the current thread with pending bytes.
+     *
+     * @return the accumulator, <b>null</b> if there is none or if nothing is
+     *   pending
+     *
+     * @since 1.30
+     */
+    static IoAccumulator pending() {
+        IoAccumulator result = CURRENT.get();
+        if (null != result && !result.pending) {
+            result = null;
+        }
+        return result;
+    }
+
+    /**
+     * Requests all threads to flush their accumulated bytes upon their next
+     * I/O operation.
+     *
+     * @since 1.30
+     */
+    static void requestFlush() {
+        epoch++;
+    }
+
+    /**
+     * Removes the accumulator of the given thread from the registered ones.
+     *
+     * @param threadId the thread identification
+     * @return the accumulator, <b>null</b> if none is registered
+     *
+     * @since 1.30
+     */
+    static IoAccumulator unregister(long threadId) {
+        IoAccumulator result = null;
+        synchronized (ACCUMULATORS) {
+            for (int i = ACCUMULATORS.size() - 1; null == result && i >= 0;
+                i--) {
+                IoAccumulator acc = ACCUMULATORS.get(i);
+                if (acc.threadId == threadId) {
+                    ACCUMULATORS.remove(i);
+                    acc.registered = false;
+                    result = acc;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Flushes all registered accumulators, e.g., at the end of recording.
+     * The caller is responsible for disabling memory accounting.
+     *
+     * @param strategy the recorder strategy
+     *
+     * @since 1.30
+     */
+    static void flushAll(RecorderStrategy strategy) {
+        synchronized (ACCUMULATORS) {
+            for (int i = 0; i < ACCUMULATORS.size(); i++) {
+                ACCUMULATORS.get(i).flush(strategy);
+            }
+        }
+    }
+
+}
@@ -6,7 +6,6 @@ import de.uni_hildesheim.sse.monitoring.runtime.boot.ResourceType;
 import de.uni_hildesheim.sse.monitoring.runtime.configuration.
     MonitoringGroupConfiguration;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.HashMap;
-import de.uni_hildesheim.sse.monitoring.runtime.utils.IntHashMap;
 
 /**
  * Provides a simple global locking mechanism for the entire 
@@ -15,12 +14,14 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.IntHashMap;
  * disabling memory as an accountable resource.
  * 
  * However, at the moment this class performs a mapping between string and
- * numeric identifiers. This shall be propagated through the framework in
- * future versions.
+ * numeric identifiers. Numeric identifiers are dense, i.e. they can be used
+ * as array indexes, and are also assigned to recorder ids during 
+ * instrumentation so that instrumented code may pass them instead of strings
+ * (see {@link #registerRecorderId(String)}).
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public class Lock {
 
@@ -28,8 +29,10 @@ public class Lock {
      * Stores the memory resource monitoring flag for the individual threads
      * in terms of stacks. This could also be handled via ThreadLocals but 
      * this would introduce instrumented classes of lower performance here.
+     * Copy-on-write as threads start and end rarely but the stacks are 
+     * queried without lock upon each stack operation.
      */
-    static final LongRecordingStackHashMap THREAD_STACKS 
+    private static volatile LongRecordingStackHashMap threadStacks 
         = new LongRecordingStackHashMap();
     
     /**
@@ -87,27 +90,42 @@ public class Lock {
          */
         public GroupInfo(String recId, MemRecordingType type) {
             this.type = type;
-            id = nextId++;
-            REGISTERED_IDS.put(id, recId);
+            id = registerRecorderId(recId);
         }
     }
     
     /**
      * Stores the registered monitoring groups (name-shall memory be monitored).
+     * Copy-on-write as groups are registered rarely but queried upon each
+     * stack operation.
      */
-    private static final HashMap<String, GroupInfo> REGISTERED_GROUPS 
+    private static volatile HashMap<String, GroupInfo> registeredGroups 
         = new HashMap<String, GroupInfo>();
     
     /**
-     * Stores the reverse mapping from {@link #REGISTERED_GROUPS}.
+     * Stores the numeric ids of the recorder ids (copy-on-write).
      */
-    private static final IntHashMap<String> REGISTERED_IDS
-        = new IntHashMap<String>();
+    private static volatile HashMap<String, Integer> registeredIds 
+        = new HashMap<String, Integer>();
 
     /**
-     * Stores the next numeric id.
+     * Stores the reverse mapping from {@link #registeredIds} (copy-on-write,
+     * indexed by numeric id).
      */
-    private static int nextId = 0;
+    private static volatile String[] idNames = new String[0];
+
+    /**
+     * Stores the recorder ids as returned by 
+     * {@link Helper#getCheckedId(String)} (copy-on-write, indexed by numeric
+     * id).
+     */
+    private static volatile String[] checkedIds = new String[0];
+
+    /**
+     * Stores the groups by numeric id (copy-on-write, entries may be 
+     * <b>null</b> if no group was registered for an id).
+     */
+    private static volatile GroupInfo[] groupsById = new GroupInfo[0];
     
     static {
         new GroupInfo(Helper.RECORDER_ID, MemRecordingType.NONE);
@@ -130,8 +148,8 @@ public class Lock {
      * 
      * @since 1.00
      */
-    public static final void registerGroup(String className, String recId, 
-        MonitoringGroupConfiguration conf) {
+    public static final synchronized void registerGroup(String className, 
+        String recId, MonitoringGroupConfiguration conf) {
         MemRecordingType type;
         boolean isMemResource = ResourceType.contains(conf.getResources(), 
             ResourceType.MEMORY);
@@ -144,13 +162,135 @@ public class Lock {
         } else {
             type = MemRecordingType.NONE;
         }
+        String key;
         if (null != recId && recId.length() > 0) {
-            REGISTERED_GROUPS.put(recId, new GroupInfo(recId, type));
+            key = recId;
         } else if (null != className && className.length() > 0) {
-            REGISTERED_GROUPS.put(className, new GroupInfo(recId, type));
+            key = className;
+        } else {
+            key = null;
+        }
+        if (null != key) {
+            HashMap<String, GroupInfo> groups = registeredGroups;
+            HashMap<String, GroupInfo> tmp 
+                = new HashMap<String, GroupInfo>(groups.size() + 1);
+            for (HashMap.Entry<String, GroupInfo> ent : groups.entries()) {
+                tmp.put(ent.getKey(), ent.getValue());
+            }
+            GroupInfo info = new GroupInfo(key, type);
+            tmp.put(key, info);
+            registeredGroups = tmp;
+            GroupInfo[] byId = groupsById;
+            if (info.id >= byId.length) {
+                GroupInfo[] tmpById = new GroupInfo[info.id + 1];
+                System.arraycopy(byId, 0, tmpById, 0, byId.length);
+                byId = tmpById;
+            } else {
+                byId = byId.clone();
+            }
+            byId[info.id] = info;
+            groupsById = byId;
         }
     }
 
+    /**
+     * Returns the dense numeric id for <code>recId</code> and assigns a new
+     * one if <code>recId</code> was not registered before. This method may be
+     * called during instrumentation (in the same JVM) so that instrumented 
+     * code can pass the numeric id instead of <code>recId</code>.
+     * 
+     * @param recId the recorder id
+     * @return the numeric id
+     * 
+     * @since 1.30
+     */
+    public static final synchronized int registerRecorderId(String recId) {
+        int result;
+        Integer id = registeredIds.get(recId);
+        if (null != id) {
+            result = id;
+        } else {
+            result = idNames.length;
+            assignRecorderId(recId, result);
+        }
+        return result;
+    }
+
+    /**
+     * Reserves the numeric id <code>id</code> for <code>recId</code>, e.g.,
+     * in order to reproduce the numeric ids embedded into cached bytecode.
+     * Numeric ids assigned later by {@link #registerRecorderId(String)} 
+     * follow the highest reserved id.
+     * 
+     * @param recId the recorder id
+     * @param id the numeric id
+     * @return <code>true</code> if <code>recId</code> is registered for 
+     *   <code>id</code>, <code>false</code> if <code>recId</code> or 
+     *   <code>id</code> is already registered otherwise
+     * 
+     * @since 1.30
+     */
+    public static final synchronized boolean reserveRecorderId(String recId, 
+        int id) {
+        boolean result;
+        Integer registered = registeredIds.get(recId);
+        if (null != registered) {
+            result = registered == id;
+        } else {
+            result = id >= 0 && null == getRecorderId(id);
+            if (result) {
+                assignRecorderId(recId, id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the numeric id of <code>recId</code> without assigning a new 
+     * one.
+     * 
+     * @param recId the recorder id
+     * @return the numeric id, <code>-1</code> if <code>recId</code> was not 
+     *   registered
+     * 
+     * @since 1.30
+     */
+    public static final int getRegisteredRecorderId(String recId) {
+        Integer id = registeredIds.get(recId);
+        return null == id ? -1 : id;
+    }
+
+    /**
+     * Assigns the unused numeric id <code>id</code> to <code>recId</code>. 
+     * Numeric ids skipped in between remain unused. The caller must 
+     * synchronize on this class.
+     * 
+     * @param recId the recorder id
+     * @param id the numeric id
+     * 
+     * @since 1.30
+     */
+    private static void assignRecorderId(String recId, int id) {
+        HashMap<String, Integer> ids = registeredIds;
+        HashMap<String, Integer> tmp 
+            = new HashMap<String, Integer>(ids.size() + 1);
+        for (HashMap.Entry<String, Integer> ent : ids.entries()) {
+            tmp.put(ent.getKey(), ent.getValue());
+        }
+        tmp.put(recId, id);
+        String[] names = idNames;
+        int size = Math.max(names.length, id + 1);
+        String[] tmpNames = new String[size];
+        System.arraycopy(names, 0, tmpNames, 0, names.length);
+        tmpNames[id] = recId;
+        String[] tmpChecked = new String[size];
+        System.arraycopy(checkedIds, 0, tmpChecked, 0, names.length);
+        tmpChecked[id] = Helper.getCheckedId(recId);
+        checkedIds = tmpChecked;
+        idNames = tmpNames;
+        registeredIds = tmp;
+    }
+
     /**
      * Returns whether the top element on the stack enables memory accounting.
      * As a side effect, this method disables memory accounting for the top
@@ -164,7 +304,7 @@ public class Lock {
      */
     public static final long isStackTopMemoryAccounting(long threadId) {
         long result;
-        RecordingStack stack = THREAD_STACKS.get(threadId);
+        RecordingStack stack = threadStacks.get(threadId);
         if (null != stack) {
             result = stack.top(-1);
         } else {
@@ -184,7 +324,7 @@ public class Lock {
      */
     public static final void setStackTopMemoryAccounting(long threadId, 
         long account) {
-        RecordingStack stack = THREAD_STACKS.get(threadId);
+        RecordingStack stack = threadStacks.get(threadId);
         if (null != stack) {
             stack.top(account);
         }
@@ -192,7 +332,8 @@ public class Lock {
 
     /**
      * Pushes a recording group via its <code>recId</code> to the execution
-     * stack of <code>threadId</code>.
+     * stack of <code>threadId</code>. Does not synchronize unless the stack 
+     * of <code>threadId</code> must be created.
      * 
      * @param threadId the thread identification
      * @param recId the recording identification according to which the 
@@ -200,21 +341,49 @@ public class Lock {
      * 
      * @since 1.00
      */
-    static final synchronized void pushToStack(long threadId, String recId) {
+    static final void pushToStack(long threadId, String recId) {
         if (null != recId) {
-            GroupInfo gInfo = REGISTERED_GROUPS.get(recId);
-            if (null != gInfo) {
-                //MemoryRecordingType type = gInfo.type;
-                RecordingStack stack = THREAD_STACKS.get(threadId);
-                if (null == stack) {
-                    stack = new RecordingStack(
-                        Recorder.doUnallocationRecording()); 
-                    THREAD_STACKS.put(threadId, stack);
-                }
-                stack.push(gInfo.id, 
-                    MemRecordingType.NONE != gInfo.type ? 0 : -1, 
-                    MemRecordingType.INDIRECT == gInfo.type);
+            push(threadId, registeredGroups.get(recId));
+        }
+    }
+
+    /**
+     * Pushes a recording group via its numeric id to the execution
+     * stack of <code>threadId</code>. Does not synchronize unless the stack 
+     * of <code>threadId</code> must be created.
+     * 
+     * @param threadId the thread identification
+     * @param recId the numeric recording identification as returned by
+     *   {@link #registerRecorderId(String)}
+     * 
+     * @since 1.30
+     */
+    static final void pushToStack(long threadId, int recId) {
+        GroupInfo[] byId = groupsById;
+        if (recId >= 0 && recId < byId.length) {
+            push(threadId, byId[recId]);
+        }
+    }
+    
+    /**
+     * Pushes a recording group to the execution stack of 
+     * <code>threadId</code>.
+     * 
+     * @param threadId the thread identification
+     * @param gInfo the group information (may be <b>null</b>, ignored then)
+     * 
+     * @since 1.30
+     */
+    private static final void push(long threadId, GroupInfo gInfo) {
+        if (null != gInfo) {
+            //MemoryRecordingType type = gInfo.type;
+            RecordingStack stack = threadStacks.get(threadId);
+            if (null == stack) {
+                stack = createStack(threadId);
             }
+            stack.push(gInfo.id, 
+                MemRecordingType.NONE != gInfo.type ? 0 : -1, 
+                MemRecordingType.INDIRECT == gInfo.type);
         }
     }
 
@@ -228,15 +397,82 @@ public class Lock {
      * 
      * @since 1.00
      */
-    static final synchronized void popFromStack(long threadId, String recId) {
+    static final void popFromStack(long threadId, String recId) {
         if (null != recId) {
-            RecordingStack stack = THREAD_STACKS.get(threadId);
+            RecordingStack stack = threadStacks.get(threadId);
             if (null != stack) {
                 stack.pop();
             }
         }
     }
     
+    /**
+     * Creates the execution stack for <code>threadId</code> if it does not
+     * exist.
+     * 
+     * @param threadId the thread identification
+     * @return the stack of <code>threadId</code>
+     * 
+     * @since 1.30
+     */
+    private static final synchronized RecordingStack createStack(
+        long threadId) {
+        RecordingStack stack = threadStacks.get(threadId);
+        if (null == stack) {
+            stack = new RecordingStack(Recorder.doUnallocationRecording()); 
+            LongRecordingStackHashMap tmp = threadStacks.copy();
+            tmp.put(threadId, stack);
+            threadStacks = tmp;
+        }
+        return stack;
+    }
+
+    /**
+     * Returns the execution stack of <code>threadId</code>. Does not 
+     * synchronize.
+     * 
+     * @param threadId the thread identification
+     * @return the stack of <code>threadId</code>, <b>null</b> if there is 
+     *   none
+     * 
+     * @since 1.30
+     */
+    static final RecordingStack getStack(long threadId) {
+        return threadStacks.get(threadId);
+    }
+
+    /**
+     * Clones the execution stack of <code>from</code> to <code>to</code>
+     * if <code>to</code> does not have a stack.
+     * 
+     * @param from the source thread identification
+     * @param to the target thread identification
+     * 
+     * @since 1.30
+     */
+    static final synchronized void cloneStack(long from, long to) {
+        if (null == threadStacks.get(to)) {
+            LongRecordingStackHashMap tmp = threadStacks.copy();
+            tmp.clone(from, to);
+            threadStacks = tmp;
+        }
+    }
+
+    /**
+     * Removes the execution stack of <code>threadId</code>.
+     * 
+     * @param threadId the thread identification
+     * 
+     * @since 1.30
+     */
+    static final synchronized void removeStack(long threadId) {
+        if (null != threadStacks.get(threadId)) {
+            LongRecordingStackHashMap tmp = threadStacks.copy();
+            tmp.remove(threadId);
+            threadStacks = tmp;
+        }
+    }
+
     /**
      * Returns the recorder id for the given (internal) numeric id.
      * 
@@ -246,7 +482,22 @@ public class Lock {
      * @since 1.00
      */
     static final String getRecorderId(int id) {
-        return REGISTERED_IDS.get(id);
+        String[] names = idNames;
+        return id >= 0 && id < names.length ? names[id] : null;
+    }
+
+    /**
+     * Returns the recorder id for the given (internal) numeric id as it would
+     * be returned by {@link Helper#getCheckedId(String)}.
+     * 
+     * @param id the numeric id
+     * @return the checked recorder id (may be <b>null</b>)
+     * 
+     * @since 1.30
+     */
+    static final String getCheckedRecorderId(int id) {
+        String[] checked = checkedIds;
+        return id >= 0 && id < checked.length ? checked[id] : null;
     }
 
 }
@@ -7,7 +7,7 @@ package de.uni_hildesheim.sse.monitoring.runtime.recording;
  * 
  * @author Holger Eichelberger (based on SUN/ORACLE)
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public class LongRecordingStackHashMap {
 
@@ -398,6 +398,24 @@ public class LongRecordingStackHashMap {
         size = 0;
     }
     
+    /**
+     * Returns a copy of this map. The recording stacks are not copied.
+     * 
+     * @return the copy
+     * 
+     * @since 1.30
+     */
+    public LongRecordingStackHashMap copy() {
+        LongRecordingStackHashMap result 
+            = new LongRecordingStackHashMap(table.length, loadFactor);
+        for (int i = 0; i < table.length; i++) {
+            for (Entry e = table[i]; e != null; e = e.next) {
+                result.put(e.key, e.value);
+            }
+        }
+        return result;
+    }
+    
     /**
      * Clones the stack identified with <code>from</code>
      * to the stack identified with <code>to</code>.
@@ -0,0 +1,111 @@
+package de.uni_hildesheim.sse.monitoring.runtime.recording;
+
+import java.util.TimerTask;
+
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
+import de.uni_hildesheim.sse.monitoring.runtime.plugins.internal.GroupFolding;
+import de.uni_hildesheim.sse.monitoring.runtime.plugins.internal.
+    InternalPluginRegistry;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.HashMap;
+
+/**
+ * Periodically compares the time spent in the probes of each monitoring
+ * group with the time spent in the body of the group. Groups whose probes
+ * exceed the overhead budget (see {@link Configuration#getOverheadBudget()})
+ * are folded, i.e. their further invocations are no longer recorded so that
+ * their resource consumption is accounted to the calling group. Typically,
+ * this affects small but frequently called methods. Pinned groups are never
+ * folded. The probes of a folded group are removed by retransforming the
+ * classes containing them (see {@link GroupFolding}), while the probes of 
+ * the other groups in these classes are kept. Probes which cannot be 
+ * removed, e.g. in active invocations, are skipped by the recorder.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+class OverheadGovernor extends TimerTask {
+
+    /**
+     * Defines the minimum number of invocations within an evaluation
+     * interval before a group may be folded, i.e. rarely called groups
+     * are kept.
+     */
+    static final long MIN_INVOCATIONS = 1000;
+
+    /**
+     * Stores the overhead budget in percent.
+     */
+    private final int budget;
+
+    /**
+     * Creates a new governor task.
+     *
+     * @param budget the overhead budget in percent of the body time
+     *
+     * @since 1.30
+     */
+    OverheadGovernor(int budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Evaluates all governable monitoring groups.
+     */
+    public void run() {
+        Sampler.collectOverhead();
+        for (HashMap.Entry<String, Sampler> ent : Sampler.getSamplers()) {
+            Sampler sampler = ent.getValue();
+            if (sampler.isGovernable()) {
+                evaluate(sampler);
+            }
+        }
+    }
+
+    /**
+     * Evaluates the given sampler, i.e. folds the related monitoring group
+     * if its probes exceeded the overhead budget within the last interval.
+     *
+     * @param sampler the sampler to be evaluated
+     *
+     * @since 1.30
+     */
+    void evaluate(Sampler sampler) {
+        long invocations = sampler.drainInvocations();
+        long probeTime = sampler.drainProbeTime();
+        long bodyTime = sampler.drainBodyTime();
+        if (invocations >= MIN_INVOCATIONS
+            && probeTime * 100 > budget * bodyTime) {
+            sampler.fold();
+            GroupFolding folding = InternalPluginRegistry.getGroupFolding();
+            boolean removed = null != folding 
+                && folding.fold(sampler.getRecId());
+            Configuration.LOG.info("Overhead governor folded "
+                + sampler.getRecId() + (removed ? " (probes removed)" : "")
+                + ": probes " + probeTime + " ns, body " + bodyTime 
+                + " ns, " + invocations + " invocations");
+        }
+    }
+
+    /**
+     * Logs the monitoring groups folded so far, e.g., at the end of
+     * recording.
+     *
+     * @since 1.30
+     */
+    static void logSummary() {
+        StringBuilder folded = new StringBuilder();
+        for (HashMap.Entry<String, Sampler> ent : Sampler.getSamplers()) {
+            if (ent.getValue().isFolded()) {
+                if (folded.length() > 0) {
+                    folded.append(", ");
+                }
+                folded.append(ent.getKey());
+            }
+        }
+        if (folded.length() > 0) {
+            Configuration.LOG.info("Overhead governor folded: " + folded);
+        }
+    }
+
+}
@@ -34,11 +34,13 @@ import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.DefaultRecor
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.ProcessData;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.RecorderStrategy;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.TCPRecorderStrategy;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.EventLogRecorderStrategy;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.TabFormatter;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.ThreadBufferedRecorderStrategy;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.ThreadsInfo;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.ConcurrentLongLongHashMap;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.HashMap;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.LongHashMap;
-import de.uni_hildesheim.sse.monitoring.runtime.utils.LongLongHashMap;
 import de.uni_hildesheim.sse.system.GathererFactory;
 import de.uni_hildesheim.sse.system.IMemoryUnallocationReceiver;
 
@@ -56,7 +58,7 @@ import de.uni_hildesheim.sse.system.IMemoryUnallocationReceiver;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.20
+ * @version 1.30
  */
 public class Recorder extends RecorderFrontend 
     implements IMemoryUnallocationReceiver {
@@ -111,9 +113,22 @@ public class Recorder extends RecorderFrontend
         = new LongHashMap<ArrayList<String>>();
 
     /**
-     * Stores the thread stack sizes.
+     * Stores the thread stack sizes (modified via compare-and-set, no
+     * global lock).
      */
-    private static final LongLongHashMap THREAD_STACKS;
+    private static final ConcurrentLongLongHashMap THREAD_STACKS;
+
+    /**
+     * Stores whether I/O bytes shall be accumulated per thread (see 
+     * {@link IoAccumulator}).
+     */
+    private static final boolean ACCUMULATE_IO;
+
+    /**
+     * Stores whether invocations of monitoring groups may be sampled or 
+     * governed (see {@link Sampler}).
+     */
+    private static final boolean SAMPLING;
 
     /**
      * Stores whether unallocation recording shall be done.
@@ -122,12 +137,14 @@ public class Recorder extends RecorderFrontend
     private static boolean doUnallocationRecording = false;
     
     static {
-        LongLongHashMap threadStacks = null;
+        ConcurrentLongLongHashMap threadStacks = null;
         Configuration conf = Configuration.INSTANCE;
         if (conf.programUseFromJvm()) {
-            threadStacks = new LongLongHashMap();
+            threadStacks = new ConcurrentLongLongHashMap();
         }
         THREAD_STACKS = threadStacks;
+        ACCUMULATE_IO = conf.accumulateIo();
+        SAMPLING = Sampler.isEnabled();
     }
         
     /**
@@ -212,10 +229,17 @@ public class Recorder extends RecorderFrontend
         case TCP:
             STRATEGY = new TCPRecorderStrategy();
             break;
+        case EVENT_LOG:
+            STRATEGY = new EventLogRecorderStrategy();
+            break;
         case LOCAL_ASYNCHRONOUS:
             STRATEGY = new DefaultEventRecorderStrategy(
                 new DefaultRecorderStrategy(new TabFormatter()));
             break;
+        case LOCAL_THREAD_BUFFERED:
+            STRATEGY = new ThreadBufferedRecorderStrategy(
+                new DefaultRecorderStrategy(new TabFormatter()));
+            break;
         case LOCAL_SYNCHRONOUS:
         default:
             STRATEGY = new DefaultRecorderStrategy(new TabFormatter());
@@ -413,6 +437,13 @@ public class Recorder extends RecorderFrontend
             isRecording = true;
             doUnallocationRecording = Configuration.INSTANCE.
                 getMemoryAccountingType().considerUnallocation();
+            if (doUnallocationRecording) {
+                // considered by the pure Java tracker of gearsBridge
+                System.setProperty(
+                    GathererFactory.PROPERTY_UNALLOCATION_SAMPLING,
+                    String.valueOf(Configuration.INSTANCE
+                        .getUnallocationSampling()));
+            }
             long[] ids = SystemMonitoring.getAllThreadIds();
             long now = System.nanoTime();
             // register all JVM threads including the main thread
@@ -443,6 +474,9 @@ public class Recorder extends RecorderFrontend
         if (isRecording) {
             // tid may be shutdownthread
             SystemMonitoring.stopTimer();
+            if (ACCUMULATE_IO) {
+                IoAccumulator.flushAll(STRATEGY);
+            }
             long now = System.nanoTime();
             ThreadsInfo info = SystemMonitoring.getThreadInfo(programThreadId, 0);
             boolean release = STRATEGY.stopTimeRecording(now, info);
@@ -515,17 +549,13 @@ public class Recorder extends RecorderFrontend
             SystemMonitoring.getTicks(tid), 
             System.nanoTime());
         if (null != THREAD_STACKS) {
-            synchronized (THREAD_STACKS) {
-                // synchronize with DefaultRecorderStrategy.register
-                if (THREAD_STACKS.containsKey(tid)) {
-                    long count = THREAD_STACKS.get(tid);
-                    if (count > 0) {
-                        THREAD_STACKS.put(newThreadId, count);
-                    }
-                }
+            // in line with DefaultRecorderStrategy.register
+            long count = THREAD_STACKS.get(tid);
+            if (count > 0) {
+                THREAD_STACKS.put(newThreadId, count);
             }
         }
-        Lock.THREAD_STACKS.clone(tid, newThreadId);
+        Lock.cloneStack(tid, newThreadId);
         Lock.setStackTopMemoryAccounting(tid, accMem);
     }
     
@@ -549,10 +579,16 @@ public class Recorder extends RecorderFrontend
     @Override
     public final void notifyThreadEnd(long threadId) {
         long accMem = Lock.isStackTopMemoryAccounting(threadId);
+        if (ACCUMULATE_IO) {
+            IoAccumulator acc = IoAccumulator.unregister(threadId);
+            if (null != acc) {
+                acc.flush(STRATEGY);
+            }
+        }
         STRATEGY.register(threadId, RecorderStrategy.REGISTER_END, 
             SystemMonitoring.getTicks(threadId), 
             System.nanoTime());
-        Lock.THREAD_STACKS.remove(threadId);
+        Lock.removeStack(threadId);
         Lock.setStackTopMemoryAccounting(threadId, accMem);
     }
         
@@ -572,6 +608,7 @@ public class Recorder extends RecorderFrontend
         //TODO add overhead
         long tid = SystemMonitoring.getCurrentThreadId();
         long accMem = Lock.isStackTopMemoryAccounting(tid);
+        flushIo();
         ThreadsInfo info = SystemMonitoring.getThreadInfo(tid, 0);
         if (STRATEGY.assignAllTo(recId, enter, System.nanoTime(), info)) {
             ThreadsInfo.POOL.release(info);
@@ -600,6 +637,15 @@ public class Recorder extends RecorderFrontend
     public final void endSystem() {
         long tid = SystemMonitoring.getCurrentThreadId();
         long accMem = Lock.isStackTopMemoryAccounting(tid);
+        if (ACCUMULATE_IO) {
+            IoAccumulator.flushAll(STRATEGY);
+        }
+        if (SAMPLING) {
+            Sampler.flushAll(STRATEGY);
+            if (Sampler.isGoverned()) {
+                OverheadGovernor.logSummary();
+            }
+        }
         STRATEGY.endSystem();
         SystemMonitoring.finishTimer();
         Lock.setStackTopMemoryAccounting(tid, accMem);
@@ -622,18 +668,19 @@ public class Recorder extends RecorderFrontend
     @Override
     public void enter(String caller, String recId, 
         boolean exclude, boolean directId, long instanceId) {
-        if (isRecording) {
+        Sampler sampler = null;
+        boolean assigned = false;
+        if (SAMPLING && isRecording && !exclude) {
+            recId = assignId(recId, caller, directId);
+            assigned = true;
+            sampler = Sampler.get(recId);
+        }
+        if (isRecording && isSampled(sampler, true)) {
+            long start = null == sampler ? 0 : sampler.probeStart();
             long tid = SystemMonitoring.getCurrentThreadId();
             long accMem = Lock.isStackTopMemoryAccounting(tid);
             if (null != THREAD_STACKS) {
-                synchronized (THREAD_STACKS) {
-                    if (!THREAD_STACKS.containsKey(tid)) {
-                        THREAD_STACKS.put(tid, 1);
-                    } else {
-                        THREAD_STACKS.put(tid, 
-                            THREAD_STACKS.get(tid) + 1);
-                    }
-                }
+                THREAD_STACKS.increment(tid);
             }
             /*long now;
             if (isOverheadRecording) {
@@ -641,8 +688,12 @@ public class Recorder extends RecorderFrontend
             } else {
                 now = 0;
             }*/
-            recId = assignId(recId, caller, directId);
-            ThreadsInfo info = SystemMonitoring.getThreadInfo(tid, instanceId);
+            if (!assigned) {
+                recId = assignId(recId, caller, directId);
+            }
+            flushIo();
+            ThreadsInfo info = SystemMonitoring.getThreadInfo(tid, instanceId,
+                recId, true);
             if (STRATEGY.enter(recId, System.nanoTime(), info, exclude)) {
                 ThreadsInfo.POOL.release(info);
             }
@@ -654,6 +705,9 @@ public class Recorder extends RecorderFrontend
             }*/
             Lock.setStackTopMemoryAccounting(tid, accMem);
             Lock.pushToStack(tid, recId);
+            if (null != sampler) {
+                sampler.entered(start);
+            }
         }
     }
     
@@ -674,31 +728,33 @@ public class Recorder extends RecorderFrontend
     @Override
     public void exit(String caller, String recId, 
         boolean exclude, boolean directId, long instanceId) {
-        if (isRecording) {
+        Sampler sampler = null;
+        boolean assigned = false;
+        if (SAMPLING && isRecording && !exclude) {
+            recId = assignId(recId, caller, directId);
+            assigned = true;
+            sampler = Sampler.get(recId);
+        }
+        if (isRecording && isSampled(sampler, false)) {
+            long start = null == sampler ? 0 : sampler.probeStart();
             long tid = SystemMonitoring.getCurrentThreadId();
             long accMem = Lock.isStackTopMemoryAccounting(tid);
-            recId = assignId(recId, caller, directId);            
+            if (!assigned) {
+                recId = assignId(recId, caller, directId);
+            }
             if (accMem > 0) {
                 STRATEGY.memoryAllocated(recId, tid, 0, accMem);
             }
-            ThreadsInfo info = SystemMonitoring.getThreadInfo(tid, instanceId);
+            flushIo();
+            ThreadsInfo info = SystemMonitoring.getThreadInfo(tid, instanceId,
+                recId, false);
             if (STRATEGY.exit(recId, System.nanoTime(), info, exclude)) {
                 ThreadsInfo.POOL.release(info);
             }
 
             if (null != THREAD_STACKS) {
-                synchronized (THREAD_STACKS) {
-                    // if threadId was not put before this will cause a 
-                    // runtime exception
-                    if (THREAD_STACKS.containsKey(tid)) {
-                        long count = THREAD_STACKS.get(tid) - 1;
-                        if (count > 0) {
-                            THREAD_STACKS.put(tid, count);
-                        } else {
-                            THREAD_STACKS.remove(tid);
-                        }
-                    }
-                }
+                // removes the entry when reaching 0, ignores unknown threads
+                THREAD_STACKS.decrement(tid);
             }
 
             
@@ -709,9 +765,147 @@ public class Recorder extends RecorderFrontend
                 SystemMonitoring.MEMORY_DATA_GATHERER
                     .receiveUnallocations(this);
             }
+            if (null != sampler) {
+                sampler.exited(start);
+            }
+        }
+    }
+
+    /**
+     * Notifies the recorder about a method being called using the numeric
+     * recorder id assigned during instrumentation. This works as
+     * {@link #enter(String, String, boolean, boolean, long)} for a direct
+     * recorder id but avoids the string-based lookups. [Java call]
+     * 
+     * @param recId the numeric recorder id as assigned by 
+     *    {@link Lock#registerRecorderId(String)}
+     * @param exclude is this an exclusion from monitoring
+     * @param instanceId the optional instance identifier, <code>0</code> means 
+     *    disabled
+     * 
+     * @since 1.30
+     */
+    @Override
+    public void enter(int recId, boolean exclude, long instanceId) {
+        Sampler sampler = null;
+        String id = null;
+        boolean resolved = false;
+        if (SAMPLING && isRecording && !exclude) {
+            id = Lock.getCheckedRecorderId(recId);
+            resolved = true;
+            sampler = Sampler.get(recId, id);
+        }
+        if (isRecording && isSampled(sampler, true)) {
+            long start = null == sampler ? 0 : sampler.probeStart();
+            long tid = SystemMonitoring.getCurrentThreadId();
+            long accMem = Lock.isStackTopMemoryAccounting(tid);
+            if (null != THREAD_STACKS) {
+                THREAD_STACKS.increment(tid);
+            }
+            if (!resolved) {
+                id = Lock.getCheckedRecorderId(recId);
+            }
+            flushIo();
+            ThreadsInfo info = SystemMonitoring.getThreadInfo(tid, instanceId,
+                id, true);
+            if (STRATEGY.enter(recId, id, System.nanoTime(), info, exclude)) {
+                ThreadsInfo.POOL.release(info);
+            }
+            Lock.setStackTopMemoryAccounting(tid, accMem);
+            if (null != id) {
+                Lock.pushToStack(tid, recId);
+            }
+            if (null != sampler) {
+                sampler.entered(start);
+            }
+        }
+    }
+
+    /**
+     * Notifies the recorder about a method being exited using the numeric
+     * recorder id assigned during instrumentation. This works as
+     * {@link #exit(String, String, boolean, boolean, long)} for a direct
+     * recorder id but avoids the string-based lookups. [Java call]
+     * 
+     * @param recId the numeric recorder id as assigned by 
+     *    {@link Lock#registerRecorderId(String)}
+     * @param exclude is this an exclusion from monitoring
+     * @param instanceId the optional instance identifier, <code>0</code> means 
+     *    disabled
+     * 
+     * @since 1.30
+     */
+    @Override
+    public void exit(int recId, boolean exclude, long instanceId) {
+        Sampler sampler = null;
+        String id = null;
+        boolean resolved = false;
+        if (SAMPLING && isRecording && !exclude) {
+            id = Lock.getCheckedRecorderId(recId);
+            resolved = true;
+            sampler = Sampler.get(recId, id);
+        }
+        if (isRecording && isSampled(sampler, false)) {
+            long start = null == sampler ? 0 : sampler.probeStart();
+            long tid = SystemMonitoring.getCurrentThreadId();
+            long accMem = Lock.isStackTopMemoryAccounting(tid);
+            if (!resolved) {
+                id = Lock.getCheckedRecorderId(recId);
+            }
+            if (accMem > 0) {
+                STRATEGY.memoryAllocated(id, tid, 0, accMem);
+            }
+            flushIo();
+            ThreadsInfo info = SystemMonitoring.getThreadInfo(tid, instanceId,
+                id, false);
+            if (STRATEGY.exit(recId, id, System.nanoTime(), info, exclude)) {
+                ThreadsInfo.POOL.release(info);
+            }
+            if (null != THREAD_STACKS) {
+                // removes the entry when reaching 0, ignores unknown threads
+                THREAD_STACKS.decrement(tid);
+            }
+            Lock.setStackTopMemoryAccounting(tid, accMem);
+            Lock.popFromStack(tid, id);
+            if (doUnallocationRecording) {
+                SystemMonitoring.MEMORY_DATA_GATHERER
+                    .receiveUnallocations(this);
+            }
+            if (null != sampler) {
+                sampler.exited(start);
+            }
         }
     }
     
+    /**
+     * Returns whether the current invocation of a monitoring group shall be
+     * recorded according to the sampling of the group. Skipped invocations 
+     * are only counted per thread. The counted invocations are passed to the
+     * strategy when printing the current state or the statistics and at the
+     * end of the system. Invocations of groups folded by the 
+     * {@link OverheadGovernor} are skipped.
+     * 
+     * @param sampler the sampler of the group (may be <b>null</b> if the 
+     *   group is neither sampled nor governed)
+     * @param enter <code>true</code> if the invocation is being entered, 
+     *   <code>false</code> if it is being exited
+     * @return <code>true</code> if the enter or exit shall be recorded, 
+     *   <code>false</code> if it shall be skipped
+     * 
+     * @since 1.30
+     */
+    private static boolean isSampled(Sampler sampler, boolean enter) {
+        boolean result = true;
+        if (null != sampler) {
+            if (enter) {
+                result = sampler.enter();
+            } else {
+                result = sampler.exit();
+            }
+        }
+        return result;
+    }
+    
     /**
      * Notify the recorder that a new variability configuration might have 
      * been entered. The recorder should resolve the concrete configuration
@@ -725,6 +919,7 @@ public class Recorder extends RecorderFrontend
     public void configurationChange(String ids) {
         long tid = SystemMonitoring.getCurrentThreadId();
         long accMem = Lock.isStackTopMemoryAccounting(tid);
+        flushIo();
         STRATEGY.enterConfiguration(ids);
         Lock.setStackTopMemoryAccounting(tid, accMem);
     }
@@ -743,7 +938,7 @@ public class Recorder extends RecorderFrontend
     public void memoryAllocated(Object allocated) {
         if (isRecording)  {
             long tid = SystemMonitoring.getCurrentThreadId();
-            RecordingStack stack = Lock.THREAD_STACKS.get(tid);
+            RecordingStack stack = Lock.getStack(tid);
             if (null != stack) {
                 long account = stack.top(-1);
                 if (account >= 0) {
@@ -808,7 +1003,7 @@ public class Recorder extends RecorderFrontend
     public void memoryAllocated(long tag, long size) {
         if (isRecording)  {
             long tid = SystemMonitoring.getCurrentThreadId();
-            RecordingStack stack = Lock.THREAD_STACKS.get(tid);
+            RecordingStack stack = Lock.getStack(tid);
             if (null != stack) {
                 long account = stack.top(-1);
                 if (account >= 0) {
@@ -822,7 +1017,7 @@ public class Recorder extends RecorderFrontend
         }
 /*        
         long tid = SystemMonitoring.getCurrentThreadId();
-        RecordingStack stack = Lock.THREAD_STACKS.get(tid);
+        RecordingStack stack = Lock.getStack(tid);
         long account;
         if (null != stack) {
             account = stack.top(-1);
@@ -852,7 +1047,7 @@ public class Recorder extends RecorderFrontend
     public final void memoryAllocated(Object tag, long size) {
         if (isRecording)  {
             long tid = SystemMonitoring.getCurrentThreadId();
-            RecordingStack stack = Lock.THREAD_STACKS.get(tid);
+            RecordingStack stack = Lock.getStack(tid);
             if (null != stack) {
                 long account = stack.top(-1);
                 if (account >= 0) {
@@ -866,7 +1061,7 @@ public class Recorder extends RecorderFrontend
         }        
         // TODO CLEANUP
 /*        long tid = SystemMonitoring.getCurrentThreadId();
-        RecordingStack stack = Lock.THREAD_STACKS.get(tid);
+        RecordingStack stack = Lock.getStack(tid);
         long account;
         if (null != stack) {
             account = stack.top(-1);
@@ -915,7 +1110,7 @@ public class Recorder extends RecorderFrontend
     public final void memoryFreed(Object tag, long size) {
         if (isRecording)  {
             long tid = SystemMonitoring.getCurrentThreadId();
-            RecordingStack stack = Lock.THREAD_STACKS.get(tid);
+            RecordingStack stack = Lock.getStack(tid);
             if (null != stack) {
                 long account = stack.top(-1);
                 if (account >= 0) {
@@ -949,7 +1144,7 @@ public class Recorder extends RecorderFrontend
     public void memoryFreed(long tag, long size) { // TODO remove size
         if (isRecording)  {
             long tid = SystemMonitoring.getCurrentThreadId();
-            RecordingStack stack = Lock.THREAD_STACKS.get(tid);
+            RecordingStack stack = Lock.getStack(tid);
             if (null != stack) {
                 long account = stack.top(-1);
                 if (account >= 0) {
@@ -987,12 +1182,19 @@ public class Recorder extends RecorderFrontend
     public int readIo(String recId, String caller, 
         int bytes, StreamType type) {
         if (isRecording && bytes > 0) {
-            long tid = SystemMonitoring.getCurrentThreadId();
-            long accMem = Lock.isStackTopMemoryAccounting(tid);
-            recId = Helper.getCheckedId(recId);
-            //recId = assignId(recId, caller);
-            STRATEGY.readIo(recId, caller, tid, bytes, type);
-            Lock.setStackTopMemoryAccounting(tid, accMem);
+            if (ACCUMULATE_IO && null == recId && null != type) {
+                IoAccumulator acc = IoAccumulator.current();
+                if (acc.add(type, false, bytes)) {
+                    flushIo(acc);
+                }
+            } else {
+                long tid = SystemMonitoring.getCurrentThreadId();
+                long accMem = Lock.isStackTopMemoryAccounting(tid);
+                recId = Helper.getCheckedId(recId);
+                //recId = assignId(recId, caller);
+                STRATEGY.readIo(recId, caller, tid, bytes, type);
+                Lock.setStackTopMemoryAccounting(tid, accMem);
+            }
         }
         return bytes;
     }
@@ -1015,15 +1217,53 @@ public class Recorder extends RecorderFrontend
     public int writeIo(String recId, String caller,
         int bytes, StreamType type) {
         if (isRecording && bytes > 0) {
-            long tid = SystemMonitoring.getCurrentThreadId();
-            long accMem = Lock.isStackTopMemoryAccounting(tid);
-            recId = Helper.getCheckedId(recId);
-            //recId = assignId(recId, caller);
-            STRATEGY.writeIo(recId, caller, tid, bytes, type);
-            Lock.setStackTopMemoryAccounting(tid, accMem);
+            if (ACCUMULATE_IO && null == recId && null != type) {
+                IoAccumulator acc = IoAccumulator.current();
+                if (acc.add(type, true, bytes)) {
+                    flushIo(acc);
+                }
+            } else {
+                long tid = SystemMonitoring.getCurrentThreadId();
+                long accMem = Lock.isStackTopMemoryAccounting(tid);
+                recId = Helper.getCheckedId(recId);
+                //recId = assignId(recId, caller);
+                STRATEGY.writeIo(recId, caller, tid, bytes, type);
+                Lock.setStackTopMemoryAccounting(tid, accMem);
+            }
         }
         return bytes;
     }
+
+    /**
+     * Flushes the I/O bytes accumulated by the current thread, if I/O 
+     * accumulation is enabled. The caller is responsible for disabling 
+     * memory accounting.
+     * 
+     * @since 1.30
+     */
+    private static void flushIo() {
+        if (ACCUMULATE_IO) {
+            IoAccumulator acc = IoAccumulator.pending();
+            if (null != acc) {
+                acc.flush(STRATEGY);
+            }
+        }
+    }
+
+    /**
+     * Flushes the I/O bytes accumulated by the current thread upon request
+     * of a snapshot.
+     * 
+     * @param acc the accumulator of the current thread
+     * 
+     * @since 1.30
+     */
+    private static void flushIo(IoAccumulator acc) {
+        long tid = acc.getThreadId();
+        long accMem = Lock.isStackTopMemoryAccounting(tid);
+        acc.flush(STRATEGY);
+        Lock.setStackTopMemoryAccounting(tid, accMem);
+    }
     
     /**
      * Returns if the specified string ends with a given char.
@@ -1322,6 +1562,14 @@ public class Recorder extends RecorderFrontend
         if (isRecording) {
             long tid = SystemMonitoring.getCurrentThreadId();
             long accMem = Lock.isStackTopMemoryAccounting(tid);
+            if (ACCUMULATE_IO) {
+                // other threads flush upon their next I/O operation
+                IoAccumulator.requestFlush();
+                flushIo();
+            }
+            if (SAMPLING) {
+                Sampler.flushAll(STRATEGY);
+            }
             ProcessData p = SystemMonitoring.getProcessData();
             if (STRATEGY.printCurrentState(p)) {
                 ProcessData.POOL.release(p);
@@ -1339,6 +1587,12 @@ public class Recorder extends RecorderFrontend
         long tid = SystemMonitoring.getCurrentThreadId();
         long accMem = Lock.isStackTopMemoryAccounting(tid);
         try {
+            if (ACCUMULATE_IO) {
+                IoAccumulator.flushAll(STRATEGY);
+            }
+            if (SAMPLING) {
+                Sampler.flushAll(STRATEGY);
+            }
             ProcessData p = SystemMonitoring.getProcessData();
             if (STRATEGY.printStatistics(p)) {
                 ProcessData.POOL.release(p);
@@ -1366,7 +1620,7 @@ public class Recorder extends RecorderFrontend
     @Override
     public void notifyTimer(String id, TimerState state, 
         boolean considerThreads) {
-        long now = System.currentTimeMillis();
+        long now = System.nanoTime();
         long tid = SystemMonitoring.getCurrentThreadId();
         long accMem = Lock.isStackTopMemoryAccounting(tid);
         //TODO check thread issues
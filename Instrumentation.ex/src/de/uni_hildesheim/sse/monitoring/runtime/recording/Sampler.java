@@ -0,0 +1,854 @@
+package de.uni_hildesheim.sse.monitoring.runtime.recording;
+
+import de.uni_hildesheim.sse.monitoring.runtime.annotations.Helper;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.ArrayList;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.
+    MonitoringGroupConfiguration;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    RecorderStrategy;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.HashMap;
+
+/**
+ * Decides whether an invocation of a sampled monitoring group shall be
+ * recorded. The decision is taken per thread, either for every n-th
+ * invocation of the group or for the first invocation after a given time
+ * interval. Skipped invocations are only counted so that the recorder
+ * strategy can scale the values of the recorded invocations (see
+ * {@link RecorderStrategy#invocationsSampled(String, long, long)}). As enter
+ * and exit of an invocation must be skipped together, the decisions are
+ * kept on a stack per thread. The recorded and skipped invocations are 
+ * counted per thread and summed up only when they are passed to the 
+ * strategy (see {@link #flushAll(RecorderStrategy)}), e.g., when printing
+ * the current state. If the overhead governor is enabled, all 
+ * monitoring groups obtain a sampler which also measures the time spent in
+ * the probes and in the body of the group so that the
+ * {@link OverheadGovernor} can fold groups exceeding the overhead budget.
+ * To keep the measurement cheap, only every n-th recorded invocation per 
+ * thread is measured and the measurements are accumulated per thread. The
+ * governor collects them periodically without synchronization, i.e. it 
+ * works on approximate values.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+class Sampler {
+
+    /**
+     * Marks monitoring groups which are not sampled in {@link #samplers}.
+     */
+    private static final Sampler NONE = new Sampler(null, 0, 1, 0, false);
+
+    /**
+     * Stores whether the overhead governor is enabled, i.e. whether probe
+     * and body times shall be measured.
+     */
+    private static final boolean GOVERNED 
+        = Configuration.INSTANCE.getOverheadBudget() > 0;
+
+    /**
+     * Marks a body start time which was not measured.
+     */
+    private static final long UNMEASURED = Long.MIN_VALUE;
+
+    /**
+     * Defines that every n-th recorded invocation of a group is measured 
+     * per thread for the overhead governor.
+     */
+    private static final int MEASURE_RATE = 8;
+
+    /**
+     * Defines the number of counters per sampler index in a thread state.
+     */
+    private static final int COUNTERS = 5;
+
+    /**
+     * Defines the counter of the measured invocations (overhead governor).
+     */
+    private static final int INVOCATIONS = 0;
+
+    /**
+     * Defines the counter of the probe time (overhead governor).
+     */
+    private static final int PROBE_TIME = 1;
+
+    /**
+     * Defines the counter of the body time (overhead governor).
+     */
+    private static final int BODY_TIME = 2;
+
+    /**
+     * Defines the counter of the recorded invocations (sampling).
+     */
+    private static final int SAMPLED = 3;
+
+    /**
+     * Defines the counter of the skipped invocations (sampling).
+     */
+    private static final int SKIPPED = 4;
+
+    /**
+     * Stores the decision states of all threads (synchronized by itself).
+     */
+    private static final ArrayList<State> STATES = new ArrayList<State>();
+
+    /**
+     * Stores the decision state of the current thread.
+     */
+    private static final ThreadLocal<State> STATE = new ThreadLocal<State>();
+
+    /**
+     * Stores the samplers by recorder id (copy-on-write).
+     */
+    private static volatile HashMap<String, Sampler> samplers
+        = new HashMap<String, Sampler>();
+
+    /**
+     * Stores the samplers by numeric recorder id (copy-on-write, entries may
+     * be <b>null</b> if not determined so far).
+     */
+    private static volatile Sampler[] samplersById = new Sampler[0];
+
+    /**
+     * Stores the recorder id of the monitoring group.
+     */
+    private final String recId;
+
+    /**
+     * Stores the dense index of this sampler in the thread states.
+     */
+    private final int index;
+
+    /**
+     * Stores the sampling rate.
+     */
+    private final int rate;
+
+    /**
+     * Stores the sampling interval in nano seconds (<code>0</code> if
+     * {@link #rate} applies).
+     */
+    private final long interval;
+
+    /**
+     * Stores whether invocations are sampled at all (the sampler may exist 
+     * only for the overhead governor).
+     */
+    private final boolean sampling;
+
+    /**
+     * Stores whether the group must not be folded by the overhead governor.
+     */
+    private final boolean pinned;
+
+    /**
+     * Stores whether the group was folded by the overhead governor, i.e. 
+     * whether its invocations are no longer recorded.
+     */
+    private volatile boolean folded;
+
+    /**
+     * Stores the counters of terminated threads (synchronized by 
+     * {@link #STATES}).
+     */
+    private final long[] retired = new long[COUNTERS];
+
+    /**
+     * Stores the counters of all threads collected last. The overhead 
+     * counters are only accessed by the overhead governor, the sampling 
+     * counters only while holding the lock on {@link #STATES}.
+     */
+    private final long[] total = new long[COUNTERS];
+
+    /**
+     * Stores the counters of all threads at the last evaluation by the 
+     * overhead governor or at the last flush, respectively (accessed as 
+     * {@link #total}).
+     */
+    private final long[] evaluated = new long[COUNTERS];
+
+    /**
+     * Implements the decision state of a thread.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class State {
+
+        /**
+         * Stores the owning thread.
+         */
+        private final Thread owner = Thread.currentThread();
+
+        /**
+         * Stores the invocations to be skipped until the next recorded
+         * invocation per sampler index.
+         */
+        private int[] countdown = new int[4];
+
+        /**
+         * Stores the time of the last recorded invocation per sampler index
+         * (<code>0</code> if there was none).
+         */
+        private long[] last = new long[4];
+
+        /**
+         * Stores the decisions of the active invocations of sampled groups.
+         */
+        private boolean[] stack = new boolean[16];
+
+        /**
+         * Stores the start times of the bodies of the active invocations 
+         * parallel to {@link #stack} (only if {@link #GOVERNED}).
+         */
+        private long[] times = new long[16];
+
+        /**
+         * Stores the number of entries in {@link #stack}.
+         */
+        private int depth;
+
+        /**
+         * Stores the body start time of the invocation popped last.
+         */
+        private long bodyStart = UNMEASURED;
+
+        /**
+         * Stores whether the current probe is measured.
+         */
+        private boolean measuring;
+
+        /**
+         * Stores the recorded invocations until the next measured invocation
+         * per sampler index (only if {@link #GOVERNED}).
+         */
+        private int[] measureCountdown;
+
+        /**
+         * Stores the {@link #COUNTERS} counters per sampler index starting
+         * at <code>COUNTERS * index</code>, i.e. the measured invocations, 
+         * the probe time and the body time in nano seconds (only if 
+         * {@link #GOVERNED}) as well as the recorded and skipped invocations
+         * (only if sampled). The counters are increasing and read without 
+         * synchronization by {@link Sampler#collect(int, int)}.
+         */
+        private long[] counters = new long[COUNTERS * countdown.length];
+
+        /**
+         * Creates a decision state.
+         *
+         * @since 1.30
+         */
+        private State() {
+            if (GOVERNED) {
+                measureCountdown = new int[countdown.length];
+            }
+        }
+
+        /**
+         * Ensures that the per-sampler arrays can hold <code>index</code>.
+         *
+         * @param index the sampler index
+         *
+         * @since 1.30
+         */
+        private void ensureIndex(int index) {
+            if (index >= countdown.length) {
+                int size = Math.max(index + 1, 2 * countdown.length);
+                int[] tmpCountdown = new int[size];
+                System.arraycopy(countdown, 0, tmpCountdown, 0,
+                    countdown.length);
+                countdown = tmpCountdown;
+                long[] tmpLast = new long[size];
+                System.arraycopy(last, 0, tmpLast, 0, last.length);
+                last = tmpLast;
+                long[] tmpCounters = new long[COUNTERS * size];
+                System.arraycopy(counters, 0, tmpCounters, 0, 
+                    counters.length);
+                counters = tmpCounters;
+                if (GOVERNED) {
+                    int[] tmpMeasure = new int[size];
+                    System.arraycopy(measureCountdown, 0, tmpMeasure, 0,
+                        measureCountdown.length);
+                    measureCountdown = tmpMeasure;
+                }
+            }
+        }
+
+        /**
+         * Pushes a decision.
+         *
+         * @param record whether the invocation is recorded
+         *
+         * @since 1.30
+         */
+        private void push(boolean record) {
+            if (depth == stack.length) {
+                boolean[] tmp = new boolean[2 * stack.length];
+                System.arraycopy(stack, 0, tmp, 0, depth);
+                stack = tmp;
+                long[] tmpTimes = new long[stack.length];
+                System.arraycopy(times, 0, tmpTimes, 0, depth);
+                times = tmpTimes;
+            }
+            times[depth] = UNMEASURED;
+            stack[depth++] = record;
+        }
+
+        /**
+         * Pops a decision and stores the related body start time in
+         * {@link #bodyStart}.
+         *
+         * @return whether the invocation is recorded, <code>true</code> if
+         *   the stack is empty, e.g. as recording started within the
+         *   invocation
+         *
+         * @since 1.30
+         */
+        private boolean pop() {
+            boolean result;
+            if (depth > 0) {
+                result = stack[--depth];
+                bodyStart = times[depth];
+            } else {
+                result = true;
+                bodyStart = UNMEASURED;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Creates a sampler.
+     *
+     * @param recId the recorder id of the monitoring group
+     * @param index the dense index of the sampler
+     * @param rate the sampling rate
+     * @param interval the sampling interval in micro seconds
+     * @param pinned whether the group must not be folded by the overhead 
+     *   governor
+     *
+     * @since 1.30
+     */
+    private Sampler(String recId, int index, int rate, int interval, 
+        boolean pinned) {
+        this.recId = recId;
+        this.index = index;
+        this.rate = rate;
+        this.interval = interval * 1000L;
+        this.sampling = rate > 1 || interval > 0;
+        this.pinned = pinned;
+    }
+
+    /**
+     * Returns whether sampling or the overhead governor may apply to any 
+     * monitoring group.
+     *
+     * @return <code>true</code> if samplers are required, <code>false</code>
+     *   else
+     *
+     * @since 1.30
+     */
+    static boolean isEnabled() {
+        return Configuration.INSTANCE.isSampling() || GOVERNED;
+    }
+
+    /**
+     * Returns whether the overhead governor is enabled.
+     *
+     * @return <code>true</code> if the governor is enabled, 
+     *   <code>false</code> else
+     *
+     * @since 1.30
+     */
+    static boolean isGoverned() {
+        return GOVERNED;
+    }
+
+    /**
+     * Returns the sampler of a monitoring group.
+     *
+     * @param recId the recorder id of the group (may be <b>null</b>)
+     * @return the sampler, <b>null</b> if the group is neither sampled nor
+     *   governed
+     *
+     * @since 1.30
+     */
+    static Sampler get(String recId) {
+        Sampler result = null;
+        if (null != recId) {
+            result = samplers.get(recId);
+            if (null == result) {
+                result = register(recId);
+            }
+            if (NONE == result) {
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the sampler of a monitoring group given by its numeric
+     * recorder id.
+     *
+     * @param recIdNum the numeric recorder id as assigned by
+     *   {@link Lock#registerRecorderId(String)}
+     * @param recId the recorder id of the group (may be <b>null</b>)
+     * @return the sampler, <b>null</b> if the group is neither sampled nor
+     *   governed
+     *
+     * @since 1.30
+     */
+    static Sampler get(int recIdNum, String recId) {
+        Sampler result;
+        Sampler[] byId = samplersById;
+        if (recIdNum >= 0 && recIdNum < byId.length
+            && null != byId[recIdNum]) {
+            result = byId[recIdNum];
+            if (NONE == result) {
+                result = null;
+            }
+        } else {
+            result = get(recId);
+            if (null != recId && recIdNum >= 0) {
+                register(recIdNum, null == result ? NONE : result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determines and registers the sampler for a monitoring group.
+     *
+     * @param recId the recorder id of the group
+     * @return the sampler, {@link #NONE} if the group is neither sampled 
+     *   nor governed (the recorder itself is never sampled)
+     *
+     * @since 1.30
+     */
+    private static synchronized Sampler register(String recId) {
+        HashMap<String, Sampler> current = samplers;
+        Sampler result = current.get(recId);
+        if (null == result) {
+            Configuration conf = Configuration.INSTANCE;
+            MonitoringGroupConfiguration gConf
+                = conf.getMonitoringGroupConfiguration(recId);
+            int rate;
+            int interval;
+            boolean pinned;
+            if (null != gConf) {
+                rate = gConf.getSamplingRate();
+                interval = gConf.getSamplingInterval();
+                pinned = gConf.isPinned();
+            } else {
+                rate = conf.getSamplingRate();
+                interval = conf.getSamplingInterval();
+                pinned = false;
+            }
+            if ((GOVERNED || rate > 1 || interval > 0) 
+                && !Helper.RECORDER_ID.equals(recId)) {
+                result = new Sampler(recId, current.size(), rate, interval, 
+                    pinned);
+            } else {
+                result = NONE;
+            }
+            HashMap<String, Sampler> tmp
+                = new HashMap<String, Sampler>(current.size() + 1);
+            for (HashMap.Entry<String, Sampler> ent : current.entries()) {
+                tmp.put(ent.getKey(), ent.getValue());
+            }
+            tmp.put(recId, result);
+            samplers = tmp;
+        }
+        return result;
+    }
+
+    /**
+     * Registers the sampler for a numeric recorder id.
+     *
+     * @param recIdNum the numeric recorder id
+     * @param sampler the sampler
+     *
+     * @since 1.30
+     */
+    private static synchronized void register(int recIdNum,
+        Sampler sampler) {
+        Sampler[] byId = samplersById;
+        if (recIdNum >= byId.length) {
+            Sampler[] tmp = new Sampler[recIdNum + 1];
+            System.arraycopy(byId, 0, tmp, 0, byId.length);
+            byId = tmp;
+        }
+        byId[recIdNum] = sampler;
+        samplersById = byId;
+    }
+
+    /**
+     * Returns the decision state of the current thread.
+     *
+     * @return the state
+     *
+     * @since 1.30
+     */
+    private static State state() {
+        State result = STATE.get();
+        if (null == result) {
+            result = new State();
+            STATE.set(result);
+            synchronized (STATES) {
+                STATES.add(result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the samplers of all monitoring groups known so far.
+     *
+     * @return the samplers (may contain {@link #NONE} and, thus, shall be
+     *   filtered via {@link #isGovernable()})
+     *
+     * @since 1.30
+     */
+    static Iterable<HashMap.Entry<String, Sampler>> getSamplers() {
+        return samplers.entries();
+    }
+
+    /**
+     * Returns the recorder id of the monitoring group.
+     *
+     * @return the recorder id
+     *
+     * @since 1.30
+     */
+    String getRecId() {
+        return recId;
+    }
+
+    /**
+     * Returns whether the monitoring group may be folded by the overhead 
+     * governor.
+     *
+     * @return <code>true</code> if the group may be folded, 
+     *   <code>false</code> if it is pinned or already folded
+     *
+     * @since 1.30
+     */
+    boolean isGovernable() {
+        return NONE != this && !pinned && !folded;
+    }
+
+    /**
+     * Returns whether the monitoring group was folded by the overhead 
+     * governor.
+     *
+     * @return <code>true</code> if the group was folded, <code>false</code>
+     *   else
+     *
+     * @since 1.30
+     */
+    boolean isFolded() {
+        return folded;
+    }
+
+    /**
+     * Folds the monitoring group, i.e. its further invocations are neither 
+     * recorded nor counted so that their resource consumption is accounted
+     * to the calling group. This applies to the probes which are not 
+     * removed by the overhead governor.
+     *
+     * @since 1.30
+     */
+    void fold() {
+        folded = true;
+    }
+
+    /**
+     * Collects the overhead measurements of all threads and releases the
+     * states of terminated threads (called by the overhead governor before
+     * evaluating the samplers).
+     *
+     * @since 1.30
+     */
+    static void collectOverhead() {
+        synchronized (STATES) {
+            collect(INVOCATIONS, BODY_TIME + 1);
+        }
+    }
+
+    /**
+     * Sums up the counters <code>from</code> (inclusive) to <code>to</code>
+     * (exclusive) of all threads in {@link #total} and releases the states
+     * of terminated threads, i.e. keeps all their counters in 
+     * {@link #retired}. The caller must hold the lock on {@link #STATES}.
+     *
+     * @param from the first counter to be collected
+     * @param to the counter after the last one to be collected
+     *
+     * @since 1.30
+     */
+    private static void collect(int from, int to) {
+        HashMap<String, Sampler> current = samplers;
+        Sampler[] byIndex = new Sampler[current.size()];
+        for (HashMap.Entry<String, Sampler> ent : current.entries()) {
+            Sampler sampler = ent.getValue();
+            if (NONE != sampler) {
+                byIndex[sampler.index] = sampler;
+                System.arraycopy(sampler.retired, from, sampler.total, from, 
+                    to - from);
+            }
+        }
+        for (int s = STATES.size() - 1; s >= 0; s--) {
+            State state = STATES.get(s);
+            boolean terminated = !state.owner.isAlive();
+            long[] counters = state.counters;
+            int count = Math.min(byIndex.length, counters.length / COUNTERS);
+            for (int i = 0; i < count; i++) {
+                Sampler sampler = byIndex[i];
+                if (null != sampler) {
+                    for (int c = 0; c < COUNTERS; c++) {
+                        long value = counters[COUNTERS * i + c];
+                        if (c >= from && c < to) {
+                            sampler.total[c] += value;
+                        }
+                        if (terminated) {
+                            sampler.retired[c] += value;
+                        }
+                    }
+                }
+            }
+            if (terminated) {
+                STATES.remove(s);
+            }
+        }
+    }
+
+    /**
+     * Returns the counter collected for this sampler since the last call 
+     * (called by the overhead governor or while flushing).
+     *
+     * @param kind the counter, e.g., {@link #INVOCATIONS}
+     * @return the counted value
+     *
+     * @since 1.30
+     */
+    private long drain(int kind) {
+        long result = total[kind] - evaluated[kind];
+        evaluated[kind] = total[kind];
+        return result;
+    }
+
+    /**
+     * Returns the number of recorded invocations since the last call 
+     * (called by the overhead governor after 
+     * {@link #collectOverhead()}).
+     *
+     * @return the number of invocations
+     *
+     * @since 1.30
+     */
+    long drainInvocations() {
+        return drain(INVOCATIONS);
+    }
+
+    /**
+     * Returns the time spent in the measured probes since the last call 
+     * (called by the overhead governor after {@link #collectOverhead()}).
+     *
+     * @return the probe time in nano seconds
+     *
+     * @since 1.30
+     */
+    long drainProbeTime() {
+        return drain(PROBE_TIME);
+    }
+
+    /**
+     * Returns the time spent in the body of the group in the measured 
+     * invocations since the last call (called by the overhead governor 
+     * after {@link #collectOverhead()}).
+     *
+     * @return the body time in nano seconds
+     *
+     * @since 1.30
+     */
+    long drainBodyTime() {
+        return drain(BODY_TIME);
+    }
+
+    /**
+     * Decides whether the current invocation of the monitoring group shall
+     * be recorded and counts it.
+     *
+     * @return <code>true</code> if the invocation shall be recorded,
+     *   <code>false</code> if it shall be skipped
+     *
+     * @since 1.30
+     */
+    boolean enter() {
+        State state = state();
+        boolean record;
+        if (folded) {
+            record = false;
+        } else {
+            state.ensureIndex(index);
+            if (!sampling) {
+                record = true;
+            } else {
+                record = decide(state);
+                if (record) {
+                    state.counters[COUNTERS * index + SAMPLED]++;
+                } else {
+                    state.counters[COUNTERS * index + SKIPPED]++;
+                }
+            }
+        }
+        state.push(record);
+        state.measuring = false;
+        if (GOVERNED && record) {
+            state.counters[COUNTERS * index + INVOCATIONS]++;
+            int countdown = state.measureCountdown[index] - 1;
+            if (countdown <= 0) {
+                countdown = MEASURE_RATE;
+                state.measuring = true;
+            }
+            state.measureCountdown[index] = countdown;
+        }
+        return record;
+    }
+
+    /**
+     * Takes the sampling decision for the current invocation.
+     *
+     * @param state the decision state of the current thread
+     * @return <code>true</code> if the invocation shall be recorded,
+     *   <code>false</code> if it shall be skipped
+     *
+     * @since 1.30
+     */
+    private boolean decide(State state) {
+        boolean record;
+        if (interval > 0) {
+            long now = System.nanoTime();
+            long last = state.last[index];
+            record = 0 == last || now - last >= interval;
+            if (record) {
+                state.last[index] = now;
+            }
+        } else {
+            int countdown = state.countdown[index] - 1;
+            record = countdown <= 0;
+            if (record) {
+                countdown = rate;
+            }
+            state.countdown[index] = countdown;
+        }
+        return record;
+    }
+
+    /**
+     * Returns whether the current invocation of the monitoring group was
+     * recorded, i.e. whether its exit shall be recorded.
+     *
+     * @return <code>true</code> if the exit shall be recorded,
+     *   <code>false</code> if it shall be skipped
+     *
+     * @since 1.30
+     */
+    boolean exit() {
+        State state = state();
+        boolean result = state.pop();
+        state.measuring = UNMEASURED != state.bodyStart;
+        return result;
+    }
+
+    /**
+     * Returns the start time of a probe for measuring the overhead.
+     *
+     * @return the start time in nano seconds, <code>0</code> if the 
+     *   overhead governor is disabled or the probe is not measured
+     *
+     * @since 1.30
+     */
+    long probeStart() {
+        return GOVERNED && state().measuring ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Notifies that the enter probe of a recorded invocation finished, i.e.
+     * that the body of the group starts.
+     *
+     * @param start the start time of the probe as returned by 
+     *   {@link #probeStart()}
+     *
+     * @since 1.30
+     */
+    void entered(long start) {
+        if (0 != start) {
+            long now = System.nanoTime();
+            State state = state();
+            state.counters[COUNTERS * index + PROBE_TIME] += now - start;
+            if (state.depth > 0) {
+                state.times[state.depth - 1] = now;
+            }
+        }
+    }
+
+    /**
+     * Notifies that the exit probe of a recorded invocation finished. The
+     * body time is only accounted if the related enter was measured.
+     *
+     * @param start the start time of the probe as returned by 
+     *   {@link #probeStart()}
+     *
+     * @since 1.30
+     */
+    void exited(long start) {
+        if (0 != start) {
+            State state = state();
+            int base = COUNTERS * index;
+            state.counters[base + PROBE_TIME] += System.nanoTime() - start;
+            state.counters[base + BODY_TIME] += start - state.bodyStart;
+        }
+    }
+
+    /**
+     * Passes the invocations counted by all samplers since the last flush 
+     * to <code>strategy</code>, e.g., when printing the current state or at
+     * the end of recording. Invocations counted concurrently by other 
+     * threads may be passed with the next flush. The caller is responsible
+     * for disabling memory accounting.
+     *
+     * @param strategy the recorder strategy
+     *
+     * @since 1.30
+     */
+    static void flushAll(RecorderStrategy strategy) {
+        ArrayList<Sampler> flushed = new ArrayList<Sampler>();
+        ArrayList<long[]> counts = new ArrayList<long[]>();
+        synchronized (STATES) {
+            collect(SAMPLED, SKIPPED + 1);
+            for (HashMap.Entry<String, Sampler> ent : samplers.entries()) {
+                Sampler sampler = ent.getValue();
+                if (NONE != sampler && sampler.sampling) {
+                    long sampledCount = sampler.drain(SAMPLED);
+                    long skippedCount = sampler.drain(SKIPPED);
+                    if (sampledCount > 0 || skippedCount > 0) {
+                        flushed.add(sampler);
+                        counts.add(new long[] {sampledCount, skippedCount});
+                    }
+                }
+            }
+        }
+        // outside the lock as the strategy may synchronize on its own
+        for (int f = 0; f < flushed.size(); f++) {
+            long[] count = counts.get(f);
+            strategy.invocationsSampled(flushed.get(f).recId, count[0], 
+                count[1]);
+        }
+    }
+
+}
@@ -115,6 +115,39 @@ public class SynchronizedRecorder extends Recorder {
         boolean exclude, boolean directId, long instanceId) {
         super.exit(caller, recId, exclude, directId, instanceId);
     }
+
+    /**
+     * Notifies the recorder about a method being called for a direct 
+     * recorder id. [Java call]
+     * 
+     * @param recId the numeric recorder id
+     * @param exclude is this an exclusion from monitoring
+     * @param instanceId the optional instance identifier, <code>0</code> means 
+     *    disabled
+     * 
+     * @since 1.30
+     */
+    @Override
+    public void enter(int recId, boolean exclude, long instanceId) {
+        super.enter(recId, exclude, instanceId);
+    }
+
+    /**
+     * Notifies the recorder about a method being exited for a direct 
+     * recorder id. [Java call]
+     * 
+     * @param recId the numeric recorder id
+     * @param exclude is this an exclusion from monitoring
+     * @param instanceId the optional instance identifier, <code>0</code> means 
+     *    disabled
+     * 
+     * @since 1.30
+     */
+    @Override
+    public final synchronized void exit(int recId, boolean exclude, 
+        long instanceId) {
+        super.exit(recId, exclude, instanceId);
+    }
     
     /**
      * Notify the recorder that a new variability configuration might have 
@@ -25,7 +25,7 @@ import de.uni_hildesheim.sse.system.IThreadDataGatherer;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.20
+ * @version 1.30
  */
 public class SystemMonitoring {
     
@@ -46,6 +46,13 @@ public class SystemMonitoring {
     private static final IThreadDataGatherer THREAD_DATA_GATHERER 
         = GathererFactory.getThreadDataGatherer();
 
+    /**
+     * Stores the clock determining the CPU time in the probes.
+     */
+    private static final CpuClock CPU_CLOCK = new CpuClock(
+        THREAD_DATA_GATHERER, Configuration.INSTANCE.getCpuClock(), 
+        Configuration.INSTANCE.getCpuClockInterval());
+
     /**
      * Stores the process data gatherer.
      */
@@ -126,6 +133,11 @@ public class SystemMonitoring {
      * Stores the load and statistics collecting thread.
      */
     private static LogEventTask logEventTask = new LogEventTask();
+
+    /**
+     * Stores the overhead governor task (<b>null</b> if not scheduled).
+     */
+    private static OverheadGovernor overheadGovernor;
     
     /**
      * Stores the thread timings.
@@ -397,6 +409,12 @@ public class SystemMonitoring {
         if (outInterval >= 500) {
             timer.schedule(logEventTask, 0, outInterval);
         }
+        int budget = Configuration.INSTANCE.getOverheadBudget();
+        if (budget > 0 && null == overheadGovernor) {
+            int interval = Configuration.INSTANCE.getOverheadInterval();
+            overheadGovernor = new OverheadGovernor(budget);
+            timer.schedule(overheadGovernor, interval, interval);
+        }
     }
     
     /**
@@ -409,6 +427,10 @@ public class SystemMonitoring {
             LOAD_COUNTER.cancel();
         }
         logEventTask.cancel();
+        if (null != overheadGovernor) {
+            overheadGovernor.cancel();
+            overheadGovernor = null;
+        }
         if (null != timer) {
             timer.purge();
         }
@@ -448,6 +470,29 @@ public class SystemMonitoring {
         return result;
     }
 
+    /**
+     * Returns information about the currently running thread upon the enter
+     * or exit of a monitoring group. In contrast to 
+     * {@link #getThreadInfo(long, long)}, the CPU time is determined by the 
+     * configured {@link CpuClock}.
+     * 
+     * @param tid the thread id (must be the id of the current thread)
+     * @param instanceid the instance id (disabled if <code>0</code>)
+     * @param recId the recorder id of the group (may be <b>null</b>)
+     * @param enter <code>true</code> if the group is entered, 
+     *   <code>false</code> if it is exited
+     * @return the information object on currently running threads
+     * 
+     * @since 1.30
+     */
+    public static ThreadsInfo getThreadInfo(long tid, long instanceid, 
+        String recId, boolean enter) {
+        ThreadsInfo result = ThreadsInfo.POOL.getFromPool();
+        result.setIds(tid, instanceid);
+        result.setCurrentThreadTicks(CPU_CLOCK.getTicks(tid, recId, enter));
+        return result;
+    }
+
     /**
      * Returns the current thread id. This method was inserted in order to
      * be adjusted in case of native monitoring.
@@ -0,0 +1,686 @@
+package de.uni_hildesheim.sse.monitoring.runtime.recordingServer;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.*;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.*;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchInputStream;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchOutputStream;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.ByteBufferInputStream;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.
+    RecordingStrategiesElementRingBuffer;
+
+/**
+ * Stores the state of the connection to a monitored JVM (agent), i.e. the
+ * configuration of the agent, its recorder strategy and the received but not
+ * yet processed events. Events are decoded by the selector thread of the
+ * {@link TCPRecordingServer} directly from the received data and handed over
+ * to the {@link AgentWorker} responsible for this connection via a bounded
+ * ring buffer. If the ring buffer is full, receiving data is suspended until
+ * the worker took elements (back pressure via TCP flow control).<p>
+ * Data which does not form a complete element (configuration, event or
+ * batch) yet is kept in the receive buffer until further data arrives.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+class AgentConnection {
+
+    /**
+     * Denotes that the agent configuration is expected.
+     */
+    private static final int STATE_CONFIGURATION = 0;
+
+    /**
+     * Denotes that individual events are expected
+     * ({@link Constants#PROTOCOL_V1}).
+     */
+    private static final int STATE_EVENTS = 1;
+
+    /**
+     * Denotes that event batches are expected
+     * ({@link Constants#PROTOCOL_V2}).
+     */
+    private static final int STATE_BATCHES = 2;
+
+    /**
+     * Denotes that the end of system was received.
+     */
+    private static final int STATE_END = 3;
+
+    /**
+     * Defines the initial size of the receive buffer.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Defines the size of the batch header (int length, byte flags)
+     * without the raw size of compressed batches.
+     */
+    private static final int BATCH_HEADER_SIZE = 5;
+
+    /**
+     * Defines the event identifications considered in the statistics.
+     */
+    private static final int[] STATISTICS_IDS = {
+        Constants.ENTERCONFIGURATION, Constants.ENTER, Constants.EXIT,
+        Constants.FINISHRECORDING, Constants.MEMORYALLOCATED,
+        Constants.MEMORYFREEDBYRECID, Constants.PRINT_STATISTICS,
+        Constants.IO, Constants.STARTRECORDING,
+        Constants.STOP_TIME_RECORDING, Constants.ENDSYSTEM};
+
+    /**
+     * Defines the names of the events in {@link #STATISTICS_IDS}.
+     */
+    private static final String[] STATISTICS_NAMES = {
+        "enterconfiguration", "enter", "exit", "finishrecording",
+        "memoryallocated", "memoryfreedbyid", "print_statistics", "io",
+        "startrecording", "stop_time_recording", "endsystem"};
+
+    /**
+     * Stores the identification of this connection.
+     */
+    private final int id;
+
+    /**
+     * Stores the channel.
+     */
+    private final SocketChannel channel;
+
+    /**
+     * Stores the server.
+     */
+    private final TCPRecordingServer server;
+
+    /**
+     * Stores the worker responsible for processing the events.
+     */
+    private final AgentWorker worker;
+
+    /**
+     * Stores the configuration of the agent.
+     */
+    private final Configuration configuration
+        = Configuration.createRemoteConfiguration();
+
+    /**
+     * Stores the received but not yet processed elements.
+     */
+    private final RecordingStrategiesElementRingBuffer elements;
+
+    /**
+     * Stores whether receiving data is suspended due to a full
+     * {@link #elements} buffer.
+     */
+    private final AtomicBoolean suspended = new AtomicBoolean();
+
+    /**
+     * Stores the number of received events per identification (modified by
+     * the selector thread only).
+     */
+    private final int[] counts = new int[Constants.INVOCATIONSSAMPLED + 1];
+
+    /**
+     * Stores the receive buffer (in filling mode between receiving data).
+     */
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Stores the stream reading from {@link #buffer}.
+     */
+    private final ByteBufferInputStream bufferIn
+        = new ByteBufferInputStream(buffer);
+
+    /**
+     * Stores the data input stream reading from {@link #bufferIn}.
+     */
+    private final DataInputStream in = new DataInputStream(bufferIn);
+
+    /**
+     * Stores the batch input stream in case of
+     * {@link Constants#PROTOCOL_V2}.
+     */
+    private BatchInputStream batchIn;
+
+    /**
+     * Stores the recorder strategy (created upon the agent configuration).
+     */
+    private RecorderStrategy strategy;
+
+    /**
+     * Stores the element which could not be handed over due to a full
+     * {@link #elements} buffer.
+     */
+    private RecordingStrategiesElement pending;
+
+    /**
+     * Stores the protocol state.
+     */
+    private int state = STATE_CONFIGURATION;
+
+    /**
+     * Stores the number of received events.
+     */
+    private long received;
+
+    /**
+     * Stores whether the server stops, i.e. whether the end of system shall
+     * be emulated after decoding the data received so far.
+     */
+    private boolean closing;
+
+    /**
+     * Creates a connection.
+     *
+     * @param id the identification of this connection
+     * @param channel the channel
+     * @param server the server
+     * @param worker the worker responsible for processing the events
+     * @param bufferSize the minimum capacity of the element buffer
+     *
+     * @since 1.30
+     */
+    AgentConnection(int id, SocketChannel channel, TCPRecordingServer server,
+        AgentWorker worker, int bufferSize) {
+        this.id = id;
+        this.channel = channel;
+        this.server = server;
+        this.worker = worker;
+        this.elements = new RecordingStrategiesElementRingBuffer(bufferSize);
+    }
+
+    /**
+     * Returns the identification of this connection.
+     *
+     * @return the identification
+     *
+     * @since 1.30
+     */
+    int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the channel.
+     *
+     * @return the channel
+     *
+     * @since 1.30
+     */
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Returns the configuration of the agent.
+     *
+     * @return the configuration
+     *
+     * @since 1.30
+     */
+    Configuration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Returns the recorder strategy processing the events of this
+     * connection.
+     *
+     * @return the recorder strategy (<b>null</b> before the configuration
+     *   of the agent was received)
+     *
+     * @since 1.30
+     */
+    RecorderStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Returns the received but not yet processed elements. Elements shall be
+     * taken by the responsible worker only.
+     *
+     * @return the elements
+     *
+     * @since 1.30
+     */
+    RecordingStrategiesElementRingBuffer getElements() {
+        return elements;
+    }
+
+    /**
+     * Returns whether the end of system was received, i.e. no further data
+     * is expected.
+     *
+     * @return <code>true</code> if the end of system was received,
+     *   <code>false</code> else
+     *
+     * @since 1.30
+     */
+    boolean isEnded() {
+        return STATE_END == state;
+    }
+
+    /**
+     * Resets the suspended state if receiving data is suspended. Shall be
+     * called by the responsible worker after taking elements.
+     *
+     * @return <code>true</code> if receiving data was suspended and needs
+     *   to be resumed, <code>false</code> else
+     *
+     * @since 1.30
+     */
+    boolean clearSuspended() {
+        return suspended.compareAndSet(true, false);
+    }
+
+    /**
+     * Receives available data from the channel and decodes it. Shall be
+     * called by the selector thread only.
+     *
+     * @return <code>true</code> if further data shall be received,
+     *   <code>false</code> if receiving is suspended or ended
+     * @throws IOException in case of I/O or protocol problems
+     *
+     * @since 1.30
+     */
+    boolean receive() throws IOException {
+        boolean result;
+        if (channel.read(buffer) < 0) {
+            close();
+            result = false;
+        } else {
+            result = decode();
+            if (result && !buffer.hasRemaining()) {
+                // incomplete element occupies the entire buffer
+                ByteBuffer tmp = ByteBuffer.allocateDirect(
+                    2 * buffer.capacity());
+                buffer.flip();
+                tmp.put(buffer);
+                buffer = tmp;
+                bufferIn.setBuffer(buffer);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Decodes the data in the receive buffer. Shall be called by the
+     * selector thread only, also to resume a suspended connection.
+     *
+     * @return <code>true</code> if further data shall be received,
+     *   <code>false</code> if receiving is suspended or ended
+     * @throws IOException in case of I/O or protocol problems
+     *
+     * @since 1.30
+     */
+    boolean decode() throws IOException {
+        buffer.flip();
+        boolean proceed = offer(null);
+        boolean more = true;
+        try {
+            while (proceed && more) {
+                int start = buffer.position();
+                RecordingStrategiesElement elt = null;
+                try {
+                    switch (state) {
+                    case STATE_CONFIGURATION:
+                        readConfiguration();
+                        break;
+                    case STATE_EVENTS:
+                        elt = readEvent();
+                        break;
+                    case STATE_BATCHES:
+                        elt = readBatchedEvent();
+                        more = null != elt;
+                        break;
+                    default:
+                        // end of system, ignore further data
+                        buffer.position(buffer.limit());
+                        more = false;
+                        break;
+                    }
+                } catch (EOFException e) {
+                    // incomplete, wait for further data
+                    buffer.position(start);
+                    more = false;
+                }
+                if (null != elt) {
+                    proceed = offer(count(elt));
+                }
+            }
+            if (closing && proceed && !isEnded()) {
+                // all complete elements are handed over
+                proceed = emulateEndSystem("ended as the server stops");
+            }
+        } finally {
+            buffer.compact();
+        }
+        worker.signal();
+        return proceed && !isEnded();
+    }
+
+    /**
+     * Reads the agent configuration, answers the protocol offer and creates
+     * the recorder strategy.
+     *
+     * @throws IOException in case of I/O problems or if the configuration
+     *   is incomplete ({@link EOFException})
+     *
+     * @since 1.30
+     */
+    private void readConfiguration() throws IOException {
+        configuration.read(in);
+        configuration.setBaseDir(server.getBaseDir(this));
+        int protocol = Math.min(configuration.getTcpProtocol(),
+            Constants.PROTOCOL_V2);
+        if (protocol >= Constants.PROTOCOL_V2) {
+            // confirm the protocol offered by the client
+            ByteBuffer reply = ByteBuffer.allocate(4);
+            reply.putInt(protocol);
+            reply.flip();
+            while (reply.hasRemaining()) {
+                channel.write(reply);
+            }
+            batchIn = new BatchInputStream(in);
+            state = STATE_BATCHES;
+        } else {
+            state = STATE_EVENTS;
+        }
+        strategy = new DefaultRecorderStrategy(
+            new TabFormatter(configuration), configuration);
+        worker.add(this);
+    }
+
+    /**
+     * Reads an individual event ({@link Constants#PROTOCOL_V1}).
+     *
+     * @return the event
+     * @throws IOException in case of I/O or protocol problems or if the
+     *   event is incomplete ({@link EOFException})
+     *
+     * @since 1.30
+     */
+    private RecordingStrategiesElement readEvent() throws IOException {
+        RecordingStrategiesElement result = createElement(in.readInt());
+        // an incomplete element is not released as it may refer to
+        // (pooled) instances of its previous use
+        result.read(in);
+        return result;
+    }
+
+    /**
+     * Reads an event from the current batch or, if the current batch is
+     * exhausted, from the next batch ({@link Constants#PROTOCOL_V2}).
+     *
+     * @return the event or <b>null</b> if no complete batch is available
+     * @throws IOException in case of I/O or protocol problems
+     *
+     * @since 1.30
+     */
+    private RecordingStrategiesElement readBatchedEvent() throws IOException {
+        RecordingStrategiesElement result = null;
+        boolean available = batchIn.hasMore();
+        while (!available && isBatchAvailable()) {
+            batchIn.nextBatch();
+            available = batchIn.hasMore();
+        }
+        if (available) {
+            try {
+                result = createElement(batchIn.readVarInt());
+                result.readBatched(batchIn);
+            } catch (EOFException e) {
+                // batches are complete, i.e. this is a protocol problem
+                throw new IOException("incomplete event in batch");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether a complete batch is available in the receive buffer.
+     *
+     * @return <code>true</code> if a complete batch is available,
+     *   <code>false</code> else
+     *
+     * @since 1.30
+     */
+    private boolean isBatchAvailable() {
+        boolean result = false;
+        int remaining = buffer.remaining();
+        if (remaining >= BATCH_HEADER_SIZE) {
+            int pos = buffer.position();
+            int size = BATCH_HEADER_SIZE + buffer.getInt(pos);
+            if (0 != (buffer.get(pos + 4) & BatchOutputStream.FLAG_DEFLATE)) {
+                size += 4;
+            }
+            result = remaining >= size;
+        }
+        return result;
+    }
+
+    /**
+     * Closes this connection, e.g., at the end of the stream. If the agent 
+     * did not send the end of system, the end of system is emulated so that
+     * the results are written.
+     *
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    void close() throws IOException {
+        if (!isEnded()) {
+            if (null == strategy) {
+                state = STATE_END;
+                server.agentDiscarded(this);
+            } else {
+                emulateEndSystem("disconnected without end of system");
+                worker.signal();
+            }
+        }
+        channel.close();
+    }
+
+    /**
+     * Closes this connection as the server stops. The data received so far
+     * is decoded and handed over to the worker, then the end of system is 
+     * emulated so that the results are written. Shall be called by the 
+     * selector thread only.
+     *
+     * @throws IOException in case of I/O or protocol problems
+     *
+     * @since 1.30
+     */
+    void shutdown() throws IOException {
+        closing = true;
+        channel.close();
+        decode();
+    }
+
+    /**
+     * Emulates the end of system if the configuration of the agent was 
+     * received, i.e. if there is a recorder strategy to write the results.
+     *
+     * @param reason the reason to be printed
+     * @return <code>true</code> if the end of system was handed over,
+     *   <code>false</code> if receiving data is suspended
+     *
+     * @since 1.30
+     */
+    private boolean emulateEndSystem(String reason) {
+        boolean result = true;
+        state = STATE_END;
+        if (null != strategy) {
+            System.out.println("agent " + id + " " + reason);
+            result = offer(new EndSystemElement());
+        }
+        return result;
+    }
+
+    /**
+     * Hands over an element or the pending element to the worker. If the
+     * element buffer is full, the element becomes pending and receiving data
+     * is suspended.
+     *
+     * @param elt the element (may be <b>null</b> to hand over the pending
+     *   element only)
+     * @return <code>true</code> if the element was handed over,
+     *   <code>false</code> if receiving data is suspended
+     *
+     * @since 1.30
+     */
+    private boolean offer(RecordingStrategiesElement elt) {
+        boolean result = true;
+        if (null == elt) {
+            elt = pending;
+            pending = null;
+        }
+        if (null != elt && !elements.offer(elt)) {
+            pending = elt;
+            suspended.set(true);
+            result = false;
+        }
+        return result;
+    }
+
+    /**
+     * Counts a received element and displays the size of the element buffer
+     * every 500 elements.
+     *
+     * @param elt the received element
+     * @return <code>elt</code>
+     *
+     * @since 1.30
+     */
+    private RecordingStrategiesElement count(RecordingStrategiesElement elt) {
+        int identification = elt.getIdentification();
+        if (identification >= 0 && identification < counts.length) {
+            counts[identification]++;
+        }
+        if (Constants.ENDSYSTEM == identification) {
+            state = STATE_END;
+        }
+        received++;
+        // display queue size every 500 times with different symbols
+        // according to the queue size
+        if (received % 500 == 0) {
+            int queueSize = elements.size();
+            if (queueSize < 20) {
+                System.out.print('.');
+            } else if (queueSize < 50) {
+                System.out.print(',');
+            } else if (queueSize < 100) {
+                System.out.print('*');
+            } else {
+                System.out.print('o');
+            }
+            if (received % (500 * 79) == 0) {
+                System.out.println();
+            }
+        }
+        return elt;
+    }
+
+    /**
+     * Creates (or obtains from a pool) the element for the given event
+     * identification.
+     *
+     * @param identification the event identification
+     * @return the element
+     * @throws IOException in case of an unknown identification
+     *
+     * @since 1.30
+     */
+    static RecordingStrategiesElement createElement(
+        int identification) throws IOException {
+        RecordingStrategiesElement e = null;
+        switch (identification) {
+        case Constants.ENTERCONFIGURATION:
+            e = new EnterConfigurationElement();
+            break;
+        case Constants.ENTER:
+            e = EnterElement.POOL.getFromPool();
+            break;
+        case Constants.EXIT:
+            e = ExitElement.POOL.getFromPool();
+            break;
+        case Constants.FINISHRECORDING:
+            e = new FinishRecordingElement();
+            break;
+        case Constants.MEMORYALLOCATED:
+            e = MemoryAllocatedElement.POOL.getFromPool();
+            break;
+        case Constants.MEMORYFREEDBYRECID:
+            e = MemoryFreedByRecIdElement.POOL.getFromPool();
+            break;
+        case Constants.PRINT_STATISTICS:
+            e = new PrintStatisticsElement();
+            break;
+        case Constants.IO:
+            e = IoElement.POOL.getFromPool();
+            break;
+        case Constants.STARTRECORDING:
+            e = new StartRecordingElement();
+            break;
+        case Constants.STOP_TIME_RECORDING:
+            e = new StopTimeRecordingElement();
+            break;
+        case Constants.ENDSYSTEM:
+            e = new EndSystemElement();
+            break;
+        case Constants.REGISTER:
+            e = new RegisterElement();
+            break;
+        case Constants.ASSIGNTOALL:
+            e  = new AssignToAllElement();
+            break;
+        case Constants.PRINTCURRENTSTATE:
+            e = new PrintCurrentState();
+            break;
+        case Constants.NOTIFYTIMER:
+            e = new NotifyTimerElement();
+            break;
+        case Constants.NOTIFYVALUE:
+            e = new NotifyValueChangeElement();
+            break;
+        case Constants.PROGRAMRECORDCREATION:
+            e = new NotifyProgramRecordCreationElement();
+            break;
+        case Constants.INVOCATIONSSAMPLED:
+            e = new InvocationsSampledElement();
+            break;
+        default:
+            throw new IOException("unknown event: " + identification);
+        }
+        return e;
+    }
+
+    /**
+     * Prints the frequency of the events received on this connection on the
+     * console.
+     *
+     * @since 1.30
+     */
+    void printElementStatistics() {
+        StringBuilder tmp = new StringBuilder();
+        tmp.append("\nagent ");
+        tmp.append(id);
+        tmp.append(" (");
+        tmp.append(received);
+        tmp.append(" events)\n");
+        for (int i = 0; i < STATISTICS_IDS.length; i++) {
+            tmp.append(STATISTICS_NAMES[i]);
+            tmp.append(": ");
+            tmp.append(counts[STATISTICS_IDS[i]]);
+            tmp.append('\n');
+        }
+        System.out.print(tmp);
+    }
+
+}
@@ -0,0 +1,215 @@
+package de.uni_hildesheim.sse.monitoring.runtime.recordingServer;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+import de.uni_hildesheim.sse.monitoring.runtime.boot.ArrayList;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    RecorderStrategy;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.
+    Constants;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.
+    RecordingStrategiesElement;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.
+    RecordingStrategiesElementRingBuffer;
+
+/**
+ * Implements a thread which processes the received events of the
+ * connections assigned to it. A connection is processed by exactly one
+ * worker, i.e. the events of an agent are processed in sequence and the
+ * recorder strategy of an agent is not accessed concurrently, while the
+ * connections of different workers are processed in parallel.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+class AgentWorker extends Thread {
+
+    /**
+     * Defines the maximum number of elements taken from a connection at
+     * once.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * Defines the maximum time to wait for new elements (in nanoseconds).
+     */
+    private static final long PARK_NANOS = 100 * 1000 * 1000;
+
+    /**
+     * Stores the server.
+     */
+    private final TCPRecordingServer server;
+
+    /**
+     * Stores the connections assigned but not yet taken over by this worker.
+     */
+    private final ConcurrentLinkedQueue<AgentConnection> added
+        = new ConcurrentLinkedQueue<AgentConnection>();
+
+    /**
+     * Stores the connections processed by this worker (accessed by this
+     * worker only).
+     */
+    private final ArrayList<AgentConnection> connections
+        = new ArrayList<AgentConnection>();
+
+    /**
+     * Stores whether this worker is parked (or about to park) and must be
+     * signaled.
+     */
+    private volatile boolean waiting;
+
+    /**
+     * Stores whether this worker shall terminate.
+     */
+    private volatile boolean terminate;
+
+    /**
+     * Creates a worker.
+     *
+     * @param server the server
+     * @param number the number of this worker
+     *
+     * @since 1.30
+     */
+    AgentWorker(TCPRecordingServer server, int number) {
+        super("TCPRecordingServer worker " + number);
+        this.server = server;
+        setDaemon(true);
+    }
+
+    /**
+     * Assigns a connection to this worker.
+     *
+     * @param connection the connection
+     *
+     * @since 1.30
+     */
+    void add(AgentConnection connection) {
+        added.add(connection);
+        signal();
+    }
+
+    /**
+     * Wakes up this worker if it is parked.
+     *
+     * @since 1.30
+     */
+    void signal() {
+        if (waiting) {
+            LockSupport.unpark(this);
+        }
+    }
+
+    /**
+     * Terminates this worker after processing the end of system of all its
+     * connections, i.e. all elements received.
+     *
+     * @since 1.30
+     */
+    void terminate() {
+        terminate = true;
+        LockSupport.unpark(this);
+    }
+
+    /**
+     * Processes the events of the assigned connections.
+     *
+     * @since 1.30
+     */
+    @Override
+    public void run() {
+        RecordingStrategiesElement[] batch
+            = new RecordingStrategiesElement[BATCH_SIZE];
+        boolean end = false;
+        while (!end) {
+            boolean terminating = terminate;
+            AgentConnection connection = added.poll();
+            while (null != connection) {
+                connections.add(connection);
+                connection = added.poll();
+            }
+            boolean processed = false;
+            for (int c = connections.size() - 1; c >= 0; c--) {
+                connection = connections.get(c);
+                int count = process(connection, batch);
+                processed |= count > 0;
+                if (count < 0) {
+                    connections.remove(c);
+                    server.agentFinished(connection);
+                }
+            }
+            // terminate after all connections processed their end of system
+            end = terminating && connections.isEmpty() && added.isEmpty();
+            if (!processed && !end) {
+                awaitElements();
+            }
+        }
+    }
+
+    /**
+     * Processes the events of the given connection.
+     *
+     * @param connection the connection
+     * @param batch a temporary array for taking elements
+     * @return the number of processed events, negative if the end of system
+     *   was processed
+     *
+     * @since 1.30
+     */
+    private int process(AgentConnection connection,
+        RecordingStrategiesElement[] batch) {
+        RecorderStrategy strategy = connection.getStrategy();
+        int count = connection.getElements().drain(batch);
+        boolean end = false;
+        for (int i = 0; i < count; i++) {
+            RecordingStrategiesElement element = batch[i];
+            batch[i] = null;
+            if (!end) {
+                element.process(strategy);
+                end = Constants.ENDSYSTEM == element.getIdentification();
+            }
+            element.release();
+        }
+        if (connection.clearSuspended()) {
+            server.resume(connection);
+        }
+        return end ? -1 : count;
+    }
+
+    /**
+     * Waits for new elements or connections.
+     *
+     * @since 1.30
+     */
+    private void awaitElements() {
+        waiting = true;
+        // re-check after announcing to avoid missing a signal
+        if (!hasPublished()) {
+            LockSupport.parkNanos(this, PARK_NANOS);
+        }
+        waiting = false;
+    }
+
+    /**
+     * Returns whether there are elements to be processed or connections to
+     * be taken over.
+     *
+     * @return <code>true</code> if there is work, <code>false</code> else
+     *
+     * @since 1.30
+     */
+    private boolean hasPublished() {
+        boolean result = (terminate && connections.isEmpty())
+            || !added.isEmpty();
+        for (int c = 0; !result && c < connections.size(); c++) {
+            RecordingStrategiesElementRingBuffer elements
+                = connections.get(c).getElements();
+            result = elements.hasPublished();
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,354 @@
+package de.uni_hildesheim.sse.monitoring.runtime.recordingServer;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.*;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.*;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchInputStream;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.ByteBufferInputStream;
+
+/**
+ * Replays binary event logs written by the {@link EventLogRecorderStrategy}
+ * offline through the {@link DefaultRecorderStrategy} in order to produce
+ * the usual results. The baseDir for the results must be specified in the
+ * program arguments (i.e. baseDir=..\\measurement), followed by the log
+ * directories or individual segment files. The segments are grouped into
+ * logs (one per monitored JVM run) by their name and replayed in the
+ * sequence of their numbers. The results of the first log are written into
+ * baseDir, those of further logs into the sub-directories log&lt;n&gt; of
+ * baseDir. Each log is replayed according to its own configuration.<p>
+ * If a parallelism is given (i.e. parallel=&lt;n&gt;), the events of each
+ * log are partitioned by their threads and replayed in parallel by the
+ * {@link PartitionedReplay}, leading to the same results as a sequential
+ * replay.<p>
+ * If the oldest segments of a log were deleted due to the size limit, only
+ * the remaining segments are replayed, starting with the state repeated at
+ * the beginning of the first remaining segment, i.e. the program start and
+ * the running threads. The state batches of further segments are skipped.
+ * Monitoring groups registered in deleted segments are accounted with 
+ * their default configuration. Segments
+ * which were not completely written, e.g., as the monitored JVM crashed, are
+ * replayed up to the first incomplete batch.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public class EventLogReplay {
+
+    /**
+     * Defines the baseDir argument.
+     */
+    private static final String PARAM_BASEDIR = "baseDir=";
+
+    /**
+     * Defines the parallelism argument.
+     */
+    private static final String PARAM_PARALLEL = "parallel=";
+
+    /**
+     * Stores the base directory for the results.
+     */
+    private final String baseDir;
+
+    /**
+     * Stores the number of logs replayed so far.
+     */
+    private int logs;
+
+    /**
+     * Stores the number of partitions replayed in parallel.
+     */
+    private final int parallelism;
+
+    /**
+     * Stores the pool replaying the partitions (<b>null</b> if sequential).
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a sequential replay instance.
+     *
+     * @param baseDir the base directory for the results
+     *
+     * @since 1.30
+     */
+    public EventLogReplay(String baseDir) {
+        this(baseDir, 1);
+    }
+
+    /**
+     * Creates a replay instance.
+     *
+     * @param baseDir the base directory for the results
+     * @param parallelism the number of partitions replayed in parallel,
+     *   sequential if less than <code>2</code>
+     *
+     * @since 1.30
+     */
+    public EventLogReplay(String baseDir, int parallelism) {
+        this.baseDir = baseDir;
+        this.parallelism = parallelism;
+        if (parallelism > 1) {
+            pool = new ForkJoinPool(parallelism);
+        } else {
+            pool = null;
+        }
+    }
+
+    /**
+     * Collects the segments of the logs in the given files or directories.
+     *
+     * @param files the segment files or log directories
+     * @return the segments per log in the sequence of their numbers, the
+     *   logs sorted by their names
+     *
+     * @since 1.30
+     */
+    public static Map<String, List<File>> collectLogs(List<File> files) {
+        Map<String, List<File>> result = new TreeMap<String, List<File>>();
+        List<File> segments = new ArrayList<File>();
+        for (File f : files) {
+            if (f.isDirectory()) {
+                File[] contained = f.listFiles();
+                if (null != contained) {
+                    for (File c : contained) {
+                        if (isSegment(c)) {
+                            segments.add(c);
+                        }
+                    }
+                }
+            } else if (isSegment(f)) {
+                segments.add(f);
+            } else {
+                System.err.println("not an event log segment: " + f);
+            }
+        }
+        TreeMap<String, File> sorted = new TreeMap<String, File>();
+        for (File f : segments) {
+            sorted.put(f.getAbsolutePath(), f);
+        }
+        for (File f : sorted.values()) {
+            String path = f.getAbsolutePath();
+            String log = path.substring(0, path.lastIndexOf('-'));
+            List<File> logSegments = result.get(log);
+            if (null == logSegments) {
+                logSegments = new ArrayList<File>();
+                result.put(log, logSegments);
+            }
+            logSegments.add(f);
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the given file is an event log segment (by its name).
+     *
+     * @param file the file to be checked
+     * @return <code>true</code> if <code>file</code> is a segment,
+     *   <code>false</code> else
+     *
+     * @since 1.30
+     */
+    private static boolean isSegment(File file) {
+        String name = file.getName();
+        return file.isFile()
+            && name.startsWith(EventLogRecorderStrategy.SEGMENT_PREFIX)
+            && name.endsWith(EventLogRecorderStrategy.SEGMENT_SUFFIX)
+            && name.lastIndexOf('-')
+                >= EventLogRecorderStrategy.SEGMENT_PREFIX.length();
+    }
+
+    /**
+     * Replays the segments of a log and writes the results.
+     *
+     * @param segments the segments of the log in the sequence of their
+     *   numbers
+     * @return the number of replayed events
+     *
+     * @since 1.30
+     */
+    public long replay(List<File> segments) {
+        Configuration configuration = Configuration.createRemoteConfiguration();
+        PartitionedReplay replay = null;
+        boolean end = false;
+        long events = 0;
+        for (int s = 0; !end && s < segments.size(); s++) {
+            File segment = segments.get(s);
+            RandomAccessFile file = null;
+            try {
+                file = new RandomAccessFile(segment, "r");
+                FileChannel channel = file.getChannel();
+                MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                DataInputStream in = new DataInputStream(
+                    new ByteBufferInputStream(buffer));
+                if (EventLogRecorderStrategy.MAGIC != in.readInt()
+                    || EventLogRecorderStrategy.VERSION != in.readInt()) {
+                    throw new IOException("unknown segment format");
+                }
+                boolean first = null == replay;
+                if (first) {
+                    replay = createReplay(configuration, in);
+                } else {
+                    // each segment repeats the configuration
+                    Configuration.createRemoteConfiguration().read(in);
+                }
+                int stateBatches = in.readInt();
+                BatchInputStream batchIn = new BatchInputStream(in);
+                for (int b = 0; b < stateBatches && hasBatch(buffer); b++) {
+                    // read anyway to keep the string dictionary
+                    batchIn.nextBatch();
+                    while (batchIn.hasMore()) {
+                        RecordingStrategiesElement elt
+                            = AgentConnection.createElement(
+                                batchIn.readVarInt());
+                        elt.readBatched(batchIn);
+                        if (first) {
+                            replay.process(elt); // releases elt
+                            events++;
+                        } else {
+                            elt.release();
+                        }
+                    }
+                }
+                while (!end && hasBatch(buffer)) {
+                    batchIn.nextBatch();
+                    while (!end && batchIn.hasMore()) {
+                        RecordingStrategiesElement elt
+                            = AgentConnection.createElement(
+                                batchIn.readVarInt());
+                        elt.readBatched(batchIn);
+                        end = Constants.ENDSYSTEM == elt.getIdentification();
+                        replay.process(elt); // releases elt
+                        events++;
+                    }
+                }
+            } catch (EOFException e) {
+                System.out.println("incomplete segment " + segment);
+            } catch (IOException e) {
+                System.out.println("I/O error in segment " + segment + ": "
+                    + e.getMessage());
+            } finally {
+                if (null != file) {
+                    try {
+                        file.close();
+                    } catch (IOException e) {
+                        // ignore, read only
+                    }
+                }
+            }
+        }
+        if (null != replay) {
+            if (!end) {
+                System.out.println("log ends without end of system");
+                replay.process(new EndSystemElement());
+            }
+            replay.end();
+        }
+        return events;
+    }
+
+    /**
+     * Reads the configuration of a log and creates the replay producing the
+     * results.
+     *
+     * @param configuration the configuration of the log to be read
+     * @param in the segment stream positioned at the configuration
+     * @return the replay
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    private PartitionedReplay createReplay(Configuration configuration,
+        DataInputStream in) throws IOException {
+        String dir = baseDir;
+        configuration.read(in);
+        if (logs > 0) {
+            File logDir = new File(baseDir, "log" + logs);
+            logDir.mkdirs();
+            dir = logDir.getPath();
+        }
+        logs++;
+        configuration.setBaseDir(dir);
+        PartitionedReplay replay = new PartitionedReplay(
+            new TabFormatter(configuration), configuration, pool, 
+            parallelism);
+        if (parallelism > 1 && !replay.isParallel()) {
+            System.out.println("results depend on the sequence of events, "
+                + "replaying sequentially");
+        }
+        return replay;
+    }
+
+    /**
+     * Returns whether a further batch is available in the given segment
+     * buffer, i.e. whether the end of the segment (batch length
+     * <code>0</code>) is not yet reached.
+     *
+     * @param buffer the segment buffer
+     * @return <code>true</code> if a further batch is available,
+     *   <code>false</code> else
+     *
+     * @since 1.30
+     */
+    private static boolean hasBatch(MappedByteBuffer buffer) {
+        return buffer.remaining() >= 4 && buffer.getInt(buffer.position()) > 0;
+    }
+
+    /**
+     * Main method for replaying event logs. "baseDir" must be specified in
+     * the program arguments, "parallel" may be specified, all further 
+     * arguments are taken as log directories or segment files.
+     *
+     * @param args the program arguments
+     *
+     * @since 1.30
+     */
+    public static void main(String[] args) {
+        String baseDir = null;
+        int parallelism = 1;
+        List<File> files = new ArrayList<File>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith(PARAM_BASEDIR)) {
+                baseDir = args[i].substring(PARAM_BASEDIR.length());
+            } else if (args[i].startsWith(PARAM_PARALLEL)) {
+                try {
+                    parallelism = Integer.parseInt(
+                        args[i].substring(PARAM_PARALLEL.length()));
+                } catch (NumberFormatException e) {
+                    System.err.println("illegal parallelism: " + args[i]);
+                }
+            } else {
+                files.add(new File(args[i]));
+            }
+        }
+        if (null == baseDir) {
+            System.err.println("No baseDir given. Exiting.");
+        } else if (files.isEmpty()) {
+            System.err.println("No event log given. Exiting.");
+        } else {
+            EventLogReplay replay = new EventLogReplay(baseDir, parallelism);
+            for (Map.Entry<String, List<File>> log
+                : collectLogs(files).entrySet()) {
+                long events = replay.replay(log.getValue());
+                System.out.println("replayed " + log.getKey() + " ("
+                    + log.getValue().size() + " segments, " + events
+                    + " events)");
+            }
+        }
+    }
+
+}
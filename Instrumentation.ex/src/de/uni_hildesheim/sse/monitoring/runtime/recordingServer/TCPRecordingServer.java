@@ -1,24 +1,37 @@
 package de.uni_hildesheim.sse.monitoring.runtime.recordingServer;
 
-import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
-import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.*;
-import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.*;
 
 /**
  * Implements a server for receiving measurement events. Therefore the baseDir
  * for the measurement results and the port on which the server listen must be
  * specified in the program arguments (i.e. baseDir=..\\measurement, port=6002).
- * 
- * @author Stephan Dederichs
- * @version 1.00
+ * Optionally, the number of worker threads (workers=4, default number of
+ * processors) and the number of agents after which the server terminates
+ * (agents=1, default: when no agent is connected anymore) may be given.<p>
+ * The server receives the events of multiple monitored JVMs (agents)
+ * concurrently. A single selector thread accepts connections and decodes the
+ * received data into events, which are processed by a pool of worker threads.
+ * Each connection is processed by exactly one worker so that the events of an
+ * agent keep their order. For each agent, its configuration is kept and its
+ * results are written by an own recorder strategy, the first agent into
+ * baseDir, further agents into the sub-directories agent&lt;n&gt; of
+ * baseDir. When the server stops, the events received from agents which
+ * are still connected are processed and their end of system is emulated.
+ *
+ * @author Stephan Dederichs, Holger Eichelberger
+ * @version 1.30
  * @since 1.00
  */
 public class TCPRecordingServer {
@@ -27,272 +40,422 @@ public class TCPRecordingServer {
      * Defines the baseDir argument.
      */
     private static final String PARAM_BASEDIR = "baseDir=";
-    
+
     /**
      * Defines the port argument.
      */
     private static final String PARAM_PORT = "port=";
-    
+
     /**
-     * Stores elements for all received data.
+     * Defines the workers argument.
      */
-    private List<RecordingStrategiesElement> elements;
-    
+    private static final String PARAM_WORKERS = "workers=";
+
     /**
-     * Stores the {@link RecorderStrategy}.
+     * Defines the agents argument.
      */
-    private RecorderStrategy strategy;
-    
+    private static final String PARAM_AGENTS = "agents=";
+
     /**
-     * Stores the count of enterConfiguration events.
+     * Defines the maximum time to wait for resume requests while draining
+     * (in milliseconds).
      */
-    private int enterConfiguration = 0;
-    
+    private static final long WAIT_MILLIS = 100;
+
     /**
-     * Stores the count of enter events.
+     * Stores the base directory for the results.
      */
-    private int enter = 0;
-    
+    private final String baseDir;
+
     /**
-     * Stores the count of exit events.
+     * Stores the number of agents after which the server terminates
+     * (if not positive, the server terminates when no agent is connected
+     * anymore).
      */
-    private int exit = 0;
-    
+    private final int agents;
+
     /**
-     * Stores the count of finishRecording events.
+     * Stores the server channel.
      */
-    private int finishRecording = 0;
-    
+    private final ServerSocketChannel serverChannel;
+
     /**
-     * Stores the count of memoryAllocated events.
+     * Stores the selector.
      */
-    private int memoryAllocated = 0;
-    
+    private final Selector selector;
+
     /**
-     * Stores the count of memoryFreedById events.
+     * Stores the workers.
      */
-    private int memoryFreedById = 0;
-    
+    private final AgentWorker[] workers;
+
     /**
-     * Stores the count of memoryFreed events.
+     * Stores the connections to be resumed by the selector thread.
      */
-    private int memoryFreed = 0;
-    
+    private final ConcurrentLinkedQueue<AgentConnection> resumed
+        = new ConcurrentLinkedQueue<AgentConnection>();
+
     /**
-     * Stores the count of printStatistics events.
+     * Stores the number of finished agents.
      */
-    private int printStatistics = 0;
-    
+    private final AtomicInteger finished = new AtomicInteger();
+
     /**
-     * Stores the count of io events.
+     * Stores the number of connected agents, i.e. accepted connections which
+     * are neither finished nor discarded.
      */
-    private int io = 0;
-    
+    private final AtomicInteger connected = new AtomicInteger();
+
     /**
-     * Stores the count of startRecording events.
+     * Stores the number of accepted connections (selector thread only).
      */
-    private int startRecording = 0;
-    
+    private int connectionCount;
+
     /**
-     * Stores the count of stopTimeRecording events.
+     * Stores the connection which writes its results into the base 
+     * directory (selector thread only).
      */
-    private int stopTimeRecording = 0;
-    
+    private AgentConnection first;
+
     /**
-     * Stores the count of enterconfiguration events.
+     * Stores whether the server is running.
      */
-    private int endsystem = 0;
+    private volatile boolean running = true;
 
     /**
-     * Receives the data send from the client. 
-     * 
+     * Creates the server. Call {@link #run()} to receive data.
+     *
      * @param baseDir the baseDir
-     * @param port the port
-     * 
-     * @since 1.00
+     * @param port the port (<code>0</code> for an arbitrary free port)
+     * @param workerCount the number of worker threads
+     * @param agents the number of agents after which the server terminates,
+     *   if not positive when no agent is connected anymore
+     * @throws IOException in case that the server cannot be created
+     *
+     * @since 1.30
+     */
+    public TCPRecordingServer(String baseDir, int port, int workerCount,
+        int agents) throws IOException {
+        this.baseDir = baseDir;
+        this.agents = agents;
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        selector = Selector.open();
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        workers = new AgentWorker[Math.max(1, workerCount)];
+        for (int w = 0; w < workers.length; w++) {
+            workers[w] = new AgentWorker(this, w);
+        }
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return the port
+     *
+     * @since 1.30
      */
-    private TCPRecordingServer(String baseDir, int port) {
-        elements = Collections
-                .synchronizedList(new LinkedList<RecordingStrategiesElement>());
-        // Instancing the RecorderStrategy
-        strategy = new DefaultRecorderStrategy(new TabFormatter());
-        // Creating the WorkThread
-        Thread workThread = new WorkThread();
-        workThread.start();
-        // Stores the frequency of events
-        long count = 0;
-        // true if the server should receive events
-        boolean receive = true;
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Receives data until the server is stopped, the given number of agents
+     * finished or, if no number of agents is given, no agent is connected 
+     * anymore.
+     *
+     * @since 1.30
+     */
+    public void run() {
+        System.out.println("TCPRecordingServer startet on port " + getPort()
+            + " with " + workers.length + " workers...");
+        System.out.println(" queue size: '.' < 20, ',' < 50, "
+            + "'*' < 100, o >= 100");
+        for (int w = 0; w < workers.length; w++) {
+            workers[w].start();
+        }
         try {
-            // Instancing the ServerSocket on the given port
-            ServerSocket serverSocket = new ServerSocket(port);
-            System.out.println("TCPRecordingServer startet...");
-            System.out.println(" queue size: '.' < 20, ',' < 50, " 
-                + "'*' < 100, o >= 100");
-            while (receive) {
-                Socket s = serverSocket.accept();
-                DataInputStream in = new DataInputStream(s.getInputStream());
-                // Reading and setting the configuration from the stream 
-                Configuration.INSTANCE.read(in);
-                Configuration.INSTANCE.setBaseDir(baseDir);
-                
-                // Getting the data
-                int identification = in.readInt();
-                System.out.println(identification);
-                while (identification >= 0 && receive) {
-                    RecordingStrategiesElement e = null;
-                    switch (identification) {
-                    case Constants.ENTERCONFIGURATION:
-                        e = new EnterConfigurationElement();
-                        enterConfiguration++;
-                        break;
-                    case Constants.ENTER:
-                        e = EnterElement.POOL.getFromPool();
-                        enter++;
-                        break;
-                    case Constants.EXIT:
-                        e = ExitElement.POOL.getFromPool();
-                        exit++;
-                        break;
-                    case Constants.FINISHRECORDING:
-                        e = new FinishRecordingElement();
-                        finishRecording++;
-                        break;
-                    case Constants.MEMORYALLOCATED:
-                        e = MemoryAllocatedElement.POOL.getFromPool();
-                        memoryAllocated++;
-                        break;
-                    case Constants.MEMORYFREEDBYRECID:
-                        e = MemoryFreedByRecIdElement.POOL.getFromPool();
-                        memoryFreedById++;
-                        break;
-                    case Constants.PRINT_STATISTICS:
-                        e = new PrintStatisticsElement();
-                        printStatistics++;
-                        break;
-                    case Constants.IO:
-                        e = IoElement.POOL.getFromPool();
-                        io++;
-                        break;
-                    case Constants.STARTRECORDING:
-                        e = new StartRecordingElement();
-                        startRecording++;
-                        break;
-                    case Constants.STOP_TIME_RECORDING:
-                        e = new StopTimeRecordingElement();
-                        stopTimeRecording++;
-                        break;
-                    case Constants.ENDSYSTEM:
-                        e = new EndSystemElement();
-                        endsystem++;
-                        receive = false;
-                        break;
-                    case Constants.REGISTER:
-                        e = new RegisterElement();
-                        break;
-                    case Constants.ASSIGNTOALL:
-                        e  = new AssignToAllElement();
-                        break;
-                    case Constants.PRINTCURRENTSTATE:
-                        e = new PrintCurrentState();
-                        break;
-                    case Constants.NOTIFYTIMER:
-                        e = new NotifyTimerElement();
-                        break;
-                    case Constants.NOTIFYVALUE:
-                        e = new NotifyValueChangeElement();
-                        break;
-                    case Constants.PROGRAMRECORDCREATION:
-                        e = new NotifyProgramRecordCreationElement();
-                        break;
-                    default:
-                        System.err.println("problem: " + identification);
-                        System.exit(0);
-                        break;
-                    }
-                    e.read(in);
-                    elements.add(e);
-                    count++;
-                    // display queue size every 500 times with different symbols
-                    // according to the queue size
-                    if (count % 500 == 0) {
-                        int queueSize = elements.size();
-                        if (queueSize < 20) {
-                            System.out.print('.');
-                        } else if (queueSize < 50) {
-                            System.out.print(',');
-                        } else if (queueSize < 100) {
-                            System.out.print('*');
-                        } else {
-                            System.out.print('o');
-                        }
-                        if (count % (500 * 79) == 0) {
-                            System.out.println();
-                        }
-                    }
-                    if (receive) {
-                        identification = in.readInt();
-                    } else {
-                        System.out.println();
+            while (running) {
+                selector.select();
+                resumeConnections();
+                Iterator<SelectionKey> iter
+                    = selector.selectedKeys().iterator();
+                while (iter.hasNext()) {
+                    SelectionKey key = iter.next();
+                    iter.remove();
+                    if (key.isValid() && key.isAcceptable()) {
+                        accept();
+                    } else if (key.isValid() && key.isReadable()) {
+                        receive(key, (AgentConnection) key.attachment());
                     }
                 }
             }
-            serverSocket.close();
+            drain();
         } catch (IOException e) {
             e.printStackTrace();
         }
+        close();
     }
-    
+
     /**
-     * Prints the frequency of the events on the console.
-     * 
-     * @since 1.00
+     * Stops the server. Events received so far are processed.
+     *
+     * @since 1.30
      */
-    private void printElementStatistics() {
-        System.out.println("enterconfiguration: " + enterConfiguration);
-        System.out.println("enter: " + enter);
-        System.out.println("exit: " + exit);
-        System.out.println("finishrecording: " + finishRecording);
-        System.out.println("memoryallocated: " + memoryAllocated);
-        System.out.println("memoryfreedbyid: " + memoryFreedById);
-        System.out.println("memoryfreed: " + memoryFreed);
-        System.out.println("print_statistics: " + printStatistics);
-        System.out.println("io: " + io);
-        System.out.println("startrecording: " + startRecording);
-        System.out.println("stop_time_recording: " + stopTimeRecording);
-        System.out.println("endsystem: " + endsystem);
+    public void stop() {
+        running = false;
+        selector.wakeup();
     }
 
     /**
-     * Implements a thread which processes the received data.
-     * 
-     * @author Stephan Dederichs
-     * @version 1.00
-     * @since 1.00
+     * Resumes the connections requested by the workers.
+     *
+     * @since 1.30
+     */
+    private void resumeConnections() {
+        AgentConnection connection = resumed.poll();
+        while (null != connection) {
+            resume(connection.getChannel().keyFor(selector), connection);
+            connection = resumed.poll();
+        }
+    }
+
+    /**
+     * Stops accepting connections, closes the connections which are still
+     * open and waits until the workers processed the events received so
+     * far, including the emulated end of system of the closed connections.
+     *
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
      */
-    private class WorkThread extends Thread {
-
-        /**
-         * Responsible for processing the received information.
-         * 
-         * @since 1.00
-         */
-        @Override
-        public void run() {
-            boolean end = false;
-            while (!end) {
-                if (elements.size() > 0) {
-                    RecordingStrategiesElement element = elements.remove(0);
-                    element.process(strategy);
-                    int id = element.getIdentification();
-//                    element.clear();
-                    element.release();
-                    end = (Constants.ENDSYSTEM == id);
-                } else {
-                    Thread.yield();
+    private void drain() throws IOException {
+        serverChannel.close();
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof AgentConnection) {
+                AgentConnection connection
+                    = (AgentConnection) key.attachment();
+                key.cancel();
+                if (!connection.isEnded()) {
+                    try {
+                        connection.shutdown();
+                    } catch (IOException e) {
+                        fail(connection, e);
+                    }
                 }
             }
-            printElementStatistics();
+        }
+        for (int w = 0; w < workers.length; w++) {
+            workers[w].terminate();
+        }
+        boolean processing = true;
+        while (processing) {
+            // resumed connections decode their pending data
+            selector.select(WAIT_MILLIS);
+            resumeConnections();
+            processing = false;
+            for (int w = 0; !processing && w < workers.length; w++) {
+                processing = workers[w].isAlive();
+            }
+        }
+    }
+
+    /**
+     * Accepts a new connection and assigns it to a worker.
+     *
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (null != channel) {
+            channel.configureBlocking(false);
+            AgentWorker worker = workers[connectionCount % workers.length];
+            connectionCount++;
+            connected.incrementAndGet();
+            AgentConnection connection = new AgentConnection(connectionCount,
+                channel, this, worker,
+                Configuration.INSTANCE.getEventBufferSize());
+            channel.register(selector, SelectionKey.OP_READ, connection);
+            System.out.println("agent " + connectionCount + " connected from "
+                + channel.socket().getRemoteSocketAddress());
+        }
+    }
+
+    /**
+     * Receives data on the given connection.
+     *
+     * @param key the selection key of the connection
+     * @param connection the connection
+     *
+     * @since 1.30
+     */
+    private void receive(SelectionKey key, AgentConnection connection) {
+        boolean proceed;
+        try {
+            proceed = connection.receive();
+        } catch (IOException e) {
+            fail(connection, e);
+            proceed = false;
+        }
+        if (!proceed) {
+            suspend(key, connection);
+        }
+    }
+
+    /**
+     * Resumes receiving data on the given (suspended) connection.
+     *
+     * @param key the selection key of the connection (may be <b>null</b>)
+     * @param connection the connection
+     *
+     * @since 1.30
+     */
+    private void resume(SelectionKey key, AgentConnection connection) {
+        boolean proceed;
+        try {
+            proceed = connection.decode();
+        } catch (IOException e) {
+            fail(connection, e);
+            proceed = false;
+        }
+        if (!proceed) {
+            suspend(key, connection);
+        } else if (null != key && key.isValid()) {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Suspends receiving data on the given connection or closes the
+     * connection if it has ended.
+     *
+     * @param key the selection key of the connection (may be <b>null</b>)
+     * @param connection the connection
+     *
+     * @since 1.30
+     */
+    private void suspend(SelectionKey key, AgentConnection connection) {
+        if (connection.isEnded()) {
+            if (null != key) {
+                key.cancel();
+            }
+            try {
+                connection.getChannel().close();
+            } catch (IOException e) {
+                // ignore, connection is not needed anymore
+            }
+        } else if (null != key && key.isValid()) {
+            key.interestOps(0);
+        }
+    }
+
+    /**
+     * Handles a failed connection.
+     *
+     * @param connection the connection
+     * @param exception the exception describing the failure
+     *
+     * @since 1.30
+     */
+    private void fail(AgentConnection connection, IOException exception) {
+        System.err.println("agent " + connection.getId() + ": "
+            + exception.getMessage());
+        try {
+            connection.close();
+        } catch (IOException e) {
+            // ignore, connection is not needed anymore
+        }
+    }
+
+    /**
+     * Closes the server and terminates the workers.
+     *
+     * @since 1.30
+     */
+    private void close() {
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        for (int w = 0; w < workers.length; w++) {
+            workers[w].terminate();
+        }
+        for (int w = 0; w < workers.length; w++) {
+            try {
+                workers[w].join();
+            } catch (InterruptedException e) {
+            }
+        }
+    }
+
+    /**
+     * Returns the base directory for the results of the given connection,
+     * i.e. the base directory of the server for the first agent which sent
+     * its configuration. Called by the selector thread.
+     *
+     * @param connection the connection
+     * @return the base directory
+     *
+     * @since 1.30
+     */
+    String getBaseDir(AgentConnection connection) {
+        String result = baseDir;
+        if (null == first) {
+            first = connection;
+        }
+        if (first != connection) {
+            File dir = new File(baseDir, "agent" + connection.getId());
+            dir.mkdirs();
+            result = dir.getPath();
+        }
+        return result;
+    }
+
+    /**
+     * Requests resuming a suspended connection. Called by the workers.
+     *
+     * @param connection the connection
+     *
+     * @since 1.30
+     */
+    void resume(AgentConnection connection) {
+        resumed.add(connection);
+        selector.wakeup();
+    }
+
+    /**
+     * Notifies the server that the given connection processed the end of
+     * system. Called by the workers.
+     *
+     * @param connection the connection
+     *
+     * @since 1.30
+     */
+    void agentFinished(AgentConnection connection) {
+        connection.printElementStatistics();
+        int open = connected.decrementAndGet();
+        if (finished.incrementAndGet() == agents
+            || (agents <= 0 && 0 == open)) {
+            stop();
+        }
+    }
+
+    /**
+     * Notifies the server that the given connection was closed before the
+     * agent sent its configuration. Called by the selector thread.
+     *
+     * @param connection the connection
+     *
+     * @since 1.30
+     */
+    void agentDiscarded(AgentConnection connection) {
+        if (0 == connected.decrementAndGet() && agents <= 0) {
+            stop();
         }
     }
 
@@ -301,15 +464,17 @@ public class TCPRecordingServer {
      * specified in the program arguments. In the baseDir the measurement
      * results will be written and the port specifies the position the server is
      * listening
-     * 
+     *
      * @param args the program arguments.
-     * 
+     *
      * @since 1.00
      */
     public static void main(String[] args) {
         String baseDir = null;
         int port = -1;
-        // fetching baseDir and port from program arguments
+        int workers = Runtime.getRuntime().availableProcessors();
+        int agents = 0;
+        // fetching the settings from program arguments
         for (int i = 0; i < args.length; i++) {
             if (args[i].startsWith(PARAM_BASEDIR)) {
                 baseDir = args[i].substring(PARAM_BASEDIR.length());
@@ -317,13 +482,25 @@ public class TCPRecordingServer {
             if (args[i].startsWith(PARAM_PORT)) {
                 port = Integer.parseInt(args[i].substring(PARAM_PORT.length()));
             }
+            if (args[i].startsWith(PARAM_WORKERS)) {
+                workers = Integer.parseInt(
+                    args[i].substring(PARAM_WORKERS.length()));
+            }
+            if (args[i].startsWith(PARAM_AGENTS)) {
+                agents = Integer.parseInt(
+                    args[i].substring(PARAM_AGENTS.length()));
+            }
         }
         if (null == baseDir) {
             System.err.println("No baseDir given. Exiting.");
-        }
-        if (-1 == port) {
+        } else if (-1 == port) {
             System.err.println("No port given. Exiting.");
+        } else {
+            try {
+                new TCPRecordingServer(baseDir, port, workers, agents).run();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
-        new TCPRecordingServer(baseDir, port);
     }
-}
\ No newline at end of file
+}
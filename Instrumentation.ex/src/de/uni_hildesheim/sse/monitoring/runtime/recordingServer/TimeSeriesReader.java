@@ -0,0 +1,520 @@
+package de.uni_hildesheim.sse.monitoring.runtime.recordingServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    TimeSeriesStore;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    TimeSeriesStore.Metric;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BitInputBuffer;
+
+/**
+ * Reads the time series written by a {@link TimeSeriesStore}. Only the
+ * columns of the queried group and metric are decoded from the blocks
+ * overlapping the queried time range. The main program prints a (down
+ * sampled) time series as tab-separated text, the file, the group and the
+ * metric must be given in the program arguments, optionally followed by
+ * from=&lt;ms&gt;, to=&lt;ms&gt;, step=&lt;ms&gt; and
+ * downsampling=&lt;{@link Downsampling}&gt;. Without a group, the groups
+ * in the file are listed.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public class TimeSeriesReader {
+
+    /**
+     * Defines the from argument.
+     */
+    private static final String PARAM_FROM = "from=";
+
+    /**
+     * Defines the to argument.
+     */
+    private static final String PARAM_TO = "to=";
+
+    /**
+     * Defines the step argument.
+     */
+    private static final String PARAM_STEP = "step=";
+
+    /**
+     * Defines the downsampling argument.
+     */
+    private static final String PARAM_DOWNSAMPLING = "downsampling=";
+
+    /**
+     * Defines how the values within a step are combined when down sampling.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    public enum Downsampling {
+
+        /**
+         * The last value, e.g., for accumulated values such as times.
+         */
+        LAST,
+
+        /**
+         * The minimum value.
+         */
+        MIN,
+
+        /**
+         * The maximum value.
+         */
+        MAX,
+
+        /**
+         * The average value.
+         */
+        AVERAGE;
+
+    }
+
+    /**
+     * Stores a time series, i.e. values in the sequence of their times.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    public static class Series {
+
+        /**
+         * Stores the times.
+         */
+        private long[] times = new long[16];
+
+        /**
+         * Stores the values.
+         */
+        private double[] values = new double[16];
+
+        /**
+         * Stores the number of values.
+         */
+        private int size;
+
+        /**
+         * Adds a value.
+         *
+         * @param time the time
+         * @param value the value
+         */
+        private void add(long time, double value) {
+            if (size == times.length) {
+                long[] tmpTimes = new long[2 * size];
+                System.arraycopy(times, 0, tmpTimes, 0, size);
+                times = tmpTimes;
+                double[] tmpValues = new double[2 * size];
+                System.arraycopy(values, 0, tmpValues, 0, size);
+                values = tmpValues;
+            }
+            times[size] = time;
+            values[size] = value;
+            size++;
+        }
+
+        /**
+         * Returns the number of values.
+         *
+         * @return the number of values
+         *
+         * @since 1.30
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Returns the time of a value.
+         *
+         * @param index the index of the value
+         * @return the time (in milliseconds)
+         *
+         * @since 1.30
+         */
+        public long getTime(int index) {
+            return times[index];
+        }
+
+        /**
+         * Returns a value.
+         *
+         * @param index the index of the value
+         * @return the value
+         *
+         * @since 1.30
+         */
+        public double getValue(int index) {
+            return values[index];
+        }
+
+    }
+
+    /**
+     * Stores the index information of a block.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class Block {
+
+        /**
+         * Stores the time of the first snapshot.
+         */
+        private long firstTime;
+
+        /**
+         * Stores the time of the last snapshot.
+         */
+        private long lastTime;
+
+        /**
+         * Stores the number of snapshots.
+         */
+        private int snapshots;
+
+        /**
+         * Stores the index of the groups in the block.
+         */
+        private Map<String, Integer> groups = new HashMap<String, Integer>();
+
+        /**
+         * Stores the index of the first snapshot per group.
+         */
+        private int[] starts;
+
+        /**
+         * Stores the position of the column offsets.
+         */
+        private int offsets;
+
+        /**
+         * Stores the position of the first column.
+         */
+        private int data;
+
+    }
+
+    /**
+     * Stores the mapped file.
+     */
+    private MappedByteBuffer buffer;
+
+    /**
+     * Stores the blocks in the sequence of the file.
+     */
+    private List<Block> blocks = new ArrayList<Block>();
+
+    /**
+     * Opens and indexes a time series file.
+     *
+     * @param file the file
+     * @throws IOException in case of I/O problems or if <code>file</code>
+     *   is not a time series store
+     *
+     * @since 1.30
+     */
+    public TimeSeriesReader(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                channel.size());
+        } finally {
+            raf.close();
+        }
+        if (buffer.capacity() < TimeSeriesStore.HEADER_SIZE
+            || TimeSeriesStore.MAGIC != buffer.getInt(0)
+            || TimeSeriesStore.VERSION != buffer.getInt(4)) {
+            throw new IOException("unknown time series format");
+        }
+        Charset utf8 = Charset.forName("UTF-8");
+        int pos = TimeSeriesStore.HEADER_SIZE;
+        while (pos + 4 <= buffer.capacity() && buffer.getInt(pos) > 0) {
+            int next = pos + 4 + buffer.getInt(pos);
+            Block block = new Block();
+            buffer.position(pos + 4);
+            block.firstTime = buffer.getLong();
+            block.lastTime = buffer.getLong();
+            block.snapshots = buffer.getInt();
+            int groupCount = buffer.getInt();
+            block.starts = new int[groupCount];
+            for (int g = 0; g < groupCount; g++) {
+                byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(name);
+                block.groups.put(new String(name, utf8), g);
+                block.starts[g] = buffer.getInt();
+            }
+            block.offsets = buffer.position();
+            block.data = block.offsets + 4
+                * (1 + groupCount * (1 + Metric.values().length));
+            blocks.add(block);
+            pos = next;
+        }
+    }
+
+    /**
+     * Returns the names of all groups in the time series.
+     *
+     * @return the names in ascending order
+     *
+     * @since 1.30
+     */
+    public Set<String> getGroups() {
+        Set<String> result = new TreeSet<String>();
+        for (Block block : blocks) {
+            result.addAll(block.groups.keySet());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of snapshots in the time series.
+     *
+     * @return the number of snapshots
+     *
+     * @since 1.30
+     */
+    public int getSnapshotCount() {
+        int result = 0;
+        for (Block block : blocks) {
+            result += block.snapshots;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the values of a group and metric in a time range.
+     *
+     * @param group the name of the group
+     * @param metric the metric
+     * @param from the start of the time range (inclusive, in milliseconds)
+     * @param to the end of the time range (inclusive, in milliseconds)
+     * @return the values, empty if the group has no values in the range
+     *
+     * @since 1.30
+     */
+    public Series query(String group, Metric metric, long from, long to) {
+        Series result = new Series();
+        for (Block block : blocks) {
+            Integer index = block.groups.get(group);
+            if (null != index && block.lastTime >= from
+                && block.firstTime <= to) {
+                read(block, index, metric, from, to, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the down sampled values of a group and metric in a time range.
+     * The values are combined per step, the time of a combined value is the
+     * start of its step.
+     *
+     * @param group the name of the group
+     * @param metric the metric
+     * @param from the start of the time range (inclusive, in milliseconds)
+     * @param to the end of the time range (inclusive, in milliseconds)
+     * @param step the length of a step in milliseconds, the values are
+     *   not down sampled if not positive
+     * @param downsampling how to combine the values of a step
+     * @return the values, empty if the group has no values in the range
+     *
+     * @since 1.30
+     */
+    public Series query(String group, Metric metric, long from, long to,
+        long step, Downsampling downsampling) {
+        Series raw = query(group, metric, from, to);
+        Series result;
+        if (step <= 0 || 0 == raw.size()) {
+            result = raw;
+        } else {
+            result = new Series();
+            long origin = Long.MIN_VALUE == from ? raw.getTime(0) : from;
+            int i = 0;
+            while (i < raw.size()) {
+                long bucket = (raw.getTime(i) - origin) / step;
+                double value = raw.getValue(i);
+                int count = 1;
+                i++;
+                while (i < raw.size()
+                    && (raw.getTime(i) - origin) / step == bucket) {
+                    double next = raw.getValue(i);
+                    switch (downsampling) {
+                    case MIN:
+                        value = Math.min(value, next);
+                        break;
+                    case MAX:
+                        value = Math.max(value, next);
+                        break;
+                    case AVERAGE:
+                        value += next;
+                        break;
+                    default:
+                        value = next;
+                        break;
+                    }
+                    count++;
+                    i++;
+                }
+                if (Downsampling.AVERAGE == downsampling) {
+                    value /= count;
+                }
+                result.add(origin + bucket * step, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Decodes the values of a group and metric in a block.
+     *
+     * @param block the block
+     * @param group the index of the group in the block
+     * @param metric the metric
+     * @param from the start of the time range (inclusive)
+     * @param to the end of the time range (inclusive)
+     * @param result the series to add the values to
+     *
+     * @since 1.30
+     */
+    private void read(Block block, int group, Metric metric, long from,
+        long to, Series result) {
+        long[] times = new long[block.snapshots];
+        BitInputBuffer in = new BitInputBuffer(buffer, block.data);
+        long delta = 0;
+        for (int s = 0; s < times.length; s++) {
+            if (0 == s) {
+                times[s] = in.readBits(64);
+            } else {
+                long dod;
+                if (!in.readBit()) {
+                    dod = 0;
+                } else if (!in.readBit()) {
+                    dod = in.readBits(7) - 63;
+                } else if (!in.readBit()) {
+                    dod = in.readBits(9) - 255;
+                } else if (!in.readBit()) {
+                    dod = in.readBits(12) - 2047;
+                } else {
+                    dod = in.readBits(64);
+                }
+                delta += dod;
+                times[s] = times[s - 1] + delta;
+            }
+        }
+        int column = 1 + group * (1 + Metric.values().length);
+        BitInputBuffer changes = new BitInputBuffer(buffer,
+            block.data + buffer.getInt(block.offsets + 4 * column));
+        column += 1 + metric.ordinal();
+        in = new BitInputBuffer(buffer,
+            block.data + buffer.getInt(block.offsets + 4 * column));
+        long value = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int s = block.starts[group]; s < times.length; s++) {
+            // unchanged snapshots repeat the previous value
+            if (changes.readBit()) {
+                if (s == block.starts[group]) {
+                    value = in.readBits(64);
+                } else if (in.readBit()) {
+                    if (in.readBit()) {
+                        leading = (int) in.readBits(6);
+                        int length = (int) in.readBits(6) + 1;
+                        trailing = 64 - leading - length;
+                    }
+                    value ^= in.readBits(64 - leading - trailing)
+                        << trailing;
+                }
+            }
+            if (times[s] >= from && times[s] <= to) {
+                result.add(times[s], metric.isFloating()
+                    ? Double.longBitsToDouble(value) : value);
+            }
+        }
+    }
+
+    /**
+     * Prints a time series or lists the groups.
+     *
+     * @param args the program arguments
+     *
+     * @since 1.30
+     */
+    public static void main(String[] args) {
+        String file = null;
+        String group = null;
+        Metric metric = null;
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        long step = 0;
+        Downsampling downsampling = Downsampling.LAST;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].startsWith(PARAM_FROM)) {
+                    from = Long.parseLong(
+                        args[i].substring(PARAM_FROM.length()));
+                } else if (args[i].startsWith(PARAM_TO)) {
+                    to = Long.parseLong(args[i].substring(PARAM_TO.length()));
+                } else if (args[i].startsWith(PARAM_STEP)) {
+                    step = Long.parseLong(
+                        args[i].substring(PARAM_STEP.length()));
+                } else if (args[i].startsWith(PARAM_DOWNSAMPLING)) {
+                    downsampling = Downsampling.valueOf(
+                        args[i].substring(PARAM_DOWNSAMPLING.length()));
+                } else if (null == file) {
+                    file = args[i];
+                } else if (null == group) {
+                    group = args[i];
+                } else {
+                    metric = Metric.valueOf(args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("illegal argument: " + e.getMessage());
+            file = null;
+        }
+        if (null == file) {
+            System.err.println("No time series file given. Exiting.");
+        } else {
+            try {
+                TimeSeriesReader reader = new TimeSeriesReader(new File(file));
+                if (null == group) {
+                    for (String name : reader.getGroups()) {
+                        System.out.println(name);
+                    }
+                } else {
+                    Series series = reader.query(group,
+                        null == metric ? Metric.CPU_TIME : metric, from, to,
+                        step, downsampling);
+                    for (int i = 0; i < series.size(); i++) {
+                        System.out.println(series.getTime(i) + "\t"
+                            + series.getValue(i));
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("I/O error while reading " + file + ": "
+                    + e.getMessage());
+            }
+        }
+    }
+
+}
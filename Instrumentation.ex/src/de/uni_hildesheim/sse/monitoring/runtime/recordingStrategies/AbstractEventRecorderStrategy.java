@@ -1,10 +1,15 @@
 package de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
 import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
 import de.uni_hildesheim.sse.monitoring.runtime.AnnotationConstants;
 import de.uni_hildesheim.sse.monitoring.runtime.annotations.TimerState;
 import de.uni_hildesheim.sse.monitoring.runtime.boot.StreamType;
 import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.EventBufferOverflowType;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.EventBufferWaitType;
 import de.uni_hildesheim.sse.monitoring.runtime.plugins.ValueType;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.AssignToAllElement;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.ClearTemporaryDataElement;
@@ -14,6 +19,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.Ente
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.EnterElement;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.ExitElement;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.FinishRecordingElement;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.InvocationsSampledElement;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.IoElement;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.MemoryAllocatedElement;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.MemoryFreedByRecIdElement;
@@ -27,7 +33,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.Regi
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.StartRecordingElement;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.StopTimeRecordingElement;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.LongLongHashMap;
-import de.uni_hildesheim.sse.monitoring.runtime.utils.RecordingStrategiesElementLinkedList;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.RecordingStrategiesElementRingBuffer;
 import de.uni_hildesheim.sse.monitoring.runtime.wrap.ShutdownMonitor;
 
 /**
@@ -36,7 +42,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.wrap.ShutdownMonitor;
  * 
  * @author Stephan Dederichs, Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public abstract class AbstractEventRecorderStrategy 
     extends AbstractRecorderStrategy {
@@ -49,20 +55,72 @@ public abstract class AbstractEventRecorderStrategy
     private static final boolean DOPOOLING = true;
 
     /**
-     * Stores the generated elements for sending them to the specified server.
+     * Defines the maximum number of elements taken from the buffer at once.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * Defines the maximum time in nanoseconds a producer parks while waiting
+     * for a free slot (in case of {@link EventBufferWaitType#PARK}).
+     */
+    private static final long PARK_NANOS = 1000000;
+
+    /**
+     * Defines the maximum time in nanoseconds the {@link HandleThread} parks
+     * while waiting for elements (in case of {@link EventBufferWaitType#PARK}).
+     * Producers signal new elements, i.e. this is just a safety limit.
+     */
+    private static final long CONSUMER_PARK_NANOS = 100000000;
+
+    /**
+     * Defines the sampling rate for droppable elements in case of 
+     * {@link EventBufferOverflowType#SAMPLE}, i.e. every 
+     * <code>SAMPLE_RATE</code>-th droppable element is kept if the buffer is
+     * at least half full.
+     */
+    private static final int SAMPLE_RATE = 8;
+
+    /**
+     * Stores the generated elements for sending them to the specified server
+     * (multiple producers, the {@link HandleThread} as single consumer).
+     */
+    private RecordingStrategiesElementRingBuffer elements
+        = new RecordingStrategiesElementRingBuffer(
+            Configuration.INSTANCE.getEventBufferSize());
+
+    /**
+     * Stores how to wait for elements or free slots.
+     */
+    private EventBufferWaitType waitType 
+        = Configuration.INSTANCE.getEventBufferWait();
+
+    /**
+     * Stores how to handle a full buffer.
+     */
+    private EventBufferOverflowType overflowType 
+        = Configuration.INSTANCE.getEventBufferOverflow();
+
+    /**
+     * Stores the number of dropped elements.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Counts the droppable elements in case of sampling. Races among 
+     * producers just affect the sample and are tolerated.
      */
-    private RecordingStrategiesElementLinkedList elements
-        = new RecordingStrategiesElementLinkedList();
+    private int sampleCount;
 
     /**
-     * The internal lock for the message producer-consumer.
+     * Stores whether the {@link HandleThread} is parked (or about to park) 
+     * and must be signaled by the producers.
      */
-    private Object lock = new Object();
+    private volatile boolean consumerWaiting;
     
     /**
      * <code>true</code> while recording, otherwise <code>false</code>.
      */
-    private boolean record = true;
+    private volatile boolean record = true;
 
     /**
      * Stores the handling thread.
@@ -115,16 +173,27 @@ public abstract class AbstractEventRecorderStrategy
     @Override
     public boolean enter(String recId, long now, ThreadsInfo threadsInfo, 
         boolean exclude) {
+        return enter(-1, recId, now, threadsInfo, exclude);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean enter(int recIdNum, String recId, long now, 
+        ThreadsInfo threadsInfo, boolean exclude) {
+        EnterElement element;
         if (DOPOOLING) {
-            EnterElement element = EnterElement.POOL.getFromPool();
+            element = EnterElement.POOL.getFromPool();
             element.setRecId(recId);
             element.setNow(now);
             element.setThreadsInfo(threadsInfo);
             element.setExclude(exclude);
-            add(element);
         } else {
-            add(new EnterElement(recId, now, threadsInfo, exclude));
+            element = new EnterElement(recId, now, threadsInfo, exclude);
         }
+        element.setRecIdNum(recIdNum);
+        add(element);
         return false; // do not release, we will do this in element instance
     }
 
@@ -152,16 +221,27 @@ public abstract class AbstractEventRecorderStrategy
     @Override
     public boolean exit(String recId, long now, ThreadsInfo threadsInfo, 
         boolean exclude) {
+        return exit(-1, recId, now, threadsInfo, exclude);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean exit(int recIdNum, String recId, long now, 
+        ThreadsInfo threadsInfo, boolean exclude) {
+        ExitElement element;
         if (DOPOOLING) {
-            ExitElement element = ExitElement.POOL.getFromPool();
+            element = ExitElement.POOL.getFromPool();
             element.setRecId(recId);
             element.setNow(now);
             element.setThreadsInfo(threadsInfo);
             element.setExclude(exclude);
-            add(element);
         } else {
-            add(new ExitElement(recId, now, threadsInfo, exclude));
+            element = new ExitElement(recId, now, threadsInfo, exclude);
         }
+        element.setRecIdNum(recIdNum);
+        add(element);
         return false; // do not release, we will do this in element instance
     }
 
@@ -275,6 +355,14 @@ public abstract class AbstractEventRecorderStrategy
         add(elt);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invocationsSampled(String recId, long sampled, long skipped) {
+        add(new InvocationsSampledElement(recId, sampled, skipped));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -344,20 +432,80 @@ public abstract class AbstractEventRecorderStrategy
     }
     
     /**
-     * Adds an element to the processing list.
+     * Returns the number of elements dropped so far due to a full buffer.
+     * 
+     * @return the number of dropped elements
+     * 
+     * @since 1.30
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+    
+    /**
+     * Adds an element to the processing buffer. Depending on the configured
+     * {@link EventBufferOverflowType}, droppable elements may be dropped 
+     * instead. Elements are also dropped if the buffer is full and the
+     * {@link HandleThread} does not (or does no longer) consume elements.
      * 
      * @param elt element the element to be added
      * 
      * @since 1.00
      */
     private void add(RecordingStrategiesElement elt) {
-        synchronized (lock) {
-            if (null != elt) { // shall not be null
-                elements.addLast(elt);
-                lock.notify();
+        if (null != elt) { // shall not be null
+            boolean drop = false;
+            if (EventBufferOverflowType.SAMPLE == overflowType 
+                && elt.isDroppable() 
+                && 2 * elements.size() >= elements.capacity()) {
+                drop = 0 != (sampleCount++ % SAMPLE_RATE);
+            }
+            while (!drop && !elements.offer(elt)) {
+                drop = !isRecording() || null == thread || !thread.isAlive() 
+                    || (EventBufferOverflowType.BLOCK != overflowType 
+                        && elt.isDroppable());
+                if (!drop) {
+                    signalConsumer();
+                    await();
+                }
+            }
+            if (drop) {
+                dropped.incrementAndGet();
+                elt.release();
+            } else {
+                signalConsumer();
             }
         }
     }
+
+    /**
+     * Wakes up the {@link HandleThread} if it is parked.
+     * 
+     * @since 1.30
+     */
+    private void signalConsumer() {
+        if (consumerWaiting) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Waits according to the configured {@link EventBufferWaitType}.
+     * 
+     * @since 1.30
+     */
+    private void await() {
+        switch (waitType) {
+        case SPIN:
+            break;
+        case YIELD:
+            Thread.yield();
+            break;
+        default:
+            LockSupport.parkNanos(this, PARK_NANOS);
+            break;
+        }
+    }
  
     /**
      * Implements a thread which sends the gathered data to the specified
@@ -381,25 +529,56 @@ public abstract class AbstractEventRecorderStrategy
          */
         @Override
         public void run() {
+            RecordingStrategiesElement[] batch 
+                = new RecordingStrategiesElement[BATCH_SIZE];
             while (isRecording()) {
-                RecordingStrategiesElement e;
-                synchronized (lock) {
-                    while (elements.isEmpty()) {
-                        try {
-                            lock.wait();
-                        } catch (InterruptedException ie) {
+                int count = elements.drain(batch);
+                if (0 == count) {
+                    awaitElements();
+                }
+                for (int i = 0; i < count; i++) {
+                    RecordingStrategiesElement e = batch[i];
+                    batch[i] = null;
+                    if (isRecording()) {
+                        int id = processEvent(e);
+                        if (Constants.ENDSYSTEM == id) {
+                            record = false;
+                            ShutdownMonitor.endSystemNotification();
                         }
+                    } else {
+                        e.release(); // after end of system, not processed
                     }
-                    e = elements.removeFirst();
                 }
-                int id = processEvent(e);
-                if (Constants.ENDSYSTEM == id) {
-                    record = false;
-                    ShutdownMonitor.endSystemNotification();
+                if (count > 0 && isRecording() && !elements.hasPublished()) {
+                    try {
+                        eventsDrained();
+                    } catch (HandleException ex) {
+                        ex.printStackTrace();
+                        System.exit(0);
+                    }
                 }
             }
             isRunning = false;
         }
+
+        /**
+         * Waits for new elements according to the configured 
+         * {@link EventBufferWaitType}.
+         * 
+         * @since 1.30
+         */
+        private void awaitElements() {
+            if (EventBufferWaitType.PARK == waitType) {
+                consumerWaiting = true;
+                // re-check after announcing to avoid missing a signal
+                if (!elements.hasPublished()) {
+                    LockSupport.parkNanos(this, CONSUMER_PARK_NANOS);
+                }
+                consumerWaiting = false;
+            } else {
+                await();
+            }
+        }
         
     }
     
@@ -459,4 +638,16 @@ public abstract class AbstractEventRecorderStrategy
     protected abstract void handleEvent(RecordingStrategiesElement event) 
         throws HandleException;
 
+    /**
+     * Is called after handling events if no further events are pending, 
+     * e.g., to flush buffered output. 
+     * 
+     * @throws HandleException any kind of throwable exception which should 
+     *    cause aborting the event loop
+     * 
+     * @since 1.30
+     */
+    protected void eventsDrained() throws HandleException {
+    }
+
 }
\ No newline at end of file
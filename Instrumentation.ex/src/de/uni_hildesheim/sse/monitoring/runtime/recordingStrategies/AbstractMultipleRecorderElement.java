@@ -6,6 +6,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.boot.ResourceType;
 import de.uni_hildesheim.sse.monitoring.runtime.boot.StreamType;
 import de.uni_hildesheim.sse.monitoring.runtime.configuration.
     MonitoringGroupConfiguration;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LatencyHistogram;
 
 /**
  * Defines a recording element which represents multiple recorder elements 
@@ -15,7 +16,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.configuration.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public abstract class AbstractMultipleRecorderElement extends RecorderElement {
     
@@ -81,6 +82,95 @@ public abstract class AbstractMultipleRecorderElement extends RecorderElement {
             }
         }
     }
+
+    /**
+     * Adds the aggregated values recorded in <code>from</code> to this 
+     * instance including the values of the contained elements, i.e. calls
+     * {@link #merge(RecorderElement, boolean)} with <code>true</code>.
+     * 
+     * @param from the instance to merge the values from (may also be a 
+     *   subclass)
+     * 
+     * @since 1.30
+     */
+    @Override
+    public void merge(RecorderElement from) {
+        merge(from, true);
+    }
+
+    /**
+     * Adds the aggregated values recorded in <code>from</code> to this 
+     * instance. As the aggregated values of this instance are calculated 
+     * from the contained elements, the contained elements of 
+     * <code>from</code> are merged into the contained elements at the same
+     * positions if <code>contained</code> is given. Missing contained 
+     * elements are created if possible (see {@link #createElement()}).
+     * 
+     * @param from the instance to merge the values from (may also be a 
+     *   subclass)
+     * @param contained merge also the contained elements, shall be 
+     *   <code>false</code> if the contained elements are merged on their
+     *   own, e.g., as they are also stored in a {@link RecorderElementMap}
+     * 
+     * @since 1.30
+     */
+    public void merge(RecorderElement from, boolean contained) {
+        super.merge(from);
+        if (contained && from instanceof AbstractMultipleRecorderElement) {
+            AbstractMultipleRecorderElement mFrom = 
+                (AbstractMultipleRecorderElement) from;
+            int size = mFrom.getElementCount();
+            if (size > getElementCount()) {
+                RecorderElement[] tmp = new RecorderElement[size];
+                if (null != elements) {
+                    System.arraycopy(elements, 0, tmp, 0, elements.length);
+                }
+                elements = tmp;
+            }
+            for (int i = 0; i < size; i++) {
+                RecorderElement fElt = mFrom.elements[i];
+                if (null != fElt) {
+                    if (null == elements[i]) {
+                        elements[i] = createElement();
+                    }
+                    if (null != elements[i]) {
+                        elements[i].merge(fElt);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Clears the aggregated values of this instance and of the contained
+     * elements while keeping the state of currently active invocations.
+     * 
+     * @since 1.30
+     */
+    @Override
+    void clearAggregates() {
+        super.clearAggregates();
+        if (null != elements) {
+            for (int i = 0; i < elements.length; i++) {
+                if (null != elements[i]) {
+                    elements[i].clearAggregates();
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a new contained element if missing while merging (factory 
+     * method).
+     * 
+     * @return the created element, <b>null</b> if this instance does not
+     *   create contained elements
+     * 
+     * @since 1.30
+     */
+    protected RecorderElement createElement() {
+        return null;
+    }
     
     /**
      * Distributes a long value to the accountable resources.
@@ -203,6 +293,84 @@ public abstract class AbstractMultipleRecorderElement extends RecorderElement {
         }
         return result;
     }
+
+    /**
+     * Notifies this instance that the time recording for an invocation of 
+     * the underlying monitoring group was stopped finally.
+     * 
+     * @param threadId the identifier of the thread causing the call
+     * 
+     * @since 1.30
+     */
+    void invocationFinished(long threadId) {
+        final ResourceType resource = ResourceType.CPU_TIME;
+        if (enableRecording(this, resource)) {
+            for (int i = 0; i < elements.length; i++) {
+                if (enableRecording(elements[i], resource)) {
+                    elements[i].invocationFinished(threadId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the latency histogram of the system time of the individual
+     * invocations merged from the stored elements.
+     * 
+     * @return the histogram in nano seconds, <b>null</b> if latency 
+     *   histograms are not recorded
+     * 
+     * @since 1.30
+     */
+    LatencyHistogram getSystemTimeHistogram() {
+        LatencyHistogram result = null;
+        for (int i = 0; i < elements.length; i++) {
+            if (null != elements[i]) {
+                result = merge(result, elements[i].getSystemTimeHistogram());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the latency histogram of the CPU time of the individual
+     * invocations merged from the stored elements.
+     * 
+     * @return the histogram in nano seconds, <b>null</b> if latency 
+     *   histograms are not recorded
+     * 
+     * @since 1.30
+     */
+    LatencyHistogram getCpuTimeHistogram() {
+        LatencyHistogram result = null;
+        for (int i = 0; i < elements.length; i++) {
+            if (null != elements[i]) {
+                result = merge(result, elements[i].getCpuTimeHistogram());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Merges <code>histogram</code> into <code>result</code>.
+     * 
+     * @param result the histogram to merge into (may be <b>null</b>)
+     * @param histogram the histogram to be merged (may be <b>null</b>)
+     * @return <code>result</code> or a new histogram if <code>result</code>
+     *   was <b>null</b>, <b>null</b> if both are <b>null</b>
+     * 
+     * @since 1.30
+     */
+    private static LatencyHistogram merge(LatencyHistogram result, 
+        LatencyHistogram histogram) {
+        if (null != histogram) {
+            if (null == result) {
+                result = new LatencyHistogram();
+            }
+            result.add(histogram);
+        }
+        return result;
+    }
     
     /**
      * Records an amount of memory allocated by the underlying recording group.
@@ -475,6 +643,26 @@ public abstract class AbstractMultipleRecorderElement extends RecorderElement {
         return ticks;
     }
     
+    /**
+     * Returns the number of changes of the values emitted as current state,
+     * including the changes of the contained elements as the values are 
+     * derived from them.
+     * 
+     * @return the number of changes
+     * 
+     * @since 1.30
+     */
+    @Override
+    int getChangeCount() {
+        int changes = super.getChangeCount();
+        for (int i = 0; i < elements.length; i++) {
+            if (null != elements[i]) {
+                changes += elements[i].getChangeCount();
+            }
+        }
+        return changes;
+    }
+
     /**
      * Returns the amount of memory allocated for this instance.
      * 
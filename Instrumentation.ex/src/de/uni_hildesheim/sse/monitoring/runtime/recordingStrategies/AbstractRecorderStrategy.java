@@ -125,6 +125,63 @@ public abstract class AbstractRecorderStrategy implements RecorderStrategy {
     protected final RecorderElement getRecorderElement(String id) {
         return storage.getRecorderElement(id);
     }
+
+    /**
+     * Returns the recorder element for the given recording group id using
+     * its numeric identification for a fast lookup.
+     * 
+     * @param idNum the numeric identification of <code>id</code>, negative
+     *   if not known
+     * @param id the group identification
+     * @return the recorder element or <b>null</b>
+     * 
+     * @since 1.30
+     */
+    protected final RecorderElement getRecorderElement(int idNum, String id) {
+        return storage.getRecorderElement(idNum, id);
+    }
+
+    /**
+     * Notifies the recorder about a method being called. This implementation
+     * ignores <code>recIdNum</code>.
+     * 
+     * @param recIdNum the numeric identification of <code>recId</code>, 
+     *   negative if not known
+     * @param recId a unique identification where to assign this event to
+     * @param now the current system time in nano seconds
+     * @param threadsInfo information on the currently running threads
+     * @param exclude is this an exclusion from monitoring
+     * @return <code>true</code> if the threadsInfo object should be released 
+     *     to the pool, <code>false</code> if it should not be released
+     * 
+     * @since 1.30
+     */
+    @Override
+    public boolean enter(int recIdNum, String recId, long now, 
+        ThreadsInfo threadsInfo, boolean exclude) {
+        return enter(recId, now, threadsInfo, exclude);
+    }
+
+    /**
+     * Notifies the recorder about a method being exited. This implementation
+     * ignores <code>recIdNum</code>.
+     * 
+     * @param recIdNum the numeric identification of <code>recId</code>, 
+     *   negative if not known
+     * @param recId a unique identification where to assign this event to
+     * @param now the current time in nano seconds
+     * @param threadsInfo information on the currently running threads
+     * @param exclude is this an exclusion from monitoring
+     * @return <code>true</code> if the threadsInfo object should be released 
+     *     to the pool, <code>false</code> if it should not be released
+     * 
+     * @since 1.30
+     */
+    @Override
+    public boolean exit(int recIdNum, String recId, long now, 
+        ThreadsInfo threadsInfo, boolean exclude) {
+        return exit(recId, now, threadsInfo, exclude);
+    }
     
     /**
      * Returns the attached storage.
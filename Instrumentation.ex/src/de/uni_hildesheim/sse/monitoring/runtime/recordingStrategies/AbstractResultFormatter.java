@@ -14,7 +14,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.Formatter;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public abstract class AbstractResultFormatter implements ResultFormatter {
 
@@ -146,6 +146,17 @@ public abstract class AbstractResultFormatter implements ResultFormatter {
     protected void setSeparator(char separator) {
         this.separator = separator;
     }
+
+    /**
+     * Returns the value column separator.
+     * 
+     * @return the value column separator
+     * 
+     * @since 1.30
+     */
+    protected char getSeparator() {
+        return separator;
+    }
    
     /**
      * Returns the currently active output stream.
@@ -8,6 +8,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.boot.ResourceType;
 import de.uni_hildesheim.sse.monitoring.runtime.boot.StreamType;
 import de.uni_hildesheim.sse.monitoring.runtime.configuration.
     MonitoringGroupConfiguration;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LatencyHistogram;
 
 /**
  * Implements a blocking recorder element which just does nothing and prevents
@@ -15,7 +16,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.configuration.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public class BlockingRecorderElement extends RecorderElement {
 
@@ -148,6 +149,29 @@ public class BlockingRecorderElement extends RecorderElement {
         return false;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void invocationFinished(long threadId) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    LatencyHistogram getSystemTimeHistogram() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    LatencyHistogram getCpuTimeHistogram() {
+        return null;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -238,6 +262,14 @@ public class BlockingRecorderElement extends RecorderElement {
         return false;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isIndirectAccounting(GroupAccountingType defaultAccounting) {
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
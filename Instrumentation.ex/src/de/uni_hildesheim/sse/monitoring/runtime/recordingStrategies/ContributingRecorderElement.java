@@ -19,7 +19,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.configuration.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 @Variability(id = AnnotationConstants.CALIBRATION)
 public class ContributingRecorderElement 
@@ -31,16 +31,25 @@ public class ContributingRecorderElement
      * variant detection is enabled).
      */
     private int count = 0;
+
+    /**
+     * Stores whether the sub elements shall record latency histograms.
+     */
+    private boolean histograms;
     
     /**
      * Creates a recorder element.
      * 
      * @param conf the monitoring group configuration
+     * @param histograms whether the sub elements shall record latency 
+     *   histograms
      * 
      * @since 1.00
      */
-    protected ContributingRecorderElement(MonitoringGroupConfiguration conf) {
+    protected ContributingRecorderElement(MonitoringGroupConfiguration conf, 
+        boolean histograms) {
         super(conf);
+        this.histograms = histograms;
     }
     
     /**
@@ -71,8 +80,31 @@ public class ContributingRecorderElement
      * 
      * @return the created element
      */
+    @Override
     protected RecorderElement createElement() {
-        return new DefaultRecorderElement(getConfiguration());
+        return new DefaultRecorderElement(getConfiguration(), histograms);
+    }
+
+    /**
+     * Adds the aggregated values recorded in <code>from</code> to this 
+     * instance.
+     * 
+     * @param from the instance to merge the values from (may also be a 
+     *   subclass)
+     * @param contained merge also the contributing elements
+     * 
+     * @since 1.30
+     */
+    @Override
+    public void merge(RecorderElement from, boolean contained) {
+        super.merge(from, contained);
+        int size = getElementCount();
+        count = 0;
+        for (int i = 0; i < size; i++) {
+            if (null != getElement(i)) {
+                count++;
+            }
+        }
     }
     
     
@@ -4,9 +4,11 @@ import de.uni_hildesheim.sse.codeEraser.annotations.Operation;
 import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
 import de.uni_hildesheim.sse.monitoring.runtime.AnnotationConstants;
 import de.uni_hildesheim.sse.monitoring.runtime.boot.StreamType;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
 import de.uni_hildesheim.sse.monitoring.runtime.configuration.
     MonitoringGroupConfiguration;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.AbstractLongHashMap;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LatencyHistogram;
 
 /**
  * Implements a recorder element containing the monitoring data for one 
@@ -14,7 +16,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.AbstractLongHashMap;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 class DefaultRecorderElement extends RecorderElement {
     
@@ -64,6 +66,20 @@ class DefaultRecorderElement extends RecorderElement {
      */
     @Variability(id = AnnotationConstants.MONITOR_TIME_CPU)
     private long cpuTimeTicks = 0;
+
+    /**
+     * Stores the system time of the individual invocations (<b>null</b> if
+     * latency histograms are disabled).
+     */
+    @Variability(id = AnnotationConstants.MONITOR_TIME_SYSTEM)
+    private LatencyHistogram systemTimeHistogram;
+
+    /**
+     * Stores the CPU time of the individual invocations (<b>null</b> if
+     * latency histograms are disabled).
+     */
+    @Variability(id = AnnotationConstants.MONITOR_TIME_CPU)
+    private LatencyHistogram cpuTimeHistogram;
     
     /**
      * Stores the amount of bytes sent to network interfaces.
@@ -102,7 +118,24 @@ class DefaultRecorderElement extends RecorderElement {
      * @since 1.00
      */
     protected DefaultRecorderElement(MonitoringGroupConfiguration conf) {
+        this(conf, Configuration.INSTANCE.recordLatencyHistograms());
+    }
+
+    /**
+     * Creates a recorder element.
+     * 
+     * @param conf the configuration of the recorder element
+     * @param histograms whether latency histograms shall be recorded
+     * 
+     * @since 1.30
+     */
+    protected DefaultRecorderElement(MonitoringGroupConfiguration conf, 
+        boolean histograms) {
         super(conf);
+        if (histograms) {
+            systemTimeHistogram = new LatencyHistogram();
+            cpuTimeHistogram = new LatencyHistogram();
+        }
     }
     
     /**
@@ -131,10 +164,100 @@ class DefaultRecorderElement extends RecorderElement {
             netInBytes = dFrom.netInBytes;
             fileOutBytes = dFrom.fileOutBytes;
             fileInBytes = dFrom.fileInBytes;
+            changed();
+            if (null != systemTimeHistogram) {
+                systemTimeHistogram.copy(dFrom.systemTimeHistogram);
+            }
+            if (null != cpuTimeHistogram) {
+                cpuTimeHistogram.copy(dFrom.cpuTimeHistogram);
+            }
             //reentrantCount = dFrom.reentrantCount;
         }
     }
 
+    /**
+     * Adds the values recorded in <code>from</code> to this instance. In
+     * contrast to the recording methods, the values are not propagated to
+     * any parent.
+     * 
+     * @param from the instance to add the values from
+     * 
+     * @since 1.30
+     */
+    void add(DefaultRecorderElement from) {
+        memUse += from.memUse;
+        memAllocated += from.memAllocated;
+        systemTimeTicks += from.systemTimeTicks;
+        cpuTimeTicks += from.cpuTimeTicks;
+        netOutBytes += from.netOutBytes;
+        netInBytes += from.netInBytes;
+        fileOutBytes += from.fileOutBytes;
+        fileInBytes += from.fileInBytes;
+        changed();
+        if (null != systemTimeHistogram) {
+            systemTimeHistogram.add(from.systemTimeHistogram);
+        }
+        if (null != cpuTimeHistogram) {
+            cpuTimeHistogram.add(from.cpuTimeHistogram);
+        }
+    }
+
+    /**
+     * Adds the aggregated values recorded in <code>from</code> to this 
+     * instance. The state of currently active invocations is not taken over.
+     * 
+     * @param from the instance to merge the values from (may also be a 
+     *   subclass)
+     * 
+     * @since 1.30
+     */
+    @Override
+    public void merge(RecorderElement from) {
+        super.merge(from);
+        if (from instanceof DefaultRecorderElement) {
+            add((DefaultRecorderElement) from);
+        }
+    }
+
+    /**
+     * Clears the aggregated values of this instance while keeping the state 
+     * of currently active invocations.
+     * 
+     * @since 1.30
+     */
+    @Override
+    void clearAggregates() {
+        super.clearAggregates();
+        memUse = 0;
+        memAllocated = 0;
+        systemTimeTicks = 0;
+        cpuTimeTicks = 0;
+        netOutBytes = 0;
+        netInBytes = 0;
+        fileOutBytes = 0;
+        fileInBytes = 0;
+        changed();
+        if (null != systemTimeHistogram) {
+            systemTimeHistogram.clear();
+        }
+        if (null != cpuTimeHistogram) {
+            cpuTimeHistogram.clear();
+        }
+    }
+
+    /**
+     * Returns whether time recording is currently active for any thread on
+     * this instance.
+     * 
+     * @return <code>true</code> if time recording is active, 
+     *     <code>false</code> else
+     * 
+     * @since 1.30
+     */
+    boolean isTimeRecording() {
+        return startTimes.isRecording();
+    }
+
     /**
      * Start the time recording for this instance.
      * 
@@ -221,21 +344,94 @@ class DefaultRecorderElement extends RecorderElement {
         long startSystemTime = entry.getStartSystemTime();
 //        reentrantCount--;
 //      if (0 == reentrantCount) {
+        long cpuTime = 0;
+        long systemTime = 0;
         if (startCpuTime >= 0) {
-            cpuTimeTicks += threadTicks - startCpuTime;
+            cpuTime = threadTicks - startCpuTime;
+            cpuTimeTicks += cpuTime;
             startCpuTime = -1;
             recorded = true;
         }
         if (startSystemTime >= 0) {
-            systemTimeTicks += nanoTime - startSystemTime;
+            systemTime = nanoTime - startSystemTime;
+            systemTimeTicks += systemTime;
             startSystemTime = -1;
             recorded = true;
         }
         entry.setTimes(startCpuTime, startSystemTime);
+        if (recorded && (null != systemTimeHistogram 
+            || null != cpuTimeHistogram)) {
+            entry.addInvocationTimes(cpuTime, systemTime);
+        }
         return recorded;
 //        return true; // check callers
     }
 
+    /**
+     * Records the times accumulated for the current invocation of the given
+     * thread in the latency histograms.
+     * 
+     * @param threadId the identifier of the thread causing the call
+     * 
+     * @since 1.30
+     */
+    @Override
+    void invocationFinished(long threadId) {
+        if (null != systemTimeHistogram || null != cpuTimeHistogram) {
+            TimeMap.MapElement entry = startTimes.get(threadId);
+            if (null != entry) {
+                if (null != systemTimeHistogram) {
+                    systemTimeHistogram.record(
+                        entry.getInvocationSystemTime());
+                }
+                if (null != cpuTimeHistogram) {
+                    cpuTimeHistogram.record(entry.getInvocationCpuTime());
+                }
+                entry.clearInvocationTimes();
+            }
+        }
+    }
+
+    /**
+     * Returns the latency histogram of the system time of the individual
+     * invocations.
+     * 
+     * @return the histogram in nano seconds, <b>null</b> if latency 
+     *   histograms are not recorded
+     * 
+     * @since 1.30
+     */
+    @Override
+    LatencyHistogram getSystemTimeHistogram() {
+        return systemTimeHistogram;
+    }
+
+    /**
+     * Returns the latency histogram of the CPU time of the individual
+     * invocations.
+     * 
+     * @return the histogram in nano seconds, <b>null</b> if latency 
+     *   histograms are not recorded
+     * 
+     * @since 1.30
+     */
+    @Override
+    LatencyHistogram getCpuTimeHistogram() {
+        return cpuTimeHistogram;
+    }
+
+    /**
+     * Returns whether latency histograms are recorded by this element.
+     * 
+     * @return <code>true</code> if latency histograms are recorded, 
+     *   <code>false</code> else
+     * 
+     * @since 1.30
+     */
+    boolean recordsHistograms() {
+        return null != systemTimeHistogram || null != cpuTimeHistogram;
+    }
+
     
     /**
      * Returns the CPU time when recording was started.
@@ -289,6 +485,7 @@ class DefaultRecorderElement extends RecorderElement {
     void memoryAllocated(long size) {
         memUse += size;
         memAllocated += size;
+        changed();
     }
     
     /**
@@ -305,6 +502,7 @@ class DefaultRecorderElement extends RecorderElement {
         if (memUse < 0) {
             memUse = 0;
         }
+        changed();
     }
     
     /**
@@ -319,6 +517,7 @@ class DefaultRecorderElement extends RecorderElement {
         Runtime rt = Runtime.getRuntime();
         // calculate used memory
         memUse = rt.maxMemory() - rt.freeMemory();
+        changed();
     }
     
     /**
@@ -342,6 +541,7 @@ class DefaultRecorderElement extends RecorderElement {
             // do nothing, unknown
             break;
         }
+        changed();
     }
 
     /**
@@ -365,6 +565,7 @@ class DefaultRecorderElement extends RecorderElement {
             // do nothing, unknown
             break;
         }
+        changed();
     }
     
     /**
@@ -394,6 +595,7 @@ class DefaultRecorderElement extends RecorderElement {
     void addNetBytes(long netInBytes, long netOutBytes) {
         this.netInBytes += netInBytes;
         this.netOutBytes += netOutBytes;
+        changed();
     }
     
     /**
@@ -31,6 +31,8 @@ import de.uni_hildesheim.sse.monitoring.runtime.plugins.
     MonitoringGroupCreationListener;
 import de.uni_hildesheim.sse.monitoring.runtime.plugins.PluginRegistry;
 import de.uni_hildesheim.sse.monitoring.runtime.plugins.TimerChangeListener;
+import de.uni_hildesheim.sse.monitoring.runtime.plugins.
+    TimerDistributionListener;
 import de.uni_hildesheim.sse.monitoring.runtime.plugins.ValueChangeListener;
 import de.uni_hildesheim.sse.monitoring.runtime.plugins.ValueType;
 import de.uni_hildesheim.sse.monitoring.runtime.plugins.internal.Cleanup;
@@ -49,11 +51,13 @@ import de.uni_hildesheim.sse.monitoring.runtime.wrap.
  * note that in this class and dependent classes no local access to threads
  * or timing calculation should be done, because this and dependent classes
  * may be executed remotely. Thus, any relevant client-related information
- * must be passed in by appropriate parameters.
+ * must be passed in by appropriate parameters. The (output) settings are 
+ * taken from the configuration passed in upon creation, e.g., the 
+ * configuration of a remote agent.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 @Variability(id = AnnotationConstants.STRATEGY_DEFAULT)
 public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
@@ -85,10 +89,15 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
      */
     private final LongHashMap<ThreadData> threads;
     
+    /**
+     * Defines the number of nano seconds per millisecond.
+     */
+    private static final long NANOS_PER_MILLI = 1000000;
+    
     /**
      * Stores information about the timers.
      */
-    private final HashMap<String, TimerInfo> timers;
+    private final HashMap<String, TimerData> timers;
     
     /**
      * Stores the formatter for output formatting.
@@ -119,15 +128,42 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
     private ProcessData.Measurements jvmNotificationInstance = null;
 
     /**
-     * Creates the recorder strategy.
+     * Stores the configuration this strategy is operating on.
+     */
+    private final Configuration configuration;
+
+    /**
+     * Stores the time series store receiving the snapshots of the current 
+     * state (<b>null</b> if disabled).
+     */
+    private TimeSeriesStore timeSeries;
+
+    /**
+     * Creates the recorder strategy operating on 
+     * {@link Configuration#INSTANCE}.
      * 
      * @param formatter the formatter for printing the results
      * 
      * @since 1.00
      */
     public DefaultRecorderStrategy(ResultFormatter formatter) {
-        super(new StrategyStorage());
+        this(formatter, Configuration.INSTANCE);
+    }
+
+    /**
+     * Creates the recorder strategy.
+     * 
+     * @param formatter the formatter for printing the results
+     * @param configuration the configuration to take the settings 
+     *   (including the output file) from
+     * 
+     * @since 1.30
+     */
+    public DefaultRecorderStrategy(ResultFormatter formatter, 
+        Configuration configuration) {
+        super(new StrategyStorage(configuration));
         this.formatter = formatter;
+        this.configuration = configuration;
         MonitoringGroupConfiguration conf 
             = MonitoringGroupConfiguration.DEFAULT;
         MonitoringGroupSettings settings = 
@@ -138,7 +174,7 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
         programRecord = getStorage().create(conf, true);
         getStorage().registerDefaultRecorderElement(Helper.PROGRAM_ID, 
             programRecord);
-        if (Configuration.INSTANCE.accountExcluded()) {
+        if (configuration.accountExcluded()) {
             registerForRecording(getClass().getName(), Helper.EXCLUDED_ID, 
                 conf, settings);
             excluded = getRecorderElement(Helper.EXCLUDED_ID);
@@ -154,7 +190,16 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
         MonitoringGroupSettings.release(settings);
         // listener notification done implicitly by RecorderElementMap
         threads = new LongHashMap<ThreadData>();
-        timers = new HashMap<String, TimerInfo>();
+        timers = new HashMap<String, TimerData>();
+        String tsFile = configuration.getTimeSeries();
+        if (null != tsFile && tsFile.length() > 0) {
+            try {
+                timeSeries = new TimeSeriesStore(new File(tsFile));
+            } catch (IOException e) {
+                System.out.println("I/O error while opening time series " 
+                    + tsFile + ": " + e.getMessage());
+            }
+        }
     }
 
     /**
@@ -315,7 +360,7 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
      */
     private void configureFormatter() {
         if (!formatterConfigured) {
-            Configuration config = Configuration.INSTANCE;
+            Configuration config = configuration;
     
             PrintStream out = System.out;
             File outFile = config.getOutFile();
@@ -359,14 +404,14 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
      */
     @Override
     public boolean printStatistics(ProcessData pData) {
-        if (Configuration.INSTANCE.programUseFromJvm()) {
+        if (configuration.programUseFromJvm()) {
             programRecord.updateMemoryFreedFromJvm();
         }
         // do not instrument here because usually run outside recording
         configureFormatter();
         RecorderElementMap recorderElements = getRecorderElements();
 
-        if (Configuration.INSTANCE.getOutInterval() > 0) {
+        if (configuration.getOutInterval() > 0) {
             formatter.printCurrentStateStatisticsFooter(getRecorderElements(), 
                 programRecord, null);
         }
@@ -466,6 +511,18 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
             }
         }
         
+        if (!timers.isEmpty()) {
+            formatter.printInfo(ResultFormatter.InfoCategory.TIMERS);
+            TreeSet<String> timerIds = new TreeSet<String>();
+            for (String timerId : timers.keys()) {
+                timerIds.add(timerId);
+            }
+            for (String timerId : timerIds) {
+                formatter.printTimer(timerId, 
+                    timers.get(timerId).getHistogram());
+            }
+        }
+        
         if (recorderElements.isEmpty()) {
             System.err.println("No class registered for statistics " 
                 + "calculation. It might be that the instrumentation agent is " 
@@ -492,6 +549,14 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
                 System.err.println(e.getMessage());
             }
         }
+        if (null != timeSeries) {
+            try {
+                timeSeries.close();
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+            timeSeries = null;
+        }
     }
     
     /**
@@ -509,6 +574,26 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
     @Override
     public boolean enter(String recId, long now, ThreadsInfo threadInfo, 
         boolean exclude) {
+        return enter(-1, recId, now, threadInfo, exclude);
+    }
+
+    /**
+     * Notifies the recorder about a method being called.
+     * 
+     * @param recIdNum the numeric identification of <code>recId</code>, 
+     *   negative if not known
+     * @param recId a unique identification where to assign this event to
+     * @param now the current system time in nano seconds
+     * @param threadInfo timing information on the currently running thread
+     * @param exclude exclude from monitoring
+     * @return <code>true</code> if the threadsInfo object should be released 
+     *     to the pool, <code>false</code> if it should not be released
+     * 
+     * @since 1.30
+     */
+    @Override
+    public boolean enter(int recIdNum, String recId, long now, 
+        ThreadsInfo threadInfo, boolean exclude) {
         MonitoringGroupChangeListener listener 
             = PluginRegistry.getMonitoringGroupChangeListener();
         // search for internal thread info / stack - creation / activation 
@@ -517,14 +602,16 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
         long threadTicks = threadInfo.getCurrentThreadTicks();
         ThreadData threadData = getThread(id, threadTicks, now);
         // local aggregation to recId as specified in scope definition
-        RecorderElement elt = assignByStackTrace(recId, null, 
-            threadInfo.getCurrentThreadId(), exclude, threadInfo.getCurrentInstanceId());
+        RecorderElement elt = assignByStackTrace(recIdNum, recId, null, 
+            threadInfo.getCurrentThreadId(), exclude, 
+            threadInfo.getCurrentInstanceId());
         // it would be good but due to remote recording...
         // record time as late as possible, i.e. as close as possible to the 
         // method entry, so recording is not included
         boolean indirect = false;
         if (null != elt) {
-            indirect = elt.isIndirectAccounting();
+            indirect = elt.isIndirectAccounting(
+                configuration.getGroupAccountingType());
             if (!indirect && null != threadData) {
                 // disable top if not indirect - implied if indirect
                 RecorderElement top = threadData.top();
@@ -611,21 +698,47 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
      */
     @Override
     public boolean exit(String recId, long now, ThreadsInfo threadInfo, boolean exclude) {
+        return exit(-1, recId, now, threadInfo, exclude);
+    }
+
+    /**
+     * Notifies the recorder about a method being exited.
+     * 
+     * @param recIdNum the numeric identification of <code>recId</code>, 
+     *   negative if not known
+     * @param recId a unique identification where to assign this event to
+     * @param now the current time in nano seconds 
+     * @param threadInfo timing information on the currently running thread
+     * @param exclude exclude from monitoring
+     * @return <code>true</code> if the threadsInfo object should be released 
+     *     to the pool, <code>false</code> if it should not be released
+     * 
+     * @since 1.30
+     */
+    @Override
+    public boolean exit(int recIdNum, String recId, long now, 
+        ThreadsInfo threadInfo, boolean exclude) {
         MonitoringGroupChangeListener listener 
             = PluginRegistry.getMonitoringGroupChangeListener();
-        RecorderElement elt = assignByStackTrace(recId, null, 
-            threadInfo.getCurrentThreadId(), exclude, threadInfo.getCurrentInstanceId());
         long id = threadInfo.getCurrentThreadId();
         long threadTicks = threadInfo.getCurrentThreadTicks();
         ThreadData threadData = threads.get(id);
+        RecorderElement elt = assignByStackTrace(recIdNum, recId, null, 
+            id, exclude, 0);
+        long instanceId = threadInfo.getCurrentInstanceId();
+        if (instanceId != 0 && null != elt) {
+            elt = assignEnteredInstance(elt, instanceId, threadData);
+        }
         // local aggregation to recId as specified in scope definition
         if (null != elt) {
-            boolean indirect = elt.isIndirectAccounting();
+            boolean indirect = elt.isIndirectAccounting(
+                configuration.getGroupAccountingType());
             //handleAggregatedSystemTime(now, threadInfo, recId, false, 
             //    elt.isIndirectAccounting());
             if (elt.accountResource(ResourceType.CPU_TIME) && (!indirect 
                 || (indirect && !threadData.isOnStack(elt, false)))) {
                 elt.stopTimeRecording(now, threadTicks, id);
+                elt.invocationFinished(id);
 
                 if (null != listener) {
                     listener.monitoringGroupChanged(elt);
@@ -636,6 +749,7 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
                 if (null != cElt 
                     && cElt.accountResource(ResourceType.CPU_TIME)) {
                     cElt.stopTimeRecording(now, threadTicks, id);
+                    cElt.invocationFinished(id);
                     if (null != listener) {
                         listener.configurationChanged(cElt);
                     }
@@ -663,6 +777,32 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
         return true; // release always
     }
 
+    /**
+     * Returns the instance recorder element of <code>elt</code> which was
+     * assigned when entering the current invocation of the given instance, 
+     * i.e. an exit is accounted to the same element as the related enter 
+     * even if the instances of <code>elt</code> changed meanwhile.
+     * 
+     * @param elt the recorder element of the monitoring group
+     * @param instanceId the instance identifier
+     * @param threadData the data of the current thread (may be <b>null</b>)
+     * @return the instance recorder element
+     * 
+     * @since 1.30
+     */
+    private RecorderElement assignEnteredInstance(RecorderElement elt, 
+        long instanceId, ThreadData threadData) {
+        RecorderElement result = null;
+        if (null != threadData) {
+            result = threadData.topInstance(elt, instanceId);
+        }
+        if (null == result) {
+            result = elt.getInstanceRecorderElement(instanceId, 
+                configuration.getInstanceLimit());
+        }
+        return result;
+    }
+
     /**
      * Registers a thread id with a recording id. This method is used to
      * assign unregistered method calls to monitored threads as well as to
@@ -695,20 +835,129 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
             // enforce thread registration
             getThread(threadId, threadTicks, now);
         } else {
-            RecorderElement elt = assignByStackTrace(null, null, threadId, false, 0);
-            ThreadData thread = getThread(threadId, threadTicks, now);
-            if (null != elt) {
-                thread.setRecorderElement(elt);
-            }
-            if (null != thread) {
-                ThreadData newThread = getThread(newId, 0, now);
-                // synchronize with Recorder.notifyThreadStarted
-                // TODO restrict here?
+            register(threadId, newId, threadTicks, now, this);
+        }
+    }
+
+    /**
+     * Registers the new thread <code>newId</code> started by 
+     * <code>threadId</code>, whereby the data of the new thread is kept by
+     * <code>owner</code>. This is required if the threads are recorded by
+     * different (partial) strategies, e.g., in a parallel replay.
+     * 
+     * @param threadId the thread id starting the new thread
+     * @param newId the new thread
+     * @param threadTicks the ticks of <code>threadId</code>
+     * @param now the current time in nano seconds
+     * @param owner the strategy keeping the data of <code>newId</code>, 
+     *   may be <b>this</b>
+     * 
+     * @since 1.30
+     */
+    void register(long threadId, long newId, long threadTicks, long now, 
+        DefaultRecorderStrategy owner) {
+        RecorderElement elt = assignByStackTrace(null, null, threadId, false, 
+            0);
+        ThreadData thread = getThread(threadId, threadTicks, now);
+        if (null != elt) {
+            thread.setRecorderElement(elt);
+        }
+        if (null != thread) {
+            ThreadData newThread = owner.getThread(newId, 0, now);
+            // synchronize with Recorder.notifyThreadStarted
+            // TODO restrict here?
+            if (owner == this) {
                 newThread.copyStackFrom(thread);
+            } else {
+                newThread.copyStackFrom(thread, this, owner);
             }
         }
     }
 
+    /**
+     * Returns the recorder element of this strategy which corresponds to 
+     * <code>elt</code> of <code>from</code>, i.e. the element registered 
+     * with the same recorder identification. Both strategies must result
+     * from the same registrations.
+     * 
+     * @param elt the element of <code>from</code> (may be <b>null</b>)
+     * @param from the strategy <code>elt</code> belongs to
+     * @return the corresponding element, <b>null</b> if there is none
+     * 
+     * @since 1.30
+     */
+    RecorderElement translate(RecorderElement elt, 
+        DefaultRecorderStrategy from) {
+        RecorderElement result = null;
+        if (null == elt) {
+            result = null;
+        } else if (elt == from.programRecord) {
+            result = programRecord;
+        } else if (elt == from.excluded) {
+            result = excluded;
+        } else if (elt instanceof InstanceRecorderElement) {
+            InstanceRecorderElement iElt = (InstanceRecorderElement) elt;
+            RecorderElement parent = translate(iElt.getParent(), from);
+            if (null != parent) {
+                result = parent.getInstanceRecorderElement(iElt.instanceId, 
+                    configuration.getInstanceLimit());
+            }
+        } else {
+            for (Entry<String, RecorderElement> entry 
+                : from.getRecorderElements().idToRecordingSet()) {
+                if (entry.getValue() == elt) {
+                    result = getRecorderElements().getAggregatedRecord(
+                        entry.getKey());
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds the aggregated values recorded by <code>partial</code> to this
+     * strategy, e.g., to combine the results of replaying disjoint sets of
+     * threads. Both strategies must result from the same registrations. The
+     * data of the threads recorded by <code>partial</code> is taken over 
+     * (shared, not copied), i.e. the threads of both strategies shall be 
+     * disjoint. Timers are not merged.
+     * 
+     * @param partial the strategy to merge the values from
+     * 
+     * @since 1.30
+     */
+    public void merge(DefaultRecorderStrategy partial) {
+        getRecorderElements().merge(partial.getRecorderElements());
+        programRecord.merge(partial.programRecord);
+        for (MapElement<ThreadData> entry : partial.threads.entries()) {
+            threads.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Clears the aggregated values recorded by this strategy while keeping
+     * the state of the threads and of currently active invocations, e.g., 
+     * after merging this strategy into the overall results.
+     * 
+     * @since 1.30
+     */
+    void clearAggregates() {
+        getRecorderElements().clearAggregates();
+        programRecord.clearAggregates();
+    }
+
+    /**
+     * Returns the CPU time ticks recorded for the entire program.
+     * 
+     * @return the CPU time ticks
+     * 
+     * @since 1.30
+     */
+    long getProgramCpuTimeTicks() {
+        return programRecord.getCpuTimeTicks();
+    }
+
 /*
     public void register(long threadId, long newId, long threadTicks, 
         long now) {
@@ -793,7 +1042,7 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
             ResourceType.MEMORY)) {
             programRecord.memoryAllocated(size);
             if (null != listener) {
-                if (Configuration.INSTANCE.programUseFromJvm()) {
+                if (configuration.programUseFromJvm()) {
                     // do this only regularly in case that there is a listener
                     programRecord.updateMemoryFreedFromJvm();
                 }
@@ -805,7 +1054,8 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
         if (null != elt 
             && elt.accountResource(ResourceType.MEMORY)) {
             elt.memoryAllocated(size);
-            if (elt.isIndirectAccounting()) {
+            if (elt.isIndirectAccounting(
+                configuration.getGroupAccountingType())) {
                 ThreadData thread = threads.get(threadId);
                 int tPos = null == thread ? -1 : thread.stackSize() - 2;
                 while (tPos >= 0) {
@@ -880,6 +1130,27 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
             }
         }
     }
+
+    /**
+     * Notifies the recorder about invocations of a sampled monitoring group.
+     * The counts are stored in the recorder element of the group so that
+     * its values can be scaled up to estimates when being reported. The 
+     * records of the configurations are not affected as they aggregate 
+     * sampled and non-sampled groups.
+     * 
+     * @param recId a unique identification where to assign this event to
+     * @param sampled the number of recorded invocations
+     * @param skipped the number of skipped invocations
+     * 
+     * @since 1.30
+     */
+    @Override
+    public void invocationsSampled(String recId, long sampled, long skipped) {
+        RecorderElement elt = getRecorderElement(recId);
+        if (null != elt) {
+            elt.invocationsSampled(sampled, skipped);
+        }
+    }
     
     /**
      * Debugging helper method.
@@ -966,7 +1237,8 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
         // local aggregation to recId as specified in scope definition
         if (null != elt && elt.accountResource(resource)) {
             elt.readIo(bytes, type);
-            if (elt.isIndirectAccounting()) {
+            if (elt.isIndirectAccounting(
+                configuration.getGroupAccountingType())) {
                 ThreadData thread = threads.get(threadId);
                 int tPos;
                 if (null != thread) {
@@ -1039,7 +1311,8 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
         // local aggregation to recId as specified in scope definition
         if (null != elt && elt.accountResource(resource)) {
             elt.writeIo(bytes, type);
-            if (elt.isIndirectAccounting()) {
+            if (elt.isIndirectAccounting(
+                configuration.getGroupAccountingType())) {
                 // aggregate to entire stack
                 ThreadData thread = threads.get(threadId);
                 int tPos;
@@ -1143,6 +1416,30 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
      */
     protected RecorderElement assignByStackTrace(String recId, String caller, 
         long threadId, boolean exclude, long instanceId) {
+        return assignByStackTrace(-1, recId, caller, threadId, exclude, 
+            instanceId);
+    }
+
+    /**
+     * Retrieves the recorder element to be used for recording based on the 
+     * given recorder identification and the thread identification. This 
+     * method works as {@link #assignByStackTrace(String, String, long, 
+     * boolean, long)} but uses the numeric identification of 
+     * <code>recId</code> for fast lookups if given.
+     * 
+     * @param recIdNum the numeric identification of <code>recId</code>, 
+     *   negative if not known
+     * @param recId the recorder element
+     * @param caller optional class name of the calling class
+     * @param threadId the thread identification
+     * @param exclude force exclusion from monitoring
+     * @param instanceId the instance identifier (may be <code>0</code> for disabled)
+     * @return the most appropriate recorder element (may be <b>null</b>)
+     * 
+     * @since 1.30
+     */
+    protected RecorderElement assignByStackTrace(int recIdNum, String recId, 
+        String caller, long threadId, boolean exclude, long instanceId) {
         RecorderElement result = null;
         if (exclude) {
             result = excluded;
@@ -1150,12 +1447,13 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
             ThreadData thread = threads.get(threadId);
             if (null != recId) {
                 // search for top-level, else use recId
-                int numId = getRecorderElements().getVariabilityIdNum(recId);
+                int numId = getRecorderElements().getVariabilityIdNum(
+                    recIdNum, recId);
                 if (null != thread && numId >= 0) {
                     result = thread.top(numId);
                 } 
                 if (null == result) {
-                    result = getRecorderElement(recId);
+                    result = getRecorderElement(recIdNum, recId);
                 }
             } 
             if (null != caller) {
@@ -1174,7 +1472,8 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
                 }
             }
             if (instanceId != 0 && null != result) {
-                result = result.getInstanceRecorderElement(instanceId);
+                result = result.getInstanceRecorderElement(instanceId, 
+                    configuration.getInstanceLimit());
             }
         }
         return result;
@@ -1206,7 +1505,7 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
                 systemNotificationInstance.copyFrom(pData.getSystem());
                 jvmNotificationInstance.copyFrom(pData.getJvm());
             }
-            if (Configuration.INSTANCE.programUseFromJvm()) {
+            if (configuration.programUseFromJvm()) {
                 programRecord.updateMemoryFreedFromJvm();
             }
         }
@@ -1218,8 +1517,11 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
             chListener.measurementsChanged(systemNotificationInstance, 
                 jvmNotificationInstance);            
         }        
+        if (null != timeSeries) {
+            appendTimeSeries(pData);
+        }
             
-        if (Configuration.INSTANCE.printStatistics()) {
+        if (configuration.printStatistics()) {
             configureFormatter();
             formatter.setProcessData(pData);
             RecorderElementMap elts = getRecorderElements();
@@ -1229,12 +1531,46 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
         return null != pData; // release if given
     }
 
+    /**
+     * Appends a snapshot of the current state to the time series store. 
+     * Disables the store in case of I/O problems.
+     * 
+     * @param pData additional information collected for system and JVM 
+     *   process (may be <b>null</b>)
+     * 
+     * @since 1.30
+     */
+    private void appendTimeSeries(ProcessData pData) {
+        try {
+            timeSeries.beginSnapshot(System.currentTimeMillis());
+            if (null != pData) {
+                timeSeries.record(TimeSeriesStore.SYSTEM_GROUP, 
+                    pData.getSystem());
+                timeSeries.record(TimeSeriesStore.JVM_GROUP, pData.getJvm());
+            }
+            timeSeries.record(Helper.PROGRAM_ID, programRecord);
+            for (Entry<String, RecorderElement> entry 
+                : getRecorderElements().idToRecordingSet()) {
+                timeSeries.record(entry.getKey(), entry.getValue());
+            }
+            timeSeries.endSnapshot();
+        } catch (IOException e) {
+            System.out.println("I/O error in time series: " + e.getMessage());
+            try {
+                timeSeries.close();
+            } catch (IOException e1) {
+                // ignore, disabled anyway
+            }
+            timeSeries = null;
+        }
+    }
+
     /**
      * Notifies about a timer event.
      * 
      * @param id the timer identification (may overlap with recorder ids)
      * @param state the new timer state
-     * @param now the current system time in milliseconds
+     * @param now the current system time in nano seconds
      * @param threadId the id of the currently executing thread, may be 
      *     negative if it should be ignored
      * 
@@ -1244,22 +1580,36 @@ public class DefaultRecorderStrategy extends AbstractRecorderStrategy {
     @Variability(id = AnnotationConstants.MONITOR_TIMERS)
     public void notifyTimer(String id, TimerState state, long now, 
         long threadId) {
-        if (threadId >= 0) {
-            // TODO revise, currently very primitive
-            id += threadId;
+        if (threadId < 0) {
+            threadId = TimerData.NO_THREAD;
         }
-        TimerInfo info = timers.get(id);
-        if (null == info) {
-            if (TimerState.START == state) {
-                info = new TimerInfo(now);
-                timers.put(id, info);
-            }
-        } else {
-            if (info.handleState(state, now)) {
+        TimerData data = timers.get(id);
+        if (null == data && TimerState.START == state) {
+            data = new TimerData();
+            timers.put(id, data);
+        }
+        if (null != data) {
+            TimerInfo info = data.get(threadId);
+            if (null == info) {
+                if (TimerState.START == state) {
+                    data.put(threadId, new TimerInfo(now));
+                }
+            } else if (info.handleState(state, now)) {
+                long value = info.getValue();
+                data.getHistogram().record(value);
                 TimerChangeListener listener 
                     = PluginRegistry.getTimerChangeListener();
                 if (null != listener) {
-                    listener.timerFinished(id, info.getValue());
+                    String recId = id;
+                    if (threadId >= 0) {
+                        recId += threadId;
+                    }
+                    listener.timerFinished(recId, value / NANOS_PER_MILLI);
+                    if (listener instanceof TimerDistributionListener) {
+                        ((TimerDistributionListener) listener)
+                            .timerDistributionChanged(recId,
+                                data.getHistogram());
+                    }
                 }
             }
         }
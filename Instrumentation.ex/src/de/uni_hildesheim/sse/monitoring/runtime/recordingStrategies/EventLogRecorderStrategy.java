@@ -0,0 +1,438 @@
+package de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
+import de.uni_hildesheim.sse.monitoring.runtime.AnnotationConstants;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.ArrayList;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.*;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchOutputStream;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LinkedList;
+
+/**
+ * Implements a recorder strategy appending all recorded events to a binary
+ * event log on the local disk, which can be analyzed offline by the 
+ * <code>EventLogReplay</code> of the recording server. The event log is
+ * enabled by the directory of the log (eventLog=dir).<p>
+ * The log consists of memory-mapped segments of
+ * {@link Configuration#getEventLogSegmentSize()} megabytes named
+ * {@link #SEGMENT_PREFIX}&lt;start time&gt;-&lt;number&gt;
+ * {@link #SEGMENT_SUFFIX}. Each segment is self-contained, i.e. it starts
+ * with {@link #MAGIC}, {@link #VERSION}, the configuration and the number
+ * of state batches followed by uncompressed event batches in the format of
+ * the TCP wire protocol {@link Constants#PROTOCOL_V2} with an own string 
+ * dictionary. The state batches repeat the program record creation, the 
+ * start of recording and the registrations of the running threads 
+ * recorded in previous segments. A replay processes them only if it starts
+ * with that segment. A batch length of <code>0</code> denotes the end of a
+ * segment. If {@link Configuration#getEventLogMaxSize()} is exceeded, the
+ * oldest segments are deleted.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+@Variability(id = AnnotationConstants.STRATEGY_TCP)
+public class EventLogRecorderStrategy extends AbstractEventRecorderStrategy {
+
+    /**
+     * Defines the magic number at the beginning of each segment.
+     */
+    public static final int MAGIC = 0x53504C47;
+
+    /**
+     * Defines the version of the segment format.
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * Defines the prefix of the segment file names.
+     */
+    public static final String SEGMENT_PREFIX = "events-";
+
+    /**
+     * Defines the suffix of the segment file names.
+     */
+    public static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * Defines the batch size in bytes which causes writing a batch.
+     */
+    private static final int MAX_BATCH_SIZE = 65536;
+
+    /**
+     * Defines the size of the batch header (int length, byte flags).
+     */
+    private static final int BATCH_HEADER_SIZE = 5;
+
+    /**
+     * Defines the number of bytes of a megabyte.
+     */
+    private static final long MEGABYTE = 1024 * 1024;
+
+    /**
+     * Defines the maximum size of a memory-mapped segment.
+     */
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    /**
+     * Stores the directory of the log.
+     */
+    private File dir;
+
+    /**
+     * Stores the name prefix of the segments of this log.
+     */
+    private String name;
+
+    /**
+     * Stores the size of a segment in bytes.
+     */
+    private long segmentSize;
+
+    /**
+     * Stores the maximum number of segments (<code>0</code> for unbounded).
+     */
+    private int maxSegments;
+
+    /**
+     * Stores the header of each segment.
+     */
+    private byte[] header;
+
+    /**
+     * Stores the existing segments in the sequence of their creation.
+     */
+    private LinkedList<File> segments = new LinkedList<File>();
+
+    /**
+     * Stores the number of segments created so far.
+     */
+    private int segmentCount;
+
+    /**
+     * Stores the events describing the current state, which are repeated at
+     * the beginning of each segment. The related element types are not
+     * pooled, i.e. they can be kept after being handled.
+     */
+    private ArrayList<RecordingStrategiesElement> state 
+        = new ArrayList<RecordingStrategiesElement>();
+
+    /**
+     * Stores the file of the current segment.
+     */
+    private RandomAccessFile file;
+
+    /**
+     * Stores the channel of the current segment.
+     */
+    private FileChannel channel;
+
+    /**
+     * Stores the mapped buffer of the current segment.
+     */
+    private MappedByteBuffer segment;
+
+    /**
+     * Stores the data output stream writing to {@link #segment}.
+     */
+    private DataOutputStream out
+        = new DataOutputStream(new SegmentOutputStream());
+
+    /**
+     * Stores the batch output stream of the current segment (<b>null</b> if
+     * the log could not be created).
+     */
+    private BatchOutputStream batchOut;
+
+    /**
+     * Writes to the current segment. The capacity of the segment must be
+     * ensured before writing.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private class SegmentOutputStream extends OutputStream {
+
+        @Override
+        public void write(int value) {
+            segment.put((byte) value);
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) {
+            segment.put(bytes, off, len);
+        }
+
+    }
+
+    /**
+     * Constructor. Creates the recorder strategy and the first segment.
+     *
+     * @since 1.30
+     */
+    public EventLogRecorderStrategy() {
+        super(new StrategyStorage());
+        Configuration conf = Configuration.INSTANCE;
+        dir = new File(conf.getEventLog());
+        name = SEGMENT_PREFIX + System.currentTimeMillis() + "-";
+        segmentSize = Math.min(MAX_SEGMENT_SIZE,
+            conf.getEventLogSegmentSize() * MEGABYTE);
+        if (conf.getEventLogMaxSize() > 0) {
+            maxSegments = (int) Math.max(1,
+                conf.getEventLogMaxSize() * MEGABYTE / segmentSize);
+        }
+        try {
+            ByteArrayOutputStream tmp = new ByteArrayOutputStream();
+            DataOutputStream hOut = new DataOutputStream(tmp);
+            hOut.writeInt(MAGIC);
+            hOut.writeInt(VERSION);
+            conf.write(hOut);
+            hOut.flush();
+            header = tmp.toByteArray();
+            dir.mkdirs();
+            roll();
+        } catch (IOException e) {
+            System.out.println("I/O error while creating event log "
+                + dir + ": " + e);
+            batchOut = null;
+        }
+        start();
+    }
+
+    /**
+     * Closes the current segment and starts a new one. Deletes the oldest
+     * segments if the maximum number of segments is exceeded.
+     *
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    private void roll() throws IOException {
+        close();
+        segmentCount++;
+        StringBuilder fName = new StringBuilder(name);
+        String number = String.valueOf(segmentCount);
+        for (int i = number.length(); i < 6; i++) {
+            fName.append('0');
+        }
+        fName.append(number);
+        fName.append(SEGMENT_SUFFIX);
+        File f = new File(dir, fName.toString());
+        file = new RandomAccessFile(f, "rw");
+        channel = file.getChannel();
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+            Math.max(segmentSize, header.length + 8));
+        segment.put(header);
+        batchOut = new BatchOutputStream(out, false);
+        writeState();
+        segments.addLast(f);
+        while (maxSegments > 0 && segments.size() > maxSegments) {
+            File oldest = segments.removeFirst();
+            if (!oldest.delete()) {
+                System.out.println("cannot delete event log segment "
+                    + oldest);
+            }
+        }
+    }
+
+    /**
+     * Writes the number of state batches and the events in {@link #state} 
+     * to the current segment so that it can be replayed even if the 
+     * previous segments were deleted.
+     *
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    private void writeState() throws IOException {
+        ensureCapacity(4);
+        if (state.isEmpty()) {
+            segment.putInt(0);
+        } else {
+            segment.putInt(1);
+            for (int s = 0; s < state.size(); s++) {
+                RecordingStrategiesElement event = state.get(s);
+                batchOut.writeVarInt(event.getIdentification());
+                event.sendBatched(batchOut);
+            }
+            ensureCapacity(BATCH_HEADER_SIZE + batchOut.batchSize());
+            batchOut.flushBatch();
+        }
+    }
+
+    /**
+     * Updates {@link #state} by the given event, i.e. keeps the program 
+     * record creation, the start of recording and the thread registrations
+     * and forgets the registrations of ended threads.
+     *
+     * @param event the handled event
+     *
+     * @since 1.30
+     */
+    private void updateState(RecordingStrategiesElement event) {
+        int id = event.getIdentification();
+        if (Constants.REGISTER == id) {
+            RegisterElement reg = (RegisterElement) event;
+            if (RecorderStrategy.REGISTER_END == reg.getNewId()) {
+                long threadId = reg.getThreadId();
+                for (int s = state.size() - 1; s >= 0; s--) {
+                    RecordingStrategiesElement elt = state.get(s);
+                    if (elt instanceof RegisterElement 
+                        && isRegistrationOf((RegisterElement) elt, 
+                            threadId)) {
+                        state.remove(s);
+                    }
+                }
+            } else {
+                state.add(reg);
+            }
+        } else if (Constants.PROGRAMRECORDCREATION == id 
+            || Constants.STARTRECORDING == id) {
+            state.add(event);
+        }
+    }
+
+    /**
+     * Returns whether <code>reg</code> registers the given thread.
+     *
+     * @param reg the registration event
+     * @param threadId the thread identification
+     * @return <code>true</code> if <code>reg</code> registers 
+     *   <code>threadId</code>, <code>false</code> else
+     *
+     * @since 1.30
+     */
+    private static boolean isRegistrationOf(RegisterElement reg, 
+        long threadId) {
+        boolean result;
+        if (RecorderStrategy.REGISTER_FORCE == reg.getNewId()) {
+            result = reg.getThreadId() == threadId;
+        } else {
+            result = reg.getNewId() == threadId;
+        }
+        return result;
+    }
+
+    /**
+     * Ensures that <code>bytes</code> can be written to the current segment
+     * including the terminating batch length by enlarging the mapping if
+     * required, e.g., for very large events.
+     *
+     * @param bytes the number of bytes to be written
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    private void ensureCapacity(int bytes) throws IOException {
+        int needed = bytes + 4;
+        if (segment.remaining() < needed) {
+            int pos = segment.position();
+            long size = Math.min(MAX_SEGMENT_SIZE,
+                Math.max(2L * segment.capacity(), (long) pos + needed));
+            segment.force();
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            segment.position(pos);
+        }
+    }
+
+    /**
+     * Writes the current batch to the current segment and starts a new
+     * segment if the next batch may not fit.
+     *
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    private void writeBatch() throws IOException {
+        int size = batchOut.batchSize();
+        if (size > 0) {
+            ensureCapacity(BATCH_HEADER_SIZE + size);
+            batchOut.flushBatch();
+            if (segment.remaining() < BATCH_HEADER_SIZE + MAX_BATCH_SIZE) {
+                roll();
+            }
+        }
+    }
+
+    /**
+     * Closes the current segment (if any).
+     *
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    private void close() throws IOException {
+        if (null != segment) {
+            segment.force();
+            segment = null;
+        }
+        if (null != channel) {
+            channel.close();
+            channel = null;
+        }
+        if (null != file) {
+            file.close();
+            file = null;
+        }
+    }
+
+    /**
+     * Handles an event.
+     *
+     * @param event the event to be handled
+     * @throws HandleException any kind of throwable exception which should
+     *    cause aborting the event loop
+     *
+     * @since 1.30
+     */
+    protected void handleEvent(RecordingStrategiesElement event)
+        throws HandleException {
+        int id = event.getIdentification();
+        if (null != batchOut && Constants.CLEARTEMPORARYDATA != id) {
+            try {
+                batchOut.writeVarInt(id);
+                event.sendBatched(batchOut);
+                updateState(event);
+                if (batchOut.batchSize() >= MAX_BATCH_SIZE
+                    || Constants.ENDSYSTEM == id) {
+                    writeBatch();
+                }
+                if (Constants.ENDSYSTEM == id) {
+                    close();
+                    batchOut = null;
+                }
+            } catch (IOException e) {
+                throw new HandleException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes buffered events as no further events are pending.
+     *
+     * @throws HandleException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    @Override
+    protected void eventsDrained() throws HandleException {
+        if (null != batchOut) {
+            try {
+                writeBatch();
+            } catch (IOException e) {
+                throw new HandleException(e);
+            }
+        }
+    }
+
+}
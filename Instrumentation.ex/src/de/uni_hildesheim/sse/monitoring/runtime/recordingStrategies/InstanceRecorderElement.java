@@ -11,7 +11,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.configuration.MonitoringGroupCon
  * 
  * @author Holger Eichelberger
  * @since 1.20
- * @version 1.20
+ * @version 1.30
  */
 public class InstanceRecorderElement extends DefaultRecorderElement {
 
@@ -19,6 +19,29 @@ public class InstanceRecorderElement extends DefaultRecorderElement {
      * Stores the parent.
      */
     private RecorderElement parent;
+
+    /**
+     * Stores the instance identifier this element is registered for.
+     * 
+     * @since 1.30
+     */
+    long instanceId;
+
+    /**
+     * Stores the (estimated) number of accesses to this element if the
+     * number of instances is bounded.
+     * 
+     * @since 1.30
+     */
+    long hits;
+
+    /**
+     * Stores the position of this element in the heap of the bounded 
+     * instance map (negative if not contained).
+     * 
+     * @since 1.30
+     */
+    int slot = -1;
     
     /**
      * Creates an instance.
@@ -29,10 +52,22 @@ public class InstanceRecorderElement extends DefaultRecorderElement {
      * @since 1.00
      */
     InstanceRecorderElement(MonitoringGroupConfiguration conf, RecorderElement parent) {
-        super(conf);
+        super(conf, parent instanceof DefaultRecorderElement 
+            && ((DefaultRecorderElement) parent).recordsHistograms());
         this.parent = parent;
     }
 
+    /**
+     * Returns the parent.
+     * 
+     * @return the parent
+     * 
+     * @since 1.30
+     */
+    RecorderElement getParent() {
+        return parent;
+    }
+
     @Override
     boolean startTimeRecording(long nanoTime, long threadTicks, long threadId) {
         boolean result = super.startTimeRecording(nanoTime, threadTicks, threadId);
@@ -47,6 +82,12 @@ public class InstanceRecorderElement extends DefaultRecorderElement {
         return result;
     }
 
+    @Override
+    void invocationFinished(long threadId) {
+        super.invocationFinished(threadId);
+        parent.invocationFinished(threadId);
+    }
+
     @Override
     void timeCorrection(long timeDiff, long threadTimeFraction, 
         boolean decrement, long threadId) {
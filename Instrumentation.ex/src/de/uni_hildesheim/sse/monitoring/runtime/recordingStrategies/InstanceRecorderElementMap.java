@@ -0,0 +1,382 @@
+package de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies;
+
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.
+    MonitoringGroupConfiguration;
+import de.uni_hildesheim.sse.monitoring.runtime.plugins.IMonitoringGroup;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LongHashMap;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LongHashMap.MapElement;
+
+/**
+ * Stores the instance recorder elements of a monitoring group. If 
+ * {@link Configuration#getInstanceLimit()} is positive, at most that number
+ * of instances is tracked individually. Following the Space-Saving 
+ * heavy-hitter algorithm, the instances are kept in a min-heap ordered by
+ * their (estimated) number of accesses. If an unknown instance is accessed
+ * while the map is full, the least frequently accessed instance is folded 
+ * into a shared element registered for 
+ * {@link IMonitoringGroup#OTHER_INSTANCES} and the new instance inherits
+ * its access count. Instances which are currently recording are never 
+ * folded, i.e. if the least frequently accessed instance is active, the new
+ * instance is recorded by a transient element which is folded into the 
+ * shared element as soon as it is no longer recording. Thus, nested 
+ * invocations of different instances do not interfere and the limit 
+ * should exceed the number of concurrently active instances. Values
+ * recorded for an instance after it was folded are still accounted to the
+ * monitoring group but not to the shared element.
+ * 
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+class InstanceRecorderElementMap {
+
+    /**
+     * Stores the parent recorder element.
+     */
+    private RecorderElement parent;
+
+    /**
+     * Stores the configuration of the parent.
+     */
+    private MonitoringGroupConfiguration conf;
+
+    /**
+     * Stores the maximum number of individual instances (<code>0</code> for
+     * unbounded).
+     */
+    private int limit;
+
+    /**
+     * Stores the elements by their instance identifiers.
+     */
+    private LongHashMap<RecorderElement> elements 
+        = new LongHashMap<RecorderElement>();
+
+    /**
+     * Stores the min-heap of the individual instances (<b>null</b> if 
+     * unbounded).
+     */
+    private InstanceRecorderElement[] heap;
+
+    /**
+     * Stores the number of elements in {@link #heap}.
+     */
+    private int size;
+
+    /**
+     * Stores the shared element for the folded instances (created lazily).
+     */
+    private InstanceRecorderElement other;
+
+    /**
+     * Stores the transient elements of the instances accessed while the 
+     * least frequently accessed instance was recording (not contained in
+     * {@link #elements}). As transient elements are folded as soon as they
+     * are not recording anymore, there are hardly more of them than 
+     * concurrently active instances, i.e. they are searched linearly.
+     */
+    private InstanceRecorderElement[] transients 
+        = new InstanceRecorderElement[4];
+
+    /**
+     * Stores the number of elements in {@link #transients}.
+     */
+    private int transientCount;
+
+    /**
+     * Creates a new instance map.
+     * 
+     * @param conf the configuration of the parent
+     * @param parent the parent recorder element
+     * @param limit the maximum number of individual instances 
+     *   (<code>0</code> for unbounded)
+     * 
+     * @since 1.30
+     */
+    InstanceRecorderElementMap(MonitoringGroupConfiguration conf, 
+        RecorderElement parent, int limit) {
+        this.conf = conf;
+        this.parent = parent;
+        this.limit = Math.max(0, limit);
+        if (this.limit > 0) {
+            heap = new InstanceRecorderElement[this.limit];
+        }
+    }
+
+    /**
+     * Returns the recorder element for the given instance and creates it
+     * if required.
+     * 
+     * @param instanceId the instance identifier
+     * @return the recorder element, may be the shared element for the 
+     *   folded instances
+     * 
+     * @since 1.30
+     */
+    RecorderElement get(long instanceId) {
+        RecorderElement result = elements.get(instanceId);
+        if (null == result) {
+            if (null == heap) {
+                result = create(instanceId);
+                elements.put(instanceId, result);
+            } else {
+                result = getTransient(instanceId);
+                if (null == result) {
+                    result = replace(instanceId);
+                }
+            }
+        } else if (null != heap && result != other) {
+            InstanceRecorderElement elt = (InstanceRecorderElement) result;
+            elt.hits++;
+            siftDown(elt.slot);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a new instance recorder element.
+     * 
+     * @param instanceId the instance identifier
+     * @return the created element
+     * 
+     * @since 1.30
+     */
+    private InstanceRecorderElement create(long instanceId) {
+        InstanceRecorderElement result 
+            = new InstanceRecorderElement(conf, parent);
+        result.instanceId = instanceId;
+        return result;
+    }
+
+    /**
+     * Returns the transient element of the given instance if it is still
+     * recording. Otherwise, the transient element is folded into the shared
+     * element.
+     * 
+     * @param instanceId the instance identifier
+     * @return the transient element, <b>null</b> if there is none or it is 
+     *   not recording anymore
+     * 
+     * @since 1.30
+     */
+    private InstanceRecorderElement getTransient(long instanceId) {
+        InstanceRecorderElement result = null;
+        int pos = 0;
+        while (pos < transientCount 
+            && instanceId != transients[pos].instanceId) {
+            pos++;
+        }
+        if (pos < transientCount) {
+            result = transients[pos];
+            if (!result.isTimeRecording()) {
+                foldTransient(pos);
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds a transient element.
+     * 
+     * @param elt the transient element
+     * 
+     * @since 1.30
+     */
+    private void addTransient(InstanceRecorderElement elt) {
+        if (transientCount == transients.length) {
+            InstanceRecorderElement[] tmp 
+                = new InstanceRecorderElement[2 * transients.length];
+            System.arraycopy(transients, 0, tmp, 0, transientCount);
+            transients = tmp;
+        }
+        transients[transientCount++] = elt;
+    }
+
+    /**
+     * Folds the transient element at <code>pos</code> into the shared 
+     * element and replaces it by the last transient element.
+     * 
+     * @param pos the position of the transient element
+     * 
+     * @since 1.30
+     */
+    private void foldTransient(int pos) {
+        getOther().add(transients[pos]);
+        transients[pos] = transients[--transientCount];
+        transients[transientCount] = null;
+    }
+
+    /**
+     * Folds all transient elements which are not recording anymore into the
+     * shared element.
+     * 
+     * @since 1.30
+     */
+    private void foldTransients() {
+        // backwards, as folding moves the last (already checked) element
+        for (int pos = transientCount - 1; pos >= 0; pos--) {
+            if (!transients[pos].isTimeRecording()) {
+                foldTransient(pos);
+            }
+        }
+    }
+
+    /**
+     * Adds the given instance to the bounded map, either in a free slot or
+     * by folding the least frequently accessed instance. If the least 
+     * frequently accessed instance is recording, a transient element is 
+     * created instead.
+     * 
+     * @param instanceId the instance identifier
+     * @return the recorder element for <code>instanceId</code>
+     * 
+     * @since 1.30
+     */
+    private RecorderElement replace(long instanceId) {
+        RecorderElement result;
+        if (size < heap.length) {
+            InstanceRecorderElement elt = create(instanceId);
+            elt.hits = 1;
+            elt.slot = size;
+            heap[size++] = elt;
+            siftUp(elt.slot);
+            elements.put(instanceId, elt);
+            result = elt;
+        } else {
+            foldTransients();
+            InstanceRecorderElement min = heap[0];
+            if (min.isTimeRecording()) {
+                InstanceRecorderElement elt = create(instanceId);
+                addTransient(elt);
+                result = elt;
+            } else {
+                getOther().add(min);
+                elements.remove(min.instanceId);
+                min.slot = -1;
+                InstanceRecorderElement elt = create(instanceId);
+                elt.hits = min.hits + 1;
+                elt.slot = 0;
+                heap[0] = elt;
+                siftDown(0);
+                elements.put(instanceId, elt);
+                result = elt;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the shared element for the folded instances and creates it if
+     * required.
+     * 
+     * @return the shared element
+     * 
+     * @since 1.30
+     */
+    private InstanceRecorderElement getOther() {
+        if (null == other) {
+            other = create(IMonitoringGroup.OTHER_INSTANCES);
+            elements.put(IMonitoringGroup.OTHER_INSTANCES, other);
+        }
+        return other;
+    }
+
+    /**
+     * Moves the element at <code>pos</code> towards the root of the heap
+     * until the heap order is restored.
+     * 
+     * @param pos the position of the element
+     * 
+     * @since 1.30
+     */
+    private void siftUp(int pos) {
+        InstanceRecorderElement elt = heap[pos];
+        while (pos > 0) {
+            int parentPos = (pos - 1) / 2;
+            InstanceRecorderElement p = heap[parentPos];
+            if (p.hits <= elt.hits) {
+                break;
+            }
+            place(p, pos);
+            pos = parentPos;
+        }
+        place(elt, pos);
+    }
+
+    /**
+     * Moves the element at <code>pos</code> towards the leafs of the heap
+     * until the heap order is restored.
+     * 
+     * @param pos the position of the element
+     * 
+     * @since 1.30
+     */
+    private void siftDown(int pos) {
+        InstanceRecorderElement elt = heap[pos];
+        int half = size / 2;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if (right < size && heap[right].hits < heap[child].hits) {
+                child = right;
+            }
+            if (elt.hits <= heap[child].hits) {
+                break;
+            }
+            place(heap[child], pos);
+            pos = child;
+        }
+        place(elt, pos);
+    }
+
+    /**
+     * Places <code>elt</code> at <code>pos</code> in the heap.
+     * 
+     * @param elt the element
+     * @param pos the position
+     * 
+     * @since 1.30
+     */
+    private void place(InstanceRecorderElement elt, int pos) {
+        heap[pos] = elt;
+        elt.slot = pos;
+    }
+
+    /**
+     * Returns the elements and their instance identifiers.
+     * 
+     * @return the elements
+     * 
+     * @since 1.30
+     */
+    Iterable<MapElement<RecorderElement>> entries() {
+        foldTransients();
+        return elements.entries();
+    }
+
+    /**
+     * Returns the instance identifiers.
+     * 
+     * @return the instance identifiers
+     * 
+     * @since 1.30
+     */
+    long[] keySet() {
+        foldTransients();
+        return elements.keySet();
+    }
+
+    /**
+     * Returns the maximum number of individual instances.
+     * 
+     * @return the maximum number (<code>0</code> for unbounded)
+     * 
+     * @since 1.30
+     */
+    int getLimit() {
+        return limit;
+    }
+
+}
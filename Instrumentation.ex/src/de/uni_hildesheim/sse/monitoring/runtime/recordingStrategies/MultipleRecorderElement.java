@@ -13,7 +13,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.configuration.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public class MultipleRecorderElement extends AbstractMultipleRecorderElement {
 
@@ -43,6 +43,24 @@ public class MultipleRecorderElement extends AbstractMultipleRecorderElement {
         super(conf, elements, distributeValues);
         this.elementResources = elementResources;
     }
+
+    /**
+     * Adds the aggregated values recorded in <code>from</code> to this 
+     * instance. As the contained elements are monitoring groups on their
+     * own, which are merged separately, e.g., by 
+     * {@link RecorderElementMap#merge(RecorderElementMap)}, they are not 
+     * merged here. Call {@link #merge(RecorderElement, boolean)} to merge 
+     * them explicitly.
+     * 
+     * @param from the instance to merge the values from (may also be a 
+     *   subclass)
+     * 
+     * @since 1.30
+     */
+    @Override
+    public void merge(RecorderElement from) {
+        merge(from, false);
+    }
     
     /**
      * Returns if this instance has the given <code>state</code> selected.
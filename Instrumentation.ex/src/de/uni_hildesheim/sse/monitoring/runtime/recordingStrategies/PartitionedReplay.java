@@ -0,0 +1,668 @@
+package de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.uni_hildesheim.sse.codeEraser.annotations.Operation;
+import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
+import de.uni_hildesheim.sse.monitoring.runtime.AnnotationConstants;
+import de.uni_hildesheim.sse.monitoring.runtime.annotations.TimerState;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.MonitoringGroupSettings;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.StreamType;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.
+    MonitoringGroupConfiguration;
+import de.uni_hildesheim.sse.monitoring.runtime.plugins.PluginRegistry;
+import de.uni_hildesheim.sse.monitoring.runtime.plugins.ValueType;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.
+    RecordingStrategiesElement;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LongLongHashMap;
+
+/**
+ * Replays a recorded event stream in parallel, e.g., an event log analyzed
+ * offline. The events are partitioned by their thread id. Each partition is
+ * replayed by an own fork-join task against a partial
+ * {@link DefaultRecorderStrategy} keeping the data of its threads and
+ * thread-local copies of the recorder elements. Events reading or changing
+ * the overall results (printing, finishing the recording, freeing memory)
+ * act as barriers, i.e. the pending events are replayed, the partial
+ * aggregates are merged into the resulting strategy and the event is
+ * processed there. Thus, the results are the same as for a sequential
+ * replay.<p>
+ * If the results depend on the interleaving of the threads, i.e. if variant
+ * contributions are detected automatically, if the number of instance
+ * elements is limited or if monitoring group listeners are registered, all
+ * events are replayed sequentially (see {@link #isParallel()}).
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+@Variability(id = AnnotationConstants.STRATEGY_DEFAULT)
+public class PartitionedReplay {
+
+    /**
+     * Defines the maximum number of pending events before the partitions
+     * are replayed.
+     */
+    private static final int MAX_PENDING = 65536;
+
+    /**
+     * Defines how events are replayed.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private enum Kind {
+
+        /**
+         * Replayed by the partition of the thread.
+         */
+        PARTITION,
+
+        /**
+         * Processed by the resulting strategy only, does not depend on the
+         * partitions.
+         */
+        RESULT,
+
+        /**
+         * Processed by the resulting strategy after merging the partitions.
+         */
+        MERGE,
+
+        /**
+         * Processed by the resulting strategy and all partitions.
+         */
+        BROADCAST,
+
+        /**
+         * Stops time recording in all partitions.
+         */
+        STOP,
+
+        /**
+         * Registers a new thread of a different partition.
+         */
+        REGISTER;
+    }
+
+    /**
+     * Stores the strategy producing the results.
+     */
+    private final DefaultRecorderStrategy result;
+
+    /**
+     * Stores the partial strategies (<b>null</b> if replaying sequentially).
+     */
+    private DefaultRecorderStrategy[] partitions;
+
+    /**
+     * Stores the pending events per partition.
+     */
+    private List<List<RecordingStrategiesElement>> pending;
+
+    /**
+     * Stores the number of pending events.
+     */
+    private int pendingCount;
+
+    /**
+     * Stores the pool executing the partition tasks.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Stores the classifier for events.
+     */
+    private final Classifier classifier = new Classifier();
+
+    /**
+     * Creates a replay instance.
+     *
+     * @param formatter the formatter for the results
+     * @param configuration the configuration of the recorded program
+     * @param pool the pool executing the partition tasks (may be
+     *   <b>null</b> for sequential replay)
+     * @param partitionCount the number of partitions, sequential replay if
+     *   less than <code>2</code>
+     *
+     * @since 1.30
+     */
+    public PartitionedReplay(ResultFormatter formatter,
+        Configuration configuration, ForkJoinPool pool, int partitionCount) {
+        this.pool = pool;
+        result = new DefaultRecorderStrategy(formatter, configuration);
+        boolean ordered = (configuration.measureVariantContributions()
+            && result.isVariabilityDetectionEnabled())
+            || configuration.getInstanceLimit() > 0
+            || null != PluginRegistry.getMonitoringGroupChangeListener()
+            || null != PluginRegistry.getMonitoringGroupCreationListener();
+        if (null != pool && partitionCount > 1 && !ordered) {
+            partitions = new DefaultRecorderStrategy[partitionCount];
+            pending = new ArrayList<List<RecordingStrategiesElement>>();
+            for (int p = 0; p < partitionCount; p++) {
+                partitions[p] = new DefaultRecorderStrategy(
+                    new TabFormatter(configuration), configuration);
+                pending.add(new ArrayList<RecordingStrategiesElement>());
+            }
+        }
+    }
+
+    /**
+     * Returns whether events are replayed in parallel.
+     *
+     * @return <code>true</code> if events are replayed in parallel,
+     *   <code>false</code> if sequentially
+     *
+     * @since 1.30
+     */
+    public boolean isParallel() {
+        return null != partitions;
+    }
+
+    /**
+     * Replays the given event. The event is released by this instance after
+     * processing, i.e. it must not be used by the caller anymore.
+     *
+     * @param event the event to be replayed
+     *
+     * @since 1.30
+     */
+    public void process(RecordingStrategiesElement event) {
+        if (null == partitions) {
+            event.process(result);
+            event.release();
+        } else {
+            classifier.kind = Kind.RESULT;
+            event.process(classifier);
+            switch (classifier.kind) {
+            case PARTITION:
+                pending.get(partition(classifier.threadId)).add(event);
+                pendingCount++;
+                if (pendingCount >= MAX_PENDING) {
+                    replayPending();
+                }
+                break;
+            case MERGE:
+                merge();
+                event.process(result);
+                event.release();
+                break;
+            case BROADCAST:
+                replayPending();
+                event.process(result);
+                for (int p = 0; p < partitions.length; p++) {
+                    event.process(partitions[p]);
+                }
+                event.release();
+                break;
+            case STOP:
+                replayPending();
+                ThreadsInfo info = classifier.threadsInfo;
+                if (0 == info.getCurrentThreadTicks()) {
+                    // the recorder falls back to the program CPU time
+                    merge();
+                    info.setCurrentThreadTicks(
+                        result.getProgramCpuTimeTicks());
+                }
+                for (int p = 0; p < partitions.length; p++) {
+                    event.process(partitions[p]);
+                }
+                event.release();
+                break;
+            case REGISTER:
+                replayPending();
+                partitions[partition(classifier.threadId)].register(
+                    classifier.threadId, classifier.newId,
+                    classifier.threadTicks, classifier.now,
+                    partitions[partition(classifier.newId)]);
+                event.release();
+                break;
+            case RESULT:
+            default:
+                event.process(result);
+                event.release();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Replays the pending events and merges the partitions, i.e. completes
+     * the results of the replayed events.
+     *
+     * @return the strategy holding the results
+     *
+     * @since 1.30
+     */
+    public DefaultRecorderStrategy end() {
+        if (null != partitions) {
+            merge();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the partition of the given thread.
+     *
+     * @param threadId the thread id
+     * @return the partition
+     *
+     * @since 1.30
+     */
+    private int partition(long threadId) {
+        return (int) ((threadId & Long.MAX_VALUE) % partitions.length);
+    }
+
+    /**
+     * Replays the pending events of all partitions in parallel.
+     *
+     * @since 1.30
+     */
+    private void replayPending() {
+        if (pendingCount > 0) {
+            pool.invoke(new ReplayTask(-1));
+            for (int p = 0; p < partitions.length; p++) {
+                List<RecordingStrategiesElement> events = pending.get(p);
+                for (int e = 0; e < events.size(); e++) {
+                    events.get(e).release();
+                }
+                events.clear();
+            }
+            pendingCount = 0;
+        }
+    }
+
+    /**
+     * Replays the pending events and merges the aggregated values of the
+     * partitions into {@link #result}. Afterwards, the partitions continue
+     * with cleared aggregates.
+     *
+     * @since 1.30
+     */
+    private void merge() {
+        replayPending();
+        for (int p = 0; p < partitions.length; p++) {
+            result.merge(partitions[p]);
+            partitions[p].clearAggregates();
+        }
+    }
+
+    /**
+     * Replays the pending events of a partition or forks the tasks for all
+     * partitions with pending events.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private class ReplayTask extends RecursiveAction {
+
+        /**
+         * Defines the serialization id.
+         */
+        private static final long serialVersionUID = 5417093302419857532L;
+
+        /**
+         * Stores the partition to be replayed, negative for all.
+         */
+        private final int partition;
+
+        /**
+         * Creates a replay task.
+         *
+         * @param partition the partition to be replayed, negative for all
+         *
+         * @since 1.30
+         */
+        private ReplayTask(int partition) {
+            this.partition = partition;
+        }
+
+        @Override
+        protected void compute() {
+            if (partition < 0) {
+                List<ReplayTask> tasks = new ArrayList<ReplayTask>();
+                for (int p = 0; p < partitions.length; p++) {
+                    if (!pending.get(p).isEmpty()) {
+                        tasks.add(new ReplayTask(p));
+                    }
+                }
+                invokeAll(tasks);
+            } else {
+                DefaultRecorderStrategy strategy = partitions[partition];
+                List<RecordingStrategiesElement> events
+                    = pending.get(partition);
+                for (int e = 0; e < events.size(); e++) {
+                    events.get(e).process(strategy);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Determines how an event is replayed when the event is processed by
+     * this classifier.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private class Classifier implements RecorderStrategy {
+
+        /**
+         * Stores how the event is replayed.
+         */
+        private Kind kind;
+
+        /**
+         * Stores the thread id of the event.
+         */
+        private long threadId;
+
+        /**
+         * Stores the new thread id of a registration.
+         */
+        private long newId;
+
+        /**
+         * Stores the thread ticks of a registration.
+         */
+        private long threadTicks;
+
+        /**
+         * Stores the time of a registration.
+         */
+        private long now;
+
+        /**
+         * Stores the thread information of a stop event.
+         */
+        private ThreadsInfo threadsInfo;
+
+        /**
+         * Classifies an event to be replayed by the partition of the given
+         * thread.
+         *
+         * @param threadId the thread id
+         *
+         * @since 1.30
+         */
+        private void partition(long threadId) {
+            this.kind = Kind.PARTITION;
+            this.threadId = threadId;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @Variability(id = {AnnotationConstants.MONITOR_NET_IO,
+                AnnotationConstants.MONITOR_FILE_IO }, op = Operation.AND)
+        public void writeIo(String recId, String caller, long threadId,
+            int bytes, StreamType type) {
+            partition(threadId);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @Variability(id = {AnnotationConstants.MONITOR_NET_IO,
+                AnnotationConstants.MONITOR_FILE_IO }, op = Operation.AND)
+        public void readIo(String recId, String caller, long threadId,
+            int bytes, StreamType type) {
+            partition(threadId);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @Variability(id = AnnotationConstants.MONITOR_MEMORY_USAGE)
+        public void memoryFreedByRecId(String recId, long size) {
+            kind = Kind.MERGE; // memory use does not drop below 0
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void invocationsSampled(String recId, long sampled,
+            long skipped) {
+            partition(0); // just adds
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @Variability(id = AnnotationConstants.MONITOR_MEMORY_ALLOCATED)
+        public void memoryAllocated(String recId, long threadId, long id,
+            long size) {
+            partition(threadId);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean exit(String recId, long now, ThreadsInfo threadsInfo,
+            boolean exclude) {
+            partition(threadsInfo.getCurrentThreadId());
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean exit(int recIdNum, String recId, long now,
+            ThreadsInfo threadsInfo, boolean exclude) {
+            partition(threadsInfo.getCurrentThreadId());
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void register(long threadId, long newId, long threadTicks,
+            long now) {
+            partition(threadId);
+            if (newId >= 0 && PartitionedReplay.this.partition(threadId)
+                != PartitionedReplay.this.partition(newId)) {
+                kind = Kind.REGISTER;
+                this.newId = newId;
+                this.threadTicks = threadTicks;
+                this.now = now;
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean enter(String recId, long now, ThreadsInfo threadsInfo,
+            boolean exclude) {
+            partition(threadsInfo.getCurrentThreadId());
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean enter(int recIdNum, String recId, long now,
+            ThreadsInfo threadsInfo, boolean exclude) {
+            partition(threadsInfo.getCurrentThreadId());
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean assignAllTo(String recId, boolean enter, long now,
+            ThreadsInfo threadInfo) {
+            partition(threadInfo.getCurrentThreadId());
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean printStatistics(ProcessData data) {
+            kind = Kind.MERGE;
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void endSystem() {
+            kind = Kind.RESULT;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean stopTimeRecording(long now, ThreadsInfo threadsInfo) {
+            kind = Kind.STOP;
+            this.threadsInfo = threadsInfo;
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean finishRecording(long now, long threadId,
+            LongLongHashMap curCpuTime) {
+            kind = Kind.MERGE;
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void startRecording(long now, long threadId,
+            long threadTicks) {
+            partition(threadId);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void registerForRecording(String className, String recId,
+            MonitoringGroupConfiguration conf,
+            MonitoringGroupSettings settings) {
+            kind = Kind.BROADCAST;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void enterConfiguration(String id) {
+            kind = Kind.BROADCAST;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getRecorderId(String className) {
+            return result.getRecorderId(className);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public char getVariabilitySeparatorChar() {
+            return result.getVariabilitySeparatorChar();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void enableVariabilityDetection(boolean enable) {
+            kind = Kind.BROADCAST;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isVariabilityDetectionEnabled() {
+            return result.isVariabilityDetectionEnabled();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean printCurrentState(ProcessData data) {
+            kind = Kind.MERGE;
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @Variability(id = AnnotationConstants.MONITOR_TIMERS)
+        public void notifyTimer(String id, TimerState state, long now,
+            long threadId) {
+            kind = Kind.RESULT; // timers are not partitioned
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @Variability(id = AnnotationConstants.MONITOR_VALUES)
+        public void notifyValueChange(String id, ValueType type,
+            Object value) {
+            kind = Kind.RESULT;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void notifyProgramRecordCreation() {
+            kind = Kind.RESULT;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void clearTemporaryData() {
+            kind = Kind.RESULT;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public StrategyStorage getStorage() {
+            return result.getStorage();
+        }
+
+    }
+
+}
@@ -12,7 +12,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
 import de.uni_hildesheim.sse.monitoring.runtime.configuration.
     MonitoringGroupConfiguration;
 import de.uni_hildesheim.sse.monitoring.runtime.plugins.IMonitoringGroup;
-import de.uni_hildesheim.sse.monitoring.runtime.utils.LongHashMap;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LatencyHistogram;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.LongHashMap.MapElement;
 
 /**
@@ -20,7 +20,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.LongHashMap.MapElement;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.20
+ * @version 1.30
  */
 public abstract class RecorderElement implements IMonitoringGroup {
 
@@ -44,7 +44,26 @@ public abstract class RecorderElement implements IMonitoringGroup {
     /**
      * Stores the instance recorder elements.
      */
-    private LongHashMap<RecorderElement> instanceElements;
+    private InstanceRecorderElementMap instanceElements;
+
+    /**
+     * Stores the number of recorded invocations of a sampled monitoring 
+     * group.
+     */
+    private long sampledInvocations;
+
+    /**
+     * Stores the number of invocations of a sampled monitoring group which
+     * were skipped, i.e. only counted but not recorded.
+     */
+    private long skippedInvocations;
+
+    /**
+     * Stores the number of changes of the values emitted as current state, 
+     * i.e. memory and I/O. Incremented without synchronization, as a change
+     * lost due to concurrent recording just delays emitting it.
+     */
+    private int changes;
     
     /**
      * Creates a recorder element.
@@ -67,6 +86,127 @@ public abstract class RecorderElement implements IMonitoringGroup {
      */
     public void copy(RecorderElement from) {
         this.conf = from.conf;
+        this.sampledInvocations = from.sampledInvocations;
+        this.skippedInvocations = from.skippedInvocations;
+        changed();
+    }
+
+    /**
+     * Adds the aggregated values recorded in <code>from</code> to this 
+     * instance, e.g., to combine the results of partial recordings of the
+     * same monitoring group. The instance elements of <code>from</code> are
+     * merged into the instance elements of this instance with the same 
+     * identifier. In contrast to {@link #copy(RecorderElement)}, the state
+     * of currently active invocations is not taken over.
+     * 
+     * @param from the instance to merge the values from (may also be a 
+     *   subclass)
+     * 
+     * @since 1.30
+     */
+    public void merge(RecorderElement from) {
+        sampledInvocations += from.sampledInvocations;
+        skippedInvocations += from.skippedInvocations;
+        changed();
+        if (null != from.instanceElements) {
+            for (MapElement<RecorderElement> entry 
+                : from.instanceElements.entries()) {
+                RecorderElement elt = getInstanceRecorderElement(
+                    entry.getKey(), from.instanceElements.getLimit());
+                if (elt != this) {
+                    elt.merge(entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Clears the aggregated values of this instance (including its instance
+     * elements) while keeping the state of currently active invocations, 
+     * e.g., after merging this instance into the overall results.
+     * 
+     * @since 1.30
+     */
+    void clearAggregates() {
+        sampledInvocations = 0;
+        skippedInvocations = 0;
+        changed();
+        if (null != instanceElements) {
+            for (MapElement<RecorderElement> entry 
+                : instanceElements.entries()) {
+                entry.getValue().clearAggregates();
+            }
+        }
+    }
+
+    /**
+     * Notes a change of the values emitted as current state (memory and I/O).
+     * 
+     * @since 1.30
+     */
+    protected final void changed() {
+        changes++;
+    }
+
+    /**
+     * Returns the number of changes of the values emitted as current state
+     * (memory and I/O). The number is only meaningful in comparison to a 
+     * previously returned one, i.e. the values did not change if both are 
+     * equal.
+     * 
+     * @return the number of changes
+     * 
+     * @since 1.30
+     */
+    int getChangeCount() {
+        return changes;
+    }
+
+    /**
+     * Notifies this instance about invocations of a sampled monitoring group.
+     * 
+     * @param sampled the number of recorded invocations
+     * @param skipped the number of skipped invocations, i.e. invocations 
+     *   which were only counted
+     * 
+     * @since 1.30
+     */
+    void invocationsSampled(long sampled, long skipped) {
+        sampledInvocations += sampled;
+        skippedInvocations += skipped;
+    }
+
+    /**
+     * Returns whether the values of this instance are estimated, i.e. 
+     * whether invocations were skipped due to sampling.
+     * 
+     * @return <code>true</code> if the values are estimated, 
+     *   <code>false</code> if they were measured completely
+     * 
+     * @since 1.30
+     */
+    public boolean isEstimated() {
+        return skippedInvocations > 0;
+    }
+
+    /**
+     * Returns the factor which scales the values recorded for the sampled 
+     * invocations to an estimate for all invocations.
+     * 
+     * @return the scaling factor, <code>1</code> if no invocations were 
+     *   skipped
+     * 
+     * @since 1.30
+     */
+    public double getSamplingFactor() {
+        double result;
+        if (0 == skippedInvocations || 0 == sampledInvocations) {
+            result = 1;
+        } else {
+            result = (sampledInvocations + skippedInvocations) 
+                / (double) sampledInvocations;
+        }
+        return result;
     }
     
     /**
@@ -99,6 +239,92 @@ public abstract class RecorderElement implements IMonitoringGroup {
      */
     abstract boolean stopTimeRecording(long nanoTime, long threadTicks, 
         long threadId);
+
+    /**
+     * Notifies this instance that the time recording for an invocation of 
+     * the underlying monitoring group was stopped finally, i.e. that the
+     * times accumulated since the invocation started shall be recorded in
+     * the latency histograms.
+     * 
+     * @param threadId the identifier of the thread causing the call
+     * 
+     * @since 1.30
+     */
+    abstract void invocationFinished(long threadId);
+
+    /**
+     * Returns the latency histogram of the system time of the individual
+     * invocations.
+     * 
+     * @return the histogram in nano seconds, <b>null</b> if latency 
+     *   histograms are not recorded
+     * 
+     * @since 1.30
+     */
+    abstract LatencyHistogram getSystemTimeHistogram();
+
+    /**
+     * Returns the latency histogram of the CPU time of the individual
+     * invocations.
+     * 
+     * @return the histogram in nano seconds, <b>null</b> if latency 
+     *   histograms are not recorded
+     * 
+     * @since 1.30
+     */
+    abstract LatencyHistogram getCpuTimeHistogram();
+
+    /**
+     * Returns the system time of an individual invocation at the given 
+     * percentile.
+     * 
+     * @param percentile the percentile in the range [0;100]
+     * @return the system time in nano seconds, <code>0</code> if latency 
+     *   histograms are not recorded
+     * 
+     * @since 1.30
+     */
+    @Variability(id = AnnotationConstants.MONITOR_TIME_SYSTEM)
+    public long getSystemTimePercentile(double percentile) {
+        return getValueAtPercentile(getSystemTimeHistogram(), percentile);
+    }
+
+    /**
+     * Returns the CPU time of an individual invocation at the given 
+     * percentile.
+     * 
+     * @param percentile the percentile in the range [0;100]
+     * @return the CPU time in nano seconds, <code>0</code> if latency 
+     *   histograms are not recorded
+     * 
+     * @since 1.30
+     */
+    @Variability(id = AnnotationConstants.MONITOR_TIME_CPU)
+    public long getCpuTimePercentile(double percentile) {
+        return getValueAtPercentile(getCpuTimeHistogram(), percentile);
+    }
+
+    /**
+     * Returns the value at the given percentile.
+     * 
+     * @param histogram the histogram to take the value from (may be 
+     *   <b>null</b>)
+     * @param percentile the percentile in the range [0;100]
+     * @return the value, <code>0</code> if <code>histogram</code> is 
+     *   <b>null</b>
+     * 
+     * @since 1.30
+     */
+    private static long getValueAtPercentile(LatencyHistogram histogram, 
+        double percentile) {
+        long result;
+        if (null == histogram) {
+            result = 0;
+        } else {
+            result = histogram.getValueAtPercentile(percentile);
+        }
+        return result;
+    }
     
     /**
      * Records an amount of memory allocated by the underlying recording group.
@@ -339,10 +565,27 @@ public abstract class RecorderElement implements IMonitoringGroup {
      * @since 1.00
      */
     public boolean isIndirectAccounting() {
+        return isIndirectAccounting(
+            Configuration.INSTANCE.getGroupAccountingType());
+    }
+
+    /**
+     * Returns whether indirect accounting is activated, either in this 
+     * instance or (if {@link #getGroupAccounting()} is 
+     * {@link GroupAccountingType#DEFAULT}) in <code>defaultAccounting</code>.
+     * 
+     * @param defaultAccounting the accounting type of the configuration the 
+     *   caller operates on
+     * @return <code>true</code> if indirect is activated, 
+     *      <code>false</code> else
+     * 
+     * @since 1.30
+     */
+    public boolean isIndirectAccounting(GroupAccountingType defaultAccounting) {
         GroupAccountingType relevant;
         GroupAccountingType groupAccounting = getGroupAccounting();
         if (GroupAccountingType.DEFAULT == groupAccounting) {
-            relevant = Configuration.INSTANCE.getGroupAccountingType();
+            relevant = defaultAccounting;
         } else {
             relevant = groupAccounting;
         }
@@ -403,16 +646,34 @@ public abstract class RecorderElement implements IMonitoringGroup {
 
     @Override
     public RecorderElement getInstanceRecorderElement(long instanceId) {
+        return getInstanceRecorderElement(instanceId, 
+            Configuration.INSTANCE.getInstanceLimit());
+    }
+
+    /**
+     * Returns an instance recorder element for recording how the data in 
+     * this recorder element is composed.
+     * 
+     * @param instanceId the instance identifier
+     * @param limit the maximum number of individual instances if the 
+     *   instances are not tracked yet and the monitoring group does not 
+     *   define its own limit (<code>0</code> for unbounded)
+     * @return the instance recorder element
+     * 
+     * @since 1.30
+     */
+    public RecorderElement getInstanceRecorderElement(long instanceId, 
+        int limit) {
         RecorderElement result = this;
         if (InstanceIdentifierKind.NONE != conf.getInstanceIdentifierKind()) {
             if (null == instanceElements) {
-                instanceElements = new LongHashMap<RecorderElement>();
+                if (conf.hasInstanceLimit()) {
+                    limit = conf.getInstanceLimit();
+                }
+                instanceElements = new InstanceRecorderElementMap(conf, this, 
+                    limit);
             }
             result = instanceElements.get(instanceId);
-            if (null == result) {
-                result = new InstanceRecorderElement(conf, this);
-                instanceElements.put(instanceId, result);
-            }
         }
         return result;
     }
@@ -27,7 +27,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.HashMap.Entry;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 // TODO: separate concerns!
 public class RecorderElementMap {
@@ -81,6 +81,24 @@ public class RecorderElementMap {
      */
     private HashMap<String, Integer> varIds = 
         new HashMap<String, Integer>();
+
+    /**
+     * Caches the results of {@link #getAggregatedRecord(String)} by numeric 
+     * recorder id (array index). Invalidated upon registration.
+     */
+    private RecorderElement[] slotRecords = new RecorderElement[0];
+
+    /**
+     * Caches the results of {@link #getVariabilityIdNum(String)} by numeric 
+     * recorder id (array index), {@link #UNKNOWN_SLOT} if not cached. 
+     * Invalidated upon registration.
+     */
+    private int[] slotVarIds = new int[0];
+
+    /**
+     * Denotes an unknown entry in {@link #slotVarIds}.
+     */
+    private static final int UNKNOWN_SLOT = Integer.MIN_VALUE;
     
     /**
      * Stores the pseudo recorder elements.
@@ -117,19 +135,39 @@ public class RecorderElementMap {
      * Stores the recorder element factory.
      */
     private RecorderElementFactory factory;
+
+    /**
+     * Stores the configuration the settings are taken from.
+     */
+    private Configuration configuration;
     
     /**
-     * Creates a new map.
+     * Creates a new map operating on {@link Configuration#INSTANCE}.
      * 
      * @param factory the recorder element factory
      * 
      * @since 1.00
      */
     public RecorderElementMap(RecorderElementFactory factory) {
+        this(factory, Configuration.INSTANCE);
+    }
+
+    /**
+     * Creates a new map.
+     * 
+     * @param factory the recorder element factory
+     * @param configuration the configuration to take the settings from, 
+     *   e.g., the configuration of a remote agent
+     * 
+     * @since 1.30
+     */
+    public RecorderElementMap(RecorderElementFactory factory, 
+        Configuration configuration) {
         if (null == factory) {
             throw new IllegalArgumentException("factory must not be null");
         }
         this.factory = factory;
+        this.configuration = configuration;
     }
 
     /**
@@ -192,6 +230,54 @@ public class RecorderElementMap {
         return result;
     }
 
+    /**
+     * Returns the numerical identification of the variability identification
+     * using the dense numerical identification of <code>recId</code> to
+     * cache the result.
+     * 
+     * @param recIdNum the numerical identification of <code>recId</code>, 
+     *   negative if not known
+     * @param recId the recording identification
+     * @return the (unique) numerical identification, a negative number if none 
+     *   was assigned
+     * 
+     * @since 1.30
+     */
+    public int getVariabilityIdNum(int recIdNum, String recId) {
+        int result;
+        if (recIdNum < 0) {
+            result = getVariabilityIdNum(recId);
+        } else {
+            if (recIdNum < slotVarIds.length) {
+                result = slotVarIds[recIdNum];
+            } else {
+                int[] tmp = new int[Math.max(recIdNum + 1, 
+                    2 * slotVarIds.length)];
+                System.arraycopy(slotVarIds, 0, tmp, 0, slotVarIds.length);
+                for (int i = slotVarIds.length; i < tmp.length; i++) {
+                    tmp[i] = UNKNOWN_SLOT;
+                }
+                slotVarIds = tmp;
+                result = UNKNOWN_SLOT;
+            }
+            if (UNKNOWN_SLOT == result) {
+                result = getVariabilityIdNum(recId);
+                slotVarIds[recIdNum] = result;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Invalidates the caches by numeric recorder ids.
+     * 
+     * @since 1.30
+     */
+    private void invalidateSlots() {
+        slotRecords = new RecorderElement[0];
+        slotVarIds = new int[0];
+    }
+
     /**
      * Adds a pseudo recorder element which represents multiple recorder 
      * elements.
@@ -212,8 +298,7 @@ public class RecorderElementMap {
         BooleanValue tmp = settings.getDistributeValues();
         boolean distributeValues;
         if (BooleanValue.DEFAULT == tmp) {
-            distributeValues = Configuration.INSTANCE.
-                multiGroupsDistributeValues();
+            distributeValues = configuration.multiGroupsDistributeValues();
         } else  {
             distributeValues = (tmp == BooleanValue.TRUE);
         }
@@ -221,8 +306,7 @@ public class RecorderElementMap {
         tmp = settings.getConsiderContained();
         boolean considerContained;
         if (BooleanValue.DEFAULT == tmp) {
-            considerContained = Configuration.INSTANCE.
-                multiGroupsConsiderContained();
+            considerContained = configuration.multiGroupsConsiderContained();
         } else  {
             considerContained = (tmp == BooleanValue.TRUE);
         }
@@ -231,6 +315,7 @@ public class RecorderElementMap {
             elements, distributeValues, considerContained);
         mappedClasses.put(recId, elt);
         pseudoElt.addLast(elt);
+        invalidateSlots();
 //        pseudoElt.add(elt);
     }
     
@@ -286,7 +371,7 @@ public class RecorderElementMap {
             boolean isOverhead 
                 = mappingName.equals(Helper.RECORDER_ID);
             if (!idToConfiguration.containsKey(mappingName)
-                && Configuration.INSTANCE.measureVariantContributions()
+                && configuration.measureVariantContributions()
                 && !isOverhead) {
                 
                 String idName = null;
@@ -353,6 +438,7 @@ public class RecorderElementMap {
                     listener.monitoringGroupCreated(mappingName, registered);
                 }
             }
+            invalidateSlots();
         }
     }
     
@@ -456,7 +542,7 @@ public class RecorderElementMap {
     public RecorderElement getCurrentConfigurationRecord(String recId) {
         RecorderElement result = currentConfigurationRecord;
         if (null != result 
-            && Configuration.INSTANCE.measureVariantContributions()) {
+            && configuration.measureVariantContributions()) {
             PositionRecord pos = idToConfiguration.get(recId);
             if (null != pos) {
                 int size = result.getContributingSize();
@@ -600,6 +686,40 @@ public class RecorderElementMap {
     public RecorderElement getAggregatedRecord(String recId) {
         return mappedClasses.get(recId);
     }
+
+    /**
+     * Returns the (redirected) entry assigned to <code>recId</code> using
+     * the dense numerical identification of <code>recId</code> as cache 
+     * index.
+     * 
+     * @param recIdNum the numerical identification of <code>recId</code>, 
+     *   negative if not known
+     * @param recId the recorder identification
+     * @return the entry or <b>null</b> if not found
+     * 
+     * @since 1.30
+     */
+    public RecorderElement getAggregatedRecord(int recIdNum, String recId) {
+        RecorderElement result;
+        if (recIdNum < 0) {
+            result = mappedClasses.get(recId);
+        } else {
+            if (recIdNum < slotRecords.length) {
+                result = slotRecords[recIdNum];
+            } else {
+                RecorderElement[] tmp = new RecorderElement[Math.max(
+                    recIdNum + 1, 2 * slotRecords.length)];
+                System.arraycopy(slotRecords, 0, tmp, 0, slotRecords.length);
+                slotRecords = tmp;
+                result = null;
+            }
+            if (null == result) {
+                result = mappedClasses.get(recId);
+                slotRecords[recIdNum] = result;
+            }
+        }
+        return result;
+    }
     
     /**
      * Returns all mappings to recorder elements. Keys might be ids or class 
@@ -680,6 +800,55 @@ public class RecorderElementMap {
     public Iterable<Entry<String, RecorderElement>> configurationToRecording() {
         return mappedConfigurations.entries();
     }
+
+    /**
+     * Adds the aggregated values recorded in <code>from</code> to this map,
+     * e.g., to combine partial results recorded for disjoint sets of threads.
+     * The recorder elements are merged by their recorder identifications, 
+     * i.e. both maps must result from the same registrations. Elements of 
+     * <code>from</code> which are not registered in this map are ignored.
+     * Configuration records missing in this map are created.
+     * 
+     * @param from the map to merge the values from
+     * 
+     * @since 1.30
+     */
+    public void merge(RecorderElementMap from) {
+        for (Entry<String, RecorderElement> entry 
+            : from.mappedClasses.entries()) {
+            RecorderElement elt = mappedClasses.get(entry.getKey());
+            if (null != elt) {
+                elt.merge(entry.getValue());
+            }
+        }
+        for (Entry<String, RecorderElement> entry 
+            : from.mappedConfigurations.entries()) {
+            String confId = entry.getKey();
+            RecorderElement elt = mappedConfigurations.get(confId);
+            if (null == elt) {
+                elt = factory.create(MonitoringGroupConfiguration.DEFAULT, 
+                    false);
+                mappedConfigurations.put(confId, elt);
+            }
+            elt.merge(entry.getValue());
+        }
+    }
+
+    /**
+     * Clears the aggregated values of all recorder elements and 
+     * configuration records while keeping the state of currently active 
+     * invocations.
+     * 
+     * @since 1.30
+     */
+    void clearAggregates() {
+        for (RecorderElement elt : mappedClasses.values()) {
+            elt.clearAggregates();
+        }
+        for (RecorderElement elt : mappedConfigurations.values()) {
+            elt.clearAggregates();
+        }
+    }
     
     /**
      * Returns the current length of the configuration. May change over time in
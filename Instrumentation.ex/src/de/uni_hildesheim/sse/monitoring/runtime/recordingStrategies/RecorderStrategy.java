@@ -19,7 +19,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.LongLongHashMap;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public interface RecorderStrategy {
 
@@ -82,6 +82,20 @@ public interface RecorderStrategy {
      */
     @Variability(id = AnnotationConstants.MONITOR_MEMORY_USAGE)
     public void memoryFreedByRecId(String recId, long size);
+
+    /**
+     * Notifies the recorder about invocations of a sampled monitoring group,
+     * i.e. about the number of invocations which were recorded and of those
+     * which were skipped. The recorder shall scale the values recorded for 
+     * the group accordingly and mark them as estimated.
+     * 
+     * @param recId a unique identification where to assign this event to
+     * @param sampled the number of recorded invocations
+     * @param skipped the number of skipped invocations
+     * 
+     * @since 1.30
+     */
+    public void invocationsSampled(String recId, long sampled, long skipped);
     
     /**
      * Notifies the recorder about an object allocated to memory. Please note
@@ -114,6 +128,26 @@ public interface RecorderStrategy {
     public boolean exit(String recId, long now, ThreadsInfo threadsInfo, 
         boolean exclude);
 
+    /**
+     * Notifies the recorder about a method being exited. In addition to
+     * {@link #exit(String, long, ThreadsInfo, boolean)}, a dense numeric 
+     * identification of <code>recId</code> is given which may be used to
+     * look up the related recorder element via array indexes. 
+     * 
+     * @param recIdNum the numeric identification of <code>recId</code>, 
+     *   negative if not known
+     * @param recId a unique identification where to assign this event to
+     * @param now the current time in nano seconds
+     * @param threadsInfo information on the currently running threads
+     * @param exclude is this an exclusion from monitoring
+     * @return <code>true</code> if the threadsInfo object should be released 
+     *     to the pool, <code>false</code> if it should not be released
+     * 
+     * @since 1.30
+     */
+    public boolean exit(int recIdNum, String recId, long now, 
+        ThreadsInfo threadsInfo, boolean exclude);
+
     /**
      * Registers a thread id with a recording id. This method is used to
      * assign unregistered method calls to monitored threads as well as to
@@ -152,6 +186,26 @@ public interface RecorderStrategy {
     public boolean enter(String recId, long now, ThreadsInfo threadsInfo, 
         boolean exclude);
 
+    /**
+     * Notifies the recorder about a method being called. In addition to
+     * {@link #enter(String, long, ThreadsInfo, boolean)}, a dense numeric 
+     * identification of <code>recId</code> is given which may be used to
+     * look up the related recorder element via array indexes. 
+     * 
+     * @param recIdNum the numeric identification of <code>recId</code>, 
+     *   negative if not known
+     * @param recId a unique identification where to assign this event to
+     * @param now the current system time in nano seconds
+     * @param threadsInfo information on the currently running threads
+     * @param exclude is this an exclusion from monitoring
+     * @return <code>true</code> if the threadsInfo object should be released 
+     *     to the pool, <code>false</code> if it should not be released
+     * 
+     * @since 1.30
+     */
+    public boolean enter(int recIdNum, String recId, long now, 
+        ThreadsInfo threadsInfo, boolean exclude);
+
     /**
      * Notifies that the following values (if not further calls 
      * to this method or other recording ids occur) should be assigned
@@ -320,7 +374,7 @@ public interface RecorderStrategy {
      * 
      * @param id the timer identification (may overlap with recorder ids)
      * @param state the new timer state
-     * @param now the current system time in milliseconds
+     * @param now the current system time in nano seconds
      * @param threadId the id of the currently executing thread, may be 
      *     negative if it should be ignored
      * 
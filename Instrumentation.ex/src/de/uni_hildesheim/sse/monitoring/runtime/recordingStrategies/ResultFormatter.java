@@ -2,6 +2,8 @@ package de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies;
 
 import java.io.PrintStream;
 
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LatencyHistogram;
+
 /**
  * A formatter for emitting out monitoring results. First method of using this
  * interface should be {@link #configure} and 
@@ -9,7 +11,7 @@ import java.io.PrintStream;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public interface ResultFormatter {
 
@@ -100,6 +102,17 @@ public interface ResultFormatter {
      * @since 1.00
      */
     public void printInfo(InfoCategory info);
+
+    /**
+     * Prints out the distribution of the values of a user-defined timer.
+     * 
+     * @param id the timer identification
+     * @param histogram the values of the finished timer periods in nano 
+     *   seconds
+     * 
+     * @since 1.30
+     */
+    public void printTimer(String id, LatencyHistogram histogram);
     
     /**
      * Defines some information categories to be printed as additional 
@@ -107,7 +120,7 @@ public interface ResultFormatter {
      * 
      * @author Holger Eichelberger
      * @since 1.00
-     * @version 1.00
+     * @version 1.30
      */
     public enum InfoCategory {
         
@@ -127,7 +140,15 @@ public interface ResultFormatter {
          * Marks the configurations section, i.e. where measurements for 
          * compositions of monitoring groups are emitted.
          */
-        CONFIGURATIONS;
+        CONFIGURATIONS,
+
+        /**
+         * Marks the timers section, i.e. where the distributions of the 
+         * values of user-defined timers are emitted.
+         * 
+         * @since 1.30
+         */
+        TIMERS;
     }
 
     /**
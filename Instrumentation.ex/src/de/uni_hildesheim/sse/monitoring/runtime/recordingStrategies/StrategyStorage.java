@@ -14,7 +14,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.HashMap;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public class StrategyStorage implements RecorderElementFactory {
 
@@ -35,14 +35,33 @@ public class StrategyStorage implements RecorderElementFactory {
      */
     private HashMap<String, RecorderElement> defaults 
         = new HashMap<String, RecorderElement>();
+
+    /**
+     * Stores the configuration the settings are taken from.
+     */
+    private Configuration configuration;
     
     /**
-     * Creates a new recorder strategy.
+     * Creates a new recorder strategy storage operating on 
+     * {@link Configuration#INSTANCE}.
      * 
      * @since 1.00
      */
     public StrategyStorage() {
-        recorderElements = new RecorderElementMap(this);
+        this(Configuration.INSTANCE);
+    }
+
+    /**
+     * Creates a new recorder strategy storage.
+     * 
+     * @param configuration the configuration to take the settings from, 
+     *   e.g., the configuration of a remote agent
+     * 
+     * @since 1.30
+     */
+    public StrategyStorage(Configuration configuration) {
+        this.configuration = configuration;
+        recorderElements = new RecorderElementMap(this, configuration);
     }
     
     /**
@@ -60,13 +79,14 @@ public class StrategyStorage implements RecorderElementFactory {
     public RecorderElement create(MonitoringGroupConfiguration conf, 
         boolean forceDefaultInstances) {
         RecorderElement elt = null;
+        boolean histograms = configuration.recordLatencyHistograms();
         if (!forceDefaultInstances 
-            && Configuration.INSTANCE.measureVariantContributions()) {
-            elt = new ContributingRecorderElement(conf);
+            && configuration.measureVariantContributions()) {
+            elt = new ContributingRecorderElement(conf, histograms);
         }
         // additional condition for variabilities
         if (null == elt) {
-            elt = new DefaultRecorderElement(conf);
+            elt = new DefaultRecorderElement(conf, histograms);
         }
         return elt;
     }
@@ -157,16 +177,16 @@ public class StrategyStorage implements RecorderElementFactory {
                 for (int i = 0; i < id.length; i++) {
                     if (null != id[i]) {
                         String rId = Helper.trimId(id[i]);
-                        MonitoringGroupConfiguration rConf = Configuration.
-                            INSTANCE.getMonitoringGroupConfiguration(rId);
+                        MonitoringGroupConfiguration rConf = configuration.
+                            getMonitoringGroupConfiguration(rId);
                         if (null == rConf) {
                             // override on demand
                             rConf = MonitoringGroupConfiguration.STUB;
                         } else {
                             // testing consistency
                             if (!conf.isConsistent(rConf)) {
-                                logConsistencyWarning(rId, Configuration.
-                                    INSTANCE.getPseudoMapping(recId));
+                                logConsistencyWarning(rId, configuration.
+                                    getPseudoMapping(recId));
                             }
                         }
                         recorderElements.put(className, rId, rConf);
@@ -262,6 +282,29 @@ public class StrategyStorage implements RecorderElementFactory {
         return elt;
     }
 
+    /**
+     * Returns the recorder element for the given recording group id 
+     * using the dense numeric identification of <code>id</code> for a fast
+     * lookup. Considers {@link #defaults}.
+     * 
+     * @param idNum the numeric identification of <code>id</code>, negative
+     *   if not known
+     * @param id the group identification
+     * @return the recorder element or <b>null</b>
+     * 
+     * @since 1.30
+     */
+    protected RecorderElement getRecorderElement(int idNum, String id) {
+        RecorderElement elt = null;
+        if (null != id) {
+            elt = recorderElements.getAggregatedRecord(idNum, id);
+            if (null == elt) {
+                elt = defaults.get(id);
+            }
+        }
+        return elt;
+    }
+
     /**
      * Registers an default recorder elements which should be available by
      * its name only (fix).
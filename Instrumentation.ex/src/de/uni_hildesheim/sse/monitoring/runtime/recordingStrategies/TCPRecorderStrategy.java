@@ -1,5 +1,7 @@
 package de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies;
 
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -14,27 +16,54 @@ import de.uni_hildesheim.sse.monitoring.runtime.annotations.Helper;
 import de.uni_hildesheim.sse.monitoring.runtime.boot.RecorderFrontend;
 import de.uni_hildesheim.sse.monitoring.runtime.boot.StreamType;
 import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.TcpCompressionType;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.*;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchOutputStream;
 import de.uni_hildesheim.sse.monitoring.runtime.wrap.DelegatingOutputStream;
 
 /**
  * Implements the TCP recorder strategy for recording. This class sends all
  * recorded events via tcp to a specified server. To specify server and port vm
  * arguments must be added: tcp=server:port (i.e. tcp=localhost:6002). The
- * server must listen on the same specified port.
+ * server must listen on the same specified port.<p>
+ * If supported by the server, events are sent in compact batches (wire
+ * protocol {@link Constants#PROTOCOL_V2}), else individually (wire protocol
+ * {@link Constants#PROTOCOL_V1}).
  * 
- * @author Stephan Dederichs
+ * @author Stephan Dederichs, Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 @Variability(id = AnnotationConstants.STRATEGY_TCP)
 public class TCPRecorderStrategy extends AbstractEventRecorderStrategy {
 
+    /**
+     * Defines the batch size in bytes which causes sending a batch.
+     */
+    private static final int MAX_BATCH_SIZE = 65536;
+
+    /**
+     * Defines the time in milliseconds to wait for the protocol answer of
+     * the server. Old servers do not answer.
+     */
+    private static final int HANDSHAKE_TIMEOUT = 2000;
+
+    /**
+     * Defines the socket timeout in milliseconds.
+     */
+    private static final int SOCKET_TIMEOUT = 60000;
+
     /**
      * Stores the {@link Socket} for the client.
      */
     private Socket socket;
 
+    /**
+     * Stores the batch output stream in case of 
+     * {@link Constants#PROTOCOL_V2}, <b>null</b> else.
+     */
+    private BatchOutputStream batchOut;
+
     /**
      * Stores the {@link DataOutputStream} to send messages to the server.
      */
@@ -65,7 +94,7 @@ public class TCPRecorderStrategy extends AbstractEventRecorderStrategy {
             // Create a connection to server
             socket = new Socket(conf.getTCPHostname(), conf.getTCPPort());
             // close socket after 1 minute
-            socket.setSoTimeout(60000);
+            socket.setSoTimeout(SOCKET_TIMEOUT);
             // Create input and output streams to socket
             OutputStream os = socket.getOutputStream();
             if (null != RecorderFrontend.instance) {
@@ -79,9 +108,15 @@ public class TCPRecorderStrategy extends AbstractEventRecorderStrategy {
                     }
                 }
             }
-            out = new DataOutputStream(os);
+            out = new DataOutputStream(new BufferedOutputStream(os));
             // send configuration
             conf.write(out);
+            out.flush();
+            if (conf.getTcpProtocol() >= Constants.PROTOCOL_V2 
+                && Constants.PROTOCOL_V2 == negotiateProtocol()) {
+                batchOut = new BatchOutputStream(out, 
+                    TcpCompressionType.DEFLATE == conf.getTcpCompression());
+            }
             // Start SendThread
             start();
         } catch (SocketException e) {
@@ -99,6 +134,28 @@ public class TCPRecorderStrategy extends AbstractEventRecorderStrategy {
         }
     }
 
+    /**
+     * Waits for the server to accept the protocol offered via the 
+     * configuration. Old servers do not answer, i.e. this method falls back
+     * to {@link Constants#PROTOCOL_V1} after {@link #HANDSHAKE_TIMEOUT}.
+     * 
+     * @return the protocol version accepted by the server
+     * @throws IOException in case of I/O problems
+     * 
+     * @since 1.30
+     */
+    private int negotiateProtocol() throws IOException {
+        int result = Constants.PROTOCOL_V1;
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT);
+        try {
+            result = new DataInputStream(socket.getInputStream()).readInt();
+        } catch (SocketTimeoutException e) {
+            // old server, keep version 1
+        }
+        socket.setSoTimeout(SOCKET_TIMEOUT);
+        return result;
+    }
+
     /**
      * Handles an event.
      * 
@@ -111,10 +168,43 @@ public class TCPRecorderStrategy extends AbstractEventRecorderStrategy {
     protected void handleEvent(RecordingStrategiesElement event) 
         throws HandleException {
         try {
-            if (Constants.CLEARTEMPORARYDATA != event.getIdentification()) {
-                out.writeInt(event.getIdentification());
-                // Sends the element to the server
-                event.send(out);
+            int id = event.getIdentification();
+            if (Constants.CLEARTEMPORARYDATA != id) {
+                if (null != batchOut) {
+                    batchOut.writeVarInt(id);
+                    event.sendBatched(batchOut);
+                    if (batchOut.batchSize() >= MAX_BATCH_SIZE 
+                        || Constants.ENDSYSTEM == id) {
+                        batchOut.flushBatch();
+                    }
+                } else {
+                    out.writeInt(id);
+                    // Sends the element to the server
+                    event.send(out);
+                    if (Constants.ENDSYSTEM == id) {
+                        out.flush();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new HandleException(e);
+        }
+    }
+
+    /**
+     * Sends buffered events as no further events are pending.
+     * 
+     * @throws HandleException in case of I/O problems
+     * 
+     * @since 1.30
+     */
+    @Override
+    protected void eventsDrained() throws HandleException {
+        try {
+            if (null != batchOut) {
+                batchOut.flushBatch();
+            } else {
+                out.flush();
             }
         } catch (IOException e) {
             throw new HandleException(e);
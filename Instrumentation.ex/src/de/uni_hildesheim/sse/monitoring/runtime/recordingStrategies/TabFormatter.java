@@ -3,25 +3,89 @@ package de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies;
 import java.io.PrintStream;
 import java.util.Iterator;
 
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
     ProcessData.Measurements;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LatencyHistogram;
 
 /**
  * A formatter for tab-separated elements.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public class TabFormatter extends AbstractResultFormatter {
 
     /**
-     * Creates a new tab formatter.
+     * Defines the position of the program record in {@link #stateElements}.
+     */
+    private static final int PROGRAM_STATE = 0;
+
+    /**
+     * Defines the position of the overhead record in {@link #stateElements}.
+     */
+    private static final int OVERHEAD_STATE = 1;
+
+    /**
+     * Defines the position of the first monitoring group in 
+     * {@link #stateElements}.
+     */
+    private static final int GROUP_STATE = 2;
+
+    /**
+     * Stores whether the percentiles of the invocation times shall be 
+     * printed for the individual monitoring groups.
+     */
+    private boolean printPercentiles;
+
+    /**
+     * Stores whether the sampling factor of estimated monitoring groups 
+     * shall be printed.
+     */
+    private boolean printSampling;
+
+    /**
+     * Stores the recorder elements of the current state columns, i.e. the
+     * program and the overhead record followed by the monitoring groups in 
+     * the sequence of the recorder ids.
+     */
+    private RecorderElement[] stateElements = new RecorderElement[0];
+
+    /**
+     * Stores the change counts of {@link #stateElements} when their current
+     * state columns were formatted.
+     */
+    private int[] stateChanges = new int[0];
+
+    /**
+     * Stores the formatted current state columns of {@link #stateElements}
+     * (without trailing separator), so that only the columns of changed 
+     * elements are formatted again.
+     */
+    private String[] stateColumns = new String[0];
+
+    /**
+     * Creates a new tab formatter for {@link Configuration#INSTANCE}.
      * 
      * @since 1.00
      */
     public TabFormatter() {
+        this(Configuration.INSTANCE);
+    }
+
+    /**
+     * Creates a new tab formatter.
+     * 
+     * @param configuration the configuration the results were recorded 
+     *   with, e.g., the configuration of a remote agent
+     * 
+     * @since 1.30
+     */
+    public TabFormatter(Configuration configuration) {
         setSeparator('\t');
+        printPercentiles = configuration.recordLatencyHistograms();
+        printSampling = configuration.isSampling();
     }
     
     /**
@@ -138,39 +202,50 @@ public class TabFormatter extends AbstractResultFormatter {
             print(description);
         }
         if (null == total) {
-            print(individual.getMemUse());
-            print(individual.getMemAllocated());
-            print(individual.getSystemTimeTicks());
+            double f = individual.getSamplingFactor();
+            print(scale(individual.getMemUse(), f));
+            print(scale(individual.getMemAllocated(), f));
+            print(scale(individual.getSystemTimeTicks(), f));
             print(0); // legacy
-            print(individual.getCpuTimeTicks());
-            print(individual.getIoRead());
-            print(individual.getNetIn());
-            print(individual.getFileIn());
-            print(individual.getIoWrite());
-            print(individual.getNetOut());
-            print(individual.getFileOut());
-            printSeparator(); // load
-            printSeparator(); // load
-        } else {
+            print(scale(individual.getCpuTimeTicks(), f));
+            print(scale(individual.getIoRead(), f));
+            print(scale(individual.getNetIn(), f));
+            print(scale(individual.getFileIn(), f));
+            print(scale(individual.getIoWrite(), f));
+            print(scale(individual.getNetOut(), f));
+            print(scale(individual.getFileOut(), f));
+                printSeparator(); // load
+                printSeparator(); // load
+                printPercentiles(individual);
+                printSampling(individual);
+            } else {
             if (null != individual) {
-                printPercentage(individual.getMemUse(), total.getMemUse());
-                printPercentage(individual.getMemAllocated(), 
+                double f = individual.getSamplingFactor();
+                printPercentage(scale(individual.getMemUse(), f), 
+                    total.getMemUse());
+                printPercentage(scale(individual.getMemAllocated(), f), 
                     total.getMemAllocated());
-                print(individual.getSystemTimeTicks());
+                print(scale(individual.getSystemTimeTicks(), f));
                 print(0); // legacyPercentageNanoPrefix(
-                printPercentageNanoPrefix(individual.getCpuTimeTicks(), 
-                    total.getCpuTimeTicks());
-                printPercentage(individual.getIoRead(), total.getIoRead());
-                printPercentage(individual.getNetIn(), total.getNetIn());
-                printPercentage(individual.getFileIn(), total.getFileIn());
-                printPercentage(individual.getIoWrite(), total.getIoWrite());
-                printPercentage(individual.getNetOut(), total.getNetOut());
-                printPercentage(individual.getFileOut(), total.getFileOut());
+                long cpuTime = scale(individual.getCpuTimeTicks(), f);
+                printPercentageNanoPrefix(cpuTime, total.getCpuTimeTicks());
+                printPercentage(scale(individual.getIoRead(), f), 
+                    total.getIoRead());
+                printPercentage(scale(individual.getNetIn(), f), 
+                    total.getNetIn());
+                printPercentage(scale(individual.getFileIn(), f), 
+                    total.getFileIn());
+                printPercentage(scale(individual.getIoWrite(), f), 
+                    total.getIoWrite());
+                printPercentage(scale(individual.getNetOut(), f), 
+                    total.getNetOut());
+                printPercentage(scale(individual.getFileOut(), f), 
+                    total.getFileOut());
                 double timeFraction;
                 if (0 == total.getCpuTimeTicks()) {
                     timeFraction = 0; 
                 } else {
-                    timeFraction = individual.getCpuTimeTicks()
+                    timeFraction = cpuTime 
                         / ((double) total.getCpuTimeTicks());
                 }
                 printPercentage(100 * timeFraction);
@@ -180,11 +255,74 @@ public class TabFormatter extends AbstractResultFormatter {
                 } else {
                     printSeparator();
                 }
+                printPercentiles(individual);
+                printSampling(individual);
             }
         }
         println();
     }
 
+    /**
+     * Scales a value recorded for the sampled invocations of a monitoring
+     * group to an estimate for all invocations. Note that the resources 
+     * consumed by skipped invocations are not subtracted from the group 
+     * recording the calling code, i.e. they are accounted for the caller 
+     * and, via this estimate, again for the sampled callee. Hence, the 
+     * scaled values of nested groups are not additive and the sum over all
+     * groups may exceed the program values.
+     * 
+     * @param value the recorded value
+     * @param factor the sampling factor 
+     *   (see {@link RecorderElement#getSamplingFactor()})
+     * @return the estimated value
+     * 
+     * @since 1.30
+     */
+    private static long scale(long value, double factor) {
+        long result = value;
+        if (1 != factor) {
+            result = Math.round(value * factor);
+        }
+        return result;
+    }
+
+    /**
+     * Prints the sampling factor if sampling is enabled and the values of
+     * <code>individual</code> are estimated, i.e. scaled up from sampled 
+     * invocations.
+     * 
+     * @param individual the individual element to be emitted
+     * 
+     * @since 1.30
+     */
+    private void printSampling(RecorderElement individual) {
+        if (printSampling) {
+            if (individual.isEstimated()) {
+                print("~" + Math.round(100 * individual.getSamplingFactor()) 
+                    / 100.0);
+            } else {
+                printSeparator();
+            }
+        }
+    }
+
+    /**
+     * Prints the median and the 99th percentile of the system and CPU time 
+     * of the individual invocations if enabled.
+     * 
+     * @param individual the individual element to be emitted
+     * 
+     * @since 1.30
+     */
+    private void printPercentiles(RecorderElement individual) {
+        if (printPercentiles) {
+            print(individual.getSystemTimePercentile(50));
+            print(individual.getSystemTimePercentile(99));
+            print(individual.getCpuTimePercentile(50));
+            print(individual.getCpuTimePercentile(99));
+        }
+    }
+
     /**
      * Prints out the headline describing the data columns.
      */
@@ -204,6 +342,15 @@ public class TabFormatter extends AbstractResultFormatter {
         print("filout");
         print("jvm load");
         print("sys load");
+        if (printPercentiles) {
+            print("sys p50");
+            print("sys p99");
+            print("cpu p50");
+            print("cpu p99");
+        }
+        if (printSampling) {
+            print("estimated");
+        }
         println();
     }
     
@@ -310,12 +457,42 @@ public class TabFormatter extends AbstractResultFormatter {
             case CONFIGURATIONS:
                 out.println("\n\nCONFIGURATIONS");
                 break;
+            case TIMERS:
+                out.println("\n\nTIMERS");
+                print("timer");
+                print("count");
+                print("p50");
+                print("p90");
+                print("p99");
+                print("max");
+                println();
+                break;
             default:
                 // no output at all
                 break;
             }
         }
     }
+
+    /**
+     * Prints out the distribution of the values of a user-defined timer.
+     * 
+     * @param id the timer identification
+     * @param histogram the values of the finished timer periods in nano 
+     *   seconds
+     * 
+     * @since 1.30
+     */
+    @Override
+    public void printTimer(String id, LatencyHistogram histogram) {
+        print(id);
+        print(histogram.getCount());
+        print(histogram.getValueAtPercentile(50));
+        print(histogram.getValueAtPercentile(90));
+        print(histogram.getValueAtPercentile(99));
+        print(histogram.getMax());
+        println();
+    }
     
     /**
      * Prints the current (aggregated) state. This method needs an appropriate
@@ -336,22 +513,80 @@ public class TabFormatter extends AbstractResultFormatter {
         printSeparator();
         printMeasurementsStatistics(getJvmData());
         printSeparator();
-        printRecorderElementStatistics(programRecord);
+        printRecorderElementStatistics(PROGRAM_STATE, programRecord);
         printSeparator();
-        printRecorderElementStatistics(overheadRecord);
+        printRecorderElementStatistics(OVERHEAD_STATE, overheadRecord);
         printSeparator();
         Iterator<String> iter = elements.recorderIds();
+        int pos = GROUP_STATE;
         while (iter.hasNext()) {
             String id = iter.next();
             if (!excludeId(id)) {
-                printRecorderElementStatistics(
+                printRecorderElementStatistics(pos, 
                     elements.getAggregatedRecord(id));
                 printSeparator();
             }
+            pos++;
         }
         println();
     }
 
+    /**
+     * Returns the formatted current state columns of <code>elt</code>. The
+     * columns are formatted again only if <code>elt</code> changed since
+     * the last call for <code>pos</code>.
+     * 
+     * @param pos the position of <code>elt</code> in {@link #stateElements}
+     * @param elt the recorder element
+     * @return the formatted columns (without trailing separator)
+     * 
+     * @since 1.30
+     */
+    private String getStateColumns(int pos, RecorderElement elt) {
+        if (pos >= stateElements.length) {
+            int size = Math.max(pos + 1, 2 * stateElements.length);
+            RecorderElement[] tmpElements = new RecorderElement[size];
+            System.arraycopy(stateElements, 0, tmpElements, 0, 
+                stateElements.length);
+            stateElements = tmpElements;
+            int[] tmpChanges = new int[size];
+            System.arraycopy(stateChanges, 0, tmpChanges, 0, 
+                stateChanges.length);
+            stateChanges = tmpChanges;
+            String[] tmpColumns = new String[size];
+            System.arraycopy(stateColumns, 0, tmpColumns, 0, 
+                stateColumns.length);
+            stateColumns = tmpColumns;
+        }
+        int changes = elt.getChangeCount();
+        if (stateElements[pos] != elt || stateChanges[pos] != changes 
+            || null == stateColumns[pos]) {
+            char separator = getSeparator();
+            StringBuilder columns = new StringBuilder();
+            columns.append(0); // legacy
+            columns.append(separator);
+            columns.append(elt.getMemAllocated());
+            columns.append(separator);
+            columns.append(elt.getMemUse());
+            columns.append(separator);
+            columns.append(elt.getIoRead());
+            columns.append(separator);
+            columns.append(elt.getNetIn());
+            columns.append(separator);
+            columns.append(elt.getFileIn());
+            columns.append(separator);
+            columns.append(elt.getIoWrite());
+            columns.append(separator);
+            columns.append(elt.getNetOut());
+            columns.append(separator);
+            columns.append(elt.getFileOut());
+            stateElements[pos] = elt;
+            stateChanges[pos] = changes;
+            stateColumns[pos] = columns.toString();
+        }
+        return stateColumns[pos];
+    }
+
     /**
      * Stores runtime statistical data for <code>measurements</code>.
      * 
@@ -385,21 +620,16 @@ public class TabFormatter extends AbstractResultFormatter {
     /**
      * Stores runtime statistical data for <code>elt</code>.
      * 
-     * @param elt the recorder element object to be printed
+     * @param pos the position of <code>elt</code> in {@link #stateElements}
+     * @param elt the recorder element object to be printed (may be 
+     *   <b>null</b>)
      * 
      * @since 1.00
      */
-    private void printRecorderElementStatistics(RecorderElement elt) {
+    private void printRecorderElementStatistics(int pos, 
+        RecorderElement elt) {
         if (null != elt) {
-            print(0); // legacy
-            print(elt.getMemAllocated());
-            print(elt.getMemUse());
-            print(elt.getIoRead());
-            print(elt.getNetIn());
-            print(elt.getFileIn());
-            print(elt.getIoWrite());
-            print(elt.getNetOut());
-            print(elt.getFileOut());
+            print(getStateColumns(pos, elt));
         } else {
             for (int i = 0; i < 8; i++) {
                 printSeparator();   
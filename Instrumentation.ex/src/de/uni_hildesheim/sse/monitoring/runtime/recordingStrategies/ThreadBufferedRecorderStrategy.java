@@ -0,0 +1,718 @@
+package de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies;
+
+import java.lang.ref.WeakReference;
+
+import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
+import de.uni_hildesheim.sse.monitoring.runtime.AnnotationConstants;
+import de.uni_hildesheim.sse.monitoring.runtime.annotations.TimerState;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.MonitoringGroupSettings;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.StreamType;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.
+    MonitoringGroupConfiguration;
+import de.uni_hildesheim.sse.monitoring.runtime.plugins.ValueType;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LongHashMap;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LongLongHashMap;
+
+/**
+ * Implements a recorder strategy which records the high-frequency events
+ * (enter, exit, memory allocation, I/O) of each thread into a preallocated
+ * per-thread buffer without acquiring a global monitor. The buffers are
+ * drained into the (non thread-safe) delegate strategy, i.e. into the
+ * shared {@link RecorderElementMap}, whenever a global event such as
+ * {@link #printCurrentState(ProcessData)}, {@link #printStatistics(ProcessData)}
+ * or a thread registration occurs, or if the buffer of a thread is full.
+ * As events of an individual thread are processed in their original order
+ * and all global events are processed after draining all buffers, the
+ * results are the same as for the delegate strategy.<p>
+ * Each buffer is a single-producer ring, i.e. only the owning thread adds
+ * events while draining happens only while holding the lock of this
+ * strategy. Buffers are located via a copy-on-write map which is only
+ * modified when a thread records its first event.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public class ThreadBufferedRecorderStrategy extends AbstractRecorderStrategy {
+
+    /**
+     * Defines the default capacity of a thread buffer (power of 2).
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Denotes an enter event.
+     */
+    private static final int ENTER = 0;
+
+    /**
+     * Denotes an exit event.
+     */
+    private static final int EXIT = 1;
+
+    /**
+     * Denotes a memory allocation event.
+     */
+    private static final int MEMORY_ALLOCATED = 2;
+
+    /**
+     * Denotes a read I/O event.
+     */
+    private static final int READ_IO = 3;
+
+    /**
+     * Denotes a write I/O event.
+     */
+    private static final int WRITE_IO = 4;
+
+    /**
+     * Stores the strategy actually processing the events.
+     */
+    private RecorderStrategy delegate;
+
+    /**
+     * Stores the capacity of the thread buffers.
+     */
+    private int capacity;
+
+    /**
+     * Stores the thread buffers (copy-on-write, modifications only while
+     * holding {@link #lock}).
+     */
+    private volatile LongHashMap<ThreadBuffer> buffers
+        = new LongHashMap<ThreadBuffer>();
+
+    /**
+     * The lock guarding the delegate strategy.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Creates a new thread buffered recorder strategy with
+     * {@link #DEFAULT_CAPACITY}.
+     *
+     * @param delegate the strategy to process the events
+     *
+     * @since 1.30
+     */
+    public ThreadBufferedRecorderStrategy(RecorderStrategy delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new thread buffered recorder strategy.
+     *
+     * @param delegate the strategy to process the events
+     * @param capacity the capacity of the individual thread buffers, rounded
+     *   up to the next power of 2
+     *
+     * @since 1.30
+     */
+    public ThreadBufferedRecorderStrategy(RecorderStrategy delegate,
+        int capacity) {
+        super(delegate.getStorage());
+        this.delegate = delegate;
+        int cap = 1;
+        while (cap < capacity) {
+            cap <<= 1;
+        }
+        this.capacity = cap;
+    }
+
+    /**
+     * Stores an individual buffered event. Instances are preallocated per
+     * thread buffer and reused.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class Event {
+
+        /**
+         * Stores the event kind.
+         */
+        private int kind;
+
+        /**
+         * Stores the recorder id.
+         */
+        private String recId;
+
+        /**
+         * Stores the numeric recorder id (enter, exit), negative if unknown.
+         */
+        private int recIdNum;
+
+        /**
+         * Stores the caller (I/O events).
+         */
+        private String caller;
+
+        /**
+         * Stores the point in time (enter, exit).
+         */
+        private long now;
+
+        /**
+         * Stores the thread information (enter, exit).
+         */
+        private ThreadsInfo threadsInfo;
+
+        /**
+         * Stores the exclusion flag (enter, exit).
+         */
+        private boolean exclude;
+
+        /**
+         * Stores the thread id (memory allocation, I/O).
+         */
+        private long threadId;
+
+        /**
+         * Stores the object id (memory allocation).
+         */
+        private long id;
+
+        /**
+         * Stores the size (memory allocation, I/O).
+         */
+        private long size;
+
+        /**
+         * Stores the stream type (I/O).
+         */
+        private StreamType type;
+
+        /**
+         * Processes this event on <code>strategy</code> and clears the
+         * references held by this event.
+         *
+         * @param strategy the strategy to process the event
+         *
+         * @since 1.30
+         */
+        private void process(RecorderStrategy strategy) {
+            switch (kind) {
+            case ENTER:
+                if (strategy.enter(recIdNum, recId, now, threadsInfo,
+                    exclude)) {
+                    ThreadsInfo.POOL.release(threadsInfo);
+                }
+                break;
+            case EXIT:
+                if (strategy.exit(recIdNum, recId, now, threadsInfo,
+                    exclude)) {
+                    ThreadsInfo.POOL.release(threadsInfo);
+                }
+                break;
+            case MEMORY_ALLOCATED:
+                strategy.memoryAllocated(recId, threadId, id, size);
+                break;
+            case READ_IO:
+                strategy.readIo(recId, caller, threadId, (int) size, type);
+                break;
+            case WRITE_IO:
+                strategy.writeIo(recId, caller, threadId, (int) size, type);
+                break;
+            default:
+                break;
+            }
+            recId = null;
+            caller = null;
+            threadsInfo = null;
+            type = null;
+        }
+
+    }
+
+    /**
+     * Implements a single-producer ring buffer of preallocated events owned
+     * by a thread.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class ThreadBuffer {
+
+        /**
+         * Stores the (weak) owner thread.
+         */
+        private final WeakReference<Thread> owner;
+
+        /**
+         * Stores the events.
+         */
+        private final Event[] events;
+
+        /**
+         * Stores the mask to turn sequence numbers into array indexes.
+         */
+        private final int mask;
+
+        /**
+         * Stores the sequence number of the next event to be consumed.
+         */
+        private volatile long head;
+
+        /**
+         * Stores the sequence number of the next event to be produced.
+         */
+        private volatile long tail;
+
+        /**
+         * Creates a new thread buffer.
+         *
+         * @param owner the owning thread
+         * @param capacity the capacity (power of 2)
+         *
+         * @since 1.30
+         */
+        private ThreadBuffer(Thread owner, int capacity) {
+            this.owner = new WeakReference<Thread>(owner);
+            this.events = new Event[capacity];
+            for (int i = 0; i < capacity; i++) {
+                events[i] = new Event();
+            }
+            this.mask = capacity - 1;
+        }
+
+        /**
+         * Returns the next free event slot. [owner thread]
+         *
+         * @return the next free slot, <b>null</b> if the buffer is full
+         *
+         * @since 1.30
+         */
+        private Event next() {
+            Event result;
+            long t = tail;
+            if (t - head < events.length) {
+                result = events[(int) t & mask];
+            } else {
+                result = null;
+            }
+            return result;
+        }
+
+        /**
+         * Publishes the slot returned by {@link #next()}. [owner thread]
+         *
+         * @since 1.30
+         */
+        private void publish() {
+            tail = tail + 1;
+        }
+
+        /**
+         * Processes all published events on <code>strategy</code>.
+         * [lock holder]
+         *
+         * @param strategy the strategy to process the events
+         *
+         * @since 1.30
+         */
+        private void drain(RecorderStrategy strategy) {
+            long h = head;
+            long t = tail;
+            while (h < t) {
+                events[(int) h & mask].process(strategy);
+                h++;
+                head = h;
+            }
+        }
+
+        /**
+         * Returns whether this buffer is empty and its owner has ended.
+         *
+         * @return <code>true</code> if this buffer can be disposed,
+         *   <code>false</code> else
+         *
+         * @since 1.30
+         */
+        private boolean isDisposable() {
+            Thread thread = owner.get();
+            return head == tail && (null == thread || !thread.isAlive());
+        }
+
+    }
+
+    /**
+     * Returns the buffer of the current thread, creates it if required.
+     *
+     * @return the buffer of the current thread
+     *
+     * @since 1.30
+     */
+    private ThreadBuffer getBuffer() {
+        Thread current = Thread.currentThread();
+        long key = current.getId();
+        ThreadBuffer result = buffers.get(key);
+        if (null == result || result.owner.get() != current) {
+            synchronized (lock) {
+                if (null != result) {
+                    result.drain(delegate); // thread id reused
+                }
+                result = new ThreadBuffer(current, capacity);
+                LongHashMap<ThreadBuffer> tmp
+                    = new LongHashMap<ThreadBuffer>(buffers);
+                tmp.put(key, result);
+                buffers = tmp;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a free event slot in the buffer of the current thread. If the
+     * buffer is full, it is drained by the current thread.
+     *
+     * @param buffer the buffer of the current thread
+     * @return the event slot to be filled and published
+     *
+     * @since 1.30
+     */
+    private Event next(ThreadBuffer buffer) {
+        Event result = buffer.next();
+        if (null == result) {
+            synchronized (lock) {
+                buffer.drain(delegate);
+            }
+            result = buffer.next();
+        }
+        return result;
+    }
+
+    /**
+     * Drains all thread buffers into the delegate and disposes buffers of
+     * ended threads. Must be called while holding {@link #lock}.
+     *
+     * @since 1.30
+     */
+    private void flushAll() {
+        LongHashMap<ThreadBuffer> current = buffers;
+        LongHashMap<ThreadBuffer> tmp = null;
+        for (LongHashMap.MapElement<ThreadBuffer> elt : current.entries()) {
+            ThreadBuffer buffer = elt.getValue();
+            buffer.drain(delegate);
+            if (buffer.isDisposable()) {
+                if (null == tmp) {
+                    tmp = new LongHashMap<ThreadBuffer>(current);
+                }
+                tmp.remove(elt.getKey());
+            }
+        }
+        if (null != tmp) {
+            buffers = tmp;
+        }
+    }
+
+    /**
+     * Drains all thread buffers into the delegate strategy, i.e. makes the
+     * recorded data available to the delegate.
+     *
+     * @since 1.30
+     */
+    public void flush() {
+        synchronized (lock) {
+            flushAll();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean enter(String recId, long now, ThreadsInfo threadsInfo,
+        boolean exclude) {
+        return enter(-1, recId, now, threadsInfo, exclude);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean enter(int recIdNum, String recId, long now,
+        ThreadsInfo threadsInfo, boolean exclude) {
+        ThreadBuffer buffer = getBuffer();
+        Event event = next(buffer);
+        event.kind = ENTER;
+        event.recIdNum = recIdNum;
+        event.recId = recId;
+        event.now = now;
+        event.threadsInfo = threadsInfo;
+        event.exclude = exclude;
+        buffer.publish();
+        return false; // do not release, done while processing the event
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean exit(String recId, long now, ThreadsInfo threadsInfo,
+        boolean exclude) {
+        return exit(-1, recId, now, threadsInfo, exclude);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean exit(int recIdNum, String recId, long now,
+        ThreadsInfo threadsInfo, boolean exclude) {
+        ThreadBuffer buffer = getBuffer();
+        Event event = next(buffer);
+        event.kind = EXIT;
+        event.recIdNum = recIdNum;
+        event.recId = recId;
+        event.now = now;
+        event.threadsInfo = threadsInfo;
+        event.exclude = exclude;
+        buffer.publish();
+        return false; // do not release, done while processing the event
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void memoryAllocated(String recId, long threadId, long id,
+        long size) {
+        ThreadBuffer buffer = getBuffer();
+        Event event = next(buffer);
+        event.kind = MEMORY_ALLOCATED;
+        event.recId = recId;
+        event.threadId = threadId;
+        event.id = id;
+        event.size = size;
+        buffer.publish();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readIo(String recId, String caller, long threadId, int bytes,
+        StreamType type) {
+        addIo(READ_IO, recId, caller, threadId, bytes, type);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeIo(String recId, String caller, long threadId, int bytes,
+        StreamType type) {
+        addIo(WRITE_IO, recId, caller, threadId, bytes, type);
+    }
+
+    /**
+     * Adds an I/O event to the buffer of the current thread.
+     *
+     * @param kind the event kind ({@link #READ_IO}, {@link #WRITE_IO})
+     * @param recId the recorder id
+     * @param caller the caller
+     * @param threadId the thread id
+     * @param bytes the number of bytes
+     * @param type the stream type
+     *
+     * @since 1.30
+     */
+    private void addIo(int kind, String recId, String caller, long threadId,
+        int bytes, StreamType type) {
+        ThreadBuffer buffer = getBuffer();
+        Event event = next(buffer);
+        event.kind = kind;
+        event.recId = recId;
+        event.caller = caller;
+        event.threadId = threadId;
+        event.size = bytes;
+        event.type = type;
+        buffer.publish();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void memoryFreedByRecId(String recId, long size) {
+        synchronized (lock) {
+            flushAll();
+            delegate.memoryFreedByRecId(recId, size);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invocationsSampled(String recId, long sampled, long skipped) {
+        synchronized (lock) {
+            flushAll();
+            delegate.invocationsSampled(recId, sampled, skipped);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void register(long threadId, long newId, long threadTicks,
+        long now) {
+        synchronized (lock) {
+            flushAll();
+            delegate.register(threadId, newId, threadTicks, now);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean assignAllTo(String recId, boolean enter, long now,
+        ThreadsInfo threadsInfo) {
+        synchronized (lock) {
+            flushAll();
+            return delegate.assignAllTo(recId, enter, now, threadsInfo);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean printStatistics(ProcessData data) {
+        synchronized (lock) {
+            flushAll();
+            return delegate.printStatistics(data);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void endSystem() {
+        synchronized (lock) {
+            flushAll();
+            delegate.endSystem();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean stopTimeRecording(long now, ThreadsInfo threadsInfo) {
+        synchronized (lock) {
+            flushAll();
+            return delegate.stopTimeRecording(now, threadsInfo);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean finishRecording(long now, long threadId,
+        LongLongHashMap curCpuTime) {
+        synchronized (lock) {
+            flushAll();
+            return delegate.finishRecording(now, threadId, curCpuTime);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void startRecording(long now, long threadId, long threadTicks) {
+        synchronized (lock) {
+            flushAll();
+            delegate.startRecording(now, threadId, threadTicks);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void registerForRecording(String className, String recId,
+        MonitoringGroupConfiguration conf, MonitoringGroupSettings settings) {
+        synchronized (lock) {
+            delegate.registerForRecording(className, recId, conf, settings);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void enterConfiguration(String id) {
+        synchronized (lock) {
+            flushAll();
+            delegate.enterConfiguration(id);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean printCurrentState(ProcessData data) {
+        synchronized (lock) {
+            flushAll();
+            return delegate.printCurrentState(data);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Variability(id = AnnotationConstants.MONITOR_TIMERS)
+    public void notifyTimer(String id, TimerState state, long now,
+        long threadId) {
+        synchronized (lock) {
+            flushAll();
+            delegate.notifyTimer(id, state, now, threadId);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Variability(id = AnnotationConstants.MONITOR_VALUES)
+    public void notifyValueChange(String id, ValueType type, Object value) {
+        synchronized (lock) {
+            flushAll();
+            delegate.notifyValueChange(id, type, value);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyProgramRecordCreation() {
+        synchronized (lock) {
+            flushAll();
+            delegate.notifyProgramRecordCreation();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearTemporaryData() {
+        synchronized (lock) {
+            flushAll();
+            delegate.clearTemporaryData();
+        }
+    }
+
+}
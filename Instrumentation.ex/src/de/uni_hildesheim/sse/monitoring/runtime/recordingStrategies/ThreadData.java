@@ -9,7 +9,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.CleaningLongHashMap;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.21
+ * @version 1.30
  */
 public class ThreadData {
 
@@ -252,6 +252,33 @@ public class ThreadData {
         return result;
     }
 
+    /**
+     * Returns the top-most instance recorder element on the call stack which
+     * was created for the given parent and instance.
+     * 
+     * @param parent the parent recorder element
+     * @param instanceId the instance identifier
+     * @return the instance recorder element, <b>null</b> if there is none on
+     *   the call stack
+     * 
+     * @since 1.30
+     */
+    public InstanceRecorderElement topInstance(RecorderElement parent, 
+        long instanceId) {
+        InstanceRecorderElement result = null;
+        for (int i = stackSize - 1; null == result && i >= 0; i--) {
+            if (stack[i] instanceof InstanceRecorderElement) {
+                InstanceRecorderElement elt 
+                    = (InstanceRecorderElement) stack[i];
+                if (elt.getParent() == parent 
+                    && elt.instanceId == instanceId) {
+                    result = elt;
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns the index of the given element.
      * 
@@ -421,6 +448,26 @@ public class ThreadData {
         System.arraycopy(threadData.stackDuplicates, 0, stackDuplicates, 0, 
             threadData.stackDuplicates.length);
     }
+
+    /**
+     * Copies the stack entries from <code>threadData</code> recorded by 
+     * <code>from</code> to this thread recorded by <code>to</code>, i.e. 
+     * the recorder elements are replaced by the corresponding ones of 
+     * <code>to</code>.
+     * 
+     * @param threadData the object to copy from
+     * @param from the strategy <code>threadData</code> belongs to
+     * @param to the strategy this thread belongs to
+     * 
+     * @since 1.30
+     */
+    void copyStackFrom(ThreadData threadData, DefaultRecorderStrategy from, 
+        DefaultRecorderStrategy to) {
+        copyStackFrom(threadData);
+        for (int i = 0; i < threadData.stack.length; i++) {
+            stack[i] = to.translate(stack[i], from);
+        }
+    }
             
     /**
      * Returns a the stack without duplicates. This method uses shared memory
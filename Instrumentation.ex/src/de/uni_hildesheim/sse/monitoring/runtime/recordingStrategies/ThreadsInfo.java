@@ -6,6 +6,8 @@ import java.io.IOException;
 
 import de.uni_hildesheim.sse.monitoring.runtime.boot.ObjectPool;
 import de.uni_hildesheim.sse.monitoring.runtime.boot.Poolable;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchInputStream;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchOutputStream;
 
 /**
  * Contains information about changes in running threads between
@@ -17,7 +19,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.boot.Poolable;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public class ThreadsInfo implements Poolable<ThreadsInfo> {
 
@@ -85,6 +87,22 @@ public class ThreadsInfo implements Poolable<ThreadsInfo> {
         result.read(in);
         return result;
     }
+
+    /**
+     * Reads a batched instance from the given input stream.
+     * 
+     * @param in the input stream
+     * @return the instance read from <code>in</code>
+     * @throws IOException in case that an I/O error occurred while reading
+     * 
+     * @since 1.30
+     */
+    public static ThreadsInfo readFromPool(BatchInputStream in) 
+        throws IOException {
+        ThreadsInfo result = POOL.getFromPool();
+        result.read(in);
+        return result;
+    }
     
     /**
      * Specifies the thread id to initialize (reusable)
@@ -169,6 +187,35 @@ public class ThreadsInfo implements Poolable<ThreadsInfo> {
         currentInstanceId = in.readLong();
     }
 
+    /**
+     * Writes this instance to a batch output stream using variable-length
+     * integers.
+     * 
+     * @param out the output stream
+     * @throws IOException in case that an I/O error occurred while writing
+     * 
+     * @since 1.30
+     */
+    public void write(BatchOutputStream out) throws IOException {
+        out.writeSignedVarLong(currentThreadTicks);
+        out.writeVarLong(currentThreadId);
+        out.writeSignedVarLong(currentInstanceId);
+    }
+
+    /**
+     * Reads this instance from a batch input stream.
+     * 
+     * @param in the input stream
+     * @throws IOException in case that an I/O error occurred while reading
+     * 
+     * @since 1.30
+     */
+    public void read(BatchInputStream in) throws IOException {
+        currentThreadTicks = in.readSignedVarLong();
+        currentThreadId = in.readVarLong();
+        currentInstanceId = in.readSignedVarLong();
+    }
+
     /**
      * Returns the time ticks consumed by the current thread as given in the
      * constructor. Note, that the result is not the current id of the thread 
@@ -8,7 +8,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.AbstractLongHashMap;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 class TimeMap extends AbstractLongHashMap {
 
@@ -18,7 +18,7 @@ class TimeMap extends AbstractLongHashMap {
      * 
      * @author Holger Eichelberger
      * @since 1.00
-     * @version 1.00
+     * @version 1.30
      */
     public static class MapElement extends AbstractLongHashMap.MapElement {
         
@@ -31,6 +31,16 @@ class TimeMap extends AbstractLongHashMap {
          * Stores the start system time.
          */
         private long startSystemTime;
+
+        /**
+         * Stores the CPU time accumulated for the current invocation.
+         */
+        private long invocationCpuTime;
+
+        /**
+         * Stores the system time accumulated for the current invocation.
+         */
+        private long invocationSystemTime;
         
         /**
          * Constructor of a map element.
@@ -98,6 +108,53 @@ class TimeMap extends AbstractLongHashMap {
             this.startSystemTime = startSystemTime;
         }
 
+        /**
+         * Adds times measured for the current invocation, e.g., between 
+         * suspending and resuming the time recording due to nested 
+         * monitoring groups.
+         * 
+         * @param cpuTime the CPU time to be added
+         * @param systemTime the system time to be added
+         * 
+         * @since 1.30
+         */
+        public void addInvocationTimes(long cpuTime, long systemTime) {
+            this.invocationCpuTime += cpuTime;
+            this.invocationSystemTime += systemTime;
+        }
+
+        /**
+         * Returns the CPU time accumulated for the current invocation.
+         * 
+         * @return the CPU time
+         * 
+         * @since 1.30
+         */
+        public long getInvocationCpuTime() {
+            return invocationCpuTime;
+        }
+
+        /**
+         * Returns the system time accumulated for the current invocation.
+         * 
+         * @return the system time
+         * 
+         * @since 1.30
+         */
+        public long getInvocationSystemTime() {
+            return invocationSystemTime;
+        }
+
+        /**
+         * Clears the times accumulated for the current invocation.
+         * 
+         * @since 1.30
+         */
+        public void clearInvocationTimes() {
+            this.invocationCpuTime = 0;
+            this.invocationSystemTime = 0;
+        }
+
         /**
          * Takes over the information stored in <code>elt</code>.
          * 
@@ -108,6 +165,8 @@ class TimeMap extends AbstractLongHashMap {
         public void takeOver(MapElement elt) {
             this.startCpuTime = elt.startCpuTime;
             this.startSystemTime = elt.startSystemTime;
+            this.invocationCpuTime = elt.invocationCpuTime;
+            this.invocationSystemTime = elt.invocationSystemTime;
         }
     }
     
@@ -181,5 +240,27 @@ class TimeMap extends AbstractLongHashMap {
     public MapElement get(long key) {
         return (MapElement) getElement(key);
     }
+
+    /**
+     * Returns whether time recording is active for any thread.
+     * 
+     * @return <code>true</code> if time recording is active, 
+     *     <code>false</code> else
+     * 
+     * @since 1.30
+     */
+    public boolean isRecording() {
+        boolean active = false;
+        for (int b = 0; !active && b < getCapacity(); b++) {
+            AbstractLongHashMap.MapElement elt = getFirst(b);
+            while (!active && null != elt) {
+                MapElement entry = (MapElement) elt;
+                active = entry.getStartCpuTime() >= 0 
+                    || entry.getStartSystemTime() >= 0;
+                elt = elt.getNext();
+            }
+        }
+        return active;
+    }
     
 }
@@ -0,0 +1,735 @@
+package de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    ProcessData.Measurements;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BitOutputBuffer;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.HashMap;
+
+/**
+ * Implements an append-only columnar store for periodic snapshots of the
+ * monitoring groups and process measurements, i.e. the values emitted by
+ * {@link RecorderStrategy#printCurrentState(ProcessData)}, so that their
+ * history can be analyzed later by the <code>TimeSeriesReader</code> of the
+ * recording server. The store is enabled by its file (timeSeries=file).<p>
+ * The file is memory-mapped and consists of {@link #MAGIC},
+ * {@link #VERSION} and a sequence of blocks of up to
+ * {@link #BLOCK_SNAPSHOTS} snapshots. A block consists of the int length of
+ * the remaining block, the long time of the first and the last snapshot, the
+ * int number of snapshots, the int number of groups, per group its name
+ * (short length and UTF-8 bytes) and the int index of its first snapshot
+ * in the block, the int byte offsets of all columns relative to the first
+ * column and the bit-compressed columns, each padded to full bytes. The
+ * first column contains the delta-of-delta encoded snapshot times. Per
+ * group, a change column follows with one bit per snapshot of the group
+ * indicating whether its values changed, then one column per
+ * {@link Metric} with the XOR encoded values of the changed snapshots, so
+ * that idle groups cost only one bit per snapshot. A block length of
+ * <code>0</code> denotes the end of the file. As blocks are written at
+ * once, at most the snapshots of the last block are lost if the JVM
+ * crashes.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public class TimeSeriesStore {
+
+    /**
+     * Defines the magic number at the beginning of the file.
+     */
+    public static final int MAGIC = 0x53505453;
+
+    /**
+     * Defines the version of the file format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Defines the maximum number of snapshots per block.
+     */
+    public static final int BLOCK_SNAPSHOTS = 64;
+
+    /**
+     * Defines the group name of the system measurements.
+     */
+    public static final String SYSTEM_GROUP = "*system*";
+
+    /**
+     * Defines the group name of the JVM measurements.
+     */
+    public static final String JVM_GROUP = "*jvm*";
+
+    /**
+     * Defines the size of the file header.
+     */
+    public static final int HEADER_SIZE = 8;
+
+    /**
+     * Defines the initial size of a new file.
+     */
+    private static final long INITIAL_SIZE = 1024 * 1024;
+
+    /**
+     * Defines the maximum size of the file.
+     */
+    private static final long MAX_SIZE = Integer.MAX_VALUE;
+
+    /**
+     * Defines the metrics stored per group.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    public enum Metric {
+
+        /**
+         * The CPU time ticks.
+         */
+        CPU_TIME(false),
+
+        /**
+         * The system time ticks.
+         */
+        SYSTEM_TIME(false),
+
+        /**
+         * The allocated memory.
+         */
+        MEM_ALLOCATED(false),
+
+        /**
+         * The used memory.
+         */
+        MEM_USE(false),
+
+        /**
+         * The bytes read from file and network.
+         */
+        IO_READ(false),
+
+        /**
+         * The bytes written to file and network.
+         */
+        IO_WRITE(false),
+
+        /**
+         * The bytes read from network.
+         */
+        NET_IN(false),
+
+        /**
+         * The bytes written to network.
+         */
+        NET_OUT(false),
+
+        /**
+         * The (average) load, only for the process measurements.
+         */
+        LOAD(true);
+
+        /**
+         * Stores whether the values are floating point values (stored as
+         * their long bits).
+         */
+        private boolean floating;
+
+        /**
+         * Creates a metric constant.
+         *
+         * @param floating whether the values are floating point values
+         */
+        private Metric(boolean floating) {
+            this.floating = floating;
+        }
+
+        /**
+         * Returns whether the values are floating point values, i.e. whether
+         * they are stored as the long bits of doubles.
+         *
+         * @return <code>true</code> if floating point values,
+         *   <code>false</code> else
+         *
+         * @since 1.30
+         */
+        public boolean isFloating() {
+            return floating;
+        }
+
+    }
+
+    /**
+     * Stores the metrics for fast access.
+     */
+    private static final Metric[] METRICS = Metric.values();
+
+    /**
+     * Encodes the snapshot times of a block as delta-of-delta.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class TimeColumn {
+
+        /**
+         * Stores the encoded bits.
+         */
+        private BitOutputBuffer bits = new BitOutputBuffer(
+            2 * BLOCK_SNAPSHOTS);
+
+        /**
+         * Stores the previous time.
+         */
+        private long prevTime;
+
+        /**
+         * Stores the previous delta.
+         */
+        private long prevDelta;
+
+        /**
+         * Stores the number of times added.
+         */
+        private int count;
+
+        /**
+         * Adds a time.
+         *
+         * @param time the time
+         */
+        private void add(long time) {
+            if (0 == count) {
+                bits.writeBits(time, 64);
+            } else {
+                long delta = time - prevTime;
+                long dod = delta - prevDelta;
+                if (0 == dod) {
+                    bits.writeBit(false);
+                } else if (dod >= -63 && dod <= 64) {
+                    bits.writeBits(2, 2);
+                    bits.writeBits(dod + 63, 7);
+                } else if (dod >= -255 && dod <= 256) {
+                    bits.writeBits(6, 3);
+                    bits.writeBits(dod + 255, 9);
+                } else if (dod >= -2047 && dod <= 2048) {
+                    bits.writeBits(14, 4);
+                    bits.writeBits(dod + 2047, 12);
+                } else {
+                    bits.writeBits(15, 4);
+                    bits.writeBits(dod, 64);
+                }
+                prevDelta = delta;
+            }
+            prevTime = time;
+            count++;
+        }
+
+        /**
+         * Clears this column for the next block.
+         */
+        private void clear() {
+            bits.clear();
+            prevDelta = 0;
+            count = 0;
+        }
+
+    }
+
+    /**
+     * Encodes the values of a metric of a group in a block by XOR with the
+     * previous value.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class ValueColumn {
+
+        /**
+         * Stores the encoded bits.
+         */
+        private BitOutputBuffer bits = new BitOutputBuffer(
+            2 * BLOCK_SNAPSHOTS);
+
+        /**
+         * Stores the previous value.
+         */
+        private long prevValue;
+
+        /**
+         * Stores the leading zeros of the previous meaningful bits
+         * (negative if none).
+         */
+        private int prevLeading = -1;
+
+        /**
+         * Stores the trailing zeros of the previous meaningful bits.
+         */
+        private int prevTrailing;
+
+        /**
+         * Stores the number of values added.
+         */
+        private int count;
+
+        /**
+         * Adds a value.
+         *
+         * @param value the value
+         */
+        private void add(long value) {
+            if (0 == count) {
+                bits.writeBits(value, 64);
+            } else {
+                long xor = value ^ prevValue;
+                if (0 == xor) {
+                    bits.writeBit(false);
+                } else {
+                    bits.writeBit(true);
+                    int leading = Long.numberOfLeadingZeros(xor);
+                    int trailing = Long.numberOfTrailingZeros(xor);
+                    if (prevLeading >= 0 && leading >= prevLeading
+                        && trailing >= prevTrailing) {
+                        bits.writeBit(false);
+                        bits.writeBits(xor >>> prevTrailing,
+                            64 - prevLeading - prevTrailing);
+                    } else {
+                        int length = 64 - leading - trailing;
+                        bits.writeBit(true);
+                        bits.writeBits(leading, 6);
+                        bits.writeBits(length - 1, 6);
+                        bits.writeBits(xor >>> trailing, length);
+                        prevLeading = leading;
+                        prevTrailing = trailing;
+                    }
+                }
+            }
+            prevValue = value;
+            count++;
+        }
+
+        /**
+         * Clears this column for the next block.
+         */
+        private void clear() {
+            bits.clear();
+            prevLeading = -1;
+            prevTrailing = 0;
+            count = 0;
+        }
+
+    }
+
+    /**
+     * Stores the current values and the columns of a group.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class Group {
+
+        /**
+         * Stores the UTF-8 encoded name.
+         */
+        private byte[] name;
+
+        /**
+         * Stores the current values per metric.
+         */
+        private long[] values = new long[METRICS.length];
+
+        /**
+         * Stores whether {@link #values} changed since the last encoded
+         * snapshot.
+         */
+        private boolean changed;
+
+        /**
+         * Stores one bit per snapshot whether the values were encoded.
+         */
+        private BitOutputBuffer changes = new BitOutputBuffer(BLOCK_SNAPSHOTS);
+
+        /**
+         * Stores the columns per metric.
+         */
+        private ValueColumn[] columns = new ValueColumn[METRICS.length];
+
+        /**
+         * Stores the index of the first snapshot of this group in the
+         * current block (negative if not yet part of the block).
+         */
+        private int start = -1;
+
+        /**
+         * Creates a group.
+         *
+         * @param name the name of the group
+         * @throws UnsupportedEncodingException shall not occur
+         */
+        private Group(String name) throws UnsupportedEncodingException {
+            this.name = name.getBytes("UTF-8");
+            for (int m = 0; m < columns.length; m++) {
+                columns[m] = new ValueColumn();
+            }
+        }
+
+        /**
+         * Changes a value.
+         *
+         * @param metric the ordinal of the metric
+         * @param value the new value
+         */
+        private void set(int metric, long value) {
+            if (values[metric] != value) {
+                values[metric] = value;
+                changed = true;
+            }
+        }
+
+    }
+
+    /**
+     * Stores the groups by their name.
+     */
+    private HashMap<String, Group> groups = new HashMap<String, Group>();
+
+    /**
+     * Stores the groups in the sequence of their creation.
+     */
+    private Group[] groupList = new Group[16];
+
+    /**
+     * Stores the number of groups.
+     */
+    private int groupCount;
+
+    /**
+     * Stores the time column of the current block.
+     */
+    private TimeColumn times = new TimeColumn();
+
+    /**
+     * Stores the number of snapshots in the current block.
+     */
+    private int snapshots;
+
+    /**
+     * Stores the time of the first snapshot in the current block.
+     */
+    private long firstTime;
+
+    /**
+     * Stores the time of the current snapshot.
+     */
+    private long time;
+
+    /**
+     * Stores the file.
+     */
+    private RandomAccessFile file;
+
+    /**
+     * Stores the channel of {@link #file}.
+     */
+    private FileChannel channel;
+
+    /**
+     * Stores the mapped buffer of {@link #file}.
+     */
+    private MappedByteBuffer buffer;
+
+    /**
+     * Opens the store. Snapshots are appended if <code>file</code>
+     * already contains a store.
+     *
+     * @param file the file of the store
+     * @throws IOException in case of I/O problems or if <code>file</code>
+     *   is not a time series store
+     *
+     * @since 1.30
+     */
+    public TimeSeriesStore(File file) throws IOException {
+        this.file = new RandomAccessFile(file, "rw");
+        channel = this.file.getChannel();
+        long size = channel.size();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+            Math.max(size, INITIAL_SIZE));
+        if (size < HEADER_SIZE) {
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+        } else {
+            if (MAGIC != buffer.getInt() || VERSION != buffer.getInt()) {
+                close();
+                throw new IOException("unknown time series format");
+            }
+            // append after the last block
+            int pos = buffer.position();
+            while (pos + 4 <= buffer.capacity() && buffer.getInt(pos) > 0) {
+                pos += 4 + buffer.getInt(pos);
+            }
+            buffer.position(pos);
+        }
+    }
+
+    /**
+     * Starts a snapshot. Values of groups not set in a snapshot are
+     * repeated from the previous snapshot.
+     *
+     * @param time the time of the snapshot (in milliseconds)
+     *
+     * @since 1.30
+     */
+    public void beginSnapshot(long time) {
+        this.time = time;
+    }
+
+    /**
+     * Sets the values of a monitoring group in the current snapshot.
+     *
+     * @param group the name of the group
+     * @param elt the recorder element of the group
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public void record(String group, RecorderElement elt) throws IOException {
+        Group grp = getGroup(group);
+        grp.set(Metric.CPU_TIME.ordinal(), elt.getCpuTimeTicks());
+        grp.set(Metric.SYSTEM_TIME.ordinal(), elt.getSystemTimeTicks());
+        grp.set(Metric.MEM_ALLOCATED.ordinal(), elt.getMemAllocated());
+        grp.set(Metric.MEM_USE.ordinal(), elt.getMemUse());
+        grp.set(Metric.IO_READ.ordinal(), elt.getIoRead());
+        grp.set(Metric.IO_WRITE.ordinal(), elt.getIoWrite());
+        grp.set(Metric.NET_IN.ordinal(), elt.getNetIn());
+        grp.set(Metric.NET_OUT.ordinal(), elt.getNetOut());
+    }
+
+    /**
+     * Sets the values of process measurements in the current snapshot.
+     *
+     * @param group the name of the group, e.g., {@link #SYSTEM_GROUP}
+     * @param measurements the measurements
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public void record(String group, Measurements measurements)
+        throws IOException {
+        Group grp = getGroup(group);
+        grp.set(Metric.SYSTEM_TIME.ordinal(), measurements.getSystemTime());
+        grp.set(Metric.MEM_USE.ordinal(), (long) measurements.getAvgMemUse());
+        grp.set(Metric.IO_READ.ordinal(), measurements.getIoRead());
+        grp.set(Metric.IO_WRITE.ordinal(), measurements.getIoWrite());
+        grp.set(Metric.LOAD.ordinal(),
+            Double.doubleToLongBits(measurements.getAvgLoad()));
+    }
+
+    /**
+     * Sets an individual value in the current snapshot.
+     *
+     * @param group the name of the group
+     * @param metric the metric
+     * @param value the value
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public void set(String group, Metric metric, long value)
+        throws IOException {
+        getGroup(group).set(metric.ordinal(), value);
+    }
+
+    /**
+     * Sets an individual floating point value in the current snapshot.
+     *
+     * @param group the name of the group
+     * @param metric the metric
+     * @param value the value
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public void set(String group, Metric metric, double value)
+        throws IOException {
+        getGroup(group).set(metric.ordinal(), Double.doubleToLongBits(value));
+    }
+
+    /**
+     * Returns the group with the given name and creates it if required.
+     *
+     * @param name the name of the group
+     * @return the group
+     * @throws IOException in case that the name cannot be encoded
+     *
+     * @since 1.30
+     */
+    private Group getGroup(String name) throws IOException {
+        Group group = groups.get(name);
+        if (null == group) {
+            group = new Group(name);
+            groups.put(name, group);
+            if (groupCount == groupList.length) {
+                Group[] tmp = new Group[2 * groupList.length];
+                System.arraycopy(groupList, 0, tmp, 0, groupList.length);
+                groupList = tmp;
+            }
+            groupList[groupCount++] = group;
+        }
+        return group;
+    }
+
+    /**
+     * Ends the current snapshot, i.e. encodes the values of all groups and
+     * writes the current block if it is complete.
+     *
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public void endSnapshot() throws IOException {
+        if (0 == snapshots) {
+            firstTime = time;
+        }
+        times.add(time);
+        for (int g = 0; g < groupCount; g++) {
+            Group group = groupList[g];
+            if (group.start < 0) {
+                group.start = snapshots;
+                group.changed = true;
+            }
+            group.changes.writeBit(group.changed);
+            if (group.changed) {
+                long[] values = group.values;
+                ValueColumn[] columns = group.columns;
+                for (int m = 0; m < columns.length; m++) {
+                    columns[m].add(values[m]);
+                }
+                group.changed = false;
+            }
+        }
+        snapshots++;
+        if (snapshots >= BLOCK_SNAPSHOTS) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Writes the current block and clears the columns for the next block.
+     *
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    private void writeBlock() throws IOException {
+        if (snapshots > 0) {
+            int columns = 1 + groupCount * (1 + METRICS.length);
+            long size = 8 + 8 + 4 + 4 + 4 * columns + times.bits.byteLength();
+            for (int g = 0; g < groupCount; g++) {
+                Group group = groupList[g];
+                size += 2 + group.name.length + 4
+                    + group.changes.byteLength();
+                for (int m = 0; m < METRICS.length; m++) {
+                    size += group.columns[m].bits.byteLength();
+                }
+            }
+            int pos = buffer.position();
+            ensureCapacity(pos + 4 + size + 4);
+            buffer.position(pos + 4);
+            buffer.putLong(firstTime);
+            buffer.putLong(time);
+            buffer.putInt(snapshots);
+            buffer.putInt(groupCount);
+            for (int g = 0; g < groupCount; g++) {
+                Group group = groupList[g];
+                buffer.putShort((short) group.name.length);
+                buffer.put(group.name);
+                buffer.putInt(group.start);
+            }
+            int offset = times.bits.byteLength();
+            buffer.putInt(0);
+            for (int g = 0; g < groupCount; g++) {
+                buffer.putInt(offset);
+                offset += groupList[g].changes.byteLength();
+                ValueColumn[] cols = groupList[g].columns;
+                for (int m = 0; m < cols.length; m++) {
+                    buffer.putInt(offset);
+                    offset += cols[m].bits.byteLength();
+                }
+            }
+            times.bits.writeTo(buffer);
+            times.clear();
+            for (int g = 0; g < groupCount; g++) {
+                Group group = groupList[g];
+                group.changes.writeTo(buffer);
+                group.changes.clear();
+                for (int m = 0; m < group.columns.length; m++) {
+                    group.columns[m].bits.writeTo(buffer);
+                    group.columns[m].clear();
+                }
+                group.start = -1;
+            }
+            // commit the block by its length
+            buffer.putInt(pos, buffer.position() - pos - 4);
+            buffer.putInt(buffer.position(), 0);
+            snapshots = 0;
+        }
+    }
+
+    /**
+     * Ensures that the mapped buffer has at least the given size by
+     * enlarging the mapping if required.
+     *
+     * @param size the required size
+     * @throws IOException in case of I/O problems or if the maximum size
+     *   of the file is exceeded
+     *
+     * @since 1.30
+     */
+    private void ensureCapacity(long size) throws IOException {
+        if (size > MAX_SIZE) {
+            throw new IOException("maximum size of time series exceeded");
+        }
+        if (size > buffer.capacity()) {
+            int pos = buffer.position();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.min(MAX_SIZE, Math.max(2L * buffer.capacity(), size)));
+            buffer.position(pos);
+        }
+    }
+
+    /**
+     * Writes the pending snapshots and closes the store.
+     *
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public void close() throws IOException {
+        try {
+            if (null != buffer) {
+                writeBlock();
+                buffer.force();
+                buffer = null;
+            }
+        } finally {
+            if (null != channel) {
+                channel.close();
+                channel = null;
+            }
+            if (null != file) {
+                file.close();
+                file = null;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies;
+
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LatencyHistogram;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LongHashMap;
+
+/**
+ * Stores the information about a (user-defined) timer, i.e. the states of the
+ * timer in the individual threads and the distribution of the values of all
+ * finished timer periods regardless of the thread.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+class TimerData {
+
+    /**
+     * Denotes the key of a timer state which does not consider threads.
+     */
+    static final long NO_THREAD = -1;
+
+    /**
+     * Stores the timer states per thread identifier.
+     */
+    private final LongHashMap<TimerInfo> infos = new LongHashMap<TimerInfo>();
+
+    /**
+     * Stores the values of all finished timer periods in nano seconds.
+     */
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    /**
+     * Returns the timer state for the given thread.
+     *
+     * @param threadId the thread identifier, {@link #NO_THREAD} if threads
+     *   shall not be considered
+     * @return the timer state, <b>null</b> if there is none
+     *
+     * @since 1.30
+     */
+    TimerInfo get(long threadId) {
+        return infos.get(threadId);
+    }
+
+    /**
+     * Stores the timer state for the given thread.
+     *
+     * @param threadId the thread identifier, {@link #NO_THREAD} if threads
+     *   shall not be considered
+     * @param info the timer state
+     *
+     * @since 1.30
+     */
+    void put(long threadId, TimerInfo info) {
+        infos.put(threadId, info);
+    }
+
+    /**
+     * Returns the distribution of the values of all finished timer periods.
+     *
+     * @return the histogram in nano seconds
+     *
+     * @since 1.30
+     */
+    LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+}
@@ -9,12 +9,12 @@ import de.uni_hildesheim.sse.monitoring.runtime.annotations.TimerState;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public class TimerInfo {
 
     /**
-     * Stores the start time of the timer (in milliseconds).
+     * Stores the start time of the timer (in nano seconds).
      */
     private long start;
     
@@ -32,7 +32,7 @@ public class TimerInfo {
      * Creates a new timer info and initializes it as if the timer was
      * started at the given point of time.
      * 
-     * @param start the start point of time (in milliseconds)
+     * @param start the start point of time (in nano seconds)
      * 
      * @since 1.00
      */
@@ -44,7 +44,7 @@ public class TimerInfo {
     /**
      * Initializes the timer as if it was started at the given point of time.
      * 
-     * @param start the start point of time (in milliseconds)
+     * @param start the start point of time (in nano seconds)
      * 
      * @since 1.00
      */
@@ -73,7 +73,7 @@ public class TimerInfo {
      * point of time <code>now</code>.
      * 
      * @param state the new state
-     * @param now the current time in milliseconds
+     * @param now the current time in nano seconds
      * @return <code>true</code> if the timer is finished and observers should
      *    be notified, <code>false</code> else
      * 
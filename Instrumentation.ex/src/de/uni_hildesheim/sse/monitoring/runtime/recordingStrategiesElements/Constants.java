@@ -9,7 +9,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.AnnotationConstants;
  * 
  * @author Stephan Dederichs
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 @Variability(id = AnnotationConstants.STRATEGY_TCP)
 public class Constants {
@@ -108,6 +108,29 @@ public class Constants {
      * Stores the identification for {@link ClearTemporaryDataElement}.
      */
     public static final int CLEARTEMPORARYDATA = 20;
+
+    /**
+     * Stores the identification for {@link InvocationsSampledElement}.
+     * 
+     * @since 1.30
+     */
+    public static final int INVOCATIONSSAMPLED = 21;
+
+    /**
+     * Stores the version of the wire protocol sending individual events.
+     * 
+     * @since 1.30
+     */
+    public static final int PROTOCOL_V1 = 1;
+
+    /**
+     * Stores the version of the wire protocol sending compact event batches
+     * (see {@link RecordingStrategiesElement#sendBatched(
+     * de.uni_hildesheim.sse.monitoring.runtime.utils.BatchOutputStream)}).
+     * 
+     * @since 1.30
+     */
+    public static final int PROTOCOL_V2 = 2;
     
     /**
      * Constructor.
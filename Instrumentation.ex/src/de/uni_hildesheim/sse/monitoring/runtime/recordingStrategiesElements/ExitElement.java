@@ -11,6 +11,8 @@ import de.uni_hildesheim.sse.monitoring.runtime.boot.Poolable;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
     RecorderStrategy;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.ThreadsInfo;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchInputStream;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchOutputStream;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.StreamUtilities;
 
 /** 
@@ -18,7 +20,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.StreamUtilities;
  * 
  * @author Stephan Dederichs
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 @Variability(id = AnnotationConstants.STRATEGY_TCP)
 public class ExitElement extends RecordingStrategiesElement 
@@ -34,6 +36,11 @@ public class ExitElement extends RecordingStrategiesElement
      * Stores the recId.
      */
     private String recId;
+
+    /**
+     * Stores the numeric recId (negative if unknown, not transmitted).
+     */
+    private int recIdNum = -1;
     
     /**
      * Stores the now.
@@ -89,6 +96,18 @@ public class ExitElement extends RecordingStrategiesElement
         this.recId = recId;
     }
 
+    /**
+     * Setter for the numeric recId. The numeric recId is valid only within 
+     * the monitored JVM and, thus, not transmitted.
+     * 
+     * @param recIdNum the numeric recId to set (negative if unknown)
+     * 
+     * @since 1.30
+     */
+    public void setRecIdNum(int recIdNum) {
+        this.recIdNum = recIdNum;
+    }
+
     /**
      * Setter for the now.
      * 
@@ -139,11 +158,35 @@ public class ExitElement extends RecordingStrategiesElement
     @Override
     public void read(DataInputStream in) throws IOException {
         recId = StreamUtilities.readString(in);
+        recIdNum = -1;
         now = in.readLong();
         threadsInfo = ThreadsInfo.readFromPool(in);
         exclude = in.readBoolean();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sendBatched(BatchOutputStream out) throws IOException {
+        out.writeDictString(recId);
+        out.writeTime(now);
+        threadsInfo.write(out);
+        out.writeBoolean(exclude);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readBatched(BatchInputStream in) throws IOException {
+        recId = in.readDictString();
+        recIdNum = -1;
+        now = in.readTime();
+        threadsInfo = ThreadsInfo.readFromPool(in);
+        exclude = in.readBoolean();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -157,7 +200,7 @@ public class ExitElement extends RecordingStrategiesElement
      */
     @Override
     public void process(RecorderStrategy strategy) {
-        strategy.exit(recId, now, threadsInfo, exclude);
+        strategy.exit(recIdNum, recId, now, threadsInfo, exclude);
     }
 
     /**
@@ -0,0 +1,128 @@
+package de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
+import de.uni_hildesheim.sse.monitoring.runtime.AnnotationConstants;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    RecorderStrategy;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchInputStream;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchOutputStream;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.StreamUtilities;
+
+/**
+ * Defines an InvocationsSampledElement, i.e. the numbers of recorded and
+ * skipped invocations of a sampled monitoring group.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+@Variability(id = AnnotationConstants.STRATEGY_TCP)
+public class InvocationsSampledElement extends RecordingStrategiesElement {
+
+    /**
+     * Stores the recId.
+     */
+    private String recId;
+
+    /**
+     * Stores the number of recorded invocations.
+     */
+    private long sampled;
+
+    /**
+     * Stores the number of skipped invocations.
+     */
+    private long skipped;
+
+    /**
+     * Creates a new empty instance.
+     *
+     * @since 1.30
+     */
+    public InvocationsSampledElement() {
+    }
+
+    /**
+     * Creates a new instance with the given parameters.
+     *
+     * @param recId the recId
+     * @param sampled the number of recorded invocations
+     * @param skipped the number of skipped invocations
+     *
+     * @since 1.30
+     */
+    public InvocationsSampledElement(String recId, long sampled,
+        long skipped) {
+        this.recId = recId;
+        this.sampled = sampled;
+        this.skipped = skipped;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void send(DataOutputStream out) throws IOException {
+        StreamUtilities.writeString(out, recId);
+        out.writeLong(sampled);
+        out.writeLong(skipped);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void read(DataInputStream in) throws IOException {
+        recId = StreamUtilities.readString(in);
+        sampled = in.readLong();
+        skipped = in.readLong();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sendBatched(BatchOutputStream out) throws IOException {
+        out.writeDictString(recId);
+        out.writeVarLong(sampled);
+        out.writeVarLong(skipped);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readBatched(BatchInputStream in) throws IOException {
+        recId = in.readDictString();
+        sampled = in.readVarLong();
+        skipped = in.readVarLong();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getIdentification() {
+        return Constants.INVOCATIONSSAMPLED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void process(RecorderStrategy strategy) {
+        strategy.invocationsSampled(recId, sampled, skipped);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+    }
+
+}
@@ -12,6 +12,8 @@ import de.uni_hildesheim.sse.monitoring.runtime.boot.Poolable;
 import de.uni_hildesheim.sse.monitoring.runtime.boot.StreamType;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
     RecorderStrategy;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchInputStream;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchOutputStream;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.StreamUtilities;
 
 /**
@@ -19,7 +21,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.StreamUtilities;
  * 
  * @author Stephan Dederichs, Aike Sass
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 @Variability(id = { AnnotationConstants.STRATEGY_TCP, 
         AnnotationConstants.MONITOR_NET_IO, 
@@ -185,6 +187,32 @@ public class IoElement extends RecordingStrategiesElement
         threadId = in.readLong();
         write = in.readBoolean();
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sendBatched(BatchOutputStream out) throws IOException {
+        out.writeDictString(recId);
+        out.writeDictString(caller);
+        out.writeVarInt(bytes);
+        out.writeDictString(type.toString());
+        out.writeVarLong(threadId);
+        out.writeBoolean(write);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readBatched(BatchInputStream in) throws IOException {
+        recId = in.readDictString();
+        caller = in.readDictString();
+        bytes = in.readVarInt();
+        type = StreamType.valueOf(in.readDictString());
+        threadId = in.readVarLong();
+        write = in.readBoolean();
+    }
     
     /**
      * {@inheritDoc}
@@ -194,6 +222,14 @@ public class IoElement extends RecordingStrategiesElement
         return Constants.IO;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isDroppable() {
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -11,6 +11,8 @@ import de.uni_hildesheim.sse.monitoring.runtime.boot.ObjectPool;
 import de.uni_hildesheim.sse.monitoring.runtime.boot.Poolable;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
     RecorderStrategy;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchInputStream;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchOutputStream;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.StreamUtilities;
 
 /**
@@ -18,7 +20,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.StreamUtilities;
  * 
  * @author Stephan Dederichs
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 @Variability(id = { AnnotationConstants.STRATEGY_TCP, 
         AnnotationConstants.MONITOR_MEMORY_ALLOCATED }, op = Operation.AND)
@@ -152,6 +154,28 @@ public class MemoryAllocatedElement extends RecordingStrategiesElement
         threadId = in.readLong();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sendBatched(BatchOutputStream out) throws IOException {
+        out.writeDictString(recId);
+        out.writeVarLong(id);
+        out.writeVarLong(size);
+        out.writeVarLong(threadId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readBatched(BatchInputStream in) throws IOException {
+        recId = in.readDictString();
+        id = in.readVarLong();
+        size = in.readVarLong();
+        threadId = in.readVarLong();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -160,6 +184,14 @@ public class MemoryAllocatedElement extends RecordingStrategiesElement
         return Constants.MEMORYALLOCATED;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isDroppable() {
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -11,6 +11,8 @@ import de.uni_hildesheim.sse.monitoring.runtime.boot.ObjectPool;
 import de.uni_hildesheim.sse.monitoring.runtime.boot.Poolable;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
     RecorderStrategy;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchInputStream;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchOutputStream;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.StreamUtilities;
 
 /**
@@ -18,7 +20,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.StreamUtilities;
  * 
  * @author Stephan Dederichs
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 @Variability(id = { AnnotationConstants.STRATEGY_TCP, 
         AnnotationConstants.MONITOR_MEMORY_USAGE }, op = Operation.AND)
@@ -93,6 +95,24 @@ public class MemoryFreedByRecIdElement extends RecordingStrategiesElement
         recId = StreamUtilities.readString(in);
         size = in.readLong();
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sendBatched(BatchOutputStream out) throws IOException {
+        out.writeDictString(recId);
+        out.writeSignedVarLong(size);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readBatched(BatchInputStream in) throws IOException {
+        recId = in.readDictString();
+        size = in.readSignedVarLong();
+    }
     
     /**
      * {@inheritDoc}
@@ -102,6 +122,14 @@ public class MemoryFreedByRecIdElement extends RecordingStrategiesElement
         return Constants.MEMORYFREEDBYRECID;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isDroppable() {
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      */
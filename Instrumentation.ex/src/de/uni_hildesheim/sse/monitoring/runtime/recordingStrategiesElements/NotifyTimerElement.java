@@ -16,7 +16,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.utils.StreamUtilities;
  * 
  * @author Stephan Dederichs
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 @Variability(id = AnnotationConstants.STRATEGY_TCP)
 public class NotifyTimerElement extends RecordingStrategiesElement {
@@ -54,7 +54,7 @@ public class NotifyTimerElement extends RecordingStrategiesElement {
      * 
      * @param id the timer identification (may overlap with recorder ids)
      * @param state the new timer state
-     * @param now the current system time in milliseconds
+     * @param now the current system time in nano seconds
      * @param threadId the id of the currently executing thread, may be 
      *     negative if it should be ignored
      * 
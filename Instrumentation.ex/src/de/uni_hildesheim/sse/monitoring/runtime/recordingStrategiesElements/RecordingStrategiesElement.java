@@ -8,13 +8,15 @@ import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
 import de.uni_hildesheim.sse.monitoring.runtime.AnnotationConstants;
 import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
     RecorderStrategy;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchInputStream;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchOutputStream;
 
 /**
  * Defines a RecordingStrategieseElement.
  * 
  * @author Stephan Dederichs
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 @Variability(id = AnnotationConstants.STRATEGY_TCP)
 public abstract class RecordingStrategiesElement {
@@ -39,6 +41,33 @@ public abstract class RecordingStrategiesElement {
      */
     public abstract void read(DataInputStream in) throws IOException;
 
+    /**
+     * Writes this instance to the given batch output stream. Elements 
+     * which are sent frequently shall override this method and use the 
+     * compact encodings of <code>out</code>. Must be consistent with 
+     * {@link #readBatched(BatchInputStream)}.
+     * 
+     * @param out the output stream
+     * @throws IOException in case of any I/O error or problem
+     * 
+     * @since 1.30
+     */
+    public void sendBatched(BatchOutputStream out) throws IOException {
+        send(out);
+    }
+
+    /**
+     * Reads this instance from the given batch input stream.
+     * 
+     * @param in the input stream
+     * @throws IOException in case of any I/O error or problem
+     * 
+     * @since 1.30
+     */
+    public void readBatched(BatchInputStream in) throws IOException {
+        read(in);
+    }
+
     /**
      * Returns the unambiguous identification of the element.
      * 
@@ -72,5 +101,20 @@ public abstract class RecordingStrategiesElement {
      */
     public void release() {
     }
+
+    /**
+     * Returns whether this element may be dropped if the event buffer of an
+     * asynchronous recorder strategy is full, i.e. whether loss of this 
+     * element reduces the accuracy of the recorded data but does not lead to
+     * inconsistent recording.
+     * 
+     * @return <code>true</code> if this element may be dropped, 
+     *   <code>false</code> else
+     * 
+     * @since 1.30
+     */
+    public boolean isDroppable() {
+        return false;
+    }
     
 }
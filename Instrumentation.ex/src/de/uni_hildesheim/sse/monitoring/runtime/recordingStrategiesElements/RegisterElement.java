@@ -13,7 +13,7 @@ import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 public class RegisterElement extends RecordingStrategiesElement {
 
@@ -63,6 +63,30 @@ public class RegisterElement extends RecordingStrategiesElement {
     public RegisterElement() {
     }
 
+    /**
+     * Returns the identification of the registering thread.
+     * 
+     * @return the thread identification
+     * 
+     * @since 1.30
+     */
+    public long getThreadId() {
+        return threadId;
+    }
+
+    /**
+     * Returns the identification of the new thread.
+     * 
+     * @return the identification of the new thread or one of the special
+     *   values {@link RecorderStrategy#REGISTER_FORCE} or 
+     *   {@link RecorderStrategy#REGISTER_END}
+     * 
+     * @since 1.30
+     */
+    public long getNewId() {
+        return newId;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -35,11 +35,6 @@ public abstract class AbstractLongHashMap {
     * Stores the number of elements.
     */      
     private int contents = 0;
-
-    /**
-     * The number of keys contained in this map.
-     */
-    private int keySize;
     
    /**
     * Stores the counter for objects created.
@@ -182,7 +177,6 @@ public abstract class AbstractLongHashMap {
             }
         }
         contents = 0;
-        keySize = 0;
     }
 
    /**
@@ -205,6 +199,19 @@ public abstract class AbstractLongHashMap {
         return capacity;
     }
 
+   /**
+    * Returns the first element in the given bucket, e.g. to iterate over
+    * the elements without creating an iterator.
+    * 
+    * @param bucket the index of the bucket, less than {@link #getCapacity()}
+    * @return the first element, <b>null</b> if the bucket is empty
+    * 
+    * @since 1.30
+    */
+    public MapElement getFirst(int bucket) {
+        return map[bucket];
+    }
+
    /**
     * Return the load factor of the instance.
     * 
@@ -222,7 +229,7 @@ public abstract class AbstractLongHashMap {
     */
     public long[] keySet() {
         objectCounter++;
-        long[] keys = new long[keySize];
+        long[] keys = new long[contents];
         int cnt = 0;
         MapElement me = null;
 
@@ -470,7 +477,6 @@ public abstract class AbstractLongHashMap {
             //.... This is a new key since no bucket exists
             objectCounter++;
             map[index] = create(key, value);
-            keySize++;
             contents++;
             if (contents > maxLoad) {
                 rehash();
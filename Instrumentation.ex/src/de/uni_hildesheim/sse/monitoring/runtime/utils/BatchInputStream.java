@@ -0,0 +1,282 @@
+package de.uni_hildesheim.sse.monitoring.runtime.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import de.uni_hildesheim.sse.monitoring.runtime.boot.ArrayList;
+
+/**
+ * Reads the batches (frames) written by {@link BatchOutputStream} and
+ * provides the related decoding methods for variable-length integers,
+ * dictionary strings and delta-encoded timestamps.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public class BatchInputStream extends DataInputStream {
+
+    /**
+     * Implements a byte array input stream which can be reset to new data.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class Buffer extends ByteArrayInputStream {
+
+        /**
+         * Creates a buffer.
+         */
+        private Buffer() {
+            super(new byte[0]);
+        }
+
+        /**
+         * Changes the data of this buffer.
+         *
+         * @param data the new data
+         * @param length the number of valid bytes in <code>data</code>
+         */
+        private void setData(byte[] data, int length) {
+            buf = data;
+            pos = 0;
+            count = length;
+            mark = 0;
+        }
+    }
+
+    /**
+     * Stores the source stream.
+     */
+    private DataInputStream source;
+
+    /**
+     * Stores the batch buffer.
+     */
+    private Buffer buffer;
+
+    /**
+     * Stores the frame data as read from {@link #source}.
+     */
+    private byte[] frame = new byte[8192];
+
+    /**
+     * Stores the decompressed frame data.
+     */
+    private byte[] raw = new byte[8192];
+
+    /**
+     * Stores the string dictionary.
+     */
+    private ArrayList<String> dictionary = new ArrayList<String>();
+
+    /**
+     * Stores the last timestamp read by {@link #readTime()}.
+     */
+    private long lastTime;
+
+    /**
+     * Stores the decompressor (lazy initialization).
+     */
+    private Inflater inflater;
+
+    /**
+     * Creates a batch input stream.
+     *
+     * @param source the source stream
+     *
+     * @since 1.30
+     */
+    public BatchInputStream(DataInputStream source) {
+        super(new Buffer());
+        this.buffer = (Buffer) in;
+        this.source = source;
+    }
+
+    /**
+     * Reads the next batch from the source stream.
+     *
+     * @return <code>true</code> if a batch was read, <code>false</code> if
+     *   the source stream is at its end
+     * @throws IOException in case of any I/O error or problem
+     *
+     * @since 1.30
+     */
+    public boolean nextBatch() throws IOException {
+        boolean result;
+        int length;
+        try {
+            length = source.readInt();
+            result = true;
+        } catch (EOFException e) {
+            length = 0;
+            result = false;
+        }
+        if (result) {
+            int flags = source.readByte();
+            if (0 != (flags & BatchOutputStream.FLAG_DEFLATE)) {
+                int size = source.readInt();
+                frame = readFully(frame, length);
+                if (raw.length < size) {
+                    raw = new byte[size];
+                }
+                inflate(length, size);
+                buffer.setData(raw, size);
+            } else {
+                frame = readFully(frame, length);
+                buffer.setData(frame, length);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads <code>length</code> bytes from the source stream.
+     *
+     * @param data the array to read into
+     * @param length the number of bytes to read
+     * @return <code>data</code> or a larger array if <code>data</code> was
+     *   too small
+     * @throws IOException in case of any I/O error or problem
+     */
+    private byte[] readFully(byte[] data, int length) throws IOException {
+        if (data.length < length) {
+            data = new byte[length];
+        }
+        source.readFully(data, 0, length);
+        return data;
+    }
+
+    /**
+     * Decompresses the current frame into {@link #raw}.
+     *
+     * @param length the length of the compressed frame
+     * @param size the length of the decompressed data
+     * @throws IOException in case that decompression fails
+     */
+    private void inflate(int length, int size) throws IOException {
+        if (null == inflater) {
+            inflater = new Inflater();
+        }
+        inflater.setInput(frame, 0, length);
+        int pos = 0;
+        try {
+            while (pos < size) {
+                int count = inflater.inflate(raw, pos, size - pos);
+                if (0 == count && (inflater.needsInput()
+                    || inflater.needsDictionary())) {
+                    throw new IOException("incomplete compressed batch");
+                }
+                pos += count;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    /**
+     * Returns whether the current batch contains further data.
+     *
+     * @return <code>true</code> if there is further data, <code>false</code>
+     *   else
+     *
+     * @since 1.30
+     */
+    public boolean hasMore() {
+        return buffer.available() > 0;
+    }
+
+    /**
+     * Reads a non-negative int written as variable-length integer.
+     *
+     * @return the value
+     * @throws IOException in case of any I/O error or problem
+     *
+     * @since 1.30
+     */
+    public int readVarInt() throws IOException {
+        return (int) readVarLong();
+    }
+
+    /**
+     * Reads an (unsigned) long written as variable-length integer.
+     *
+     * @return the value
+     * @throws IOException in case of any I/O error or problem
+     *
+     * @since 1.30
+     */
+    public long readVarLong() throws IOException {
+        long result = 0;
+        int shift = 0;
+        int value;
+        do {
+            value = buffer.read();
+            if (value < 0) {
+                throw new EOFException();
+            }
+            result |= (long) (value & 0x7F) << shift;
+            shift += 7;
+        } while ((value & 0x80) != 0);
+        return result;
+    }
+
+    /**
+     * Reads a signed long written as (zig-zag encoded) variable-length
+     * integer.
+     *
+     * @return the value
+     * @throws IOException in case of any I/O error or problem
+     *
+     * @since 1.30
+     */
+    public long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads a timestamp written as difference to the previous timestamp.
+     *
+     * @return the timestamp
+     * @throws IOException in case of any I/O error or problem
+     *
+     * @since 1.30
+     */
+    public long readTime() throws IOException {
+        lastTime += readSignedVarLong();
+        return lastTime;
+    }
+
+    /**
+     * Reads a string written via the string dictionary.
+     *
+     * @return the string (may be <b>null</b>)
+     * @throws IOException in case of any I/O error or problem
+     *
+     * @since 1.30
+     */
+    public String readDictString() throws IOException {
+        String result;
+        int code = readVarInt();
+        if (BatchOutputStream.DICT_NULL == code) {
+            result = null;
+        } else if (BatchOutputStream.DICT_NEW == code) {
+            result = readUTF();
+            dictionary.add(result);
+        } else {
+            int index = code - BatchOutputStream.DICT_FIRST;
+            if (index >= dictionary.size()) {
+                throw new IOException("unknown dictionary index " + index);
+            }
+            result = dictionary.get(index);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,257 @@
+package de.uni_hildesheim.sse.monitoring.runtime.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+/**
+ * Collects binary data into length-prefixed batches (frames) which are
+ * emitted to a target stream at once, i.e. with one write (and system call)
+ * per batch rather than per value. In addition to the data output methods,
+ * this stream provides variable-length integers, a string dictionary
+ * (strings are transferred once, then referenced by index) and
+ * delta-encoded timestamps. Batches may optionally be deflate-compressed,
+ * whereby the compression context is kept across batches.<p>
+ * A frame consists of the int payload length, a flags byte, the int raw
+ * length if {@link #FLAG_DEFLATE} is set and the payload. Use
+ * {@link BatchInputStream} for reading.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public class BatchOutputStream extends DataOutputStream {
+
+    /**
+     * Denotes a deflate-compressed frame.
+     */
+    public static final int FLAG_DEFLATE = 1;
+
+    /**
+     * Denotes <b>null</b> in the string dictionary.
+     */
+    static final int DICT_NULL = 0;
+
+    /**
+     * Denotes a new string in the string dictionary (followed by the
+     * string), further codes denote the dictionary index plus
+     * <code>DICT_FIRST</code>.
+     */
+    static final int DICT_NEW = 1;
+
+    /**
+     * Denotes the code of the first dictionary entry.
+     */
+    static final int DICT_FIRST = 2;
+
+    /**
+     * Implements a byte array output stream with access to the internal
+     * buffer.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+
+        /**
+         * Creates a buffer.
+         *
+         * @param size the initial size
+         */
+        private Buffer(int size) {
+            super(size);
+        }
+
+        /**
+         * Returns the internal buffer.
+         *
+         * @return the internal buffer (valid up to {@link #size()})
+         */
+        private byte[] getBuffer() {
+            return buf;
+        }
+    }
+
+    /**
+     * Stores the batch buffer.
+     */
+    private Buffer buffer;
+
+    /**
+     * Stores the target stream.
+     */
+    private DataOutputStream target;
+
+    /**
+     * Stores the string dictionary.
+     */
+    private HashMap<String, Integer> dictionary
+        = new HashMap<String, Integer>();
+
+    /**
+     * Stores the last timestamp written by {@link #writeTime(long)}.
+     */
+    private long lastTime;
+
+    /**
+     * Stores the compressor (<b>null</b> if disabled).
+     */
+    private Deflater deflater;
+
+    /**
+     * Stores the compression buffer (<b>null</b> if disabled).
+     */
+    private byte[] compressed;
+
+    /**
+     * Creates a batch output stream.
+     *
+     * @param target the target stream
+     * @param compress whether batches shall be deflate-compressed
+     *
+     * @since 1.30
+     */
+    public BatchOutputStream(DataOutputStream target, boolean compress) {
+        super(new Buffer(8192));
+        this.buffer = (Buffer) out;
+        this.target = target;
+        if (compress) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+            compressed = new byte[8192];
+        }
+    }
+
+    /**
+     * Returns the size of the current batch.
+     *
+     * @return the size in bytes
+     *
+     * @since 1.30
+     */
+    public int batchSize() {
+        return buffer.size();
+    }
+
+    /**
+     * Writes a non-negative int as variable-length integer.
+     *
+     * @param value the value to be written
+     * @throws IOException in case of any I/O error or problem
+     *
+     * @since 1.30
+     */
+    public void writeVarInt(int value) throws IOException {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Writes an (unsigned) long as variable-length integer, i.e. 7 bits per
+     * byte.
+     *
+     * @param value the value to be written
+     * @throws IOException in case of any I/O error or problem
+     *
+     * @since 1.30
+     */
+    public void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            buffer.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.write((int) value);
+    }
+
+    /**
+     * Writes a signed long as (zig-zag encoded) variable-length integer, so
+     * that values of small magnitude result in few bytes.
+     *
+     * @param value the value to be written
+     * @throws IOException in case of any I/O error or problem
+     *
+     * @since 1.30
+     */
+    public void writeSignedVarLong(long value) throws IOException {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Writes a timestamp as difference to the previous timestamp.
+     *
+     * @param time the timestamp to be written
+     * @throws IOException in case of any I/O error or problem
+     *
+     * @since 1.30
+     */
+    public void writeTime(long time) throws IOException {
+        writeSignedVarLong(time - lastTime);
+        lastTime = time;
+    }
+
+    /**
+     * Writes a string via the string dictionary, i.e. the string is written
+     * only once and referenced by its dictionary index afterwards.
+     *
+     * @param text the text to be written (may be <b>null</b>)
+     * @throws IOException in case of any I/O error or problem
+     *
+     * @since 1.30
+     */
+    public void writeDictString(String text) throws IOException {
+        if (null == text) {
+            writeVarInt(DICT_NULL);
+        } else {
+            Integer index = dictionary.get(text);
+            if (null == index) {
+                dictionary.put(text, dictionary.size());
+                writeVarInt(DICT_NEW);
+                writeUTF(text);
+            } else {
+                writeVarInt(index + DICT_FIRST);
+            }
+        }
+    }
+
+    /**
+     * Emits the current batch as a frame to the target stream and flushes
+     * the target stream. Does nothing if the current batch is empty.
+     *
+     * @throws IOException in case of any I/O error or problem
+     *
+     * @since 1.30
+     */
+    public void flushBatch() throws IOException {
+        int size = buffer.size();
+        if (size > 0) {
+            byte[] data = buffer.getBuffer();
+            if (null != deflater) {
+                deflater.setInput(data, 0, size);
+                int length = 0;
+                boolean done = false;
+                while (!done) {
+                    length += deflater.deflate(compressed, length,
+                        compressed.length - length, Deflater.SYNC_FLUSH);
+                    if (length < compressed.length) {
+                        done = true;
+                    } else {
+                        byte[] tmp = new byte[2 * compressed.length];
+                        System.arraycopy(compressed, 0, tmp, 0, length);
+                        compressed = tmp;
+                    }
+                }
+                target.writeInt(length);
+                target.writeByte(FLAG_DEFLATE);
+                target.writeInt(size);
+                target.write(compressed, 0, length);
+            } else {
+                target.writeInt(size);
+                target.writeByte(0);
+                target.write(data, 0, size);
+            }
+            buffer.reset();
+        }
+        target.flush();
+    }
+
+}
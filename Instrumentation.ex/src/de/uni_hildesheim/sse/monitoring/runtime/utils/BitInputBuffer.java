@@ -0,0 +1,80 @@
+package de.uni_hildesheim.sse.monitoring.runtime.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads bits written by a {@link BitOutputBuffer} from a byte buffer. The
+ * position of the byte buffer is not changed.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public class BitInputBuffer {
+
+    /**
+     * Stores the buffer to read from.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Stores the byte index of the first bit in {@link #buffer}.
+     */
+    private int offset;
+
+    /**
+     * Stores the number of bits read so far.
+     */
+    private long bits;
+
+    /**
+     * Creates a bit input buffer.
+     *
+     * @param buffer the buffer to read from
+     * @param offset the byte index of the first bit in <code>buffer</code>
+     *
+     * @since 1.30
+     */
+    public BitInputBuffer(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    /**
+     * Reads a single bit.
+     *
+     * @return the bit
+     * @throws IndexOutOfBoundsException if reading beyond the limit of the
+     *   underlying buffer
+     *
+     * @since 1.30
+     */
+    public boolean readBit() {
+        return 1 == readBits(1);
+    }
+
+    /**
+     * Reads <code>count</code> bits, the most significant bit first.
+     *
+     * @param count the number of bits to be read (0-64)
+     * @return the bits as the lowest bits of the result
+     * @throws IndexOutOfBoundsException if reading beyond the limit of the
+     *   underlying buffer
+     *
+     * @since 1.30
+     */
+    public long readBits(int count) {
+        long result = 0;
+        while (count > 0) {
+            int available = 8 - (int) (bits & 7);
+            int take = Math.min(available, count);
+            int value = buffer.get(offset + (int) (bits >>> 3)) & 0xFF;
+            value = (value >>> (available - take)) & ((1 << take) - 1);
+            result = (result << take) | value;
+            bits += take;
+            count -= take;
+        }
+        return result;
+    }
+
+}
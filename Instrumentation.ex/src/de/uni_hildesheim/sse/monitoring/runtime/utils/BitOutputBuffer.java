@@ -0,0 +1,144 @@
+package de.uni_hildesheim.sse.monitoring.runtime.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Collects individual bits and bit sequences in memory, e.g., for bit-level
+ * compression of time series. The bits are stored in the sequence of
+ * writing, the most significant bit of a written sequence first. Use
+ * {@link BitInputBuffer} for reading.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public class BitOutputBuffer {
+
+    /**
+     * Stores the bits written so far.
+     */
+    private long[] words;
+
+    /**
+     * Stores the number of bits written so far.
+     */
+    private int bits;
+
+    /**
+     * Creates a bit buffer.
+     *
+     * @param initialBits the initial capacity in bits
+     *
+     * @since 1.30
+     */
+    public BitOutputBuffer(int initialBits) {
+        words = new long[Math.max(1, (initialBits + 63) >>> 6)];
+    }
+
+    /**
+     * Writes a single bit.
+     *
+     * @param bit the bit to be written
+     *
+     * @since 1.30
+     */
+    public void writeBit(boolean bit) {
+        int word = bits >>> 6;
+        if (word >= words.length) {
+            long[] tmp = new long[2 * words.length];
+            System.arraycopy(words, 0, tmp, 0, words.length);
+            words = tmp;
+        }
+        if (bit) {
+            words[word] |= 1L << (63 - (bits & 63));
+        }
+        bits++;
+    }
+
+    /**
+     * Writes the lowest <code>count</code> bits of <code>value</code>, the
+     * most significant of these bits first.
+     *
+     * @param value the value to be written
+     * @param count the number of bits to be written (0-64)
+     *
+     * @since 1.30
+     */
+    public void writeBits(long value, int count) {
+        if (count > 0) {
+            if (count < 64) {
+                value &= (1L << count) - 1;
+            }
+            int word = bits >>> 6;
+            int free = 64 - (bits & 63);
+            if (word + 1 >= words.length) {
+                long[] tmp = new long[2 * words.length];
+                System.arraycopy(words, 0, tmp, 0, words.length);
+                words = tmp;
+            }
+            if (count <= free) {
+                words[word] |= value << (free - count);
+            } else {
+                words[word] |= value >>> (count - free);
+                words[word + 1] = value << (64 - count + free);
+            }
+            bits += count;
+        }
+    }
+
+    /**
+     * Returns the number of bits written so far.
+     *
+     * @return the number of bits
+     *
+     * @since 1.30
+     */
+    public int bitLength() {
+        return bits;
+    }
+
+    /**
+     * Returns the number of bytes needed to store the bits written so far.
+     *
+     * @return the number of bytes
+     *
+     * @since 1.30
+     */
+    public int byteLength() {
+        return (bits + 7) >>> 3;
+    }
+
+    /**
+     * Writes the bits to <code>buffer</code> at its current position,
+     * whereby the last byte is padded with zero bits.
+     *
+     * @param buffer the target buffer (must have at least
+     *   {@link #byteLength()} remaining bytes)
+     *
+     * @since 1.30
+     */
+    public void writeTo(ByteBuffer buffer) {
+        int fullWords = bits >>> 6;
+        for (int i = 0; i < fullWords; i++) {
+            buffer.putLong(words[i]);
+        }
+        int bytes = ((bits & 63) + 7) >>> 3;
+        for (int i = 0; i < bytes; i++) {
+            buffer.put((byte) (words[fullWords] >>> (56 - 8 * i)));
+        }
+    }
+
+    /**
+     * Clears this buffer for reuse.
+     *
+     * @since 1.30
+     */
+    public void clear() {
+        int used = Math.min(words.length, (bits >>> 6) + 2);
+        for (int i = 0; i < used; i++) {
+            words[i] = 0;
+        }
+        bits = 0;
+    }
+
+}
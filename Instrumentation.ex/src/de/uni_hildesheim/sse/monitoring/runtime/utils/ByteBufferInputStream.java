@@ -0,0 +1,107 @@
+package de.uni_hildesheim.sse.monitoring.runtime.utils;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Implements an input stream reading from a (possibly direct) byte buffer,
+ * i.e. from the position to the limit of the buffer. The buffer may be
+ * exchanged and is read directly, i.e. without copying. In combination with
+ * a data input stream, this allows decoding data from the buffer and, if
+ * the buffer does not contain sufficient data, to reset the buffer position
+ * and to continue after further data was received.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public class ByteBufferInputStream extends InputStream {
+
+    /**
+     * Stores the buffer to read from.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Creates a byte buffer input stream.
+     *
+     * @param buffer the buffer to read from
+     *
+     * @since 1.30
+     */
+    public ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Changes the buffer to read from.
+     *
+     * @param buffer the buffer to read from
+     *
+     * @since 1.30
+     */
+    public void setBuffer(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Returns the buffer to read from.
+     *
+     * @return the buffer
+     *
+     * @since 1.30
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read() {
+        int result;
+        if (buffer.hasRemaining()) {
+            result = buffer.get() & 0xFF;
+        } else {
+            result = -1;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read(byte[] bytes, int off, int len) {
+        int result;
+        if (0 == len) {
+            result = 0;
+        } else if (buffer.hasRemaining()) {
+            result = Math.min(len, buffer.remaining());
+            buffer.get(bytes, off, result);
+        } else {
+            result = -1;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long skip(long n) {
+        int result = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + result);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+}
@@ -0,0 +1,431 @@
+package de.uni_hildesheim.sse.monitoring.runtime.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe hash map mapping long values to long values, intended for
+ * counters such as per-thread nesting depths. Individual entries are
+ * modified via compare-and-set without a global monitor, only resizing the
+ * table synchronizes on this instance.<p>
+ * In contrast to {@link LongLongHashMap}, the value <code>0</code> denotes
+ * an absent entry, i.e. setting a value to <code>0</code> removes the entry.
+ * The value {@link Long#MIN_VALUE} is reserved for internal purposes and
+ * must not be stored.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public class ConcurrentLongLongHashMap {
+
+   /**
+    * The default capacity for hash map instances.
+    */
+    public static final int DEFAULT_CAPACITY = 64;
+
+   /**
+    * Denotes an empty key slot.
+    */
+    private static final long EMPTY = 0;
+
+   /**
+    * Denotes a value slot which was moved to a resized table.
+    */
+    private static final long MOVED = Long.MIN_VALUE;
+
+   /**
+    * Stores the current table.
+    */
+    private volatile Table table;
+
+   /**
+    * Stores the value of the key <code>0</code> (which is used to denote
+    * empty slots in the table).
+    */
+    private final AtomicLong zeroKeyValue = new AtomicLong();
+
+   /**
+    * Implements an open addressing table of keys and values. Keys are never
+    * removed from a table, entries with value <code>0</code> are dropped
+    * when resizing.
+    *
+    * @author Holger Eichelberger
+    * @since 1.30
+    * @version 1.30
+    */
+    private static class Table {
+
+       /**
+        * Stores the keys.
+        */
+        private final AtomicLongArray keys;
+
+       /**
+        * Stores the values.
+        */
+        private final AtomicLongArray values;
+
+       /**
+        * Stores the mask to turn hash codes into indexes.
+        */
+        private final int mask;
+
+       /**
+        * Stores the number of used key slots.
+        */
+        private final AtomicLong used = new AtomicLong();
+
+       /**
+        * Stores the maximum number of used key slots before resizing.
+        */
+        private final int maxLoad;
+
+       /**
+        * Creates a table.
+        *
+        * @param capacity the capacity (power of 2)
+        */
+        private Table(int capacity) {
+            keys = new AtomicLongArray(capacity);
+            values = new AtomicLongArray(capacity);
+            mask = capacity - 1;
+            maxLoad = capacity / 4 * 3;
+        }
+
+       /**
+        * Returns the slot index of <code>key</code>.
+        *
+        * @param key the key
+        * @param insert whether an empty slot shall be claimed for
+        *   <code>key</code> if <code>key</code> is not contained
+        * @return the index, <code>-1</code> if not found (or if the table is
+        *   full in case of <code>insert</code>)
+        */
+        private int indexOf(long key, boolean insert) {
+            int index = hash(key) & mask;
+            int result = -1;
+            for (int probe = 0; result < 0 && probe <= mask; probe++) {
+                long k = keys.get(index);
+                if (k == key) {
+                    result = index;
+                } else if (EMPTY == k) {
+                    if (!insert) {
+                        break;
+                    } else if (used.get() >= maxLoad) {
+                        break;
+                    } else if (keys.compareAndSet(index, EMPTY, key)) {
+                        used.incrementAndGet();
+                        result = index;
+                    } else if (keys.get(index) == key) {
+                        result = index;
+                    } else {
+                        index = (index + 1) & mask;
+                    }
+                } else {
+                    index = (index + 1) & mask;
+                }
+            }
+            return result;
+        }
+    }
+
+   /**
+    * Constructs an empty instance with the default initial capacity.
+    */
+    public ConcurrentLongLongHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+   /**
+    * Constructs an empty instance with the given initial capacity.
+    *
+    * @param initialCapacity the initial capacity of this instance
+    */
+    public ConcurrentLongLongHashMap(int initialCapacity) {
+        table = new Table(capacityFor(initialCapacity));
+    }
+
+   /**
+    * Returns the table capacity (power of 2) for the given number of entries.
+    *
+    * @param size the number of entries
+    * @return the capacity
+    */
+    private static int capacityFor(int size) {
+        int capacity = 16;
+        while (capacity < LongLongHashMap.MAXIMUM_CAPACITY
+            && capacity / 4 * 3 <= size) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+   /**
+    * Returns the hash code for a key.
+    *
+    * @param key the key
+    * @return the hash code
+    */
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+   /**
+    * Returns the value of <code>key</code>.
+    *
+    * @param key the key to search for
+    * @return the value of <code>key</code>, <code>0</code> if not contained
+    */
+    public long get(long key) {
+        long result;
+        if (EMPTY == key) {
+            result = zeroKeyValue.get();
+        } else {
+            result = 0;
+            boolean done = false;
+            while (!done) {
+                Table tab = table;
+                int index = tab.indexOf(key, false);
+                if (index < 0) {
+                    done = true;
+                } else {
+                    result = tab.values.get(index);
+                    if (MOVED == result) {
+                        awaitResize(tab);
+                    } else {
+                        done = true;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+   /**
+    * Returns whether <code>key</code> has a (non-zero) value.
+    *
+    * @param key the key to search for
+    * @return <code>true</code> if <code>key</code> is contained,
+    *   <code>false</code> else
+    */
+    public boolean containsKey(long key) {
+        return 0 != get(key);
+    }
+
+   /**
+    * Atomically adds <code>delta</code> to the value of <code>key</code>.
+    *
+    * @param key the key
+    * @param delta the value to be added
+    * @return the new value
+    */
+    public long addAndGet(long key, long delta) {
+        long result;
+        if (EMPTY == key) {
+            result = zeroKeyValue.addAndGet(delta);
+        } else {
+            result = update(key, delta, false);
+        }
+        return result;
+    }
+
+   /**
+    * Atomically increments the value of <code>key</code>.
+    *
+    * @param key the key
+    * @return the new value
+    */
+    public long increment(long key) {
+        return addAndGet(key, 1);
+    }
+
+   /**
+    * Atomically decrements the value of <code>key</code> if it is
+    * positive, i.e. an absent entry is not turned into a negative one.
+    *
+    * @param key the key
+    * @return the new value, <code>0</code> if the entry is absent now
+    */
+    public long decrement(long key) {
+        long result;
+        if (EMPTY == key) {
+            long value;
+            do {
+                value = zeroKeyValue.get();
+            } while (value > 0
+                && !zeroKeyValue.compareAndSet(value, value - 1));
+            result = value > 0 ? value - 1 : value;
+        } else {
+            result = update(key, -1, true);
+        }
+        return result;
+    }
+
+   /**
+    * Atomically updates the value of <code>key</code>.
+    *
+    * @param key the key (not {@link #EMPTY})
+    * @param delta the value to be added
+    * @param onlyPositive perform the update only if the value is positive
+    * @return the new value
+    */
+    private long update(long key, long delta, boolean onlyPositive) {
+        long result = 0;
+        boolean done = false;
+        while (!done) {
+            Table tab = table;
+            int index = tab.indexOf(key, !onlyPositive);
+            if (index < 0) {
+                if (onlyPositive) {
+                    done = true;
+                } else {
+                    resize(tab);
+                }
+            } else {
+                long value = tab.values.get(index);
+                if (MOVED == value) {
+                    awaitResize(tab);
+                } else if (onlyPositive && value <= 0) {
+                    result = value;
+                    done = true;
+                } else if (tab.values.compareAndSet(index, value,
+                    value + delta)) {
+                    result = value + delta;
+                    done = true;
+                }
+            }
+        }
+        return result;
+    }
+
+   /**
+    * Changes the value of <code>key</code>.
+    *
+    * @param key the key
+    * @param value the new value, <code>0</code> removes the entry
+    */
+    public void put(long key, long value) {
+        if (EMPTY == key) {
+            zeroKeyValue.set(value);
+        } else {
+            boolean done = false;
+            while (!done) {
+                Table tab = table;
+                int index = tab.indexOf(key, 0 != value);
+                if (index < 0) {
+                    if (0 == value) {
+                        done = true;
+                    } else {
+                        resize(tab);
+                    }
+                } else {
+                    long old = tab.values.get(index);
+                    if (MOVED == old) {
+                        awaitResize(tab);
+                    } else {
+                        done = tab.values.compareAndSet(index, old, value);
+                    }
+                }
+            }
+        }
+    }
+
+   /**
+    * Removes the entry for <code>key</code>.
+    *
+    * @param key the key
+    */
+    public void remove(long key) {
+        put(key, 0);
+    }
+
+   /**
+    * Returns the number of (non-zero) entries. This operation iterates over
+    * the table and provides only an estimate in case of concurrent
+    * modifications.
+    *
+    * @return the number of entries
+    */
+    public int size() {
+        int result = 0 != zeroKeyValue.get() ? 1 : 0;
+        Table tab = table;
+        for (int i = 0; i <= tab.mask; i++) {
+            long value = tab.values.get(i);
+            if (EMPTY != tab.keys.get(i) && 0 != value && MOVED != value) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+   /**
+    * Returns whether this map is empty.
+    *
+    * @return <code>true</code> if this map is empty, <code>false</code> else
+    */
+    public boolean isEmpty() {
+        return 0 == size();
+    }
+
+   /**
+    * Removes all entries.
+    */
+    public synchronized void clear() {
+        Table tab = table;
+        for (int i = 0; i <= tab.mask; i++) {
+            tab.values.set(i, MOVED);
+        }
+        table = new Table(tab.mask + 1);
+        zeroKeyValue.set(0);
+    }
+
+   /**
+    * Waits until the resizing of <code>tab</code> is finished. As resizing
+    * holds the monitor of this instance until the new table is published,
+    * acquiring the monitor is sufficient.
+    *
+    * @param tab the table being resized
+    */
+    private void awaitResize(Table tab) {
+        synchronized (this) {
+            if (tab == table) {
+                throw new IllegalStateException("moved slot in current table");
+            }
+        }
+    }
+
+   /**
+    * Replaces <code>tab</code> by a resized table. Each value slot is 
+    * atomically replaced by a marker so that concurrent updates fail their 
+    * compare-and-set and retry on the new table. Entries with value
+    * <code>0</code> are dropped, so the new table may also be of the same
+    * size.
+    *
+    * @param tab the table to be resized
+    */
+    private synchronized void resize(Table tab) {
+        if (tab == table) {
+            int capacity = tab.mask + 1;
+            long[] keys = new long[capacity];
+            long[] values = new long[capacity];
+            int size = 0;
+            for (int i = 0; i < capacity; i++) {
+                long value = tab.values.getAndSet(i, MOVED);
+                long key = tab.keys.get(i);
+                if (EMPTY != key && 0 != value) {
+                    keys[size] = key;
+                    values[size] = value;
+                    size++;
+                }
+            }
+            Table newTab = new Table(capacityFor(size * 2));
+            for (int i = 0; i < size; i++) {
+                newTab.values.set(newTab.indexOf(keys[i], true), values[i]);
+            }
+            table = newTab;
+        }
+    }
+
+}
@@ -0,0 +1,300 @@
+package de.uni_hildesheim.sse.monitoring.runtime.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A log-linear histogram of non-negative long values such as latencies in
+ * nano seconds. Each power of two is split into {@link #SUB_BUCKETS} linear
+ * buckets, i.e. the relative error of a reported value is at most
+ * <code>1/{@link #SUB_BUCKETS}</code> while the number of buckets and, thus,
+ * the memory consumption is fixed for the entire range of long values.
+ * Recording values does neither lock nor allocate, so instances may be
+ * shared among threads. Histograms of individual threads or monitoring
+ * groups may be merged via {@link #add(LatencyHistogram)}.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public class LatencyHistogram {
+
+    /**
+     * Defines the number of bits used to distinguish the linear buckets
+     * within a power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /**
+     * Defines the number of linear buckets within a power of two.
+     */
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Defines the number of buckets required for all positive long values.
+     */
+    private static final int BUCKETS = indexOf(Long.MAX_VALUE) + 1;
+
+    /**
+     * Stores the number of values per bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Stores the sum of all recorded values.
+     */
+    private final AtomicLong total = new AtomicLong();
+
+    /**
+     * Stores the minimum recorded value.
+     */
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+    /**
+     * Stores the maximum recorded value.
+     */
+    private final AtomicLong max = new AtomicLong(0);
+
+    /**
+     * Returns the bucket index for the given value.
+     *
+     * @param value the (non-negative) value
+     * @return the bucket index
+     *
+     * @since 1.30
+     */
+    private static int indexOf(long value) {
+        int shift = 64 - Long.numberOfLeadingZeros(value)
+            - (SUB_BUCKET_BITS + 1);
+        if (shift < 0) {
+            shift = 0;
+        }
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * Returns the highest value represented by the given bucket.
+     *
+     * @param index the bucket index
+     * @return the highest value
+     *
+     * @since 1.30
+     */
+    private static long highestValueOf(int index) {
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        if (shift < 0) {
+            shift = 0;
+        }
+        long subBucket = index - (shift << SUB_BUCKET_BITS);
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Records a value. Negative values are recorded as <code>0</code>.
+     *
+     * @param value the value to be recorded
+     *
+     * @since 1.30
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value));
+        total.addAndGet(value);
+        updateMin(value);
+        updateMax(value);
+    }
+
+    /**
+     * Updates the minimum value.
+     *
+     * @param value the value which may become the new minimum
+     *
+     * @since 1.30
+     */
+    private void updateMin(long value) {
+        long current = min.get();
+        while (value < current && !min.compareAndSet(current, value)) {
+            current = min.get();
+        }
+    }
+
+    /**
+     * Updates the maximum value.
+     *
+     * @param value the value which may become the new maximum
+     *
+     * @since 1.30
+     */
+    private void updateMax(long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Adds all values recorded in <code>histogram</code> to this instance.
+     *
+     * @param histogram the histogram to be merged into this instance (may be
+     *   <b>null</b>)
+     *
+     * @since 1.30
+     */
+    public void add(LatencyHistogram histogram) {
+        if (null != histogram && histogram != this) {
+            boolean added = false;
+            for (int i = 0; i < BUCKETS; i++) {
+                long count = histogram.counts.get(i);
+                if (count > 0) {
+                    counts.addAndGet(i, count);
+                    added = true;
+                }
+            }
+            if (added) {
+                total.addAndGet(histogram.total.get());
+                updateMin(histogram.min.get());
+                updateMax(histogram.max.get());
+            }
+        }
+    }
+
+    /**
+     * Removes all recorded values.
+     *
+     * @since 1.30
+     */
+    public void clear() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        min.set(Long.MAX_VALUE);
+        max.set(0);
+    }
+
+    /**
+     * Replaces the values recorded in this instance by those in
+     * <code>histogram</code>.
+     *
+     * @param histogram the histogram to copy from (may be <b>null</b>)
+     *
+     * @since 1.30
+     */
+    public void copy(LatencyHistogram histogram) {
+        if (histogram != this) {
+            clear();
+            add(histogram);
+        }
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of recorded values
+     *
+     * @since 1.30
+     */
+    public long getCount() {
+        long result = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            result += counts.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the sum of all recorded values.
+     *
+     * @return the sum of all recorded values
+     *
+     * @since 1.30
+     */
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * Returns the smallest recorded value.
+     *
+     * @return the smallest value, <code>0</code> if nothing was recorded
+     *
+     * @since 1.30
+     */
+    public long getMin() {
+        long result = min.get();
+        if (Long.MAX_VALUE == result) {
+            result = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the largest recorded value.
+     *
+     * @return the largest value, <code>0</code> if nothing was recorded
+     *
+     * @since 1.30
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the arithmetic mean of the recorded values.
+     *
+     * @return the mean, <code>0</code> if nothing was recorded
+     *
+     * @since 1.30
+     */
+    public double getMean() {
+        long count = getCount();
+        double result;
+        if (0 == count) {
+            result = 0;
+        } else {
+            result = total.get() / (double) count;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the value below or at which the given percentage of the
+     * recorded values lies. The result is the highest value of the related
+     * bucket limited to the range of the recorded values.
+     *
+     * @param percentile the percentile in the range [0;100]
+     * @return the value at the given percentile, <code>0</code> if nothing
+     *   was recorded
+     *
+     * @since 1.30
+     */
+    public long getValueAtPercentile(double percentile) {
+        long result = 0;
+        long count = getCount();
+        if (count > 0) {
+            percentile = Math.max(0, Math.min(100, percentile));
+            long target = (long) Math.ceil(percentile / 100 * count);
+            if (target < 1) {
+                target = 1;
+            }
+            long sum = 0;
+            int index = -1;
+            for (int i = 0; index < 0 && i < BUCKETS; i++) {
+                sum += counts.get(i);
+                if (sum >= target) {
+                    index = i;
+                }
+            }
+            if (index < 0) {
+                result = getMax();
+            } else {
+                result = Math.min(highestValueOf(index), getMax());
+                result = Math.max(result, getMin());
+            }
+        }
+        return result;
+    }
+
+}
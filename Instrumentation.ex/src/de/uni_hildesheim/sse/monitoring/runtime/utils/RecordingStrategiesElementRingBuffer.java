@@ -0,0 +1,165 @@
+package de.uni_hildesheim.sse.monitoring.runtime.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.RecordingStrategiesElement;
+
+/**
+ * Implements a bounded, preallocated multi-producer/single-consumer ring
+ * buffer of recording elements. Producers claim a slot by compare-and-set on
+ * the tail sequence and publish the element into the claimed slot, the
+ * (single) consumer takes published elements in batches and frees the slots
+ * afterwards. Neither side acquires a monitor, i.e. waiting for free slots or
+ * for elements is up to the caller.<p>
+ * Elements are taken in the order of their claimed sequence numbers, i.e.
+ * the elements produced by an individual thread keep their order.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public class RecordingStrategiesElementRingBuffer {
+
+    /**
+     * Stores the slots (<b>null</b> if not published or already taken).
+     */
+    private final AtomicReferenceArray<RecordingStrategiesElement> slots;
+
+    /**
+     * Stores the mask to turn sequence numbers into slot indexes.
+     */
+    private final int mask;
+
+    /**
+     * Stores the next sequence number to be claimed by a producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Stores the next sequence number to be taken by the consumer (modified
+     * by the consumer only).
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Creates a new ring buffer.
+     *
+     * @param capacity the minimum capacity, rounded up to the next power
+     *   of 2
+     *
+     * @since 1.30
+     */
+    public RecordingStrategiesElementRingBuffer(int capacity) {
+        int size = 2;
+        while (size < capacity && size < LongLongHashMap.MAXIMUM_CAPACITY) {
+            size <<= 1;
+        }
+        slots = new AtomicReferenceArray<RecordingStrategiesElement>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Returns the capacity of this buffer.
+     *
+     * @return the capacity
+     *
+     * @since 1.30
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Adds an element if there is a free slot. May be called by multiple
+     * threads concurrently.
+     *
+     * @param elt the element to be added (must not be <b>null</b>)
+     * @return <code>true</code> if <code>elt</code> was added,
+     *   <code>false</code> if this buffer is full
+     *
+     * @since 1.30
+     */
+    public boolean offer(RecordingStrategiesElement elt) {
+        boolean claimed = false;
+        long seq;
+        do {
+            seq = tail.get();
+            if (seq - head.get() > mask) {
+                break;
+            }
+            claimed = tail.compareAndSet(seq, seq + 1);
+        } while (!claimed);
+        if (claimed) {
+            slots.set((int) seq & mask, elt);
+        }
+        return claimed;
+    }
+
+    /**
+     * Takes the published elements (at most as many as <code>batch</code>
+     * can hold) and frees their slots. Must be called by the consumer
+     * thread only.
+     *
+     * @param batch the array to store the taken elements into
+     * @return the number of elements taken, stored starting at index
+     *   <code>0</code> of <code>batch</code>
+     *
+     * @since 1.30
+     */
+    public int drain(RecordingStrategiesElement[] batch) {
+        long seq = head.get();
+        int count = 0;
+        while (count < batch.length) {
+            int index = (int) (seq + count) & mask;
+            RecordingStrategiesElement elt = slots.get(index);
+            if (null == elt) {
+                break; // empty or claimed but not yet published
+            }
+            slots.lazySet(index, null);
+            batch[count++] = elt;
+        }
+        if (count > 0) {
+            head.lazySet(seq + count);
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether the next element to be taken is already published.
+     * Must be called by the consumer thread only.
+     *
+     * @return <code>true</code> if {@link #drain(RecordingStrategiesElement[])}
+     *   would return at least one element, <code>false</code> else
+     *
+     * @since 1.30
+     */
+    public boolean hasPublished() {
+        return null != slots.get((int) head.get() & mask);
+    }
+
+    /**
+     * Returns the number of claimed slots, i.e. an estimate of the number of
+     * elements in this buffer.
+     *
+     * @return the number of claimed slots
+     *
+     * @since 1.30
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * Returns whether this buffer is empty, i.e. no slot is claimed.
+     *
+     * @return <code>true</code> if this buffer is empty, <code>false</code>
+     *   else
+     *
+     * @since 1.30
+     */
+    public boolean isEmpty() {
+        return 0 == size();
+    }
+
+}
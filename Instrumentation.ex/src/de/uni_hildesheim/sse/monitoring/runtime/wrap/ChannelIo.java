@@ -0,0 +1,614 @@
+package de.uni_hildesheim.sse.monitoring.runtime.wrap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.NetworkChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import de.uni_hildesheim.sse.monitoring.runtime.boot.RecorderFrontend;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.StreamType;
+
+/**
+ * Accounts the I/O performed through NIO channels. The instrumentation
+ * redirects calls to channel methods to the static methods of this class
+ * with the same name, which take the channel as first parameter, perform the
+ * original call and notify the recorder about the transferred bytes. The
+ * number of bytes is determined from the position change of the (single)
+ * byte buffer, else from the result of the call, i.e. no data is copied.
+ * The stream type is derived from the channel, i.e. file channels are
+ * accounted as file I/O, network channels as network I/O and other channels
+ * (e.g. pipes) are not accounted. Asynchronous file I/O is accounted when
+ * the result is obtained from the future or upon completion, respectively.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public class ChannelIo {
+
+    /**
+     * Implements a future accounting the bytes transferred asynchronously
+     * when the result is obtained for the first time.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class AccountingFuture implements Future<Integer> {
+
+        /**
+         * Stores the future to delegate to.
+         */
+        private Future<Integer> future;
+
+        /**
+         * Stores whether the future represents a write operation.
+         */
+        private boolean write;
+
+        /**
+         * Stores whether the result was already accounted.
+         */
+        private boolean accounted;
+
+        /**
+         * Creates an accounting future.
+         *
+         * @param future the future to delegate to
+         * @param write whether the future represents a write operation
+         */
+        private AccountingFuture(Future<Integer> future, boolean write) {
+            this.future = future;
+            this.write = write;
+        }
+
+        /**
+         * Accounts the result if not done before.
+         *
+         * @param result the result of the operation
+         * @return <code>result</code>
+         */
+        private Integer account(Integer result) {
+            boolean doAccount;
+            synchronized (this) {
+                doAccount = !accounted;
+                accounted = true;
+            }
+            if (doAccount && null != result) {
+                record(StreamType.FILE, write, result);
+            }
+            return result;
+        }
+
+        /**
+         * Attempts to cancel the operation.
+         *
+         * @param mayInterruptIfRunning whether the executing thread may be
+         *   interrupted
+         * @return <code>false</code> if the operation could not be cancelled
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return future.cancel(mayInterruptIfRunning);
+        }
+
+        /**
+         * Returns whether the operation was cancelled.
+         *
+         * @return <code>true</code> if cancelled, <code>false</code> else
+         */
+        @Override
+        public boolean isCancelled() {
+            return future.isCancelled();
+        }
+
+        /**
+         * Returns whether the operation is completed.
+         *
+         * @return <code>true</code> if completed, <code>false</code> else
+         */
+        @Override
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        /**
+         * Waits for the operation and returns (and accounts) its result.
+         *
+         * @return the number of bytes transferred
+         * @throws InterruptedException if the current thread was interrupted
+         * @throws ExecutionException if the operation failed
+         */
+        @Override
+        public Integer get() throws InterruptedException, ExecutionException {
+            return account(future.get());
+        }
+
+        /**
+         * Waits for the operation and returns (and accounts) its result.
+         *
+         * @param timeout the maximum time to wait
+         * @param unit the unit of <code>timeout</code>
+         * @return the number of bytes transferred
+         * @throws InterruptedException if the current thread was interrupted
+         * @throws ExecutionException if the operation failed
+         * @throws TimeoutException if the operation did not complete in time
+         */
+        @Override
+        public Integer get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+            return account(future.get(timeout, unit));
+        }
+    }
+
+    /**
+     * Implements a completion handler accounting the bytes transferred
+     * asynchronously before delegating to the original handler.
+     *
+     * @param <A> the type of the attachment
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class AccountingHandler<A>
+        implements CompletionHandler<Integer, A> {
+
+        /**
+         * Stores the handler to delegate to.
+         */
+        private CompletionHandler<Integer, ? super A> handler;
+
+        /**
+         * Stores whether the handler represents a write operation.
+         */
+        private boolean write;
+
+        /**
+         * Creates an accounting handler.
+         *
+         * @param handler the handler to delegate to
+         * @param write whether the handler represents a write operation
+         */
+        private AccountingHandler(CompletionHandler<Integer, ? super A> handler,
+            boolean write) {
+            this.handler = handler;
+            this.write = write;
+        }
+
+        /**
+         * Accounts the result and delegates to the original handler.
+         *
+         * @param result the number of bytes transferred
+         * @param attachment the attachment
+         */
+        @Override
+        public void completed(Integer result, A attachment) {
+            if (null != result) {
+                record(StreamType.FILE, write, result);
+            }
+            handler.completed(result, attachment);
+        }
+
+        /**
+         * Delegates to the original handler.
+         *
+         * @param exc the exception causing the failure
+         * @param attachment the attachment
+         */
+        @Override
+        public void failed(Throwable exc, A attachment) {
+            handler.failed(exc, attachment);
+        }
+    }
+
+    /**
+     * Prevents this class from being instantiated from outside.
+     *
+     * @since 1.30
+     */
+    private ChannelIo() {
+    }
+
+    /**
+     * Returns the stream type of the given channel.
+     *
+     * @param channel the channel
+     * @return the stream type, <b>null</b> if the channel shall not be
+     *   accounted
+     *
+     * @since 1.30
+     */
+    public static StreamType getType(Object channel) {
+        StreamType result;
+        if (channel instanceof FileChannel
+            || channel instanceof AsynchronousFileChannel) {
+            result = StreamType.FILE;
+        } else if (channel instanceof NetworkChannel) {
+            result = StreamType.NET;
+        } else {
+            result = null;
+        }
+        return result;
+    }
+
+    /**
+     * Notifies the recorder about transferred bytes.
+     *
+     * @param type the stream type (may be <b>null</b> for no notification)
+     * @param write whether bytes were written or read
+     * @param bytes the number of bytes
+     *
+     * @since 1.30
+     */
+    private static void record(StreamType type, boolean write, long bytes) {
+        RecorderFrontend recorder = RecorderFrontend.instance;
+        if (null != type && null != recorder) {
+            while (bytes > 0) {
+                int amount = (int) Math.min(bytes, Integer.MAX_VALUE);
+                if (write) {
+                    recorder.writeIo(null, null, amount, type);
+                } else {
+                    recorder.readIo(null, null, amount, type);
+                }
+                bytes -= amount;
+            }
+        }
+    }
+
+    /**
+     * Reads from a channel into a buffer.
+     *
+     * @param channel the channel
+     * @param dst the buffer
+     * @return the result of {@link ReadableByteChannel#read(ByteBuffer)}
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public static int read(ReadableByteChannel channel, ByteBuffer dst)
+        throws IOException {
+        int pos = dst.position();
+        int result = channel.read(dst);
+        record(getType(channel), false, dst.position() - pos);
+        return result;
+    }
+
+    /**
+     * Writes to a channel from a buffer.
+     *
+     * @param channel the channel
+     * @param src the buffer
+     * @return the result of {@link WritableByteChannel#write(ByteBuffer)}
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public static int write(WritableByteChannel channel, ByteBuffer src)
+        throws IOException {
+        int pos = src.position();
+        int result = channel.write(src);
+        record(getType(channel), true, src.position() - pos);
+        return result;
+    }
+
+    /**
+     * Reads from a channel into a sequence of buffers.
+     *
+     * @param channel the channel
+     * @param dsts the buffers
+     * @return the result of {@link ScatteringByteChannel#read(ByteBuffer[])}
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public static long read(ScatteringByteChannel channel, ByteBuffer[] dsts)
+        throws IOException {
+        long result = channel.read(dsts);
+        record(getType(channel), false, result);
+        return result;
+    }
+
+    /**
+     * Reads from a channel into a subsequence of buffers.
+     *
+     * @param channel the channel
+     * @param dsts the buffers
+     * @param offset the offset of the first buffer
+     * @param length the maximum number of buffers
+     * @return the result of
+     *   {@link ScatteringByteChannel#read(ByteBuffer[], int, int)}
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public static long read(ScatteringByteChannel channel, ByteBuffer[] dsts,
+        int offset, int length) throws IOException {
+        long result = channel.read(dsts, offset, length);
+        record(getType(channel), false, result);
+        return result;
+    }
+
+    /**
+     * Writes to a channel from a sequence of buffers.
+     *
+     * @param channel the channel
+     * @param srcs the buffers
+     * @return the result of {@link GatheringByteChannel#write(ByteBuffer[])}
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public static long write(GatheringByteChannel channel, ByteBuffer[] srcs)
+        throws IOException {
+        long result = channel.write(srcs);
+        record(getType(channel), true, result);
+        return result;
+    }
+
+    /**
+     * Writes to a channel from a subsequence of buffers.
+     *
+     * @param channel the channel
+     * @param srcs the buffers
+     * @param offset the offset of the first buffer
+     * @param length the maximum number of buffers
+     * @return the result of
+     *   {@link GatheringByteChannel#write(ByteBuffer[], int, int)}
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public static long write(GatheringByteChannel channel, ByteBuffer[] srcs,
+        int offset, int length) throws IOException {
+        long result = channel.write(srcs, offset, length);
+        record(getType(channel), true, result);
+        return result;
+    }
+
+    /**
+     * Reads from a file channel at a given position.
+     *
+     * @param channel the channel
+     * @param dst the buffer
+     * @param position the file position
+     * @return the result of {@link FileChannel#read(ByteBuffer, long)}
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public static int read(FileChannel channel, ByteBuffer dst, long position)
+        throws IOException {
+        int pos = dst.position();
+        int result = channel.read(dst, position);
+        record(StreamType.FILE, false, dst.position() - pos);
+        return result;
+    }
+
+    /**
+     * Writes to a file channel at a given position.
+     *
+     * @param channel the channel
+     * @param src the buffer
+     * @param position the file position
+     * @return the result of {@link FileChannel#write(ByteBuffer, long)}
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public static int write(FileChannel channel, ByteBuffer src, long position)
+        throws IOException {
+        int pos = src.position();
+        int result = channel.write(src, position);
+        record(StreamType.FILE, true, src.position() - pos);
+        return result;
+    }
+
+    /**
+     * Transfers bytes from a file channel to another channel. The bytes are
+     * accounted as read from the file and as written to the target.
+     *
+     * @param channel the channel
+     * @param position the file position
+     * @param count the maximum number of bytes
+     * @param target the target channel
+     * @return the result of
+     *   {@link FileChannel#transferTo(long, long, WritableByteChannel)}
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public static long transferTo(FileChannel channel, long position,
+        long count, WritableByteChannel target) throws IOException {
+        long result = channel.transferTo(position, count, target);
+        record(StreamType.FILE, false, result);
+        record(getType(target), true, result);
+        return result;
+    }
+
+    /**
+     * Transfers bytes from another channel to a file channel. The bytes are
+     * accounted as read from the source and as written to the file.
+     *
+     * @param channel the channel
+     * @param src the source channel
+     * @param position the file position
+     * @param count the maximum number of bytes
+     * @return the result of
+     *   {@link FileChannel#transferFrom(ReadableByteChannel, long, long)}
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public static long transferFrom(FileChannel channel,
+        ReadableByteChannel src, long position, long count)
+        throws IOException {
+        long result = channel.transferFrom(src, position, count);
+        record(getType(src), false, result);
+        record(StreamType.FILE, true, result);
+        return result;
+    }
+
+    /**
+     * Sends a datagram.
+     *
+     * @param channel the channel
+     * @param src the buffer
+     * @param target the target address
+     * @return the result of
+     *   {@link DatagramChannel#send(ByteBuffer, SocketAddress)}
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public static int send(DatagramChannel channel, ByteBuffer src,
+        SocketAddress target) throws IOException {
+        int pos = src.position();
+        int result = channel.send(src, target);
+        record(StreamType.NET, true, src.position() - pos);
+        return result;
+    }
+
+    /**
+     * Receives a datagram.
+     *
+     * @param channel the channel
+     * @param dst the buffer
+     * @return the result of {@link DatagramChannel#receive(ByteBuffer)}
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public static SocketAddress receive(DatagramChannel channel,
+        ByteBuffer dst) throws IOException {
+        int pos = dst.position();
+        SocketAddress result = channel.receive(dst);
+        record(StreamType.NET, false, dst.position() - pos);
+        return result;
+    }
+
+    /**
+     * Reads asynchronously from a file channel.
+     *
+     * @param channel the channel
+     * @param dst the buffer
+     * @param position the file position
+     * @return the (accounting) result of
+     *   {@link AsynchronousFileChannel#read(ByteBuffer, long)}
+     *
+     * @since 1.30
+     */
+    public static Future<Integer> read(AsynchronousFileChannel channel,
+        ByteBuffer dst, long position) {
+        return new AccountingFuture(channel.read(dst, position), false);
+    }
+
+    /**
+     * Reads asynchronously from a file channel.
+     *
+     * @param <A> the type of the attachment
+     * @param channel the channel
+     * @param dst the buffer
+     * @param position the file position
+     * @param attachment the attachment
+     * @param handler the completion handler
+     *
+     * @since 1.30
+     */
+    public static <A> void read(AsynchronousFileChannel channel,
+        ByteBuffer dst, long position, A attachment,
+        CompletionHandler<Integer, ? super A> handler) {
+        channel.read(dst, position, attachment,
+            new AccountingHandler<A>(handler, false));
+    }
+
+    /**
+     * Writes asynchronously to a file channel.
+     *
+     * @param channel the channel
+     * @param src the buffer
+     * @param position the file position
+     * @return the (accounting) result of
+     *   {@link AsynchronousFileChannel#write(ByteBuffer, long)}
+     *
+     * @since 1.30
+     */
+    public static Future<Integer> write(AsynchronousFileChannel channel,
+        ByteBuffer src, long position) {
+        return new AccountingFuture(channel.write(src, position), true);
+    }
+
+    /**
+     * Writes asynchronously to a file channel.
+     *
+     * @param <A> the type of the attachment
+     * @param channel the channel
+     * @param src the buffer
+     * @param position the file position
+     * @param attachment the attachment
+     * @param handler the completion handler
+     *
+     * @since 1.30
+     */
+    public static <A> void write(AsynchronousFileChannel channel,
+        ByteBuffer src, long position, A attachment,
+        CompletionHandler<Integer, ? super A> handler) {
+        channel.write(src, position, attachment,
+            new AccountingHandler<A>(handler, true));
+    }
+
+    /**
+     * Creates an input stream reading from a channel. As the I/O of the
+     * returned stream is performed inside the JDK, the stream is wrapped
+     * for accounting.
+     *
+     * @param channel the channel
+     * @return the (accounting) result of
+     *   {@link Channels#newInputStream(ReadableByteChannel)}
+     *
+     * @since 1.30
+     */
+    public static InputStream newInputStream(ReadableByteChannel channel) {
+        InputStream result = Channels.newInputStream(channel);
+        StreamType type = getType(channel);
+        if (null != type) {
+            result = new DelegatingInputStream(result, type);
+        }
+        return result;
+    }
+
+    /**
+     * Creates an output stream writing to a channel. As the I/O of the
+     * returned stream is performed inside the JDK, the stream is wrapped
+     * for accounting.
+     *
+     * @param channel the channel
+     * @return the (accounting) result of
+     *   {@link Channels#newOutputStream(WritableByteChannel)}
+     *
+     * @since 1.30
+     */
+    public static OutputStream newOutputStream(WritableByteChannel channel) {
+        OutputStream result = Channels.newOutputStream(channel);
+        StreamType type = getType(channel);
+        if (null != type) {
+            result = new DelegatingOutputStream(result, type);
+        }
+        return result;
+    }
+
+}
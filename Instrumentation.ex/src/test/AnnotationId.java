@@ -34,6 +34,11 @@ public class AnnotationId {
      */
     public static final String ID_FILE_IO = "fileIoTest";
 
+    /**
+     * The recorder id for {@link FileIoChannelTest}.
+     */
+    public static final String ID_FILE_IO_CHANNEL = "fileIoChannelTest";
+
     /**
      * The recorder id for {@link NetIoTest}.
      */
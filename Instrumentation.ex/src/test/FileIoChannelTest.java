@@ -3,98 +3,179 @@ package test;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 
+import test.testing.MonitoringGroupValue;
+import test.testing.TestEnvironment;
+
 import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
 import de.uni_hildesheim.sse.monitoring.runtime.annotations.EndSystem;
+import de.uni_hildesheim.sse.monitoring.runtime.annotations.
+    ExcludeFromMonitoring;
 import de.uni_hildesheim.sse.monitoring.runtime.annotations.Monitor;
 import de.uni_hildesheim.sse.monitoring.runtime.annotations.StartSystem;
 
 /**
  * Performs some simple tests stream based I/O over NIO channels.<p>
  * Monitoring must be enabled via the agent JVM parameter!
- * 
+ *
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 @Variability(id = AnnotationId.VAR_TESTING)
-@Monitor(id = "fileIoChannelTest")
+@Monitor(id = AnnotationId.ID_FILE_IO_CHANNEL)
 public class FileIoChannelTest {
 
+    /**
+     * Stores the total number of bytes read.
+     */
+    private static long totalRead = 0;
+
+    /**
+     * Stores the total number of bytes written.
+     */
+    private static long totalWrite = 0;
+
+    /**
+     * Created at the beginning.
+     */
+    private static File inFile;
+
+    /**
+     * Written during test.
+     */
+    private static File outFile;
+
     /**
      * Prevents this class from being instantiated from outside.
-     * 
+     *
      * @since 1.00
      */
     private FileIoChannelTest() {
     }
-    
+
+    /**
+     * Executes the test, i.e. reads a file and writes some output to another
+     * file via channels, also by transferring between channels.
+     *
+     * @throws IOException any kind of I/O problem while reading / writing
+     *
+     * @since 1.30
+     */
+    private static void execute() throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(1024);
+        FileInputStream in = new FileInputStream(inFile);
+        FileChannel channel = in.getChannel();
+        int read;
+        do {
+            buf.clear();
+            read = channel.read(buf);
+            if (read > 0) {
+                totalRead += read;
+            }
+        } while (read >= 0);
+        in.close();
+
+        buf.clear();
+        buf.put(outFile.getAbsolutePath().getBytes());
+        buf.flip();
+        FileOutputStream fos = new FileOutputStream(outFile);
+        totalWrite += fos.getChannel().write(buf);
+        fos.close();
+
+        in = new FileInputStream(inFile);
+        fos = new FileOutputStream(outFile);
+        long transfer = in.getChannel().transferTo(0, inFile.length(),
+            fos.getChannel());
+        totalRead += transfer;
+        totalWrite += transfer;
+        in.close();
+        fos.close();
+
+        in = new FileInputStream(inFile);
+        fos = new FileOutputStream(outFile);
+        transfer = fos.getChannel().transferFrom(in.getChannel(), 0,
+            inFile.length());
+        totalRead += transfer;
+        totalWrite += transfer;
+        in.close();
+        fos.close();
+
+        TestEnvironment.notice("expected: read " + totalRead);
+        TestEnvironment.notice("expected: write " + totalWrite);
+    }
+
+    /**
+     * Sets up the required files.
+     *
+     * @throws IOException any kind of I/O problem while reading / writing
+     *
+     * @since 1.30
+     */
+    @ExcludeFromMonitoring
+    private static void setupFiles() throws IOException {
+        File tempDir = new File(System.getProperty("java.io.tmpdir"));
+        inFile = new File(tempDir, "spass-channel-in.tmp");
+        inFile.deleteOnExit();
+        PrintWriter out = new PrintWriter(new FileWriter(inFile));
+        for (int i = 0; i < 100; i++) {
+            out.println("Instrumentation is EASy...");
+        }
+        out.close();
+        outFile = new File(tempDir, "spass-channel-out.tmp");
+        outFile.deleteOnExit();
+    }
+
     /**
-     * Executes the test, i.e. reads a (source code) file and writes
-     * some output to another file via streams and reader/writer.
-     * 
+     * Starts the test.
+     *
      * @param args command line arguments (ignored)
      * @throws IOException any kind of I/O problem while reading / writing
-     * 
+     *
      * @since 1.00
      */
     @StartSystem
-    @EndSystem
+    @EndSystem(invoke = "asserts()")
     public static void main(String[] args) throws IOException {
-        System.out.println(FileIoChannelTest.class.getName());
-        File file = new File("src/test/RandomIoTest.java");
-        if (file.exists()) {
-            ByteBuffer buf = ByteBuffer.allocate(1024);
-            FileInputStream in = new FileInputStream(file);
-            FileChannel channel = in.getChannel();
-            @SuppressWarnings("unused")
-            int totalRead = 0;
-            int read;
-            do {
-                read = channel.read(buf);
-                totalRead += read;
-            } while (read > 0);
+        TestEnvironment.notice(FileIoChannelTest.class.getName());
+        setupFiles();
+        execute();
+        TestEnvironment.notice("------------------ done: FileIoChannel");
+    }
 
-            in.close();
-            System.out.println("read " + ( file.length() ));
-        }
+    /**
+     * The automated tests using assert statements. This method is called
+     * by SPASS-meter at end of monitoring upon the <code>EndSystem</code>
+     * annotation.
+     *
+     * @since 1.30
+     */
+    public static void asserts() {
+        TestEnvironment.assertEquals(AnnotationId.ID_FILE_IO_CHANNEL,
+            MonitoringGroupValue.FILE_READ, totalRead);
+        TestEnvironment.assertEquals(AnnotationId.ID_FILE_IO_CHANNEL,
+            MonitoringGroupValue.FILE_WRITE, totalWrite);
+        TestEnvironment.assertEquals(AnnotationId.ID_FILE_IO_CHANNEL,
+            MonitoringGroupValue.NET_READ, 0);
+        TestEnvironment.assertEquals(AnnotationId.ID_FILE_IO_CHANNEL,
+            MonitoringGroupValue.NET_WRITE, 0);
 
-        ByteBuffer buf = ByteBuffer.allocate(1024);
-        buf.put(file.getAbsolutePath().getBytes());
-        
-        File outFile = new File("generated/testfile.txt");
-        FileOutputStream fos = new FileOutputStream(outFile);
-        fos.getChannel().write(buf);
-        fos.close();
-        
-        long totalWrite = outFile.length();
-        
-        System.out.println("write " + totalWrite);
-        
-        if (file.exists()) {
-            long totalTransfer = 0L;
-            FileInputStream in = new FileInputStream(file);
-            FileChannel channel = in.getChannel();
-            fos = new FileOutputStream(outFile);             
-            totalTransfer += channel.transferTo(0, 
-                file.length(), fos.getChannel());
-            in.close();
-            fos.close();
-             
-            in = new FileInputStream(file);
-            fos = new FileOutputStream(outFile);
-            totalTransfer += fos.getChannel().transferFrom(
-                in.getChannel(), 0, file.length());
-            in.close();
-            fos.close();
-            System.out.println("transfer " + totalTransfer + " (" 
-                + (file.length() * 2) + ")");
-        }
-        
-        System.out.println("------------------ done: FileIO");
+        // the setup and the JVM may cause further file I/O
+        TestEnvironment.assertGreaterEquals(TestEnvironment.getProgramId(),
+            MonitoringGroupValue.FILE_READ, totalRead);
+        TestEnvironment.assertGreaterEquals(TestEnvironment.getProgramId(),
+            MonitoringGroupValue.FILE_WRITE, totalWrite);
+        TestEnvironment.assertEquals(TestEnvironment.getProgramId(),
+            MonitoringGroupValue.NET_READ, 0);
+        TestEnvironment.assertEquals(TestEnvironment.getProgramId(),
+            MonitoringGroupValue.NET_WRITE, 0);
+
+        TestEnvironment.success(AnnotationId.ID_FILE_IO_CHANNEL);
     }
-    
+
 }
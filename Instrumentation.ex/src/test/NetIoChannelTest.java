@@ -4,11 +4,13 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.SocketTimeoutException;
 import java.nio.channels.Channels;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 
+import test.testing.MonitoringGroupValue;
+import test.testing.TestEnvironment;
+
 import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
 import de.uni_hildesheim.sse.monitoring.runtime.annotations.EndSystem;
 import de.uni_hildesheim.sse.monitoring.runtime.annotations.Monitor;
@@ -22,10 +24,10 @@ import de.uni_hildesheim.sse.monitoring.runtime.annotations.StartSystem;
  * 
  * @author Robin Gawenda, Yilmaz Eldogan
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 @Variability(id = AnnotationId.VAR_TESTING)
-@Monitor(id = "netIoTest")
+@Monitor(id = AnnotationId.ID_NET_IO)
 public class NetIoChannelTest {
 
     /**
@@ -43,6 +45,26 @@ public class NetIoChannelTest {
      */
     private static final int NET_OVERHEAD_STRING = 2;
 
+    /**
+     * Stores the bytes read by the client.
+     */
+    private static int clientRead = 0;
+
+    /**
+     * Stores the bytes written by the client.
+     */
+    private static int clientWrite = 0;
+
+    /**
+     * Stores the bytes read by the server.
+     */
+    private static int serverRead = 0;
+
+    /**
+     * Stores the bytes written by the server.
+     */
+    private static int serverWrite = 0;
+
     /**
      * Prevents this class from being instantiated from outside.
      * 
@@ -52,11 +74,12 @@ public class NetIoChannelTest {
     }
     
     /**
-     * Implements a simple thread for accepting network connections.
+     * Implements a simple thread for accepting the network connection of 
+     * the client.
      * 
      * @author Holger Eichelberger
      * @since 1.00
-     * @version 1.00
+     * @version 1.30
      */
     private static class ServerMainThread extends Thread {
 
@@ -65,11 +88,6 @@ public class NetIoChannelTest {
          */
         private ServerSocketChannel ssc;
         
-        /**
-         * Stores if this thread is ready for accepting connections.
-         */
-        private boolean ready = true;
-        
         /**
          * Creates a new server thread on the given socket.
          * 
@@ -85,23 +103,22 @@ public class NetIoChannelTest {
         }
         
         /**
-         * Executes the thread, i.e. waits for incoming connections. We assume
-         * that an appropriate SO timeout is set so that this thread my stop
-         * after certain seconds of no new connection (for graceful end of 
-         * test program).
+         * Executes the thread, i.e. waits for the incoming connection of the
+         * client, lets a work thread serve it and closes the server channel
+         * afterwards (for graceful end of test program).
          */
         public void run() {
-            while (ready) {
-                try {
-                    SocketChannel sc = ssc.accept();
-                    Thread t = new ServerWorkThread(sc);
-                    t.start();
-                } catch (SocketTimeoutException e) {
-                    ready = false;
-                } catch (IOException e) {
-                    System.err.println("error while accepting connection");
-                    e.printStackTrace();
-                } 
+            try {
+                SocketChannel sc = ssc.accept();
+                Thread t = new ServerWorkThread(sc);
+                t.start();
+                t.join();
+                ssc.close();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            } catch (IOException e) {
+                System.err.println("error while accepting connection");
+                e.printStackTrace();
             }
         }
         
@@ -155,6 +172,10 @@ public class NetIoChannelTest {
                 out.writeInt(totalRead);
                 totalWrite += 2 * NET_SIZE_INT;
                 out.writeInt(totalWrite);
+                out.flush();
+                serverRead = totalRead;
+                serverWrite = totalWrite;
+                channel.close();
             } catch (IOException ioe) {
                 System.err.println("Error in server thread");
                 ioe.printStackTrace();
@@ -164,21 +185,23 @@ public class NetIoChannelTest {
     
     /**
      * Starts the server part, executes the client part and prints out the 
-     * results. Currently to be compared manually with the output of the 
-     * monitoring infrastructure.
+     * results.
      * 
      * @param args command line arguments (ignored)
      * @throws IOException any kind of network I/O problem in the client
+     * @throws InterruptedException in case that waiting for the server is
+     *   interrupted
      * 
      * @since 1.00
      */
     @StartSystem
-    @EndSystem
-    public static void main(String[] args) throws IOException {
+    @EndSystem(invoke = "asserts()")
+    public static void main(String[] args) throws IOException, 
+        InterruptedException {
         String testString = NetIoChannelTest.class.getName(); 
-        System.out.println(testString);
+        TestEnvironment.notice(testString);
 
-        System.out.println("Starting server on port " + PORT);
+        TestEnvironment.notice("Starting server on port " + PORT);
 
         InetSocketAddress addr = new InetSocketAddress(PORT);
         
@@ -189,7 +212,7 @@ public class NetIoChannelTest {
         
         SocketChannel sc = SocketChannel.open();
         sc.connect(addr);
-        System.out.println("Client connected on address " + addr);
+        TestEnvironment.notice("Client connected on address " + addr);
         
         DataInputStream in = new DataInputStream(
             Channels.newInputStream(sc));
@@ -198,23 +221,53 @@ public class NetIoChannelTest {
 
         int count = 10;
         out.writeInt(count);
-        int write = NET_SIZE_INT;
+        clientWrite = NET_SIZE_INT;
         for (int i = 1; i <= count; i++) {
             out.writeUTF(testString);
-            write += TestHelper.getUtfLen(testString) + NET_OVERHEAD_STRING;
+            clientWrite += TestHelper.getUtfLen(testString) 
+                + NET_OVERHEAD_STRING;
         }
-        int read = 0;
-        //Bei folgender Zeile haengt er
-        int serverRead = in.readInt(); //FEHLER
-        read += NET_SIZE_INT;
-        int serverWrite = in.readInt();
-        read += NET_SIZE_INT;
-
-        System.out.println("write " + write + " server " + serverWrite 
-            + " total " + (write + serverWrite));
-        System.out.println("read " + read + " server " + serverRead 
-            + " total " + (read + serverRead));
-        System.out.println("------------------ done: NetIo");
+        out.flush();
+        int reportedRead = in.readInt();
+        clientRead += NET_SIZE_INT;
+        int reportedWrite = in.readInt();
+        clientRead += NET_SIZE_INT;
+        sc.close();
+        serverThread.join();
+
+        TestEnvironment.notice("write " + clientWrite + " server " 
+            + reportedWrite + " total " + (clientWrite + reportedWrite));
+        TestEnvironment.notice("read " + clientRead + " server " 
+            + reportedRead + " total " + (clientRead + reportedRead));
+        TestEnvironment.notice("------------------ done: NetIoChannel");
+    }
+
+    /**
+     * The automated tests using assert statements. This method is called
+     * by SPASS-meter at end of monitoring upon the <code>EndSystem</code> 
+     * annotation.
+     * 
+     * @since 1.30
+     */
+    public static void asserts() {
+        // client and server are nested into this class
+        TestEnvironment.assertEquals(AnnotationId.ID_NET_IO, 
+            MonitoringGroupValue.NET_WRITE, clientWrite + serverWrite);
+        TestEnvironment.assertEquals(AnnotationId.ID_NET_IO, 
+            MonitoringGroupValue.NET_READ, clientRead + serverRead);
+
+        TestEnvironment.assertEquals(TestEnvironment.getProgramId(), 
+            MonitoringGroupValue.NET_WRITE, clientWrite + serverWrite);
+        TestEnvironment.assertEquals(TestEnvironment.getProgramId(), 
+            MonitoringGroupValue.NET_READ, clientRead + serverRead);
+
+        TestEnvironment.assertEquals(TestEnvironment.getProgramId(), 
+            MonitoringGroupValue.FILE_WRITE, 0);
+        // reads internal security policy
+        TestEnvironment.assertGreater(TestEnvironment.getProgramId(), 
+            MonitoringGroupValue.FILE_READ, 0);
+        
+        TestEnvironment.success(AnnotationId.ID_NET_IO);
     }
 
 }
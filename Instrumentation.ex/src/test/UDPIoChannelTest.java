@@ -3,11 +3,14 @@ package test;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
-import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+
+import test.testing.MonitoringGroupValue;
+import test.testing.TestEnvironment;
+
 import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
 import de.uni_hildesheim.sse.monitoring.runtime.annotations.EndSystem;
 import de.uni_hildesheim.sse.monitoring.runtime.annotations.Monitor;
@@ -19,10 +22,10 @@ import de.uni_hildesheim.sse.monitoring.runtime.annotations.StartSystem;
  * 
  * @author Holger Eichelberger, Stephan Dederichs
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 @Variability(id = AnnotationId.VAR_TESTING)
-@Monitor(id = "udpIoTest")
+@Monitor(id = AnnotationId.ID_UDP_IO)
 public class UDPIoChannelTest {
 
     /**
@@ -30,6 +33,26 @@ public class UDPIoChannelTest {
      */
     private static final int PORT = 10101;
 
+    /**
+     * Stores the bytes read by the client.
+     */
+    private static int clientRead = 0;
+
+    /**
+     * Stores the bytes written by the client.
+     */
+    private static int clientWrite = 0;
+
+    /**
+     * Stores the bytes read by the server.
+     */
+    private static int serverRead = 0;
+
+    /**
+     * Stores the bytes written by the server.
+     */
+    private static int serverWrite = 0;
+
     /**
      * Prevents this class from being instantiated from outside.
      * 
@@ -39,11 +62,11 @@ public class UDPIoChannelTest {
     }
 
     /**
-     * Implements a simple thread for accepting network connections.
+     * Implements a simple thread serving the datagrams of the client.
      * 
      * @author Holger Eichelberger, Stephan Dederichs
      * @since 1.00
-     * @version 1.00
+     * @version 1.30
      */
     private static class ServerMainThread extends Thread {
 
@@ -52,11 +75,6 @@ public class UDPIoChannelTest {
          */
         private DatagramChannel channel;
 
-        /**
-         * Stores if this thread is ready for accepting connections.
-         */
-        private boolean ready = true;
-
         /**
          * Array for data.
          */
@@ -79,69 +97,87 @@ public class UDPIoChannelTest {
         }
 
         /**
-         * Executes the thread, i.e. waits for incoming connections. We assume
-         * that an appropriate SO timeout is set so that this thread my stop
-         * after certain seconds of no new connection (for graceful end of test
-         * program).
+         * Executes the thread, i.e. receives the datagrams of one client, 
+         * answers them and closes the channel afterwards (for graceful end
+         * of test program).
          */
         public void run() {
-            while (ready) {
-                try {
+            try {
+                buf.clear();
+                SocketAddress client = channel.receive(buf);
+                buf.flip();
+                int totalRead = 0;
+                int totalWrite = 0;
+                int count = buf.getInt();
+                totalRead += buf.position();
+                buf.clear();
 
-                    buf.clear();
-                    SocketAddress client = channel.receive(buf);
-                    buf.flip();
-                    int totalRead = 0;
-                    int totalWrite = 0;
-                    int count = buf.getInt();
+                for (int i = 1; i <= count; i++) {
+                    channel.receive(buf);
                     totalRead += buf.position();
                     buf.clear();
+                }
 
-                    for (int i = 1; i <= count; i++) {
-                        channel.receive(buf);
-                        totalRead += buf.position();
-                        buf.clear();
-                    }
-
-                    buf.putInt(totalRead);
-                    int intSize = buf.position();
-                    totalWrite += intSize;
-                    buf.flip();
-                    channel.send(buf, client);
-                    buf.clear();
+                buf.putInt(totalRead);
+                int intSize = buf.position();
+                totalWrite += intSize;
+                buf.flip();
+                channel.send(buf, client);
+                buf.clear();
 
-                    totalWrite += intSize;
-                    buf.putInt(totalWrite);
-                    buf.flip();
-                    channel.send(buf, client);
-
-                    channel.close();
-                    ready = false;
-                } catch (SocketTimeoutException e) {
-                    ready = false;
-                } catch (IOException e) {
-                    System.err.println("error while accepting connection");
-                    e.printStackTrace();
-                }
+                totalWrite += intSize;
+                buf.putInt(totalWrite);
+                buf.flip();
+                channel.send(buf, client);
+
+                serverRead = totalRead;
+                serverWrite = totalWrite;
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("error while serving the client");
+                e.printStackTrace();
             }
         }
     }
 
+    /**
+     * Reads the next datagram from the non-blocking <code>client</code>.
+     * 
+     * @param client the client channel
+     * @param selector the selector the client is registered with for reading
+     * @param buf the buffer to read into
+     * @return the number of bytes read
+     * @throws IOException any kind of network I/O problem in the client
+     * 
+     * @since 1.30
+     */
+    private static int read(DatagramChannel client, Selector selector, 
+        ByteBuffer buf) throws IOException {
+        int read = client.read(buf);
+        while (0 == read && selector.select(10000) > 0) {
+            selector.selectedKeys().clear();
+            read = client.read(buf);
+        }
+        return read;
+    }
+
     /**
      * Starts the server part, executes the client part and prints out the
-     * results. Currently to be compared manually with the output of the
-     * monitoring infrastructure.
+     * results.
      * 
      * @param args
      *            command line arguments (ignored)
      * @throws IOException
      *             any kind of network I/O problem in the client
+     * @throws InterruptedException 
+     *             in case that waiting for the server is interrupted
      * 
      * @since 1.00
      */
     @StartSystem
-    @EndSystem
-    public static void main(String[] args) throws IOException {
+    @EndSystem(invoke = "asserts()")
+    public static void main(String[] args) throws IOException, 
+        InterruptedException {
         String testString = UDPIoChannelTest.class.getName();
         ServerMainThread serverThread = new ServerMainThread();
         serverThread.start();
@@ -150,47 +186,72 @@ public class UDPIoChannelTest {
         client.connect(new InetSocketAddress("localhost", PORT));
         Selector selector = Selector.open();
         client.register(selector, SelectionKey.OP_WRITE);
-        int write = 0;
         int count = 10;
         selector.select(10000);
         ByteBuffer buf = ByteBuffer.allocate(500);
         buf.putInt(count);
-        write += buf.position();
+        clientWrite += buf.position();
         buf.flip();
         client.write(buf);
 
         for (int i = 1; i <= count; i++) {
             buf.clear();
             buf.put(testString.getBytes());
-            write += buf.position();
+            clientWrite += buf.position();
             buf.flip();
             client.write(buf);
 
         }
 
         buf.clear();
-        Selector empfangen = Selector.open();
-        client.register(empfangen, SelectionKey.OP_READ);
-        empfangen.select(10000);
-        int read = 0;
-        System.out.println("CLIENT WILL EMPFANGEN!");
-        client.read(buf);
-        int serverRead = 0;
+        Selector receiving = Selector.open();
+        client.register(receiving, SelectionKey.OP_READ);
+        read(client, receiving, buf);
         buf.flip();
-        serverRead += buf.getInt();
-        read += buf.position();
+        int reportedRead = buf.getInt();
+        clientRead += buf.position();
         buf.clear();
-        client.read(buf);
-        int serverWrite = 0;
+        read(client, receiving, buf);
         buf.flip();
-        serverWrite += buf.getInt();
-        read += buf.position();
+        int reportedWrite = buf.getInt();
+        clientRead += buf.position();
         client.close();
+        selector.close();
+        receiving.close();
+        serverThread.join();
+
+        TestEnvironment.notice("write " + clientWrite + " server " 
+            + reportedWrite + " total " + (clientWrite + reportedWrite));
+        TestEnvironment.notice("read " + clientRead + " server " 
+            + reportedRead + " total " + (clientRead + reportedRead));
+        TestEnvironment.notice("------------------ done: UDPIoChannel");
+    }
+
+    /**
+     * The automated tests using assert statements. This method is called
+     * by SPASS-meter at end of monitoring upon the <code>EndSystem</code> 
+     * annotation.
+     * 
+     * @since 1.30
+     */
+    public static void asserts() {
+        // client and server are nested into this class
+        TestEnvironment.assertEquals(AnnotationId.ID_UDP_IO, 
+            MonitoringGroupValue.NET_WRITE, clientWrite + serverWrite);
+        TestEnvironment.assertEquals(AnnotationId.ID_UDP_IO, 
+            MonitoringGroupValue.NET_READ, clientRead + serverRead);
+
+        TestEnvironment.assertEquals(TestEnvironment.getProgramId(), 
+            MonitoringGroupValue.NET_WRITE, clientWrite + serverWrite);
+        TestEnvironment.assertEquals(TestEnvironment.getProgramId(), 
+            MonitoringGroupValue.NET_READ, clientRead + serverRead);
 
-        System.out.println("write " + write + " server " + serverWrite
-                + " total " + (write + serverWrite));
-        System.out.println("read " + read + " server " + serverRead + " total "
-                + (read + serverRead));
-        System.out.println("------------------ done: UDPIoChannel");
+        TestEnvironment.assertEquals(TestEnvironment.getProgramId(), 
+            MonitoringGroupValue.FILE_WRITE, 0);
+        // reads internal security policy
+        TestEnvironment.assertGreater(TestEnvironment.getProgramId(), 
+            MonitoringGroupValue.FILE_READ, 0);
+        
+        TestEnvironment.success(AnnotationId.ID_UDP_IO);
     }
 }
@@ -0,0 +1,188 @@
+package test.framework;
+
+import test.AnnotationId;
+
+import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.
+    ConcurrentLongLongHashMap;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LongLongHashMap;
+
+/**
+ * A multi-threaded microbenchmark for the per-thread nesting counters used
+ * in <code>Recorder.enter/exit</code>, comparing the former globally
+ * synchronized {@link LongLongHashMap} with the
+ * {@link ConcurrentLongLongHashMap}. Each thread performs the enter/exit
+ * pattern on its own key, i.e. differences in throughput are caused by
+ * contention only. Optional parameters are the maximum number of threads
+ * and the number of enter/exit pairs per thread.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+@Variability(id = AnnotationId.VAR_TESTING)
+public class NestingCounterBenchmark {
+
+    /**
+     * Prevents this class from being created from outside.
+     *
+     * @since 1.30
+     */
+    private NestingCounterBenchmark() {
+    }
+
+    /**
+     * Defines the common interface of the counters being measured.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private interface Counter {
+
+        /**
+         * Emulates entering a monitored method.
+         *
+         * @param tid the thread id
+         */
+        public void enter(long tid);
+
+        /**
+         * Emulates exiting a monitored method.
+         *
+         * @param tid the thread id
+         */
+        public void exit(long tid);
+    }
+
+    /**
+     * Implements the former synchronized counter.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class SynchronizedCounter implements Counter {
+
+        /**
+         * Stores the counters.
+         */
+        private final LongLongHashMap map = new LongLongHashMap();
+
+        /**
+         * {@inheritDoc}
+         */
+        public void enter(long tid) {
+            synchronized (map) {
+                if (!map.containsKey(tid)) {
+                    map.put(tid, 1);
+                } else {
+                    map.put(tid, map.get(tid) + 1);
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void exit(long tid) {
+            synchronized (map) {
+                if (map.containsKey(tid)) {
+                    long count = map.get(tid) - 1;
+                    if (count > 0) {
+                        map.put(tid, count);
+                    } else {
+                        map.remove(tid);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Implements the compare-and-set based counter.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class ConcurrentCounter implements Counter {
+
+        /**
+         * Stores the counters.
+         */
+        private final ConcurrentLongLongHashMap map
+            = new ConcurrentLongLongHashMap();
+
+        /**
+         * {@inheritDoc}
+         */
+        public void enter(long tid) {
+            map.increment(tid);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void exit(long tid) {
+            map.decrement(tid);
+        }
+    }
+
+    /**
+     * Measures the given counter.
+     *
+     * @param counter the counter to measure
+     * @param threadCount the number of threads
+     * @param loops the number of enter/exit pairs per thread
+     * @return the number of enter/exit pairs per millisecond
+     *
+     * @since 1.30
+     */
+    private static long measure(final Counter counter, int threadCount,
+        final int loops) {
+        long nanos = ThreadedBenchmark.run(threadCount, new Runnable() {
+            public void run() {
+                long tid = Thread.currentThread().getId();
+                for (int i = 0; i < loops; i++) {
+                    counter.enter(tid);
+                    counter.enter(tid);
+                    counter.exit(tid);
+                    counter.exit(tid);
+                }
+            }
+        });
+        return Math.round(ThreadedBenchmark.perMillisecond(
+            2L * loops * threadCount, nanos));
+    }
+
+    /**
+     * Executes the benchmark.
+     *
+     * @param args optional maximum number of threads and enter/exit pairs
+     *   per thread
+     *
+     * @since 1.30
+     */
+    public static final void main(String[] args) {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        int loops = 2000000;
+        if (args.length > 0) {
+            maxThreads = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            loops = Integer.parseInt(args[1]);
+        }
+        // warm up
+        measure(new SynchronizedCounter(), 2, loops / 10);
+        measure(new ConcurrentCounter(), 2, loops / 10);
+        System.out.println("threads\tsynchronized\tconcurrent "
+            + "(enter/exit pairs per ms)");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long sync = measure(new SynchronizedCounter(), threads, loops);
+            long conc = measure(new ConcurrentCounter(), threads, loops);
+            System.out.println(threads + "\t" + sync + "\t" + conc);
+        }
+    }
+
+}
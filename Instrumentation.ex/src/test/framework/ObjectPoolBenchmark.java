@@ -0,0 +1,275 @@
+package test.framework;
+
+import test.AnnotationId;
+
+import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.ArrayList;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.ObjectPool;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.Poolable;
+
+/**
+ * A multi-threaded microbenchmark for {@link ObjectPool}, comparing the
+ * former globally synchronized pool, the current pool (thread-local
+ * magazines and a lock-free depot) and plain allocation. Each thread obtains
+ * a few instances and releases them afterwards, similar to nested
+ * enter/exit events. Optional parameters are the maximum number of threads
+ * and the number of obtain/release rounds per thread. Run with different
+ * garbage collectors (e.g., -XX:+UseG1GC, -XX:+UseZGC) to compare plain
+ * allocation.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+@Variability(id = AnnotationId.VAR_TESTING)
+public class ObjectPoolBenchmark {
+
+    /**
+     * Defines the number of instances held at the same time by a thread.
+     */
+    private static final int WINDOW = 4;
+
+    /**
+     * Defines the maximum pool size.
+     */
+    private static final int MAX_SIZE = 2000;
+
+    /**
+     * Avoids that the JIT eliminates unused instances.
+     */
+    private static volatile long sink;
+
+    /**
+     * Prevents this class from being created from outside.
+     *
+     * @since 1.30
+     */
+    private ObjectPoolBenchmark() {
+    }
+
+    /**
+     * Implements a poolable instance of the size of a threads info object.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class Item implements Poolable<Item> {
+
+        /**
+         * Stores some data.
+         */
+        private long threadId;
+
+        /**
+         * Stores some data.
+         */
+        private long ticks;
+
+        /**
+         * Stores some data.
+         */
+        private long time;
+
+        /**
+         * {@inheritDoc}
+         */
+        public void clear() {
+            threadId = 0;
+            ticks = 0;
+            time = 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public Item create() {
+            return new Item();
+        }
+    }
+
+    /**
+     * Defines the common interface of the pools being measured.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private interface Pool {
+
+        /**
+         * Obtains an instance.
+         *
+         * @return the instance
+         */
+        public Item get();
+
+        /**
+         * Releases an instance.
+         *
+         * @param item the instance
+         */
+        public void release(Item item);
+    }
+
+    /**
+     * Implements the former synchronized pool.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class SynchronizedPool implements Pool {
+
+        /**
+         * Stores the pooled instances.
+         */
+        private final ArrayList<Item> pool = new ArrayList<Item>(MAX_SIZE);
+
+        /**
+         * {@inheritDoc}
+         */
+        public synchronized Item get() {
+            int size = pool.size();
+            Item result;
+            if (0 == size) {
+                result = new Item();
+            } else {
+                result = pool.remove(size - 1);
+            }
+            return result;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public synchronized void release(Item item) {
+            item.clear();
+            if (pool.size() < MAX_SIZE) {
+                pool.add(item);
+            }
+        }
+    }
+
+    /**
+     * Implements access to the current pool.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class CurrentPool implements Pool {
+
+        /**
+         * Stores the pool.
+         */
+        private final ObjectPool<Item> pool
+            = new ObjectPool<Item>(new Item(), MAX_SIZE);
+
+        /**
+         * {@inheritDoc}
+         */
+        public Item get() {
+            return pool.getFromPool();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void release(Item item) {
+            pool.release(item);
+        }
+    }
+
+    /**
+     * Implements plain allocation.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class Allocation implements Pool {
+
+        /**
+         * {@inheritDoc}
+         */
+        public Item get() {
+            return new Item();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void release(Item item) {
+        }
+    }
+
+    /**
+     * Measures the given pool.
+     *
+     * @param pool the pool to measure
+     * @param threadCount the number of threads
+     * @param rounds the number of obtain/release rounds per thread
+     * @return the number of obtained instances per millisecond
+     *
+     * @since 1.30
+     */
+    private static long measure(final Pool pool, int threadCount,
+        final int rounds) {
+        long nanos = ThreadedBenchmark.run(threadCount, new Runnable() {
+            public void run() {
+                Item[] window = new Item[WINDOW];
+                long sum = 0;
+                for (int i = 0; i < rounds; i++) {
+                    for (int w = 0; w < WINDOW; w++) {
+                        Item item = pool.get();
+                        item.threadId = w;
+                        item.ticks = i;
+                        item.time = i + w;
+                        window[w] = item;
+                    }
+                    for (int w = WINDOW - 1; w >= 0; w--) {
+                        sum += window[w].time;
+                        pool.release(window[w]);
+                        window[w] = null;
+                    }
+                }
+                sink += sum;
+            }
+        });
+        return Math.round(ThreadedBenchmark.perMillisecond(
+            (long) WINDOW * rounds * threadCount, nanos));
+    }
+
+    /**
+     * Executes the benchmark.
+     *
+     * @param args optional maximum number of threads and rounds per thread
+     *
+     * @since 1.30
+     */
+    public static final void main(String[] args) {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        int rounds = 2000000;
+        if (args.length > 0) {
+            maxThreads = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            rounds = Integer.parseInt(args[1]);
+        }
+        // warm up
+        measure(new SynchronizedPool(), 2, rounds / 10);
+        measure(new CurrentPool(), 2, rounds / 10);
+        measure(new Allocation(), 2, rounds / 10);
+        System.out.println("threads\tsynchronized\tmagazines\tallocation "
+            + "(instances per ms)");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long sync = measure(new SynchronizedPool(), threads, rounds);
+            long mag = measure(new CurrentPool(), threads, rounds);
+            long alloc = measure(new Allocation(), threads, rounds);
+            System.out.println(threads + "\t" + sync + "\t" + mag + "\t"
+                + alloc);
+        }
+    }
+
+}
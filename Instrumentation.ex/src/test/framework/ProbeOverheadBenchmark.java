@@ -0,0 +1,579 @@
+package test.framework;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+
+import test.AnnotationId;
+
+import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.ObjectPool;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.RecorderFrontend;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.StreamType;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.CpuClockType;
+import de.uni_hildesheim.sse.monitoring.runtime.plugins.PluginRegistry;
+import de.uni_hildesheim.sse.monitoring.runtime.plugins.ValueChangeListener;
+import de.uni_hildesheim.sse.monitoring.runtime.plugins.ValueType;
+import de.uni_hildesheim.sse.monitoring.runtime.recording.CpuClock;
+import de.uni_hildesheim.sse.monitoring.runtime.recording.Recorder;
+import de.uni_hildesheim.sse.monitoring.runtime.recording.
+    SynchronizedRecorder;
+import de.uni_hildesheim.sse.monitoring.runtime.recording.SystemMonitoring;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    DefaultEventRecorderStrategy;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    DefaultRecorderStrategy;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    EventLogRecorderStrategy;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    RecorderStrategy;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    TCPRecorderStrategy;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    TabFormatter;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    ThreadBufferedRecorderStrategy;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    ThreadsInfo;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.IntHashMap;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LongHashMap;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LongLongHashMap;
+import de.uni_hildesheim.sse.system.GathererFactory;
+import de.uni_hildesheim.sse.system.IThreadDataGatherer;
+
+/**
+ * A multi-threaded microbenchmark for the per-probe overhead of the
+ * recorder frontends, the recorder strategies, the CPU clocks and the central
+ * collections.
+ * For each operation and 1..n threads (doubling), the throughput and the
+ * number of bytes allocated per operation (as far as supported by the JVM)
+ * are printed, so that the output can serve as a baseline for performance
+ * changes. The TCP strategy sends to a local stub server which just
+ * discards the received data, the event log strategy writes to a size 
+ * limited log in the temporary directory. Optional parameters are the
+ * maximum number of threads and the number of operations per thread. Run
+ * without agent.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+@Variability(id = AnnotationId.VAR_TESTING)
+public class ProbeOverheadBenchmark {
+
+    /**
+     * Defines the recorder id used by the probes.
+     */
+    private static final String REC_ID = "benchmark";
+
+    /**
+     * Defines the number of keys used for the collections.
+     */
+    private static final int KEYS = 1024;
+
+    /**
+     * Avoids that the JIT eliminates unused results.
+     */
+    private static volatile long sink;
+
+    /**
+     * Stores the thread bean for determining allocated bytes (<b>null</b>
+     * if not supported).
+     */
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN
+        = getThreadBean();
+
+    /**
+     * Prevents this class from being created from outside.
+     *
+     * @since 1.30
+     */
+    private ProbeOverheadBenchmark() {
+    }
+
+    /**
+     * Defines an operation being measured. Instances are created per
+     * thread, i.e. they may hold unsynchronized state.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private interface Operation {
+
+        /**
+         * Executes the operation once.
+         *
+         * @param iteration the current iteration
+         */
+        public void run(int iteration);
+    }
+
+    /**
+     * Creates the per-thread instances of an operation.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private interface OperationFactory {
+
+        /**
+         * Creates an operation instance for the current thread.
+         *
+         * @return the operation instance
+         */
+        public Operation create();
+    }
+
+    /**
+     * Implements a stub recording server which accepts connections and
+     * discards all received data.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class StubServer extends Thread {
+
+        /**
+         * Discards the data received via a connection.
+         *
+         * @author Holger Eichelberger
+         * @since 1.30
+         * @version 1.30
+         */
+        private static class Drain extends Thread {
+
+            /**
+             * Stores the connection.
+             */
+            private final Socket socket;
+
+            /**
+             * Creates a drain thread.
+             *
+             * @param socket the connection
+             *
+             * @since 1.30
+             */
+            private Drain(Socket socket) {
+                this.socket = socket;
+                setDaemon(true);
+            }
+
+            /**
+             * Discards the received data.
+             */
+            public void run() {
+                try {
+                    InputStream in = socket.getInputStream();
+                    byte[] buf = new byte[65536];
+                    while (in.read(buf) >= 0) {
+                        // discard
+                    }
+                    socket.close();
+                } catch (IOException e) {
+                    // end of benchmark
+                }
+            }
+        }
+
+        /**
+         * Stores the server socket.
+         */
+        private final ServerSocket server;
+
+        /**
+         * Creates the stub server on an ephemeral port.
+         *
+         * @throws IOException in case that the socket cannot be opened
+         *
+         * @since 1.30
+         */
+        private StubServer() throws IOException {
+            server = new ServerSocket(0);
+            setDaemon(true);
+        }
+
+        /**
+         * Returns the port of the server.
+         *
+         * @return the port
+         *
+         * @since 1.30
+         */
+        private int getPort() {
+            return server.getLocalPort();
+        }
+
+        /**
+         * Accepts connections and discards their data.
+         */
+        public void run() {
+            try {
+                while (true) {
+                    new Drain(server.accept()).start();
+                }
+            } catch (IOException e) {
+                // end of benchmark
+            }
+        }
+    }
+
+    /**
+     * Returns the thread bean if it supports measuring allocated bytes.
+     *
+     * @return the thread bean, <b>null</b> if not supported
+     *
+     * @since 1.30
+     */
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        com.sun.management.ThreadMXBean result = null;
+        try {
+            Object bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                result = (com.sun.management.ThreadMXBean) bean;
+                if (!result.isThreadAllocatedMemorySupported()) {
+                    result = null;
+                } else {
+                    result.setThreadAllocatedMemoryEnabled(true);
+                }
+            }
+        } catch (LinkageError e) {
+            // not a HotSpot-like JVM
+        }
+        return result;
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread so far.
+     *
+     * @return the allocated bytes, <code>-1</code> if not supported
+     *
+     * @since 1.30
+     */
+    private static long allocatedBytes() {
+        long result = -1;
+        if (null != THREAD_BEAN) {
+            result = THREAD_BEAN.getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+        }
+        return result;
+    }
+
+    /**
+     * Measures the given operation.
+     *
+     * @param factory the factory for the per-thread operation instances
+     * @param threadCount the number of threads
+     * @param ops the number of operations per thread
+     * @return the number of operations per millisecond and the bytes
+     *   allocated per operation (negative if not supported)
+     *
+     * @since 1.30
+     */
+    private static double[] measure(final OperationFactory factory,
+        int threadCount, final int ops) {
+        final AtomicLong allocated = new AtomicLong();
+        long nanos = ThreadedBenchmark.run(threadCount, new Runnable() {
+            public void run() {
+                Operation op = factory.create();
+                long before = allocatedBytes();
+                for (int i = 0; i < ops; i++) {
+                    op.run(i);
+                }
+                long after = allocatedBytes();
+                if (before < 0 || after < 0) {
+                    allocated.set(Long.MIN_VALUE);
+                } else {
+                    allocated.addAndGet(after - before);
+                }
+            }
+        });
+        long total = (long) ops * threadCount;
+        return new double[] {ThreadedBenchmark.perMillisecond(total, nanos),
+            allocated.get() / (double) total};
+    }
+
+    /**
+     * Warms up and measures the given operation for 1..n threads and
+     * prints the results.
+     *
+     * @param name the name of the operation
+     * @param factory the factory for the per-thread operation instances
+     * @param maxThreads the maximum number of threads
+     * @param ops the number of operations per thread
+     *
+     * @since 1.30
+     */
+    private static void benchmark(String name, OperationFactory factory,
+        int maxThreads, int ops) {
+        measure(factory, 1, ops / 10);
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double[] result = measure(factory, threads, ops);
+            String alloc;
+            if (result[1] < 0) {
+                alloc = "n/a";
+            } else {
+                alloc = String.valueOf(Math.round(result[1] * 10) / 10.0);
+            }
+            System.out.println(name + "\t" + threads + "\t"
+                + Math.round(result[0]) + "\t" + alloc);
+        }
+    }
+
+    /**
+     * Creates the operations for a recorder frontend.
+     *
+     * @param name the name of the frontend
+     * @param recorder the frontend
+     * @param maxThreads the maximum number of threads
+     * @param ops the number of operations per thread
+     *
+     * @since 1.30
+     */
+    private static void benchmark(String name,
+        final RecorderFrontend recorder, int maxThreads, int ops) {
+        benchmark(name + ".enter/exit", new OperationFactory() {
+            public Operation create() {
+                return new Operation() {
+                    public void run(int iteration) {
+                        recorder.enter(null, REC_ID, false, true, 0);
+                        recorder.exit(null, REC_ID, false, true, 0);
+                    }
+                };
+            }
+        }, maxThreads, ops);
+        benchmark(name + ".memoryAllocated", new OperationFactory() {
+            public Operation create() {
+                return new Operation() {
+                    public void run(int iteration) {
+                        recorder.memoryAllocated(REC_ID);
+                    }
+                };
+            }
+        }, maxThreads, ops);
+        benchmark(name + ".readIo", new OperationFactory() {
+            public Operation create() {
+                return new Operation() {
+                    public void run(int iteration) {
+                        sink += recorder.readIo(REC_ID, null, 16,
+                            StreamType.FILE);
+                    }
+                };
+            }
+        }, maxThreads, ops);
+        benchmark(name + ".notifyValueChange", new OperationFactory() {
+            public Operation create() {
+                return new Operation() {
+                    public void run(int iteration) {
+                        recorder.notifyValueChange(REC_ID, iteration);
+                    }
+                };
+            }
+        }, maxThreads, ops);
+    }
+
+    /**
+     * Creates the enter/exit operation for a recorder strategy.
+     *
+     * @param name the name of the strategy
+     * @param strategy the strategy
+     * @param maxThreads the maximum number of threads
+     * @param ops the number of operations per thread
+     *
+     * @since 1.30
+     */
+    private static void benchmark(String name,
+        final RecorderStrategy strategy, int maxThreads, int ops) {
+        long tid = SystemMonitoring.getCurrentThreadId();
+        strategy.startRecording(System.nanoTime(), tid,
+            SystemMonitoring.getTicks(tid));
+        benchmark(name + ".enter/exit", new OperationFactory() {
+            public Operation create() {
+                final long tid = SystemMonitoring.getCurrentThreadId();
+                strategy.register(tid, RecorderStrategy.REGISTER_FORCE,
+                    SystemMonitoring.getTicks(tid), System.nanoTime());
+                return new Operation() {
+                    public void run(int iteration) {
+                        ThreadsInfo info
+                            = SystemMonitoring.getThreadInfo(tid, 0);
+                        if (strategy.enter(REC_ID, System.nanoTime(), info,
+                            false)) {
+                            ThreadsInfo.POOL.release(info);
+                        }
+                        info = SystemMonitoring.getThreadInfo(tid, 0);
+                        if (strategy.exit(REC_ID, System.nanoTime(), info,
+                            false)) {
+                            ThreadsInfo.POOL.release(info);
+                        }
+                    }
+                };
+            }
+        }, maxThreads, ops);
+    }
+
+    /**
+     * Creates the operations for the CPU clocks. Each thread enters the
+     * monitoring group once and measures nested enter/exit pairs of the same
+     * group, i.e. the typical case of {@link CpuClockType#TRANSITION}.
+     *
+     * @param maxThreads the maximum number of threads
+     * @param ops the number of operations per thread
+     *
+     * @since 1.30
+     */
+    private static void benchmarkCpuClocks(int maxThreads, int ops) {
+        IThreadDataGatherer gatherer = GathererFactory.getThreadDataGatherer();
+        int interval = Configuration.INSTANCE.getCpuClockInterval();
+        for (CpuClockType type : CpuClockType.values()) {
+            final CpuClock clock = new CpuClock(gatherer, type, interval);
+            benchmark("CpuClock." + type.name(), new OperationFactory() {
+                public Operation create() {
+                    final long tid = SystemMonitoring.getCurrentThreadId();
+                    clock.getTicks(tid, REC_ID, true);
+                    return new Operation() {
+                        public void run(int iteration) {
+                            sink += clock.getTicks(tid, REC_ID, true);
+                            sink += clock.getTicks(tid, REC_ID, false);
+                        }
+                    };
+                }
+            }, maxThreads, ops);
+        }
+    }
+
+    /**
+     * Creates the operations for the collections.
+     *
+     * @param maxThreads the maximum number of threads
+     * @param ops the number of operations per thread
+     *
+     * @since 1.30
+     */
+    private static void benchmarkCollections(int maxThreads, int ops) {
+        benchmark("LongHashMap.put/get/remove", new OperationFactory() {
+            public Operation create() {
+                final LongHashMap<Object> map = new LongHashMap<Object>();
+                return new Operation() {
+                    public void run(int iteration) {
+                        long key = iteration % KEYS;
+                        map.put(key, map);
+                        if (null != map.get(key + 1)) {
+                            sink++;
+                        }
+                        map.remove(key - 1);
+                    }
+                };
+            }
+        }, maxThreads, ops);
+        benchmark("LongLongHashMap.put/get/remove", new OperationFactory() {
+            public Operation create() {
+                final LongLongHashMap map = new LongLongHashMap();
+                return new Operation() {
+                    public void run(int iteration) {
+                        long key = iteration % KEYS;
+                        map.put(key, iteration);
+                        sink += map.get(key + 1, 0);
+                        map.remove(key - 1);
+                    }
+                };
+            }
+        }, maxThreads, ops);
+        benchmark("IntHashMap.put/get/remove", new OperationFactory() {
+            public Operation create() {
+                final IntHashMap<Object> map = new IntHashMap<Object>();
+                return new Operation() {
+                    public void run(int iteration) {
+                        int key = iteration % KEYS;
+                        map.put(key, map);
+                        if (null != map.get(key + 1)) {
+                            sink++;
+                        }
+                        map.remove(key - 1);
+                    }
+                };
+            }
+        }, maxThreads, ops);
+        final ObjectPool<ThreadsInfo> pool = ThreadsInfo.POOL;
+        benchmark("ObjectPool.get/release", new OperationFactory() {
+            public Operation create() {
+                return new Operation() {
+                    public void run(int iteration) {
+                        pool.release(pool.getFromPool());
+                    }
+                };
+            }
+        }, maxThreads, ops);
+    }
+
+    /**
+     * Executes the benchmark.
+     *
+     * @param args optional maximum number of threads and operations per
+     *   thread
+     * @throws IOException in case that the stub server cannot be started
+     *
+     * @since 1.30
+     */
+    public static final void main(String[] args) throws IOException {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        int ops = 200000;
+        if (args.length > 0) {
+            maxThreads = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            ops = Integer.parseInt(args[1]);
+        }
+        System.out.println("operation\tthreads\tops/ms\tbytes/op");
+        benchmarkCollections(maxThreads, ops);
+        benchmarkCpuClocks(maxThreads, ops);
+
+        // measure the probe only, not the default console output
+        PluginRegistry.attachValueChangeListener(new ValueChangeListener() {
+            public void notifyValueChange(String recId, ValueType type,
+                Object newValue) {
+            }
+        });
+        // frontends use the default (local synchronous) strategy
+        Recorder.initialize();
+        RecorderFrontend recorder = RecorderFrontend.instance;
+        SynchronizedRecorder.initialize();
+        RecorderFrontend synchronizedRecorder = RecorderFrontend.instance;
+        recorder.notifyProgramStart();
+        benchmark("Recorder", recorder, maxThreads, ops);
+        benchmark("SynchronizedRecorder", synchronizedRecorder, maxThreads,
+            ops);
+
+        StubServer server = new StubServer();
+        server.start();
+        File eventLog = new File(System.getProperty("java.io.tmpdir"),
+            "probeOverheadEventLog");
+        Configuration.INSTANCE.readFromAgentArguments("tcp=localhost:"
+            + server.getPort() + ",tcpProtocol=1,eventLog=" + eventLog
+            + ",eventLogSegmentSize=16,eventLogMaxSize=64");
+        benchmark("DefaultRecorderStrategy",
+            new DefaultRecorderStrategy(new TabFormatter()), maxThreads, ops);
+        benchmark("DefaultEventRecorderStrategy",
+            new DefaultEventRecorderStrategy(
+                new DefaultRecorderStrategy(new TabFormatter())),
+            maxThreads, ops);
+        benchmark("ThreadBufferedRecorderStrategy",
+            new ThreadBufferedRecorderStrategy(
+                new DefaultRecorderStrategy(new TabFormatter())),
+            maxThreads, ops);
+        benchmark("TCPRecorderStrategy", new TCPRecorderStrategy(),
+            maxThreads, ops);
+        benchmark("EventLogRecorderStrategy", new EventLogRecorderStrategy(),
+            maxThreads, ops);
+        // do not print results, unallocation thread is not a daemon
+        System.exit(0);
+    }
+
+}
@@ -0,0 +1,273 @@
+package test.framework;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.Socket;
+
+import test.AnnotationId;
+
+import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingServer.
+    TCPRecordingServer;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    ThreadsInfo;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.
+    Constants;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.
+    EndSystemElement;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.
+    EnterElement;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.
+    ExitElement;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.
+    RecordingStrategiesElement;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchOutputStream;
+
+/**
+ * A load test for the {@link TCPRecordingServer}, which replays synthetic
+ * event streams (enter/exit pairs on some recorder ids) from a number of
+ * simulated agents concurrently and measures the time until the server
+ * processed all events. Optional parameters are the number of agents, the
+ * number of enter/exit pairs per agent, the protocol version (1 or 2),
+ * whether batches shall be compressed and the number of server workers.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+@Variability(id = AnnotationId.VAR_TESTING)
+public class RecordingServerLoadTest {
+
+    /**
+     * Defines the number of recorder ids per agent.
+     */
+    private static final int RECORDER_IDS = 16;
+
+    /**
+     * Defines the maximum size of a batch.
+     */
+    private static final int MAX_BATCH_SIZE = 65536;
+
+    /**
+     * Prevents this class from being created from outside.
+     *
+     * @since 1.30
+     */
+    private RecordingServerLoadTest() {
+    }
+
+    /**
+     * Implements a simulated agent.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class Agent extends Thread {
+
+        /**
+         * Stores the number of this agent.
+         */
+        private int number;
+
+        /**
+         * Stores the port of the server.
+         */
+        private int port;
+
+        /**
+         * Stores the serialized agent configuration.
+         */
+        private byte[] configuration;
+
+        /**
+         * Stores the protocol version.
+         */
+        private int protocol;
+
+        /**
+         * Stores whether batches shall be compressed.
+         */
+        private boolean compress;
+
+        /**
+         * Stores the number of enter/exit pairs to send.
+         */
+        private int pairs;
+
+        /**
+         * Creates an agent.
+         *
+         * @param number the number of the agent
+         * @param port the port of the server
+         * @param configuration the serialized agent configuration
+         * @param protocol the protocol version
+         * @param compress whether batches shall be compressed
+         * @param pairs the number of enter/exit pairs to send
+         */
+        private Agent(int number, int port, byte[] configuration,
+            int protocol, boolean compress, int pairs) {
+            this.number = number;
+            this.port = port;
+            this.configuration = configuration;
+            this.protocol = protocol;
+            this.compress = compress;
+            this.pairs = pairs;
+        }
+
+        /**
+         * Sends the events.
+         */
+        @Override
+        public void run() {
+            try {
+                Socket socket = new Socket("localhost", port);
+                DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+                out.write(configuration);
+                out.flush();
+                BatchOutputStream batch = null;
+                if (protocol >= Constants.PROTOCOL_V2) {
+                    new DataInputStream(socket.getInputStream()).readInt();
+                    batch = new BatchOutputStream(out, compress);
+                }
+                String[] recIds = new String[RECORDER_IDS];
+                for (int r = 0; r < RECORDER_IDS; r++) {
+                    recIds[r] = "agent" + number + ".group" + r;
+                }
+                long now = System.nanoTime();
+                for (int i = 0; i < pairs; i++) {
+                    String recId = recIds[i % RECORDER_IDS];
+                    EnterElement enter = EnterElement.POOL.getFromPool();
+                    enter.setRecId(recId);
+                    enter.setNow(now);
+                    enter.setThreadsInfo(createThreadsInfo(now));
+                    enter.setExclude(false);
+                    send(enter, out, batch);
+                    now += 1500;
+                    ExitElement exit = ExitElement.POOL.getFromPool();
+                    exit.setRecId(recId);
+                    exit.setNow(now);
+                    exit.setThreadsInfo(createThreadsInfo(now));
+                    exit.setExclude(false);
+                    send(exit, out, batch);
+                    now += 500;
+                }
+                send(new EndSystemElement(), out, batch);
+                if (null != batch) {
+                    batch.flushBatch();
+                }
+                out.flush();
+                socket.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * Creates a threads info object.
+         *
+         * @param now the current (synthetic) time
+         * @return the threads info object
+         */
+        private ThreadsInfo createThreadsInfo(long now) {
+            ThreadsInfo result = ThreadsInfo.POOL.getFromPool();
+            result.setThreadId(1);
+            result.setCurrentThreadTicks(now / 2);
+            return result;
+        }
+
+        /**
+         * Sends an element and releases it.
+         *
+         * @param element the element to be sent
+         * @param out the output stream for protocol version 1
+         * @param batch the batch output stream for protocol version 2
+         *   (<b>null</b> for version 1)
+         * @throws IOException in case of I/O problems
+         */
+        private void send(RecordingStrategiesElement element,
+            DataOutputStream out, BatchOutputStream batch) throws IOException {
+            if (null == batch) {
+                out.writeInt(element.getIdentification());
+                element.send(out);
+            } else {
+                batch.writeVarInt(element.getIdentification());
+                element.sendBatched(batch);
+                if (batch.batchSize() >= MAX_BATCH_SIZE) {
+                    batch.flushBatch();
+                }
+            }
+            element.release();
+        }
+    }
+
+    /**
+     * Executes the load test.
+     *
+     * @param args optional number of agents, enter/exit pairs per agent,
+     *   protocol version, compression and number of server workers
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public static final void main(String[] args) throws IOException {
+        int agents = 8;
+        int pairs = 200000;
+        int protocol = Constants.PROTOCOL_V2;
+        boolean compress = false;
+        int workers = Runtime.getRuntime().availableProcessors();
+        if (args.length > 0) {
+            agents = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            pairs = Integer.parseInt(args[1]);
+        }
+        if (args.length > 2) {
+            protocol = Integer.parseInt(args[2]);
+        }
+        if (args.length > 3) {
+            compress = Boolean.valueOf(args[3]);
+        }
+        if (args.length > 4) {
+            workers = Integer.parseInt(args[4]);
+        }
+        Configuration.INSTANCE.readFromAgentArguments("tcpProtocol="
+            + protocol + ",tcpCompression=" + (compress ? "DEFLATE" : "NONE"));
+        ByteArrayOutputStream conf = new ByteArrayOutputStream();
+        Configuration.INSTANCE.write(new DataOutputStream(conf));
+        File baseDir = new File(System.getProperty("java.io.tmpdir"),
+            "spassLoadTest");
+        baseDir.mkdirs();
+        final TCPRecordingServer server = new TCPRecordingServer(
+            baseDir.getAbsolutePath(), 0, workers, agents);
+        Thread serverThread = new Thread() {
+            public void run() {
+                server.run();
+            }
+        };
+        serverThread.start();
+        long start = System.nanoTime();
+        for (int a = 0; a < agents; a++) {
+            new Agent(a, server.getPort(), conf.toByteArray(), protocol,
+                compress, pairs).start();
+        }
+        try {
+            serverThread.join();
+        } catch (InterruptedException e) {
+        }
+        long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+        long events = 2L * pairs * agents;
+        System.out.println("agents\tevents\tprotocol\tcompress\tworkers\tms"
+            + "\tevents/ms");
+        System.out.println(agents + "\t" + events + "\t" + protocol + "\t"
+            + compress + "\t" + workers + "\t" + millis + "\t"
+            + (events / millis));
+    }
+
+}
@@ -0,0 +1,314 @@
+package test.framework;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import test.AnnotationId;
+
+import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
+
+/**
+ * A startup benchmark measuring the time-to-first-request of a synthetic
+ * application with and without the monitoring agent. The application
+ * generates a number of classes, loads and executes them from several
+ * threads in parallel (each thread with its own class loader, as in
+ * application servers) and then answers a single request on a server socket.
+ * The generated classes are members of a few monitoring groups, i.e. the
+ * agent instruments them and assigns the numeric recorder ids in the
+ * (nondeterministic) order of class loading.
+ * The benchmark starts the application in a new JVM, sends the request as
+ * soon as the application is listening and measures the time from starting
+ * the JVM until the response was received. Parameters are the number of
+ * classes, the number of loading threads and, optionally, JVM options
+ * enabling the agent (e.g.,
+ * <code>-javaagent:spass-meter-ia.jar=instrumenterFactory=...</code>), which
+ * are measured one after another in addition to the JVM without agent.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+@Variability(id = AnnotationId.VAR_TESTING)
+public class StartupBenchmark implements Opcodes {
+
+    /**
+     * Defines the argument which starts the synthetic application.
+     */
+    private static final String APPLICATION = "app";
+
+    /**
+     * Defines the package of the generated classes (internal form).
+     */
+    private static final String PACKAGE = "test/framework/generated/";
+
+    /**
+     * Defines the number of measurements per JVM configuration.
+     */
+    private static final int REPETITIONS = 3;
+
+    /**
+     * Defines the number of monitoring groups of the generated classes.
+     */
+    private static final int GROUPS = 16;
+
+    /**
+     * Defines the descriptor of the monitoring annotation.
+     */
+    private static final String MONITOR 
+        = "Lde/uni_hildesheim/sse/monitoring/runtime/annotations/Monitor;";
+
+    /**
+     * Prevents this class from being created from outside.
+     *
+     * @since 1.30
+     */
+    private StartupBenchmark() {
+    }
+
+    /**
+     * Implements a class loader defining the generated classes.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class GeneratedClassLoader extends ClassLoader {
+
+        /**
+         * Creates a class loader.
+         *
+         * @param parent the parent class loader
+         */
+        private GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        /**
+         * Defines a class.
+         *
+         * @param name the name of the class (internal form)
+         * @param bytecode the bytecode of the class
+         * @return the defined class
+         */
+        private Class<?> define(String name, byte[] bytecode) {
+            return defineClass(name.replace('/', '.'), bytecode, 0,
+                bytecode.length);
+        }
+    }
+
+    /**
+     * Generates a runnable class which allocates a string builder and
+     * appends its name.
+     *
+     * @param name the name of the class (internal form)
+     * @param group the monitoring group of the class
+     * @return the bytecode of the class
+     *
+     * @since 1.30
+     */
+    private static byte[] generateClass(String name, int group) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_6, ACC_PUBLIC | ACC_SUPER, name, null, "java/lang/Object",
+            new String[] {"java/lang/Runnable"});
+        AnnotationVisitor av = cw.visitAnnotation(MONITOR, true);
+        AnnotationVisitor ids = av.visitArray("id");
+        ids.visit(null, "group" + group);
+        ids.visitEnd();
+        av.visitEnd();
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null,
+            null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V",
+            false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        mv = cw.visitMethod(ACC_PUBLIC, "run", "()V", null, null);
+        mv.visitCode();
+        mv.visitTypeInsn(NEW, "java/lang/StringBuilder");
+        mv.visitInsn(DUP);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/StringBuilder", "<init>",
+            "()V", false);
+        mv.visitLdcInsn(name);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append",
+            "(Ljava/lang/String;)Ljava/lang/StringBuilder;", false);
+        mv.visitInsn(POP);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * Executes the synthetic application, i.e. loads the classes in parallel
+     * and answers a single request afterwards.
+     *
+     * @param classCount the number of classes to load
+     * @param threadCount the number of loading threads
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    private static void runApplication(final int classCount,
+        final int threadCount) throws IOException {
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int number = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    GeneratedClassLoader loader = new GeneratedClassLoader(
+                        StartupBenchmark.class.getClassLoader());
+                    try {
+                        for (int c = number; c < classCount;
+                            c += threadCount) {
+                            String name = PACKAGE + "C" + c;
+                            Class<?> cls = loader.define(name,
+                                generateClass(name, c % GROUPS));
+                            ((Runnable) cls.getDeclaredConstructor()
+                                .newInstance()).run();
+                        }
+                    } catch (ReflectiveOperationException e) {
+                        e.printStackTrace();
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < threadCount; t++) {
+            try {
+                threads[t].join();
+            } catch (InterruptedException e) {
+            }
+        }
+        ServerSocket server = new ServerSocket(0);
+        System.out.println(server.getLocalPort());
+        System.out.flush();
+        Socket socket = server.accept();
+        socket.getInputStream().read();
+        OutputStream out = socket.getOutputStream();
+        out.write(1);
+        out.flush();
+        socket.close();
+        server.close();
+        System.exit(0); // the agent may run non-daemon threads
+    }
+
+    /**
+     * Starts the synthetic application in a new JVM and measures the time
+     * until the first request was answered.
+     *
+     * @param jvmOption additional JVM option (may be <b>null</b>)
+     * @param classCount the number of classes to load
+     * @param threadCount the number of loading threads
+     * @return the time-to-first-request in milliseconds, negative if the
+     *   application failed
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    private static long measure(String jvmOption, int classCount,
+        int threadCount) throws IOException {
+        List<String> cmd = new java.util.ArrayList<String>();
+        cmd.add(System.getProperty("java.home") + File.separator + "bin"
+            + File.separator + "java");
+        if (null != jvmOption) {
+            cmd.add(jvmOption);
+        }
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(StartupBenchmark.class.getName());
+        cmd.add(APPLICATION);
+        cmd.add(String.valueOf(classCount));
+        cmd.add(String.valueOf(threadCount));
+        ProcessBuilder builder = new ProcessBuilder(cmd);
+        builder.redirectErrorStream(true);
+        long start = System.nanoTime();
+        Process process = builder.start();
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(process.getInputStream()));
+        int port = -1;
+        String line;
+        do {
+            line = reader.readLine();
+            if (null != line) {
+                try {
+                    port = Integer.parseInt(line.trim());
+                } catch (NumberFormatException e) {
+                    System.out.println("  " + line); // agent output
+                }
+            }
+        } while (null != line && port < 0);
+        long result = -1;
+        if (port > 0) {
+            Socket socket = new Socket("localhost", port);
+            socket.getOutputStream().write(1);
+            socket.getOutputStream().flush();
+            InputStream in = socket.getInputStream();
+            if (in.read() >= 0) {
+                result = (System.nanoTime() - start) / 1000000;
+            }
+            socket.close();
+        }
+        while (null != reader.readLine()) {
+            // consume agent output at shutdown
+        }
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+        }
+        return result;
+    }
+
+    /**
+     * Executes the benchmark.
+     *
+     * @param args the number of classes, the number of threads and JVM
+     *   options enabling the agent (optional)
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    public static final void main(String[] args) throws IOException {
+        if (args.length > 0 && APPLICATION.equals(args[0])) {
+            runApplication(Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]));
+        } else {
+            int classCount = 5000;
+            int threadCount = Runtime.getRuntime().availableProcessors();
+            if (args.length > 0) {
+                classCount = Integer.parseInt(args[0]);
+            }
+            if (args.length > 1) {
+                threadCount = Integer.parseInt(args[1]);
+            }
+            String[] options = new String[Math.max(1, args.length - 1)];
+            for (int o = 2; o < args.length; o++) {
+                options[o - 1] = args[o];
+            }
+            System.out.println("classes: " + classCount + " threads: "
+                + threadCount);
+            for (int o = 0; o < options.length; o++) {
+                String name = null == options[o] ? "no agent" : options[o];
+                for (int r = 0; r < REPETITIONS; r++) {
+                    long ms = measure(options[o], classCount, threadCount);
+                    System.out.println(name + "\t" + ms + " ms");
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package test.framework;
+
+import test.AnnotationId;
+
+import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
+
+/**
+ * Implements the common harness of the multi-threaded microbenchmarks, i.e.
+ * running a task in a given number of threads and calculating the
+ * throughput.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+@Variability(id = AnnotationId.VAR_TESTING)
+class ThreadedBenchmark {
+
+    /**
+     * Prevents this class from being created from outside.
+     *
+     * @since 1.30
+     */
+    private ThreadedBenchmark() {
+    }
+
+    /**
+     * Executes <code>task</code> concurrently in <code>threadCount</code>
+     * threads and waits for their termination. Per-thread state shall be
+     * created within {@link Runnable#run()}.
+     *
+     * @param threadCount the number of threads
+     * @param task the task to be executed by each thread
+     * @return the elapsed time in nanoseconds
+     *
+     * @since 1.30
+     */
+    static long run(int threadCount, Runnable task) {
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread(task);
+        }
+        long start = System.nanoTime();
+        for (int t = 0; t < threadCount; t++) {
+            threads[t].start();
+        }
+        for (int t = 0; t < threadCount; t++) {
+            try {
+                threads[t].join();
+            } catch (InterruptedException e) {
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Calculates the throughput.
+     *
+     * @param count the number of operations performed
+     * @param nanos the elapsed time in nanoseconds as returned by
+     *   {@link #run(int, Runnable)}
+     * @return the number of operations per millisecond
+     *
+     * @since 1.30
+     */
+    static double perMillisecond(long count, long nanos) {
+        return count / (Math.max(1, nanos) / 1000000.0);
+    }
+
+}
@@ -1,34 +1,121 @@
 package test.framework;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import test.AnnotationId;
 
 import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.ArrayList;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.InstanceIdentifierKind;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.ObjectPool;
+import de.uni_hildesheim.sse.monitoring.runtime.boot.Poolable;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.Configuration;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.
+    IObjectSizeProvider;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.
+    MonitoringGroupConfiguration;
+import de.uni_hildesheim.sse.monitoring.runtime.configuration.
+    ObjectSizeCache;
+import de.uni_hildesheim.sse.monitoring.runtime.instrumentation.
+    TransformedClassCache;
+import de.uni_hildesheim.sse.monitoring.runtime.instrumentation.lib.IFactory;
+import de.uni_hildesheim.sse.monitoring.runtime.plugins.IMonitoringGroup;
+import de.uni_hildesheim.sse.monitoring.runtime.recording.ObjectSizeProvider;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    RecorderElement;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingServer.
+    TimeSeriesReader;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    RecorderStrategy;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategies.
+    TimeSeriesStore;
+import de.uni_hildesheim.sse.monitoring.runtime.recordingStrategiesElements.
+    RecordingStrategiesElement;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchInputStream;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.BatchOutputStream;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.CleaningLongHashMap;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.
+    ConcurrentLongLongHashMap;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.HashMap;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.IntHashMap;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LatencyHistogram;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.LongHashMap;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.LongLinkedList;
 import de.uni_hildesheim.sse.monitoring.runtime.utils.LongLongHashMap;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.
+    RecordingStrategiesElementRingBuffer;
+import de.uni_hildesheim.sse.system.IoStatistics;
 
 /**
  * Tests the util classes.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 @Variability(id = AnnotationId.VAR_TESTING)
 public class UtilTests {
 
+    /**
+     * Defines the package of the XML configuration classes.
+     */
+    private static final String XML_PACKAGE 
+        = "de.uni_hildesheim.sse.monitoring.runtime.configuration.xml.";
+
+    /**
+     * Defines the regular expressions, their expected literal prefixes and
+     * whether they are expected to be literal.
+     */
+    private static final String[][] PREFIXES = {
+        {"abc", "abc", "true"},
+        {"foo\\(int\\)", "foo(int)", "true"},
+        {"de\\.uni\\.A", "de.uni.A", "true"},
+        {"java.lang.String", "java", "false"},
+        {"a\\.*", "a", "false"},
+        {"\\Qa.b\\E", "", "false"},
+        {"ab\\Q.\\E", "ab", "false"},
+        {"ab?", "a", "false"},
+        {"ab*c", "a", "false"},
+        {"ab{2}", "a", "false"},
+        {"a*", "", "false"},
+        {"a+b", "", "false"},
+        {"abc|abd", "", "false"},
+        {"x(abc|abd)", "", "false"},
+        {"ab[cd]e", "ab", "false"},
+        {"ab\\d", "ab", "false"},
+        {".*Foo", "", "false"},
+        {"^abc", "", "false"}
+    };
+
+    /**
+     * Defines the regular expressions indexed by the pattern index test in
+     * the order of their priority.
+     */
+    private static final String[] INDEXED = {"ab.*", "a.*", "abc", 
+        "a\\.b.*", ".*c", "abc|x", "ab?c", "[ab]bc", "a\\Q.\\Eb", "", 
+        ".*", "ab", "b+"};
+
+    /**
+     * Defines the package of the Linux fallback data gatherers.
+     */
+    private static final String FALLBACK_PACKAGE 
+        = "de.uni_hildesheim.sse.system.fallback.";
+
     /**
      * Stores the random number generator.
      */
@@ -57,12 +144,35 @@ public class UtilTests {
         cleaningLongHashMapTest();
         System.out.println("long long hash map:");
         longLongHashMapTest();
+        System.out.println("concurrent long long hash map:");
+        concurrentLongLongHashMapTest();
+        System.out.println("latency histogram:");
+        latencyHistogramTest();
+        System.out.println("bounded instance recorder elements:");
+        instanceRecorderElementTest();
+        System.out.println("element ring buffer:");
+        ringBufferTest();
+        System.out.println("object pool:");
+        objectPoolTest();
+        System.out.println("object size cache:");
+        objectSizeCacheTest();
+        System.out.println("transformed class cache:");
+        transformedClassCacheTest();
+        System.out.println("name patterns:");
+        patternTest();
+        System.out.println("proc file parsers:");
+        procParserTest();
+        System.out.println("batch streams:");
+        batchStreamTest(false);
+        batchStreamTest(true);
         System.out.println("long linked list:");
         longLinkedListTest();
         System.out.println("int hash map:");
         intHashMapTest();
         System.out.println("hash map:");
         hashMapTest();
+        System.out.println("time series store:");
+        timeSeriesTest();
     }
     
     /**
@@ -120,6 +230,972 @@ public class UtilTests {
         System.out.println(" done");
     }
     
+    /**
+     * Simple tests for the {@link ConcurrentLongLongHashMap}, sequential 
+     * and concurrent increments / decrements.
+     * 
+     * @since 1.30
+     */
+    private static final void concurrentLongLongHashMapTest() {
+        final ConcurrentLongLongHashMap map = new ConcurrentLongLongHashMap();
+        final int testSize = 20000;
+        java.util.Map<Long, Long> ref = new java.util.HashMap<Long, Long>();
+        for (int i = 0; i < testSize; i++) {
+            long lng = rnd.nextLong();
+            if (0 != lng && Long.MIN_VALUE != lng) {
+                map.put(lng, lng);
+                ref.put(lng, lng);
+            }
+        }
+        for (java.util.Map.Entry<Long, Long> ent : ref.entrySet()) {
+            if (map.get(ent.getKey()) != ent.getValue()) {
+                System.err.println("not matching " + ent.getKey());
+            }
+            map.remove(ent.getKey());
+        }
+        if (!map.isEmpty()) {
+            System.err.println("not empty after removal " + map.size());
+        }
+        final int threadCount = 8;
+        final int loops = 100000;
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final long key = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < loops; i++) {
+                        map.increment(key);
+                        map.increment(key + threadCount);
+                        map.increment(key);
+                        map.decrement(key);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < threadCount; t++) {
+            try {
+                threads[t].join();
+            } catch (InterruptedException e) {
+            }
+            if (map.get(t) != loops || map.get(t + threadCount) != loops) {
+                System.err.println("wrong count for " + t);
+            }
+            System.out.print(".");
+        }
+        for (int i = 0; i < loops; i++) {
+            map.decrement(0);
+        }
+        map.decrement(0);
+        if (map.containsKey(0)) {
+            System.err.println("decrement below 0");
+        }
+        System.out.println(" done");
+    }
+
+    /**
+     * Tests bounding the instance recorder elements of a monitoring group,
+     * i.e. that frequently used instances are kept while rarely used ones
+     * are folded into {@link IMonitoringGroup#OTHER_INSTANCES}.
+     * 
+     * @since 1.30
+     */
+    private static final void instanceRecorderElementTest() {
+        final int limit = 8;
+        final int heavy = 4;
+        final int hits = 1000;
+        final int rare = 1000;
+        Configuration.INSTANCE.readFromAgentArguments("instanceLimit=" 
+            + limit);
+        RecorderElement elt = RecorderElement.createForTest(
+            MonitoringGroupConfiguration.create(null, null, null, 
+            InstanceIdentifierKind.THREAD_ID.name()));
+        RecorderElement[] heavyElts = new RecorderElement[heavy];
+        for (int h = 0; h < hits; h++) {
+            for (int i = 0; i < heavy; i++) {
+                RecorderElement iElt = elt.getInstanceRecorderElement(i + 1);
+                if (null == heavyElts[i]) {
+                    heavyElts[i] = iElt;
+                } else if (heavyElts[i] != iElt) {
+                    System.err.println("instance " + (i + 1) + " replaced");
+                }
+            }
+        }
+        for (int r = 0; r < rare; r++) {
+            elt.getInstanceRecorderElement(heavy + 1 + r);
+        }
+        HashSet<Long> ids = new HashSet<Long>();
+        for (long id : elt.instanceRecorderIds()) {
+            ids.add(id);
+        }
+        if (ids.size() != limit + 1 
+            || !ids.contains(IMonitoringGroup.OTHER_INSTANCES)) {
+            System.err.println("wrong number of instances " + ids);
+        }
+        for (int i = 0; i < heavy; i++) {
+            if (!ids.contains((long) (i + 1)) 
+                || elt.getInstanceRecorderElement(i + 1) != heavyElts[i]) {
+                System.err.println("heavy instance " + (i + 1) + " lost");
+            }
+        }
+        Configuration.INSTANCE.readFromAgentArguments("instanceLimit=0");
+        RecorderElement unbounded = RecorderElement.createForTest(
+            MonitoringGroupConfiguration.create(null, null, null, 
+            InstanceIdentifierKind.THREAD_ID.name()));
+        for (int r = 0; r < rare; r++) {
+            unbounded.getInstanceRecorderElement(r + 1);
+        }
+        if (unbounded.instanceRecorderIds().length != rare) {
+            System.err.println("unbounded instances not kept");
+        }
+        RecorderElement grouped = RecorderElement.createForTest(
+            MonitoringGroupConfiguration.create(null, null, null, 
+            InstanceIdentifierKind.THREAD_ID.name(), null, null, null, 
+            String.valueOf(heavy)));
+        for (int r = 0; r < rare; r++) {
+            grouped.getInstanceRecorderElement(r + 1);
+        }
+        if (grouped.instanceRecorderIds().length != heavy + 1) {
+            System.err.println("group instance limit not applied");
+        }
+        System.out.println(" done");
+    }
+
+    /**
+     * Simple tests for the {@link LatencyHistogram}, i.e. accuracy of the 
+     * percentiles, concurrent recording and merging.
+     * 
+     * @since 1.30
+     */
+    private static final void latencyHistogramTest() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final int testSize = 100000;
+        long[] values = new long[testSize];
+        for (int i = 0; i < testSize; i++) {
+            values[i] = (long) Math.abs(rnd.nextGaussian() * 1000000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        double[] percentiles = {0, 10, 50, 90, 99, 99.9, 100};
+        for (double p : percentiles) {
+            long expected = values[Math.max(0, 
+                (int) Math.ceil(p / 100 * testSize) - 1)];
+            long actual = histogram.getValueAtPercentile(p);
+            if (Math.abs(actual - expected) 
+                > expected / LatencyHistogram.SUB_BUCKETS + 1) {
+                System.err.println("percentile " + p + " expected " 
+                    + expected + " but was " + actual);
+            }
+        }
+        if (histogram.getCount() != testSize 
+            || histogram.getMax() != values[testSize - 1]
+            || histogram.getMin() != values[0]) {
+            System.err.println("count, min or max not matching");
+        }
+        System.out.print(".");
+        
+        final LatencyHistogram shared = new LatencyHistogram();
+        final int threadCount = 8;
+        final int loops = 100000;
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < loops; i++) {
+                        shared.record(i);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < threadCount; t++) {
+            try {
+                threads[t].join();
+            } catch (InterruptedException e) {
+            }
+        }
+        if (shared.getCount() != threadCount * loops 
+            || shared.getMax() != loops - 1) {
+            System.err.println("wrong concurrent count " + shared.getCount());
+        }
+        System.out.print(".");
+
+        LatencyHistogram merged = new LatencyHistogram();
+        merged.add(histogram);
+        merged.add(shared);
+        if (merged.getCount() != histogram.getCount() + shared.getCount()
+            || merged.getTotal() != histogram.getTotal() + shared.getTotal()
+            || merged.getMax() != Math.max(histogram.getMax(), 
+                shared.getMax())) {
+            System.err.println("merge not matching");
+        }
+        merged.copy(shared);
+        if (merged.getCount() != shared.getCount() 
+            || merged.getValueAtPercentile(50) 
+            != shared.getValueAtPercentile(50)) {
+            System.err.println("copy not matching");
+        }
+        merged.clear();
+        if (merged.getCount() != 0 || merged.getValueAtPercentile(50) != 0) {
+            System.err.println("clear failed");
+        }
+        System.out.println(" done");
+    }
+
+    /**
+     * A recording element for testing the ring buffer.
+     * 
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class TestElement extends RecordingStrategiesElement {
+
+        /**
+         * Stores the producer.
+         */
+        private int producer;
+
+        /**
+         * Stores the sequence number within the producer.
+         */
+        private int seq;
+
+        /**
+         * Creates a test element.
+         * 
+         * @param producer the producer
+         * @param seq the sequence number within the producer
+         */
+        private TestElement(int producer, int seq) {
+            this.producer = producer;
+            this.seq = seq;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void send(DataOutputStream out) throws IOException {
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void read(DataInputStream in) throws IOException {
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getIdentification() {
+            return 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void process(RecorderStrategy strategy) {
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void clear() {
+        }
+    }
+
+    /**
+     * Tests the {@link RecordingStrategiesElementRingBuffer}, single-threaded
+     * for capacity and then with concurrent producers for completeness and
+     * ordering per producer.
+     * 
+     * @since 1.30
+     */
+    private static final void ringBufferTest() {
+        final RecordingStrategiesElementRingBuffer buffer 
+            = new RecordingStrategiesElementRingBuffer(100);
+        if (buffer.capacity() != 128) {
+            System.err.println("wrong capacity " + buffer.capacity());
+        }
+        int count = 0;
+        while (buffer.offer(new TestElement(0, count))) {
+            count++;
+        }
+        if (count != buffer.capacity() || buffer.size() != count) {
+            System.err.println("full at " + count);
+        }
+        RecordingStrategiesElement[] batch = new RecordingStrategiesElement[50];
+        int taken = buffer.drain(batch);
+        if (taken != batch.length || ((TestElement) batch[49]).seq != 49) {
+            System.err.println("wrong batch " + taken);
+        }
+        if (!buffer.offer(new TestElement(0, count))) {
+            System.err.println("no slot after drain");
+        }
+        final int threadCount = 4;
+        final int loops = 200000;
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int producer = t + 1;
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < loops; i++) {
+                        TestElement elt = new TestElement(producer, i);
+                        while (!buffer.offer(elt)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        int[] expected = new int[threadCount + 1];
+        expected[0] = 50;
+        int total = (count + 1 - 50) + threadCount * loops;
+        while (total > 0) {
+            taken = buffer.drain(batch);
+            if (0 == taken) {
+                Thread.yield();
+            }
+            for (int i = 0; i < taken; i++) {
+                TestElement elt = (TestElement) batch[i];
+                if (expected[elt.producer]++ != elt.seq) {
+                    System.err.println("out of order " + elt.producer + " " 
+                        + elt.seq);
+                }
+            }
+            total -= taken;
+        }
+        for (int t = 0; t < threadCount; t++) {
+            try {
+                threads[t].join();
+            } catch (InterruptedException e) {
+            }
+            System.out.print(".");
+        }
+        if (!buffer.isEmpty()) {
+            System.err.println("not empty " + buffer.size());
+        }
+        System.out.println(" done");
+    }
+
+    /**
+     * A poolable recording element for testing the object pool.
+     * 
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class PoolElement extends TestElement 
+        implements Poolable<PoolElement> {
+
+        /**
+         * Stores whether this element is currently obtained from the pool.
+         */
+        private final AtomicBoolean inUse = new AtomicBoolean();
+
+        /**
+         * Creates a pool element.
+         */
+        private PoolElement() {
+            super(0, 0);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public PoolElement create() {
+            return new PoolElement();
+        }
+    }
+
+    /**
+     * Tests the {@link ObjectPool}, single-threaded for the maximum size and
+     * then with concurrent producers obtaining and a consumer releasing 
+     * instances (as for recording elements) for exclusive use of the 
+     * instances and reuse.
+     * 
+     * @since 1.30
+     */
+    private static final void objectPoolTest() {
+        ObjectPool<PoolElement> small 
+            = new ObjectPool<PoolElement>(new PoolElement(), 40);
+        PoolElement[] elements = new PoolElement[100];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = small.getFromPool();
+        }
+        for (int i = 0; i < elements.length; i++) {
+            small.release(elements[i]);
+        }
+        if (small.getCreationCount() != elements.length 
+            || small.size() > 56) {
+            System.err.println("wrong pool size " + small.size());
+        }
+        final ObjectPool<PoolElement> pool 
+            = new ObjectPool<PoolElement>(new PoolElement(), 1000);
+        final RecordingStrategiesElementRingBuffer buffer 
+            = new RecordingStrategiesElementRingBuffer(64);
+        final int threadCount = 4;
+        final int loops = 100000;
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < loops; i++) {
+                        PoolElement elt = pool.getFromPool();
+                        if (!elt.inUse.compareAndSet(false, true)) {
+                            System.err.println("element obtained twice");
+                        }
+                        while (!buffer.offer(elt)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        RecordingStrategiesElement[] batch = new RecordingStrategiesElement[50];
+        int total = threadCount * loops;
+        while (total > 0) {
+            int taken = buffer.drain(batch);
+            if (0 == taken) {
+                Thread.yield();
+            }
+            for (int i = 0; i < taken; i++) {
+                PoolElement elt = (PoolElement) batch[i];
+                elt.inUse.set(false);
+                pool.release(elt);
+            }
+            total -= taken;
+        }
+        for (int t = 0; t < threadCount; t++) {
+            try {
+                threads[t].join();
+            } catch (InterruptedException e) {
+            }
+            System.out.print(".");
+        }
+        long obtained = threadCount * loops;
+        long counted = pool.getHitCount() + pool.getMissCount();
+        if (counted > obtained || counted < obtained - threadCount * 1024) {
+            System.err.println("wrong hit/miss count " + counted);
+        }
+        if (pool.getCreationCount() > obtained / 10) {
+            System.err.println("too many creations " 
+                + pool.getCreationCount());
+        }
+        System.out.println(" done");
+    }
+
+    /**
+     * Implements an object size provider emulating a JVM with 12 bytes
+     * object header, 4 bytes array length and 4 bytes references.
+     * 
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class TestSizeProvider implements IObjectSizeProvider {
+
+        /**
+         * {@inheritDoc}
+         */
+        public long getObjectSize(Object object) {
+            long size;
+            Class<?> cls = object.getClass();
+            if (cls.isArray()) {
+                Class<?> type = cls.getComponentType();
+                long elementSize;
+                if (type == byte.class || type == boolean.class) {
+                    elementSize = 1;
+                } else if (type == long.class || type == double.class) {
+                    elementSize = 8;
+                } else if (type == char.class || type == short.class) {
+                    elementSize = 2;
+                } else {
+                    elementSize = 4;
+                }
+                size = 16 + elementSize * java.lang.reflect.Array.getLength(
+                    object);
+            } else {
+                size = 12 + 4 * cls.getName().length();
+            }
+            return (size + 7) & ~7;
+        }
+    }
+
+    /**
+     * Tests the {@link ObjectSizeCache} with concurrent queries for object
+     * and array sizes against a test size provider.
+     * 
+     * @since 1.30
+     */
+    private static final void objectSizeCacheTest() {
+        IObjectSizeProvider original = ObjectSizeProvider.getInstance();
+        final IObjectSizeProvider provider = new TestSizeProvider();
+        ObjectSizeProvider.setInstance(provider);
+        final ObjectSizeCache cache = ObjectSizeCache.INSTANCE;
+        cache.clear();
+        cache.setSize(StringBuilder.class.getName(), 1000);
+        if (1000 != cache.getClassSize(StringBuilder.class.getName())) {
+            System.err.println("class size not stored");
+        }
+        final Object[] samples = {new Object(), "abc", new StringBuilder(), 
+            new java.util.ArrayList<Object>(), new byte[0], new byte[5], 
+            new int[3], new long[7], new char[9], new Object[11], 
+            new String[0], new boolean[1], new double[2]};
+        final int threadCount = 4;
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        Object sample = samples[i % samples.length];
+                        long size = cache.getSize(sample, true);
+                        long expected = sample instanceof StringBuilder 
+                            ? 1000 : provider.getObjectSize(sample);
+                        if (size != expected) {
+                            System.err.println("wrong size " + size 
+                                + " for " + sample.getClass().getName());
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < threadCount; t++) {
+            try {
+                threads[t].join();
+            } catch (InterruptedException e) {
+            }
+            System.out.print(".");
+        }
+        if (0 != cache.getClassSize(StringBuilder.class.getName())) {
+            System.err.println("class size not migrated");
+        }
+        cache.remove(StringBuilder.class);
+        if (1000 == cache.getSize(new StringBuilder(), false)) {
+            System.err.println("class size not removed");
+        }
+        cache.clear();
+        ObjectSizeProvider.setInstance(original);
+        System.out.println(" done");
+    }
+
+    /**
+     * Tests storing transformations in the {@link TransformedClassCache} and 
+     * reading them in subsequent "runs", including the removal of an 
+     * incomplete record.
+     * 
+     * @throws IOException in case of I/O problems
+     * 
+     * @since 1.30
+     */
+    private static final void transformedClassCacheTest() throws IOException {
+        File dir = File.createTempFile("transformCache", "");
+        dir.delete();
+        IFactory factory = IFactory.getInstance();
+        byte[] original = {1, 2, 3, 4};
+        byte[] transformed = {5, 6, 7};
+        TransformedClassCache cache = TransformedClassCache.open(
+            dir.getPath());
+        storeTransformation(cache, "test/Cached", original, transformed, 
+            true);
+        storeTransformation(cache, "test/Unmodified", original, null, true);
+        storeTransformation(cache, "test/Uncacheable", original, transformed, 
+            false);
+        cache.close();
+        for (int run = 0; run < 2; run++) {
+            cache = TransformedClassCache.open(dir.getPath());
+            TransformedClassCache.Transformation tf = cache.lookup(factory, 
+                null, "test/Cached", original);
+            if (!tf.isCached() 
+                || !Arrays.equals(transformed, tf.getBytecode())) {
+                System.err.println("transformation not cached");
+            }
+            tf = cache.lookup(factory, null, "test/Unmodified", original);
+            if (!tf.isCached() || null != tf.getBytecode()) {
+                System.err.println("unmodified class not cached");
+            }
+            if (cache.lookup(factory, null, "test/Uncacheable", original)
+                .isCached()) {
+                System.err.println("uncacheable class cached");
+            }
+            if (cache.lookup(factory, null, "test/Cached", transformed)
+                .isCached()) {
+                System.err.println("modified class taken from cache");
+            }
+            if (run > 0 && !cache.lookup(factory, null, "test/Appended", 
+                original).isCached()) {
+                System.err.println("appended transformation not cached");
+            }
+            storeTransformation(cache, "test/Appended", original, 
+                transformed, true);
+            cache.close();
+            File[] files = dir.listFiles();
+            for (int f = 0; f < files.length; f++) {
+                FileOutputStream out = new FileOutputStream(files[f], true);
+                out.write(new byte[] {0, 0, 0, 10, 1, 2}); // incomplete
+                out.close();
+            }
+            System.out.print(".");
+        }
+        File[] files = dir.listFiles();
+        for (int f = 0; f < files.length; f++) {
+            files[f].delete();
+        }
+        dir.delete();
+        System.out.println(" done");
+    }
+
+    /**
+     * Records a transformation and stores it in <code>cache</code>.
+     * 
+     * @param cache the cache
+     * @param name the name of the class
+     * @param original the original bytecode
+     * @param transformed the transformed bytecode (may be <b>null</b>)
+     * @param cacheable whether the transformation may be cached
+     * 
+     * @since 1.30
+     */
+    private static void storeTransformation(TransformedClassCache cache, 
+        String name, byte[] original, byte[] transformed, boolean cacheable) {
+        TransformedClassCache.Transformation tf = cache.lookup(
+            IFactory.getInstance(), null, name, original);
+        tf.start();
+        TransformedClassCache.registerRecorderId(name);
+        if (!cacheable) {
+            TransformedClassCache.notifyUncacheable();
+        }
+        tf.stop();
+        cache.store(tf, transformed);
+    }
+
+    /**
+     * Tests the literal prefixes of the XML configuration name patterns and
+     * that the pattern index yields the same matches in the same order as
+     * a linear scan over the patterns. The classes are accessed via 
+     * reflection as they are internal to their package.
+     * 
+     * @since 1.30
+     */
+    private static final void patternTest() {
+        try {
+            Class<?> patternCls = Class.forName(XML_PACKAGE + "Pattern");
+            Constructor<?> patternCons = patternCls.getDeclaredConstructor(
+                String.class, String.class);
+            patternCons.setAccessible(true);
+            Method prefix = patternCls.getDeclaredMethod("getLiteralPrefix");
+            prefix.setAccessible(true);
+            Field literal = patternCls.getDeclaredField("isLiteral");
+            literal.setAccessible(true);
+            for (int p = 0; p < PREFIXES.length; p++) {
+                Object pattern = patternCons.newInstance(PREFIXES[p][0], null);
+                if (!PREFIXES[p][1].equals(prefix.invoke(pattern))
+                    || Boolean.parseBoolean(PREFIXES[p][2]) 
+                        != literal.getBoolean(pattern)) {
+                    System.err.println("wrong literal prefix for " 
+                        + PREFIXES[p][0] + ": " + prefix.invoke(pattern));
+                }
+            }
+            System.out.print(".");
+
+            ArrayList<Object> patterns = new ArrayList<Object>();
+            for (int p = 0; p < INDEXED.length; p++) {
+                patterns.add(patternCons.newInstance(INDEXED[p], null));
+            }
+            Class<?> indexCls = Class.forName(XML_PACKAGE + "PatternIndex");
+            Constructor<?> indexCons = indexCls.getDeclaredConstructor(
+                ArrayList.class);
+            indexCons.setAccessible(true);
+            Object index = indexCons.newInstance(patterns);
+            Method matches = indexCls.getDeclaredMethod("matches", 
+                String.class);
+            matches.setAccessible(true);
+            String alphabet = "abcx.";
+            for (int n = 0; n < 5000; n++) {
+                StringBuilder name = new StringBuilder();
+                int length = rnd.nextInt(6);
+                for (int c = 0; c < length; c++) {
+                    name.append(alphabet.charAt(rnd.nextInt(
+                        alphabet.length())));
+                }
+                int[] expected = new int[INDEXED.length];
+                int count = 0;
+                for (int p = 0; p < INDEXED.length; p++) {
+                    if (java.util.regex.Pattern.matches(INDEXED[p], name)) {
+                        expected[count++] = p;
+                    }
+                }
+                expected = Arrays.copyOf(expected, count);
+                for (int q = 0; q < 2; q++) { // second query is memoized
+                    int[] actual = (int[]) matches.invoke(index, 
+                        name.toString());
+                    if (!Arrays.equals(expected, actual)) {
+                        System.err.println("wrong matches for \"" + name 
+                            + "\": " + Arrays.toString(actual) + " instead of "
+                            + Arrays.toString(expected));
+                    }
+                }
+            }
+            System.out.print(".");
+        } catch (ReflectiveOperationException e) {
+            System.err.println("cannot access patterns: " + e);
+        }
+        System.out.println(" done");
+    }
+
+    /**
+     * Tests the parsers of the Linux fallback data gatherers on canned
+     * contents of <code>/proc</code> files. The classes are accessed via 
+     * reflection as they are internal to their package.
+     * 
+     * @throws IOException in case of I/O problems
+     * 
+     * @since 1.30
+     */
+    private static final void procParserTest() throws IOException {
+        File fixture = File.createTempFile("proc", "");
+        try {
+            String process = FALLBACK_PACKAGE + "LinuxProcessDataGatherer";
+            String[] stats = {
+                "1234 (a) S (b)) R 1 1234 1234 0 -1 4194560 500 0 10 0 250 75 "
+                    + "3 4 20 0 8 0 98765 123456789 2000 "
+                    + "18446744073709551615\n",
+                "42 (Web Content) Z 1 2 3 4 5 6 7 8 9 10 11 12 13 14 15 16 "
+                    + "17 18 19\n",
+                "42 (java) S 1 2 3\n", 
+                "garbage\n"};
+            long[][] expectedStats = {{'R', 250, 75, 98765}, 
+                {'Z', 11, 12, 19}, null, null};
+            for (int s = 0; s < stats.length; s++) {
+                long[] stat = new long[4];
+                boolean ok = (Boolean) invoke(process, null, "parseStat", 
+                    procFile(fixture, stats[s]), stat);
+                if (ok != (null != expectedStats[s]) 
+                    || (ok && !Arrays.equals(expectedStats[s], stat))) {
+                    System.err.println("wrong stat " + Arrays.toString(stat)
+                        + " for " + stats[s]);
+                }
+            }
+            System.out.print(".");
+
+            String[] ios = {
+                "rchar: 1000\nwchar: 2000\nsyscr: 5\nsyscw: 6\n"
+                    + "read_bytes: 4096\nwrite_bytes: 0\n"
+                    + "cancelled_write_bytes: 0\nextra_key: 99\n",
+                "xwchar: 7\nwchar: 20\nxrchar: 3\nrchar: 10\n",
+                "rchar: 10\nsyscr: 1\n"};
+            boolean[] expectedIos = {true, true, false};
+            IoStatistics statistics = new IoStatistics();
+            for (int i = 0; i < ios.length; i++) {
+                boolean ok = (Boolean) invoke(process, null, "parseIo", 
+                    procFile(fixture, ios[i]), statistics);
+                if (ok != expectedIos[i]) {
+                    System.err.println("wrong io result for " + ios[i]);
+                }
+            }
+            if (1010 != statistics.read || 2020 != statistics.write) {
+                System.err.println("wrong io " + statistics.read + " " 
+                    + statistics.write);
+            }
+            if (2048 * 1024L != (Long) invoke(process, null, 
+                "parseMemoryUse", procFile(fixture, 
+                    "Name:\tjava\nVmPeak:\t  9000 kB\nVmRSS:\t    2048 kB\n"))
+                || -1 != (Long) invoke(process, null, "parseMemoryUse", 
+                    procFile(fixture, "Name:\tjava\n"))) {
+                System.err.println("wrong memory use");
+            }
+            System.out.print(".");
+
+            String memory = FALLBACK_PACKAGE + "LinuxMemoryDataGatherer";
+            String[] meminfos = {
+                "MemTotal:       16000 kB\nMemFree:         1000 kB\n"
+                    + "MemAvailable:    8000 kB\nBuffers:          500 kB\n"
+                    + "Cached:          3000 kB\nSwapCached:       100 kB\n",
+                "MemTotal: 16000 kB\nMemFree: 1000 kB\nBuffers: 500 kB\n"
+                    + "SwapCached: 100 kB\nCached: 3000 kB\n",
+                "MemFree: 1000 kB\n"};
+            long[][] expectedMeminfos = {{16000, 8000, 8000}, 
+                {16000, 4500, 11500}, {-1, 1000, -1}};
+            String[] meminfoParsers = {"parseCapacity", "parseAvail", 
+                "parseUse"};
+            for (int m = 0; m < meminfos.length; m++) {
+                Object file = procFile(fixture, meminfos[m]);
+                for (int p = 0; p < meminfoParsers.length; p++) {
+                    long expected = expectedMeminfos[m][p];
+                    if (expected > 0) {
+                        expected *= 1024;
+                    }
+                    if (expected != (Long) invoke(memory, null, 
+                        meminfoParsers[p], file)) {
+                        System.err.println("wrong " + meminfoParsers[p] 
+                            + " for " + meminfos[m]);
+                    }
+                }
+            }
+            System.out.print(".");
+
+            String processor = FALLBACK_PACKAGE + "LinuxProcessorDataGatherer";
+            String[] cpuStats = {
+                "cpu  100 5 50 800 20 0 5 0 0 0\n"
+                    + "cpu0 50 2 25 400 10 0 2 0 0 0\nintr 1\n",
+                "cpu  100 5 50 800\ncpu0 50 2 25 400\n",
+                "cpu0 1 2 3\n"};
+            long[][] expectedCpuStats = {{980, 820}, {955, 800}, null};
+            for (int s = 0; s < cpuStats.length; s++) {
+                long[] times = new long[2];
+                boolean ok = (Boolean) invoke(processor, null, "parseTimes", 
+                    procFile(fixture, cpuStats[s]), times);
+                if (ok != (null != expectedCpuStats[s]) 
+                    || (ok && !Arrays.equals(expectedCpuStats[s], times))) {
+                    System.err.println("wrong times " + Arrays.toString(times)
+                        + " for " + cpuStats[s]);
+                }
+            }
+            if (2394 != (Integer) invoke(processor, null, "parseSpeed", 
+                procFile(fixture, "processor\t: 0\ncpu family\t: 6\n"
+                    + "model name\t: Intel(R) CPU @ 2.40GHz\n"
+                    + "cpu MHz\t\t: 2394.456\n"))
+                || -1 != (Integer) invoke(processor, null, "parseSpeed", 
+                    procFile(fixture, "processor\t: 0\ncpu family\t: 6\n"))) {
+                System.err.println("wrong processor speed");
+            }
+            System.out.print(".");
+        } catch (ReflectiveOperationException e) {
+            System.err.println("cannot access proc file parsers: " + e);
+        } finally {
+            fixture.delete();
+        }
+        System.out.println(" done");
+    }
+
+    /**
+     * Writes <code>contents</code> to <code>fixture</code> and reads it into
+     * a new proc file reader.
+     * 
+     * @param fixture the fixture file
+     * @param contents the (ASCII) contents of the fixture file
+     * @return the updated proc file reader
+     * @throws IOException in case of I/O problems
+     * @throws ReflectiveOperationException in case that the reader cannot 
+     *   be accessed
+     * 
+     * @since 1.30
+     */
+    private static Object procFile(File fixture, String contents) 
+        throws IOException, ReflectiveOperationException {
+        FileOutputStream out = new FileOutputStream(fixture);
+        out.write(contents.getBytes("US-ASCII"));
+        out.close();
+        Constructor<?> cons = Class.forName(FALLBACK_PACKAGE + "ProcFile")
+            .getDeclaredConstructor();
+        cons.setAccessible(true);
+        Object result = cons.newInstance();
+        invoke(FALLBACK_PACKAGE + "ProcFile", result, "update", 
+            fixture.getPath());
+        return result;
+    }
+
+    /**
+     * Invokes a method which is internal to its package.
+     * 
+     * @param cls the name of the declaring class
+     * @param target the object to invoke the method on (<b>null</b> for 
+     *   static methods)
+     * @param name the name of the method (the first declared method with 
+     *   the given name and number of parameters is invoked)
+     * @param args the arguments
+     * @return the result of the method
+     * @throws ReflectiveOperationException in case that the method cannot
+     *   be accessed
+     * 
+     * @since 1.30
+     */
+    private static Object invoke(String cls, Object target, String name, 
+        Object... args) throws ReflectiveOperationException {
+        Method[] methods = Class.forName(cls).getDeclaredMethods();
+        Method method = null;
+        for (int m = 0; null == method && m < methods.length; m++) {
+            if (name.equals(methods[m].getName()) 
+                && args.length == methods[m].getParameterTypes().length) {
+                method = methods[m];
+            }
+        }
+        if (null == method) {
+            throw new NoSuchMethodException(cls + "." + name);
+        }
+        method.setAccessible(true);
+        return method.invoke(target, args);
+    }
+
+    /**
+     * Tests writing and reading via {@link BatchOutputStream} and 
+     * {@link BatchInputStream} across multiple batches.
+     * 
+     * @param compress whether batches shall be compressed
+     * @throws IOException in case of I/O problems
+     * 
+     * @since 1.30
+     */
+    private static final void batchStreamTest(boolean compress) 
+        throws IOException {
+        final int batches = 20;
+        final int perBatch = 1000;
+        String[] texts = {"a", null, "de.test.Main", "b", "de.test.Main"};
+        long[] values = new long[batches * perBatch];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = rnd.nextLong() >> rnd.nextInt(64);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BatchOutputStream out = new BatchOutputStream(
+            new DataOutputStream(bytes), compress);
+        long time = System.nanoTime();
+        for (int b = 0; b < batches; b++) {
+            for (int i = 0; i < perBatch; i++) {
+                int v = b * perBatch + i;
+                out.writeDictString(texts[v % texts.length]);
+                out.writeSignedVarLong(values[v]);
+                out.writeVarLong(Math.abs(values[v]) >>> 1);
+                out.writeTime(time + v * 100);
+                out.writeInt(v);
+            }
+            out.flushBatch();
+            System.out.print(".");
+        }
+        BatchInputStream in = new BatchInputStream(new DataInputStream(
+            new ByteArrayInputStream(bytes.toByteArray())));
+        int v = 0;
+        while (in.nextBatch()) {
+            while (in.hasMore()) {
+                String text = in.readDictString();
+                String expected = texts[v % texts.length];
+                if (null == expected ? null != text : !expected.equals(text)) {
+                    System.err.println("wrong text at " + v);
+                }
+                if (in.readSignedVarLong() != values[v] 
+                    || in.readVarLong() != Math.abs(values[v]) >>> 1) {
+                    System.err.println("wrong value at " + v);
+                }
+                if (in.readTime() != time + v * 100 || in.readInt() != v) {
+                    System.err.println("wrong time at " + v);
+                }
+                v++;
+            }
+        }
+        if (v != values.length) {
+            System.err.println("wrong number of values " + v);
+        }
+        System.out.println(" done");
+    }
+
     /**
      * Simple tests for the {@link LongHashMap}.
      * 
@@ -460,4 +1536,98 @@ public class UtilTests {
         System.out.println(" done");
     }
 
+    /**
+     * Tests writing a {@link TimeSeriesStore} across multiple blocks and
+     * runs (appending) with groups appearing over time and reading it via
+     * the {@link TimeSeriesReader} including down sampling.
+     * 
+     * @throws IOException in case of I/O problems
+     * 
+     * @since 1.30
+     */
+    private static final void timeSeriesTest() throws IOException {
+        final int snapshots = 1000;
+        final int groups = 50;
+        final TimeSeriesStore.Metric cpu = TimeSeriesStore.Metric.CPU_TIME;
+        final TimeSeriesStore.Metric load = TimeSeriesStore.Metric.LOAD;
+        File file = File.createTempFile("timeSeries", ".ts");
+        file.delete();
+        long[] times = new long[snapshots];
+        long[][] values = new long[groups][snapshots];
+        double[] loads = new double[snapshots];
+        long time = System.currentTimeMillis();
+        TimeSeriesStore store = null;
+        for (int s = 0; s < snapshots; s++) {
+            if (0 == s % 300) {
+                if (null != store) {
+                    store.close(); // append in next run
+                }
+                store = new TimeSeriesStore(file);
+                System.out.print(".");
+            }
+            time += 990 + rnd.nextInt(20) + (0 == s % 97 ? 100000 : 0);
+            times[s] = time;
+            loads[s] = rnd.nextDouble();
+            store.beginSnapshot(time);
+            // groups appear over time
+            for (int g = 0; g < Math.min(groups, 10 + s / 10); g++) {
+                long prev = 0 == s ? 0 : values[g][s - 1];
+                values[g][s] = prev + (rnd.nextBoolean() ? 0 
+                    : rnd.nextInt(1 << rnd.nextInt(30)));
+                store.set("g" + g, cpu, values[g][s]);
+            }
+            store.set(TimeSeriesStore.SYSTEM_GROUP, load, loads[s]);
+            store.endSnapshot();
+        }
+        store.close();
+        TimeSeriesReader reader = new TimeSeriesReader(file);
+        if (reader.getSnapshotCount() != snapshots 
+            || reader.getGroups().size() != groups + 1) {
+            System.err.println("wrong number of snapshots or groups");
+        }
+        for (int g = 0; g < groups; g++) {
+            int first = Math.max(0, (g - 10 + 1) * 10);
+            TimeSeriesReader.Series series = reader.query("g" + g, cpu, 
+                Long.MIN_VALUE, Long.MAX_VALUE);
+            if (series.size() != snapshots - first) {
+                System.err.println("wrong size of group " + g);
+            } else {
+                for (int i = 0; i < series.size(); i++) {
+                    if (series.getTime(i) != times[first + i] 
+                        || series.getValue(i) != values[g][first + i]) {
+                        System.err.println("wrong value of group " + g 
+                            + " at " + i);
+                    }
+                }
+            }
+        }
+        TimeSeriesReader.Series series = reader.query(
+            TimeSeriesStore.SYSTEM_GROUP, load, times[100], times[199]);
+        for (int i = 0; i < series.size(); i++) {
+            if (series.getValue(i) != loads[100 + i]) {
+                System.err.println("wrong load at " + i);
+            }
+        }
+        if (series.size() != 100) {
+            System.err.println("wrong size of range");
+        }
+        long step = 60000;
+        series = reader.query("g0", cpu, times[0], times[snapshots - 1], 
+            step, TimeSeriesReader.Downsampling.LAST);
+        int s = 0;
+        for (int i = 0; i < series.size(); i++) {
+            while (s + 1 < snapshots 
+                && (times[s + 1] - times[0]) / step 
+                    == (series.getTime(i) - times[0]) / step) {
+                s++;
+            }
+            if (series.getValue(i) != values[0][s]) {
+                System.err.println("wrong down sampled value at " + i);
+            }
+            s++;
+        }
+        file.delete();
+        System.out.println(" done");
+    }
+
 }
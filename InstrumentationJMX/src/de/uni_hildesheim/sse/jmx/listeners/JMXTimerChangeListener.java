@@ -3,16 +3,20 @@ package de.uni_hildesheim.sse.jmx.listeners;
 import de.uni_hildesheim.sse.jmx.services.JMXServiceRegistry;
 import de.uni_hildesheim.sse.jmx.services.JMXTimer;
 import de.uni_hildesheim.sse.monitoring.runtime.plugins.TimerChangeListener;
+import de.uni_hildesheim.sse.monitoring.runtime.plugins.
+    TimerDistributionListener;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LatencyHistogram;
 
 /**
  * Timer change listener.
  * 
  * @author Stephan Dederichs
  * 
- * @version 1.00
+ * @version 1.30
  * @since 1.00
  */
-public class JMXTimerChangeListener implements TimerChangeListener {
+public class JMXTimerChangeListener implements TimerChangeListener,
+    TimerDistributionListener {
     
     @Override
     public void timerFinished(String recId, long value) {
@@ -25,4 +29,13 @@ public class JMXTimerChangeListener implements TimerChangeListener {
         }
     }
 
+    @Override
+    public void timerDistributionChanged(String recId, 
+        LatencyHistogram histogram) {
+        JMXTimer timerService = (JMXTimer) JMXServiceRegistry.getService(recId);
+        if (null != timerService) {
+            timerService.setHistogram(histogram);
+        }
+    }
+
 }
@@ -22,7 +22,7 @@ import de.uni_hildesheim.sse.serviceConstants.MonitoringGroupConstants;
  * 
  * @author Stephan Dederichs
  * 
- * @version 1.00
+ * @version 1.30
  * @since 1.00
  */
 public class JMXMonitoringGroup extends AbstractJMXServiceData implements 
@@ -109,6 +109,18 @@ public class JMXMonitoringGroup extends AbstractJMXServiceData implements
         return monitoringGroup.getSystemTimeTicks();
     }
 
+    @Override
+    @Variability(id = AnnotationConstants.MONITOR_TIME_SYSTEM)
+    public long getSystemTimePercentile(double percentile) {
+        return monitoringGroup.getSystemTimePercentile(percentile);
+    }
+
+    @Override
+    @Variability(id = AnnotationConstants.MONITOR_TIME_CPU)
+    public long getCpuTimePercentile(double percentile) {
+        return monitoringGroup.getCpuTimePercentile(percentile);
+    }
+
     @Override
     public boolean wasRecorded() {
         return monitoringGroup.wasRecorded();
@@ -183,6 +195,28 @@ public class JMXMonitoringGroup extends AbstractJMXServiceData implements
             "Returns the entire number of system time ticks recorded for "
                 + "this instance.",
             READABLE, WRITEABLE, ISIS));
+        // SystemTimeP50
+        mBeanAttrInfoList.add(new MBeanAttributeInfo(MonitoringGroupConstants.
+            SYSTEM_TIME_P50, "long",
+            "Returns the median system time per invocation in nano seconds.",
+            READABLE, WRITEABLE, ISIS));
+        // SystemTimeP99
+        mBeanAttrInfoList.add(new MBeanAttributeInfo(MonitoringGroupConstants.
+            SYSTEM_TIME_P99, "long",
+            "Returns the 99th percentile of the system time per invocation "
+                + "in nano seconds.",
+            READABLE, WRITEABLE, ISIS));
+        // CpuTimeP50
+        mBeanAttrInfoList.add(new MBeanAttributeInfo(MonitoringGroupConstants.
+            CPU_TIME_P50, "long",
+            "Returns the median CPU time per invocation in nano seconds.",
+            READABLE, WRITEABLE, ISIS));
+        // CpuTimeP99
+        mBeanAttrInfoList.add(new MBeanAttributeInfo(MonitoringGroupConstants.
+            CPU_TIME_P99, "long",
+            "Returns the 99th percentile of the CPU time per invocation "
+                + "in nano seconds.",
+            READABLE, WRITEABLE, ISIS));
         // wasRecorded
         mBeanAttrInfoList.add(new MBeanAttributeInfo(MonitoringGroupConstants.
             WAS_RECORDED, "java.lang.Boolean",
@@ -245,6 +279,18 @@ public class JMXMonitoringGroup extends AbstractJMXServiceData implements
         } else if (attributeName.equals(MonitoringGroupConstants.
                 SYSTEM_TIME_TICKS)) {
             return getSystemTimeTicks();
+        } else if (attributeName.equals(MonitoringGroupConstants.
+                SYSTEM_TIME_P50)) {
+            return getSystemTimePercentile(50);
+        } else if (attributeName.equals(MonitoringGroupConstants.
+                SYSTEM_TIME_P99)) {
+            return getSystemTimePercentile(99);
+        } else if (attributeName.equals(MonitoringGroupConstants.
+                CPU_TIME_P50)) {
+            return getCpuTimePercentile(50);
+        } else if (attributeName.equals(MonitoringGroupConstants.
+                CPU_TIME_P99)) {
+            return getCpuTimePercentile(99);
         } else if (attributeName.equals(MonitoringGroupConstants.
                 WAS_RECORDED)) {
             return wasRecorded();
@@ -11,6 +11,7 @@ import javax.management.MBeanOperationInfo;
 import javax.management.ReflectionException;
 
 import de.uni_hildesheim.sse.jmx.services.dynamic.AbstractJMXServiceData;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LatencyHistogram;
 import de.uni_hildesheim.sse.serviceConstants.TimerConstants;
 
 /**
@@ -18,7 +19,7 @@ import de.uni_hildesheim.sse.serviceConstants.TimerConstants;
  * 
  * @author Stephan Dederichs
  * 
- * @version 1.00
+ * @version 1.30
  * @since 1.00
  */
 public class JMXTimer extends AbstractJMXServiceData {
@@ -36,6 +37,13 @@ public class JMXTimer extends AbstractJMXServiceData {
      * @since 1.00
      */
     private long value;
+
+    /**
+     * Stores the distribution of the timer values (may be <b>null</b>).
+     * 
+     * @since 1.30
+     */
+    private LatencyHistogram histogram;
     
     /**
      * Creates an instance of {@link JMXTimer}.
@@ -82,6 +90,41 @@ public class JMXTimer extends AbstractJMXServiceData {
     public void setValue(long value) {
         this.value = value;
     }
+
+    /**
+     * Sets the distribution of the timer values.
+     * 
+     * @param histogram The histogram of the timer values in nano seconds.
+     * 
+     * @since 1.30
+     */
+    public void setHistogram(LatencyHistogram histogram) {
+        this.histogram = histogram;
+    }
+
+    /**
+     * Returns the number of finished timer periods.
+     * 
+     * @return The number of finished timer periods.
+     * 
+     * @since 1.30
+     */
+    public long getCount() {
+        return null == histogram ? 0 : histogram.getCount();
+    }
+
+    /**
+     * Returns the timer value at the given percentile.
+     * 
+     * @param percentile The percentile in the range [0;100].
+     * @return The timer value in nano seconds.
+     * 
+     * @since 1.30
+     */
+    public long getPercentile(double percentile) {
+        return null == histogram 
+            ? 0 : histogram.getValueAtPercentile(percentile);
+    }
     
     // ------------------Dynamic MBean Methods------------------
     
@@ -104,6 +147,26 @@ public class JMXTimer extends AbstractJMXServiceData {
             TimerConstants.VALUE, "long",
             "Returns the value of the timer.",
             READABLE, WRITEABLE, ISIS));
+        // count
+        mBeanAttrInfoList.add(new MBeanAttributeInfo(
+            TimerConstants.COUNT, "long",
+            "Returns the number of finished timer periods.",
+            READABLE, WRITEABLE, ISIS));
+        // p50
+        mBeanAttrInfoList.add(new MBeanAttributeInfo(
+            TimerConstants.P50, "long",
+            "Returns the median timer value in nano seconds.",
+            READABLE, WRITEABLE, ISIS));
+        // p90
+        mBeanAttrInfoList.add(new MBeanAttributeInfo(
+            TimerConstants.P90, "long",
+            "Returns the 90th percentile of the timer values in nano seconds.",
+            READABLE, WRITEABLE, ISIS));
+        // p99
+        mBeanAttrInfoList.add(new MBeanAttributeInfo(
+            TimerConstants.P99, "long",
+            "Returns the 99th percentile of the timer values in nano seconds.",
+            READABLE, WRITEABLE, ISIS));
 
         return mBeanAttrInfoList;
     }
@@ -131,6 +194,14 @@ public class JMXTimer extends AbstractJMXServiceData {
         
         if (attributeName.equals(TimerConstants.VALUE)) {
             return value;
+        } else if (attributeName.equals(TimerConstants.COUNT)) {
+            return getCount();
+        } else if (attributeName.equals(TimerConstants.P50)) {
+            return getPercentile(50);
+        } else if (attributeName.equals(TimerConstants.P90)) {
+            return getPercentile(90);
+        } else if (attributeName.equals(TimerConstants.P99)) {
+            return getPercentile(99);
         } else {
             throw new AttributeNotFoundException("Invalid attribute: "
                     + attributeName);
@@ -5,7 +5,7 @@ package de.uni_hildesheim.sse.serviceConstants;
  * 
  * @author Stephan Dederichs
  * 
- * @version 1.00
+ * @version 1.30
  * @since 1.00
  */
 public class MonitoringGroupConstants {
@@ -79,6 +79,35 @@ public class MonitoringGroupConstants {
      * @since 1.00
      */
     public static final String SYSTEM_TIME_TICKS = "SystemTimeTicks";
+
+    /**
+     * SystemTimeP50 attribute (median system time per invocation).
+     * 
+     * @since 1.30
+     */
+    public static final String SYSTEM_TIME_P50 = "SystemTimeP50";
+
+    /**
+     * SystemTimeP99 attribute (99th percentile of the system time per 
+     * invocation).
+     * 
+     * @since 1.30
+     */
+    public static final String SYSTEM_TIME_P99 = "SystemTimeP99";
+
+    /**
+     * CpuTimeP50 attribute (median CPU time per invocation).
+     * 
+     * @since 1.30
+     */
+    public static final String CPU_TIME_P50 = "CpuTimeP50";
+
+    /**
+     * CpuTimeP99 attribute (99th percentile of the CPU time per invocation).
+     * 
+     * @since 1.30
+     */
+    public static final String CPU_TIME_P99 = "CpuTimeP99";
     
     /**
      * wasRecorded attribute.
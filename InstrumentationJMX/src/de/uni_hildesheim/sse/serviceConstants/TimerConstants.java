@@ -5,7 +5,7 @@ package de.uni_hildesheim.sse.serviceConstants;
  * 
  * @author Stephan Dederichs
  * 
- * @version 1.00
+ * @version 1.30
  * @since 1.00
  */
 public class TimerConstants {
@@ -16,6 +16,34 @@ public class TimerConstants {
      * @since 1.00
      */
     public static final String VALUE = "value";
+
+    /**
+     * count attribute (number of finished timer periods).
+     * 
+     * @since 1.30
+     */
+    public static final String COUNT = "count";
+
+    /**
+     * p50 attribute (median timer value in nano seconds).
+     * 
+     * @since 1.30
+     */
+    public static final String P50 = "p50";
+
+    /**
+     * p90 attribute (90th percentile of the timer values in nano seconds).
+     * 
+     * @since 1.30
+     */
+    public static final String P90 = "p90";
+
+    /**
+     * p99 attribute (99th percentile of the timer values in nano seconds).
+     * 
+     * @since 1.30
+     */
+    public static final String P99 = "p99";
     
     /**
      * Prevents this class from being created from outside.
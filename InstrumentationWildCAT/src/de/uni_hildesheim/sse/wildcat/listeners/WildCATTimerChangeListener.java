@@ -1,6 +1,9 @@
 package de.uni_hildesheim.sse.wildcat.listeners;
 
 import de.uni_hildesheim.sse.monitoring.runtime.plugins.TimerChangeListener;
+import de.uni_hildesheim.sse.monitoring.runtime.plugins.
+    TimerDistributionListener;
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LatencyHistogram;
 import de.uni_hildesheim.sse.wildcat.services.WServiceRegistry;
 import de.uni_hildesheim.sse.wildcat.services.WTimer;
 
@@ -9,10 +12,11 @@ import de.uni_hildesheim.sse.wildcat.services.WTimer;
  * 
  * @author Stephan Dederichs
  * 
- * @version 1.00
+ * @version 1.30
  * @since 1.00
  */
-public class WildCATTimerChangeListener implements TimerChangeListener {
+public class WildCATTimerChangeListener implements TimerChangeListener,
+    TimerDistributionListener {
 
     @Override
     public void timerFinished(String recId, long value) {
@@ -25,4 +29,13 @@ public class WildCATTimerChangeListener implements TimerChangeListener {
         }
     }
 
+    @Override
+    public void timerDistributionChanged(String recId, 
+        LatencyHistogram histogram) {
+        WTimer timerService = (WTimer) WServiceRegistry.getService(recId);
+        if (null != timerService) {
+            timerService.setHistogram(histogram);
+        }
+    }
+
 }
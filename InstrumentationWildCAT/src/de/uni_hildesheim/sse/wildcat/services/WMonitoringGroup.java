@@ -13,7 +13,7 @@ import de.uni_hildesheim.sse.serviceConstants.MonitoringGroupConstants;
  * 
  * @author Stephan Dederichs
  * 
- * @version 1.00
+ * @version 1.30
  * @since 1.00
  */
 public class WMonitoringGroup extends AbstractWServiceData 
@@ -120,6 +120,50 @@ public class WMonitoringGroup extends AbstractWServiceData
         return result;
     }
 
+    @Override
+    @Variability(id = AnnotationConstants.MONITOR_TIME_SYSTEM)
+    public long getSystemTimePercentile(double percentile) {
+        return monitoringGroup.getSystemTimePercentile(percentile);
+    }
+
+    @Override
+    @Variability(id = AnnotationConstants.MONITOR_TIME_CPU)
+    public long getCpuTimePercentile(double percentile) {
+        return monitoringGroup.getCpuTimePercentile(percentile);
+    }
+
+    /**
+     * Returns the system time per invocation at the given percentile and 
+     * updates the related sensor.
+     * 
+     * @param percentile the percentile in the range [0;100]
+     * @param attribute the name of the sensor attribute
+     * @return the system time in nano seconds
+     * 
+     * @since 1.30
+     */
+    private long getSystemTimePercentile(double percentile, String attribute) {
+        long result = getSystemTimePercentile(percentile);
+        setSensorValue(attribute, result);
+        return result;
+    }
+
+    /**
+     * Returns the CPU time per invocation at the given percentile and 
+     * updates the related sensor.
+     * 
+     * @param percentile the percentile in the range [0;100]
+     * @param attribute the name of the sensor attribute
+     * @return the CPU time in nano seconds
+     * 
+     * @since 1.30
+     */
+    private long getCpuTimePercentile(double percentile, String attribute) {
+        long result = getCpuTimePercentile(percentile);
+        setSensorValue(attribute, result);
+        return result;
+    }
+
     @Override
     public boolean wasRecorded() {
         boolean result = monitoringGroup.wasRecorded();
@@ -141,6 +185,10 @@ public class WMonitoringGroup extends AbstractWServiceData
         getNetIn();
         getNetOut();
         getSystemTimeTicks();
+        getSystemTimePercentile(50, MonitoringGroupConstants.SYSTEM_TIME_P50);
+        getSystemTimePercentile(99, MonitoringGroupConstants.SYSTEM_TIME_P99);
+        getCpuTimePercentile(50, MonitoringGroupConstants.CPU_TIME_P50);
+        getCpuTimePercentile(99, MonitoringGroupConstants.CPU_TIME_P99);
         wasRecorded();
     }
 
@@ -177,6 +225,18 @@ public class WMonitoringGroup extends AbstractWServiceData
         } else if (attributeName.equals(MonitoringGroupConstants.
                 SYSTEM_TIME_TICKS)) {
             return getSystemTimeTicks();
+        } else if (attributeName.equals(MonitoringGroupConstants.
+                SYSTEM_TIME_P50)) {
+            return getSystemTimePercentile(50, attributeName);
+        } else if (attributeName.equals(MonitoringGroupConstants.
+                SYSTEM_TIME_P99)) {
+            return getSystemTimePercentile(99, attributeName);
+        } else if (attributeName.equals(MonitoringGroupConstants.
+                CPU_TIME_P50)) {
+            return getCpuTimePercentile(50, attributeName);
+        } else if (attributeName.equals(MonitoringGroupConstants.
+                CPU_TIME_P99)) {
+            return getCpuTimePercentile(99, attributeName);
         } else if (attributeName.equals(MonitoringGroupConstants.
                 WAS_RECORDED)) {
             return wasRecorded();
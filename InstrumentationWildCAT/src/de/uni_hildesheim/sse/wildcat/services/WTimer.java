@@ -2,6 +2,7 @@ package de.uni_hildesheim.sse.wildcat.services;
 
 import javax.management.AttributeNotFoundException;
 
+import de.uni_hildesheim.sse.monitoring.runtime.utils.LatencyHistogram;
 import de.uni_hildesheim.sse.serviceConstants.TimerConstants;
 
 /**
@@ -9,7 +10,7 @@ import de.uni_hildesheim.sse.serviceConstants.TimerConstants;
  * 
  * @author Stephan Dederichs
  * 
- * @version 1.00
+ * @version 1.30
  * @since 1.00
  */
 public class WTimer extends AbstractWServiceData {
@@ -28,6 +29,13 @@ public class WTimer extends AbstractWServiceData {
      */
     private long value;
 
+    /**
+     * Stores the distribution of the timer values (may be <b>null</b>).
+     * 
+     * @since 1.30
+     */
+    private LatencyHistogram histogram;
+
     /**
      * Creates an instance of {@link WTimer}.
      * 
@@ -77,6 +85,46 @@ public class WTimer extends AbstractWServiceData {
         setSensorValue(TimerConstants.VALUE, value);
         this.value = value;
     }
+
+    /**
+     * Sets the distribution of the timer values.
+     * 
+     * @param histogram The histogram of the timer values in nano seconds.
+     * 
+     * @since 1.30
+     */
+    public void setHistogram(LatencyHistogram histogram) {
+        this.histogram = histogram;
+    }
+
+    /**
+     * Returns the number of finished timer periods.
+     * 
+     * @return The number of finished timer periods.
+     * 
+     * @since 1.30
+     */
+    public long getCount() {
+        long result = null == histogram ? 0 : histogram.getCount();
+        setSensorValue(TimerConstants.COUNT, result);
+        return result;
+    }
+
+    /**
+     * Returns the timer value at the given percentile.
+     * 
+     * @param percentile The percentile in the range [0;100].
+     * @param attribute The name of the sensor attribute.
+     * @return The timer value in nano seconds.
+     * 
+     * @since 1.30
+     */
+    private long getPercentile(double percentile, String attribute) {
+        long result = null == histogram 
+            ? 0 : histogram.getValueAtPercentile(percentile);
+        setSensorValue(attribute, result);
+        return result;
+    }
     
     // ------------------------------------------------------------------------
     
@@ -84,6 +132,10 @@ public class WTimer extends AbstractWServiceData {
     public void burstValueUpdate() {
         getRecId();
         getValue();
+        getCount();
+        getPercentile(50, TimerConstants.P50);
+        getPercentile(90, TimerConstants.P90);
+        getPercentile(99, TimerConstants.P99);
     }
     
     @Override
@@ -92,6 +144,14 @@ public class WTimer extends AbstractWServiceData {
         // Check for individual attributes
         if (attributeName.equals(TimerConstants.VALUE)) {
             return getValue();
+        } else if (attributeName.equals(TimerConstants.COUNT)) {
+            return getCount();
+        } else if (attributeName.equals(TimerConstants.P50)) {
+            return getPercentile(50, attributeName);
+        } else if (attributeName.equals(TimerConstants.P90)) {
+            return getPercentile(90, attributeName);
+        } else if (attributeName.equals(TimerConstants.P99)) {
+            return getPercentile(99, attributeName);
         } else {
             throw new AttributeNotFoundException("Invalid attribute: "
                 + attributeName);
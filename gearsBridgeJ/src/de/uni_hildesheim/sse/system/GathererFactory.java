@@ -5,6 +5,7 @@ import java.io.IOException;
 import de.uni_hildesheim.sse.codeEraser.annotations.Operation;
 import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
 import de.uni_hildesheim.sse.system.fallback.FallbackGathererFactory;
+import de.uni_hildesheim.sse.system.fallback.LinuxGathererFactory;
 
 /**
  * Defines a factory for obtaining gatherer instances. Each gatherer
@@ -16,7 +17,7 @@ import de.uni_hildesheim.sse.system.fallback.FallbackGathererFactory;
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.20
+ * @version 1.30
  */
 public abstract class GathererFactory {
 
@@ -39,6 +40,13 @@ public abstract class GathererFactory {
      */
     public static final String PROPERTY_OWNINSTANCE = "locutor.ownInstance";
     
+    /**
+     * Configures the sampling of the pure Java unallocation recording, i.e.
+     * only every n-th object is tracked (positive integer, default 1).
+     */
+    public static final String PROPERTY_UNALLOCATION_SAMPLING 
+        = "locutor.unallocationSampling";
+    
     /**
      * Stores the factories to be considered for initialization. Processed
      * in given sequence as long as there are no further factories and
@@ -396,7 +404,11 @@ public abstract class GathererFactory {
                 err = "No gatherer factory found.";
             }
             if (null != err) {
-                instance = new FallbackGathererFactory();
+                if (LinuxGathererFactory.isSupported()) {
+                    instance = new LinuxGathererFactory();
+                } else {
+                    instance = new FallbackGathererFactory();
+                }
             }
         }
         if (considerContext && null != instance) {
@@ -0,0 +1,84 @@
+package de.uni_hildesheim.sse.system.fallback;
+
+import java.io.File;
+
+import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
+import de.uni_hildesheim.sse.system.AnnotationConstants;
+import de.uni_hildesheim.sse.system.IMemoryDataGatherer;
+import de.uni_hildesheim.sse.system.IProcessDataGatherer;
+import de.uni_hildesheim.sse.system.IProcessorDataGatherer;
+import de.uni_hildesheim.sse.system.IThisProcessDataGatherer;
+
+/**
+ * Implements a pure Java gatherer factory for Linux, which reads process,
+ * processor and memory information from the <code>/proc</code> file system.
+ * This factory is used instead of {@link FallbackGathererFactory} in case
+ * that the native library cannot be loaded on Linux. The remaining gatherers
+ * are taken from the fallback implementation.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+public class LinuxGathererFactory extends FallbackGathererFactory {
+
+    /**
+     * Returns whether this factory is supported on the current system, i.e.
+     * whether the <code>/proc</code> file system is accessible.
+     *
+     * @return <code>true</code> if supported, <code>false</code> else
+     *
+     * @since 1.30
+     */
+    public static boolean isSupported() {
+        boolean supported;
+        try {
+            supported = System.getProperty("os.name", "").startsWith("Linux")
+                && new File("/proc/self/stat").canRead();
+        } catch (SecurityException e) {
+            supported = false;
+        }
+        return supported;
+    }
+
+    /**
+     * Creates the "this process" data gatherer.
+     *
+     * @return the gatherer instance
+     */
+    @Variability(id = AnnotationConstants.VAR_CURRENT_PROCESS_DATA)
+    protected IThisProcessDataGatherer createThisProcessDataGatherer() {
+        return new LinuxThisProcessDataGatherer();
+    }
+
+    /**
+     * Creates the process data gatherer.
+     *
+     * @return the gatherer instance
+     */
+    @Variability(id = AnnotationConstants.VAR_ARBITRARY_PROCESS_DATA)
+    protected IProcessDataGatherer createProcessDataGatherer() {
+        return new LinuxProcessDataGatherer();
+    }
+
+    /**
+     * Creates the processor data gatherer.
+     *
+     * @return the gatherer instance
+     */
+    @Variability(id = AnnotationConstants.VAR_PROCESSOR_DATA)
+    protected IProcessorDataGatherer createProcessorDataGatherer() {
+        return new LinuxProcessorDataGatherer();
+    }
+
+    /**
+     * Creates the memory data gatherer.
+     *
+     * @return the gatherer instance
+     */
+    @Variability(id = AnnotationConstants.VAR_MEMORY_DATA)
+    protected IMemoryDataGatherer createMemoryDataGatherer() {
+        return new LinuxMemoryDataGatherer();
+    }
+
+}
@@ -0,0 +1,137 @@
+package de.uni_hildesheim.sse.system.fallback;
+
+import de.uni_hildesheim.sse.codeEraser.annotations.Operation;
+import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
+import de.uni_hildesheim.sse.system.AnnotationConstants;
+
+/**
+ * Requests memory information from the Linux <code>/proc/meminfo</code>
+ * file, which is kept open and re-read on demand. The available memory is
+ * taken from <code>MemAvailable</code> or, on kernels not providing this
+ * value, approximated by free, buffer and cache memory.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+@Variability(id = {AnnotationConstants.VAR_MEMORY_DATA,
+        AnnotationConstants.VAR_OBJECT_SIZE }, op = Operation.AND)
+class LinuxMemoryDataGatherer extends MemoryDataGatherer {
+
+    /**
+     * Defines the key of the total memory.
+     */
+    private static final byte[] MEM_TOTAL = ProcFile.toBytes("MemTotal:");
+
+    /**
+     * Defines the key of the available memory.
+     */
+    private static final byte[] MEM_AVAILABLE
+        = ProcFile.toBytes("MemAvailable:");
+
+    /**
+     * Defines the key of the free memory.
+     */
+    private static final byte[] MEM_FREE = ProcFile.toBytes("MemFree:");
+
+    /**
+     * Defines the key of the buffer memory.
+     */
+    private static final byte[] BUFFERS = ProcFile.toBytes("Buffers:");
+
+    /**
+     * Defines the key of the cache memory.
+     */
+    private static final byte[] CACHED = ProcFile.toBytes("Cached:");
+
+    /**
+     * Stores the meminfo file.
+     */
+    private final ProcFile file = new ProcFile("/proc/meminfo");
+
+    /**
+     * Returns the value of the given key from a meminfo file.
+     *
+     * @param file the (updated) meminfo file
+     * @param key the key
+     * @return the value in bytes, negative if not available
+     *
+     * @since 1.30
+     */
+    private static long get(ProcFile file, byte[] key) {
+        long result = -1;
+        if (file.seek(key)) {
+            result = file.nextLong() * 1024; // kB
+        }
+        return result;
+    }
+
+    /**
+     * Parses the memory capacity from a meminfo file
+     * (<code>/proc/meminfo</code>).
+     *
+     * @param file the (updated) meminfo file
+     * @return the memory capacity in bytes, negative if not available
+     *
+     * @since 1.30
+     */
+    static long parseCapacity(ProcFile file) {
+        return get(file, MEM_TOTAL);
+    }
+
+    /**
+     * Parses the available memory from a meminfo file
+     * (<code>/proc/meminfo</code>).
+     *
+     * @param file the (updated) meminfo file
+     * @return the available memory in bytes, negative if not available
+     *
+     * @since 1.30
+     */
+    static long parseAvail(ProcFile file) {
+        long result = get(file, MEM_AVAILABLE);
+        if (result < 0) {
+            result = get(file, MEM_FREE);
+            if (result >= 0) {
+                result += Math.max(0, get(file, BUFFERS)) 
+                    + Math.max(0, get(file, CACHED));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parses the used memory from a meminfo file
+     * (<code>/proc/meminfo</code>).
+     *
+     * @param file the (updated) meminfo file
+     * @return the used memory in bytes, negative if not available
+     *
+     * @since 1.30
+     */
+    static long parseUse(ProcFile file) {
+        long result = -1;
+        long total = parseCapacity(file);
+        long avail = parseAvail(file);
+        if (total >= 0 && avail >= 0) {
+            result = total - avail;
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized long getMemoryCapacity() {
+        return file.update() ? parseCapacity(file) : -1;
+    }
+
+    @Override
+    public synchronized long getCurrentMemoryAvail() {
+        return file.update() ? parseAvail(file) : -1;
+    }
+
+    @Override
+    public synchronized long getCurrentMemoryUse() {
+        return file.update() ? parseUse(file) : -1;
+    }
+
+}
@@ -0,0 +1,348 @@
+package de.uni_hildesheim.sse.system.fallback;
+
+import java.io.File;
+import java.util.HashMap;
+
+import de.uni_hildesheim.sse.codeEraser.annotations.Operation;
+import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
+import de.uni_hildesheim.sse.system.AnnotationConstants;
+import de.uni_hildesheim.sse.system.IoStatistics;
+
+/**
+ * Requests process information from the Linux <code>/proc</code> file
+ * system. Time ticks are taken from <code>/proc/[pid]/stat</code>, the
+ * memory use (resident set size) from <code>/proc/[pid]/status</code> and
+ * the I/O statistics (including network and pipes) from
+ * <code>/proc/[pid]/io</code>. The system time denotes the sum of user and
+ * kernel time. The load is calculated from the time ticks between two
+ * queries, the first query for a process considers its entire lifetime.
+ * This class also provides the parsing functions shared with
+ * {@link LinuxThisProcessDataGatherer}.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+@Variability(id = AnnotationConstants.VAR_ARBITRARY_PROCESS_DATA)
+class LinuxProcessDataGatherer extends ProcessDataGatherer {
+
+    /**
+     * Defines the clock ticks per second used by the kernel interface
+     * (<code>USER_HZ</code>). This value cannot be queried from Java, but it
+     * is fixed to 100 on the relevant architectures.
+     */
+    static final int USER_HZ = 100;
+
+    /**
+     * Defines the nanoseconds per clock tick.
+     */
+    static final long TICK_NANOS = 1000000000L / USER_HZ;
+
+    /**
+     * Defines the index of the process state in the stat array.
+     */
+    static final int STATE = 0;
+
+    /**
+     * Defines the index of the user time (ticks) in the stat array.
+     */
+    static final int UTIME = 1;
+
+    /**
+     * Defines the index of the kernel time (ticks) in the stat array.
+     */
+    static final int STIME = 2;
+
+    /**
+     * Defines the index of the start time (ticks after boot) in the stat
+     * array.
+     */
+    static final int START_TIME = 3;
+
+    /**
+     * Defines the length of the stat array.
+     */
+    static final int STAT_LENGTH = 4;
+
+    /**
+     * Defines the maximum number of load samples kept for arbitrary
+     * processes.
+     */
+    private static final int MAX_SAMPLES = 128;
+
+    /**
+     * Defines the key of the resident set size in <code>status</code>.
+     */
+    private static final byte[] VM_RSS = ProcFile.toBytes("VmRSS:");
+
+    /**
+     * Defines the key of the bytes read in <code>io</code>.
+     */
+    private static final byte[] RCHAR = ProcFile.toBytes("rchar:");
+
+    /**
+     * Defines the key of the bytes written in <code>io</code>.
+     */
+    private static final byte[] WCHAR = ProcFile.toBytes("wchar:");
+
+    /**
+     * Stores the reader (shared by all queries).
+     */
+    private final ProcFile file = new ProcFile();
+
+    /**
+     * Stores the values parsed from the last stat file.
+     */
+    private final long[] stat = new long[STAT_LENGTH];
+
+    /**
+     * Stores the load samples per process id.
+     */
+    private final HashMap<Integer, long[]> samples
+        = new HashMap<Integer, long[]>();
+
+    /**
+     * Returns the path of a file in the directory of a process.
+     *
+     * @param pid the process id
+     * @param name the name of the file
+     * @return the path
+     *
+     * @since 1.30
+     */
+    private static String path(int pid, String name) {
+        return "/proc/" + pid + "/" + name;
+    }
+
+    /**
+     * Reads the stat file of <code>pid</code> into {@link #stat}.
+     *
+     * @param pid the process id
+     * @return <code>true</code> if successful, <code>false</code> else
+     *
+     * @since 1.30
+     */
+    private boolean readStat(int pid) {
+        return file.update(path(pid, "stat")) && parseStat(file, stat);
+    }
+
+    /**
+     * Parses a stat file (<code>/proc/[pid]/stat</code>).
+     *
+     * @param file the (updated) stat file
+     * @param stat the array to store the values into (see
+     *   {@link #STAT_LENGTH})
+     * @return <code>true</code> if successful, <code>false</code> else
+     *
+     * @since 1.30
+     */
+    static boolean parseStat(ProcFile file, long[] stat) {
+        boolean ok = false;
+        // the command name may contain blanks and parentheses
+        if (file.seekAfterLast(')')) {
+            stat[STATE] = file.nextChar();
+            file.skipFields(10); // ppid ... cmajflt
+            stat[UTIME] = file.nextLong();
+            stat[STIME] = file.nextLong();
+            file.skipFields(6); // cutime ... itrealvalue
+            stat[START_TIME] = file.nextLong();
+            ok = stat[START_TIME] >= 0;
+        }
+        return ok;
+    }
+
+    /**
+     * Parses the resident set size from a status file
+     * (<code>/proc/[pid]/status</code>).
+     *
+     * @param file the (updated) status file
+     * @return the memory use in bytes, negative if invalid
+     *
+     * @since 1.30
+     */
+    static long parseMemoryUse(ProcFile file) {
+        long result = -1;
+        if (file.seek(VM_RSS)) {
+            result = file.nextLong() * 1024; // kB
+        }
+        return result;
+    }
+
+    /**
+     * Parses an io file (<code>/proc/[pid]/io</code>).
+     *
+     * @param file the (updated) io file
+     * @param statistics the statistics to add the values to
+     * @return <code>true</code> if successful, <code>false</code> else
+     *
+     * @since 1.30
+     */
+    static boolean parseIo(ProcFile file, IoStatistics statistics) {
+        boolean ok = false;
+        if (file.seek(RCHAR)) {
+            long read = file.nextLong();
+            if (file.seek(WCHAR)) {
+                statistics.read += read;
+                statistics.write += file.nextLong();
+                ok = true;
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * Sums up the I/O statistics of all (accessible) processes.
+     *
+     * @param file the reader to be used
+     * @return the statistics, <b>null</b> if invalid
+     *
+     * @since 1.30
+     */
+    static IoStatistics readAllProcessesIo(ProcFile file) {
+        IoStatistics result = null;
+        String[] names = new File("/proc").list();
+        if (null != names) {
+            result = new IoStatistics();
+            for (String name : names) {
+                if (name.length() > 0 && Character.isDigit(name.charAt(0))
+                    && file.update("/proc/" + name + "/io")) {
+                    parseIo(file, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a load sample covering the entire lifetime of a process.
+     *
+     * @param file the reader to be used
+     * @param startTime the start time of the process in ticks after boot
+     * @param now the current time in nanoseconds
+     * @return the sample, <code>{cpu time, wall time}</code> in nanoseconds
+     *
+     * @since 1.30
+     */
+    static long[] createLoadSample(ProcFile file, long startTime, long now) {
+        long[] sample = new long[2];
+        sample[1] = now;
+        if (file.update("/proc/uptime")) {
+            long uptime = file.nextDecimal(2) * USER_HZ / 100;
+            if (uptime > startTime) {
+                sample[1] = now - (uptime - startTime) * TICK_NANOS;
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * Calculates the load since the given sample and updates the sample.
+     *
+     * @param sample the sample as created by
+     *   {@link #createLoadSample(ProcFile, long, long)}
+     * @param cpuTime the current CPU time in nanoseconds
+     * @param now the current time in nanoseconds
+     * @return the load in percent
+     *
+     * @since 1.30
+     */
+    static double updateLoad(long[] sample, long cpuTime, long now) {
+        double result = 0;
+        long wall = now - sample[1];
+        if (wall > 0 && cpuTime >= sample[0]) {
+            result = (100.0 * (cpuTime - sample[0])) / wall
+                / Runtime.getRuntime().availableProcessors();
+            result = Math.min(100, result);
+        }
+        sample[0] = cpuTime;
+        sample[1] = now;
+        return result;
+    }
+
+    @Override
+    public synchronized IoStatistics getProcessIo(int pid) {
+        IoStatistics result = null;
+        if (file.update(path(pid, "io"))) {
+            result = new IoStatistics();
+            if (!parseIo(file, result)) {
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    @Variability(id = { AnnotationConstants.VAR_ARBITRARY_PROCESS_DATA,
+            AnnotationConstants.VAR_ALL_PROCESSES_DATA,
+            AnnotationConstants.VAR_IO_DATA }, op = Operation.AND)
+    @Override
+    public boolean isNetworkIoDataIncluded(boolean forAll) {
+        return true;
+    }
+
+    @Variability(id = { AnnotationConstants.VAR_ARBITRARY_PROCESS_DATA,
+            AnnotationConstants.VAR_ALL_PROCESSES_DATA,
+            AnnotationConstants.VAR_IO_DATA }, op = Operation.AND)
+    @Override
+    public boolean isFileIoDataIncluded(boolean forAll) {
+        return true;
+    }
+
+    @Override
+    public synchronized long getProcessMemoryUse(int pid) {
+        long result = -1;
+        if (file.update(path(pid, "status"))) {
+            result = parseMemoryUse(file);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized long getProcessUserTimeTicks(int pid) {
+        return readStat(pid) ? stat[UTIME] * TICK_NANOS : -1;
+    }
+
+    @Override
+    public synchronized long getProcessKernelTimeTicks(int pid) {
+        return readStat(pid) ? stat[STIME] * TICK_NANOS : -1;
+    }
+
+    @Override
+    public synchronized long getProcessSystemTimeTicks(int pid) {
+        return readStat(pid) ? (stat[UTIME] + stat[STIME]) * TICK_NANOS : -1;
+    }
+
+    @Override
+    public synchronized double getProcessProcessorLoad(int pid) {
+        double result = -1;
+        if (readStat(pid)) {
+            long now = System.nanoTime();
+            long cpuTime = (stat[UTIME] + stat[STIME]) * TICK_NANOS;
+            Integer key = pid;
+            long[] sample = samples.get(key);
+            if (null == sample) {
+                if (samples.size() >= MAX_SAMPLES) {
+                    samples.clear();
+                }
+                sample = createLoadSample(file, stat[START_TIME], now);
+                samples.put(key, sample);
+            }
+            result = updateLoad(sample, cpuTime, now);
+        }
+        return result;
+    }
+
+    // all processes
+
+    @Override
+    public synchronized IoStatistics getAllProcessesIo() {
+        return readAllProcessesIo(file);
+    }
+
+    @Override
+    @Variability(id = AnnotationConstants.VAR_ARBITRARY_PROCESS_DATA)
+    public synchronized boolean isProcessAlive(int pid) {
+        // zombie and dead processes are not alive
+        return readStat(pid) && 'Z' != stat[STATE] && 'X' != stat[STATE];
+    }
+
+}
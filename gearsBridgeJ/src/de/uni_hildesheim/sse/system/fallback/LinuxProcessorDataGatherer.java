@@ -0,0 +1,175 @@
+package de.uni_hildesheim.sse.system.fallback;
+
+/**
+ * Requests processor information from the Linux <code>/proc</code> and
+ * <code>/sys</code> file systems. The system load is calculated from the
+ * aggregated processor times in <code>/proc/stat</code> between two queries
+ * (the first query considers the time since boot), whereby waiting for I/O
+ * is considered as idle.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+class LinuxProcessorDataGatherer extends ProcessorDataGatherer {
+
+    /**
+     * Defines the key of the aggregated processor times in
+     * <code>/proc/stat</code>.
+     */
+    private static final byte[] CPU = ProcFile.toBytes("cpu ");
+
+    /**
+     * Defines the key of the processor speed in <code>/proc/cpuinfo</code>.
+     */
+    private static final byte[] CPU_MHZ = ProcFile.toBytes("cpu MHz");
+
+    /**
+     * Defines the number of processor time fields considered (user, nice,
+     * system, idle, iowait, irq, softirq, steal).
+     */
+    private static final int CPU_FIELDS = 8;
+
+    /**
+     * Defines the index of the idle time.
+     */
+    private static final int IDLE = 3;
+
+    /**
+     * Defines the index of the I/O wait time.
+     */
+    private static final int IOWAIT = 4;
+
+    /**
+     * Defines the index of the total processor time in the times array.
+     */
+    static final int TOTAL_TIME = 0;
+
+    /**
+     * Defines the index of the idle processor time in the times array.
+     */
+    static final int IDLE_TIME = 1;
+
+    /**
+     * Defines the length of the times array.
+     */
+    static final int TIMES_LENGTH = 2;
+
+    /**
+     * Stores the stat file.
+     */
+    private final ProcFile statFile = new ProcFile("/proc/stat");
+
+    /**
+     * Stores a reader for further files.
+     */
+    private final ProcFile file = new ProcFile();
+
+    /**
+     * Stores the processor times parsed from the last stat file.
+     */
+    private final long[] times = new long[TIMES_LENGTH];
+
+    /**
+     * Stores the total processor time of the last query (ticks).
+     */
+    private long lastTotal;
+
+    /**
+     * Stores the idle processor time of the last query (ticks).
+     */
+    private long lastIdle;
+
+    /**
+     * Parses the aggregated processor times from a stat file
+     * (<code>/proc/stat</code>).
+     *
+     * @param file the (updated) stat file
+     * @param times the array to store the values into (see
+     *   {@link #TIMES_LENGTH})
+     * @return <code>true</code> if successful, <code>false</code> else
+     *
+     * @since 1.30
+     */
+    static boolean parseTimes(ProcFile file, long[] times) {
+        boolean ok = file.seek(CPU);
+        if (ok) {
+            long total = 0;
+            long idle = 0;
+            for (int f = 0; f < CPU_FIELDS; f++) {
+                long value = Math.max(0, file.nextLong());
+                total += value;
+                if (IDLE == f || IOWAIT == f) {
+                    idle += value;
+                }
+            }
+            times[TOTAL_TIME] = total;
+            times[IDLE_TIME] = idle;
+        }
+        return ok;
+    }
+
+    /**
+     * Parses the speed of the first processor from a cpuinfo file
+     * (<code>/proc/cpuinfo</code>).
+     *
+     * @param file the (updated) cpuinfo file
+     * @return the speed in MHz, negative if not available
+     *
+     * @since 1.30
+     */
+    static int parseSpeed(ProcFile file) {
+        int result = -1;
+        if (file.seek(CPU_MHZ) && file.skipTo(':')) {
+            result = (int) file.nextLong();
+        }
+        return result;
+    }
+
+    @Override
+    public int getNumberOfProcessors() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public synchronized int getMaxProcessorSpeed() {
+        int result = -1;
+        if (file.update(
+            "/sys/devices/system/cpu/cpu0/cpufreq/cpuinfo_max_freq")) {
+            long khz = file.nextLong();
+            if (khz > 0) {
+                result = (int) (khz / 1000);
+            }
+        }
+        if (result < 0) {
+            result = getCurrentProcessorSpeed();
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized int getCurrentProcessorSpeed() {
+        return file.update("/proc/cpuinfo") ? parseSpeed(file) : -1;
+    }
+
+    @Override
+    public synchronized double getCurrentSystemLoad() {
+        double result = -1;
+        if (statFile.update() && parseTimes(statFile, times)) {
+            long total = times[TOTAL_TIME];
+            long idle = times[IDLE_TIME];
+            long deltaTotal = total - lastTotal;
+            long deltaIdle = idle - lastIdle;
+            if (deltaTotal > 0) {
+                result = (100.0 * (deltaTotal - deltaIdle)) / deltaTotal;
+                result = Math.max(0, Math.min(100, result));
+                lastTotal = total;
+                lastIdle = idle;
+            } else {
+                result = 0;
+            }
+        }
+        return result;
+    }
+
+}
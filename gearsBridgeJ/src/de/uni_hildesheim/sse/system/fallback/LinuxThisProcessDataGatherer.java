@@ -0,0 +1,179 @@
+package de.uni_hildesheim.sse.system.fallback;
+
+import de.uni_hildesheim.sse.codeEraser.annotations.Operation;
+import de.uni_hildesheim.sse.codeEraser.annotations.Variability;
+import de.uni_hildesheim.sse.system.AnnotationConstants;
+import de.uni_hildesheim.sse.system.IoStatistics;
+
+/**
+ * Requests information on the current process, i.e. the JVM, from the Linux
+ * <code>/proc/self</code> file system. The files are kept open and re-read
+ * on demand, i.e. querying times, memory use and load does not create
+ * objects. See {@link LinuxProcessDataGatherer} for the semantics of the
+ * values.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+@Variability(id = AnnotationConstants.VAR_CURRENT_PROCESS_DATA)
+class LinuxThisProcessDataGatherer extends ThisProcessDataGatherer {
+
+    /**
+     * Stores the stat file of this process.
+     */
+    private final ProcFile statFile = new ProcFile("/proc/self/stat");
+
+    /**
+     * Stores the status file of this process.
+     */
+    private final ProcFile statusFile = new ProcFile("/proc/self/status");
+
+    /**
+     * Stores the io file of this process.
+     */
+    private final ProcFile ioFile = new ProcFile("/proc/self/io");
+
+    /**
+     * Stores a reader for further files.
+     */
+    private final ProcFile file = new ProcFile();
+
+    /**
+     * Stores the values parsed from the stat file.
+     */
+    private final long[] stat = new long[LinuxProcessDataGatherer.STAT_LENGTH];
+
+    /**
+     * Stores the process id.
+     */
+    private final String pid;
+
+    /**
+     * Stores the load sample.
+     */
+    private final long[] sample;
+
+    /**
+     * Creates the gatherer.
+     *
+     * @since 1.30
+     */
+    LinuxThisProcessDataGatherer() {
+        String id = null;
+        long startTime = 0;
+        if (statFile.update()) {
+            long value = statFile.nextLong(); // first field
+            if (value > 0) {
+                id = String.valueOf(value);
+            }
+            if (LinuxProcessDataGatherer.parseStat(statFile, stat)) {
+                startTime = stat[LinuxProcessDataGatherer.START_TIME];
+            }
+        }
+        pid = id;
+        sample = LinuxProcessDataGatherer.createLoadSample(file, startTime,
+            System.nanoTime());
+    }
+
+    /**
+     * Reads the stat file into {@link #stat}.
+     *
+     * @return <code>true</code> if successful, <code>false</code> else
+     *
+     * @since 1.30
+     */
+    private boolean readStat() {
+        return statFile.update()
+            && LinuxProcessDataGatherer.parseStat(statFile, stat);
+    }
+
+    @Override
+    @Variability(id = AnnotationConstants.VAR_CURRENT_PROCESS_DATA)
+    public String getCurrentProcessID() {
+        return pid;
+    }
+
+    @Override
+    public synchronized IoStatistics getCurrentProcessIo() {
+        IoStatistics result = null;
+        if (ioFile.update()) {
+            result = new IoStatistics();
+            if (!LinuxProcessDataGatherer.parseIo(ioFile, result)) {
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    @Variability(id = { AnnotationConstants.VAR_CURRENT_PROCESS_DATA,
+            AnnotationConstants.VAR_ALL_PROCESSES_DATA,
+            AnnotationConstants.VAR_IO_DATA }, op = Operation.AND)
+    @Override
+    public boolean isNetworkIoDataIncluded(boolean forAll) {
+        return true;
+    }
+
+    @Variability(id = { AnnotationConstants.VAR_CURRENT_PROCESS_DATA,
+            AnnotationConstants.VAR_ALL_PROCESSES_DATA,
+            AnnotationConstants.VAR_IO_DATA }, op = Operation.AND)
+    @Override
+    public boolean isFileIoDataIncluded(boolean forAll) {
+        return true;
+    }
+
+    @Override
+    public synchronized long getCurrentProcessMemoryUse() {
+        long result = -1;
+        if (statusFile.update()) {
+            result = LinuxProcessDataGatherer.parseMemoryUse(statusFile);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized long getCurrentProcessUserTimeTicks() {
+        return readStat() ? stat[LinuxProcessDataGatherer.UTIME]
+            * LinuxProcessDataGatherer.TICK_NANOS : -1;
+    }
+
+    @Override
+    public synchronized long getCurrentProcessKernelTimeTicks() {
+        return readStat() ? stat[LinuxProcessDataGatherer.STIME]
+            * LinuxProcessDataGatherer.TICK_NANOS : -1;
+    }
+
+    @Override
+    public synchronized long getCurrentProcessSystemTimeTicks() {
+        return readStat() ? getCpuTime() : -1;
+    }
+
+    /**
+     * Returns the CPU time from {@link #stat}.
+     *
+     * @return the CPU time in nanoseconds
+     *
+     * @since 1.30
+     */
+    private long getCpuTime() {
+        return (stat[LinuxProcessDataGatherer.UTIME]
+            + stat[LinuxProcessDataGatherer.STIME])
+            * LinuxProcessDataGatherer.TICK_NANOS;
+    }
+
+    @Override
+    public synchronized double getCurrentProcessProcessorLoad() {
+        double result = -1;
+        if (readStat()) {
+            result = LinuxProcessDataGatherer.updateLoad(sample, getCpuTime(),
+                System.nanoTime());
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized IoStatistics getAllProcessesIo() {
+        return LinuxProcessDataGatherer.readAllProcessesIo(file);
+    }
+
+}
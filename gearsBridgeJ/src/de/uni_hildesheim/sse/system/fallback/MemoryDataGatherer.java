@@ -9,15 +9,21 @@ import de.uni_hildesheim.sse.system.ObjectSizeEstimator;
 
 /**
  * Implements a class for requesting memory information from the system.
+ * Unallocations are recorded in pure Java by an {@link UnallocationTracker}.
  * 
  * @author Holger Eichelberger
  * @since 1.00
- * @version 1.00
+ * @version 1.30
  */
 @Variability(id = {AnnotationConstants.VAR_MEMORY_DATA, 
         AnnotationConstants.VAR_OBJECT_SIZE }, op = Operation.AND)
 class MemoryDataGatherer implements IMemoryDataGatherer {
 
+    /**
+     * Stores the unallocation tracker.
+     */
+    private final UnallocationTracker tracker = new UnallocationTracker();
+
     @Override
     public long getMemoryCapacity() {
         return -1; 
@@ -42,21 +48,25 @@ class MemoryDataGatherer implements IMemoryDataGatherer {
     @Override
     @Variability(id = AnnotationConstants.VAR_MEMORY_DATA)
     public void recordUnallocation(Object allocated, long size, int recId) {
+        tracker.recordUnallocation(allocated, size, recId);
     }
 
     @Override
     @Variability(id = AnnotationConstants.VAR_MEMORY_DATA)
     public void recordUnallocationByTag(long tag, long size, int recId) {
+        tracker.recordUnallocationByTag(tag, size, recId);
     }
 
     @Override
     @Variability(id = AnnotationConstants.VAR_MEMORY_DATA)
     public void recordUnallocationByTag(long tag) {
+        tracker.recordUnallocationByTag(tag);
     }
 
     @Override
     @Variability(id = AnnotationConstants.VAR_MEMORY_DATA)
     public void receiveUnallocations(IMemoryUnallocationReceiver receiver) {
+        tracker.receiveUnallocations(receiver);
     }
 
 }
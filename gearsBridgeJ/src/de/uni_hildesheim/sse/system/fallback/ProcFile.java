@@ -0,0 +1,355 @@
+package de.uni_hildesheim.sse.system.fallback;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads and parses a (pseudo) file of the Linux <code>/proc</code> file
+ * system. The contents are read into a preallocated direct buffer and parsed
+ * in place, i.e. updating and querying numerical values does not create
+ * objects. A file given at construction is kept open and re-read from its
+ * beginning on each update (the kernel regenerates the contents then).
+ * Instances are not thread-safe, i.e. callers must synchronize.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+class ProcFile {
+
+    /**
+     * Defines the capacity of the buffer. Longer files are truncated, which
+     * is sufficient as the values of interest are located at the beginning.
+     */
+    private static final int CAPACITY = 4096;
+
+    /**
+     * Stores the contents of the file.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(CAPACITY);
+
+    /**
+     * Stores the path of the file kept open (may be <b>null</b>).
+     */
+    private final String path;
+
+    /**
+     * Stores the open channel to {@link #path} (may be <b>null</b>).
+     */
+    private FileChannel channel;
+
+    /**
+     * Stores the number of valid bytes in {@link #buffer}.
+     */
+    private int length;
+
+    /**
+     * Stores the current parse position.
+     */
+    private int position;
+
+    /**
+     * Creates a reader for arbitrary files.
+     *
+     * @see #update(String)
+     * @since 1.30
+     */
+    ProcFile() {
+        this(null);
+    }
+
+    /**
+     * Creates a reader for the given file, which is kept open.
+     *
+     * @param path the path of the file
+     *
+     * @see #update()
+     * @since 1.30
+     */
+    ProcFile(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Converts the given ASCII text into bytes.
+     *
+     * @param text the text to be converted
+     * @return the bytes
+     *
+     * @since 1.30
+     */
+    static byte[] toBytes(String text) {
+        byte[] result = new byte[text.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) text.charAt(i);
+        }
+        return result;
+    }
+
+    /**
+     * Re-reads the file given at construction.
+     *
+     * @return <code>true</code> if successful, <code>false</code> else
+     *
+     * @since 1.30
+     */
+    boolean update() {
+        boolean ok;
+        try {
+            if (null == channel) {
+                channel = new FileInputStream(path).getChannel();
+            }
+            ok = read(channel);
+        } catch (IOException e) {
+            ok = false;
+        }
+        if (!ok && null != channel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+            }
+            channel = null; // reopen on next update
+        }
+        return ok;
+    }
+
+    /**
+     * Reads the given file.
+     *
+     * @param path the path of the file
+     * @return <code>true</code> if successful, <code>false</code> else
+     *
+     * @since 1.30
+     */
+    boolean update(String path) {
+        boolean ok = false;
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(path);
+            ok = read(in.getChannel());
+        } catch (IOException e) {
+            length = 0;
+        } finally {
+            if (null != in) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * Reads the contents of <code>channel</code> from its beginning into the
+     * buffer and resets the parse position.
+     *
+     * @param channel the channel to read
+     * @return <code>true</code> if data was read, <code>false</code> else
+     * @throws IOException in case of I/O problems
+     *
+     * @since 1.30
+     */
+    private boolean read(FileChannel channel) throws IOException {
+        buffer.clear();
+        int total = 0;
+        int count;
+        do {
+            count = channel.read(buffer, total);
+            if (count > 0) {
+                total += count;
+            }
+        } while (count > 0 && buffer.hasRemaining());
+        length = total;
+        position = 0;
+        return total > 0;
+    }
+
+    /**
+     * Positions the parser directly after <code>key</code> at the beginning
+     * of a line.
+     *
+     * @param key the key to search for
+     * @return <code>true</code> if found, <code>false</code> else (position
+     *   unchanged)
+     *
+     * @since 1.30
+     */
+    boolean seek(byte[] key) {
+        int found = -1;
+        int last = length - key.length;
+        for (int p = 0; found < 0 && p <= last; p++) {
+            if (0 == p || '\n' == buffer.get(p - 1)) {
+                int k = 0;
+                while (k < key.length && key[k] == buffer.get(p + k)) {
+                    k++;
+                }
+                if (k == key.length) {
+                    found = p;
+                }
+            }
+        }
+        if (found >= 0) {
+            position = found + key.length;
+        }
+        return found >= 0;
+    }
+
+    /**
+     * Positions the parser directly after the last occurrence of
+     * <code>character</code>.
+     *
+     * @param character the character to search for
+     * @return <code>true</code> if found, <code>false</code> else (position
+     *   unchanged)
+     *
+     * @since 1.30
+     */
+    boolean seekAfterLast(char character) {
+        int p = length - 1;
+        while (p >= 0 && character != buffer.get(p)) {
+            p--;
+        }
+        if (p >= 0) {
+            position = p + 1;
+        }
+        return p >= 0;
+    }
+
+    /**
+     * Positions the parser directly after the next occurrence of
+     * <code>character</code> in the current line.
+     *
+     * @param character the character to search for
+     * @return <code>true</code> if found, <code>false</code> else
+     *
+     * @since 1.30
+     */
+    boolean skipTo(char character) {
+        byte b = 0;
+        while (position < length && character != b && '\n' != b) {
+            b = buffer.get(position++);
+        }
+        return character == b;
+    }
+
+    /**
+     * Skips blanks in the current line.
+     *
+     * @since 1.30
+     */
+    private void skipBlanks() {
+        while (position < length && isBlank(buffer.get(position))) {
+            position++;
+        }
+    }
+
+    /**
+     * Returns whether <code>b</code> is a blank.
+     *
+     * @param b the byte to be tested
+     * @return <code>true</code> if <code>b</code> is a blank,
+     *   <code>false</code> else
+     *
+     * @since 1.30
+     */
+    private static boolean isBlank(byte b) {
+        return ' ' == b || '\t' == b;
+    }
+
+    /**
+     * Skips the given number of blank-separated fields in the current line.
+     *
+     * @param count the number of fields
+     *
+     * @since 1.30
+     */
+    void skipFields(int count) {
+        for (int f = 0; f < count; f++) {
+            skipBlanks();
+            while (position < length && !isBlank(buffer.get(position))
+                && '\n' != buffer.get(position)) {
+                position++;
+            }
+        }
+    }
+
+    /**
+     * Returns the next character in the current line after skipping blanks.
+     *
+     * @return the character, <code>0</code> if there is none
+     *
+     * @since 1.30
+     */
+    char nextChar() {
+        skipBlanks();
+        char result = 0;
+        if (position < length && '\n' != buffer.get(position)) {
+            result = (char) buffer.get(position++);
+        }
+        return result;
+    }
+
+    /**
+     * Parses the next (non-negative) integer number after skipping blanks.
+     *
+     * @return the number, <code>-1</code> if there is none
+     *
+     * @since 1.30
+     */
+    long nextLong() {
+        return nextDecimal(0);
+    }
+
+    /**
+     * Parses the next (non-negative) decimal number after skipping blanks
+     * and returns it scaled by <code>10^scale</code>, i.e. surplus fraction
+     * digits are cut off.
+     *
+     * @param scale the number of fraction digits to be considered
+     * @return the scaled number, <code>-1</code> if there is none
+     *
+     * @since 1.30
+     */
+    long nextDecimal(int scale) {
+        skipBlanks();
+        long result = -1;
+        while (position < length && isDigit(buffer.get(position))) {
+            result = Math.max(0, result) * 10
+                + (buffer.get(position++) - '0');
+        }
+        if (result >= 0) {
+            int digits = 0;
+            if (position < length && '.' == buffer.get(position)) {
+                position++;
+                while (position < length && isDigit(buffer.get(position))) {
+                    if (digits < scale) {
+                        result = result * 10 + (buffer.get(position) - '0');
+                        digits++;
+                    }
+                    position++;
+                }
+            }
+            for (; digits < scale; digits++) {
+                result *= 10;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether <code>b</code> is a decimal digit.
+     *
+     * @param b the byte to be tested
+     * @return <code>true</code> if <code>b</code> is a digit,
+     *   <code>false</code> else
+     *
+     * @since 1.30
+     */
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+}
@@ -0,0 +1,410 @@
+package de.uni_hildesheim.sse.system.fallback;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.uni_hildesheim.sse.system.GathererFactory;
+import de.uni_hildesheim.sse.system.IMemoryUnallocationReceiver;
+
+/**
+ * Tracks the unallocation of objects in pure Java. Objects are registered as
+ * phantom references carrying the recording id and the size, i.e. the
+ * overhead per tracked object is constant. The references are kept in
+ * intrusive lists and enqueued into reference queues, both striped by the
+ * recording id so that registrations of different monitoring groups do not
+ * contend. A daemon thread drains the queues in batches and aggregates the
+ * sizes per recording id. The aggregated sizes are passed to the receiver
+ * only in {@link #receiveUnallocations(IMemoryUnallocationReceiver)}, i.e.
+ * on the recording path of the caller as for the native implementation.
+ * Unallocations of external tags are aggregated in the same way.
+ * <p>
+ * Only every n-th object per stripe is tracked if sampling is configured by
+ * {@link GathererFactory#PROPERTY_UNALLOCATION_SAMPLING}. The size of a
+ * tracked object is scaled by n then, i.e. the aggregated sizes are
+ * estimates.
+ *
+ * @author Holger Eichelberger
+ * @since 1.30
+ * @version 1.30
+ */
+class UnallocationTracker implements Runnable {
+
+    /**
+     * Defines the number of stripes (power of 2).
+     */
+    private static final int STRIPES = 8;
+
+    /**
+     * Defines the maximum number of references drained from a stripe at once.
+     */
+    private static final int BATCH = 256;
+
+    /**
+     * Defines the time to wait if no references were enqueued (in ms).
+     */
+    private static final int IDLE_WAIT = 100;
+
+    /**
+     * Implements a tracked object.
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class Tracked extends PhantomReference<Object> {
+
+        /**
+         * Stores the recording id.
+         */
+        private final int recId;
+
+        /**
+         * Stores the (scaled) size of the object.
+         */
+        private final long size;
+
+        /**
+         * Stores the previous element in the list of the stripe.
+         */
+        private Tracked prev;
+
+        /**
+         * Stores the next element in the list of the stripe.
+         */
+        private Tracked next;
+
+        /**
+         * Creates a tracked object.
+         *
+         * @param referent the object to be tracked
+         * @param queue the queue to enqueue this reference into
+         * @param recId the recording id
+         * @param size the (scaled) size of the object
+         */
+        private Tracked(Object referent, ReferenceQueue<Object> queue,
+            int recId, long size) {
+            super(referent, queue);
+            this.recId = recId;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Implements a stripe, i.e. the reference queue and the list of the
+     * tracked objects (which must remain reachable until they are enqueued).
+     *
+     * @author Holger Eichelberger
+     * @since 1.30
+     * @version 1.30
+     */
+    private static class Stripe {
+
+        /**
+         * Stores the reference queue.
+         */
+        private final ReferenceQueue<Object> queue
+            = new ReferenceQueue<Object>();
+
+        /**
+         * Counts the registrations for sampling.
+         */
+        private final AtomicLong count = new AtomicLong();
+
+        /**
+         * Stores the head of the list of tracked objects.
+         */
+        private Tracked head;
+
+        /**
+         * Adds a tracked object to the list.
+         *
+         * @param tracked the object to be added
+         */
+        private synchronized void add(Tracked tracked) {
+            tracked.next = head;
+            if (null != head) {
+                head.prev = tracked;
+            }
+            head = tracked;
+        }
+
+        /**
+         * Removes a tracked object from the list.
+         *
+         * @param tracked the object to be removed
+         */
+        private synchronized void remove(Tracked tracked) {
+            if (null != tracked.prev) {
+                tracked.prev.next = tracked.next;
+            } else {
+                head = tracked.next;
+            }
+            if (null != tracked.next) {
+                tracked.next.prev = tracked.prev;
+            }
+            tracked.prev = null;
+            tracked.next = null;
+        }
+    }
+
+    /**
+     * Stores the stripes.
+     */
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * Stores the sampling rate, i.e. every n-th object is tracked (read
+     * when starting {@link #thread}, as the property may be set after
+     * creating this instance).
+     */
+    private int sampling = 1;
+
+    /**
+     * Stores the allocation entries of external tags, i.e. the recording id
+     * and the size.
+     */
+    private final HashMap<Long, long[]> tags = new HashMap<Long, long[]>();
+
+    /**
+     * Stores the aggregated unallocated sizes indexed by recording id
+     * (guarded by <code>this</code>).
+     */
+    private long[] pending = new long[64];
+
+    /**
+     * Stores the recording ids with aggregated sizes in {@link #pending}
+     * (guarded by <code>this</code>).
+     */
+    private int[] dirty = new int[16];
+
+    /**
+     * Stores the number of valid entries in {@link #dirty}.
+     */
+    private int dirtyCount;
+
+    /**
+     * Stores whether unallocations are pending.
+     */
+    private volatile boolean hasPending;
+
+    /**
+     * Stores the draining thread (<b>null</b> if not started).
+     */
+    private volatile Thread thread;
+
+    /**
+     * Creates an unallocation tracker.
+     *
+     * @since 1.30
+     */
+    UnallocationTracker() {
+        for (int s = 0; s < STRIPES; s++) {
+            stripes[s] = new Stripe();
+        }
+    }
+
+    /**
+     * Records an allocated object.
+     *
+     * @param allocated the allocated object
+     * @param size the size of the allocation (a repeated call is aggregated
+     *   upon unallocation)
+     * @param recId the recording id to assign <code>size</code> to upon
+     *   unallocation
+     *
+     * @since 1.30
+     */
+    void recordUnallocation(Object allocated, long size, int recId) {
+        if (recId >= 0) {
+            if (null == thread) {
+                ensureStarted();
+            }
+            Stripe stripe = stripes[recId & (STRIPES - 1)];
+            if (1 == sampling
+                || 0 == stripe.count.incrementAndGet() % sampling) {
+                stripe.add(new Tracked(allocated, stripe.queue, recId,
+                    size * sampling));
+            }
+        }
+    }
+
+    /**
+     * Records the allocation of an external tag.
+     *
+     * @param tag the (external) allocation tag
+     * @param size the size of the allocation (if called again this is
+     *   treated as an increment/decrement)
+     * @param recId the recording id to assign <code>size</code> to upon
+     *   unallocation
+     *
+     * @since 1.30
+     */
+    void recordUnallocationByTag(long tag, long size, int recId) {
+        if (recId >= 0) {
+            synchronized (tags) {
+                Long key = tag;
+                long[] entry = tags.get(key);
+                if (null == entry) {
+                    tags.put(key, new long[] {recId, size});
+                } else {
+                    entry[1] += size;
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the unallocation of an external tag.
+     *
+     * @param tag the (external) allocation tag
+     *
+     * @since 1.30
+     */
+    void recordUnallocationByTag(long tag) {
+        long[] entry;
+        synchronized (tags) {
+            entry = tags.remove(tag);
+        }
+        if (null != entry) {
+            synchronized (this) {
+                aggregate((int) entry[0], entry[1]);
+            }
+        }
+    }
+
+    /**
+     * Passes the pending unallocations to <code>receiver</code> in the
+     * calling thread.
+     *
+     * @param receiver the receiver
+     *
+     * @since 1.30
+     */
+    void receiveUnallocations(IMemoryUnallocationReceiver receiver) {
+        if (hasPending) {
+            deliver(receiver);
+        }
+    }
+
+    /**
+     * Aggregates an unallocation (caller must synchronize on
+     * <code>this</code>).
+     *
+     * @param recId the recording id
+     * @param size the unallocated size
+     *
+     * @since 1.30
+     */
+    private void aggregate(int recId, long size) {
+        if (recId >= pending.length) {
+            long[] tmp = new long[Math.max(recId + 1, 2 * pending.length)];
+            System.arraycopy(pending, 0, tmp, 0, pending.length);
+            pending = tmp;
+        }
+        if (0 == pending[recId]) {
+            if (dirtyCount == dirty.length) {
+                int[] tmp = new int[2 * dirty.length];
+                System.arraycopy(dirty, 0, tmp, 0, dirtyCount);
+                dirty = tmp;
+            }
+            dirty[dirtyCount++] = recId;
+        }
+        pending[recId] += size;
+        hasPending = true;
+    }
+
+    /**
+     * Passes the aggregated unallocations to <code>receiver</code>.
+     *
+     * @param receiver the receiver
+     *
+     * @since 1.30
+     */
+    private synchronized void deliver(IMemoryUnallocationReceiver receiver) {
+        for (int d = 0; d < dirtyCount; d++) {
+            int recId = dirty[d];
+            long size = pending[recId];
+            pending[recId] = 0;
+            if (0 != size) {
+                receiver.unallocated(recId, size);
+            }
+        }
+        dirtyCount = 0;
+        hasPending = false;
+    }
+
+    /**
+     * Starts the draining thread and determines the sampling rate if
+     * required.
+     *
+     * @since 1.30
+     */
+    private synchronized void ensureStarted() {
+        if (null == thread) {
+            try {
+                sampling = Math.max(1, Integer.getInteger(
+                    GathererFactory.PROPERTY_UNALLOCATION_SAMPLING, 1));
+            } catch (SecurityException e) {
+                sampling = 1;
+            }
+            Thread drainer = new Thread(this, "unallocation tracker");
+            drainer.setDaemon(true);
+            drainer.start();
+            thread = drainer; // publishes sampling
+        }
+    }
+
+    /**
+     * Drains the reference queues. Unallocations are only aggregated here
+     * and delivered by {@link #receiveUnallocations(
+     * IMemoryUnallocationReceiver)}, as the receiver may not be called
+     * concurrently to recording.
+     *
+     * @since 1.30
+     */
+    @Override
+    public void run() {
+        while (true) {
+            int drained = 0;
+            for (int s = 0; s < STRIPES; s++) {
+                drained += drain(stripes[s]);
+            }
+            if (0 == drained) {
+                try {
+                    Thread.sleep(IDLE_WAIT);
+                } catch (InterruptedException e) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Drains a batch of references from the queue of <code>stripe</code>.
+     *
+     * @param stripe the stripe
+     * @return the number of drained references
+     *
+     * @since 1.30
+     */
+    private int drain(Stripe stripe) {
+        int count = 0;
+        Reference<?> ref = stripe.queue.poll();
+        if (null != ref) {
+            synchronized (this) {
+                do {
+                    Tracked tracked = (Tracked) ref;
+                    stripe.remove(tracked);
+                    tracked.clear();
+                    aggregate(tracked.recId, tracked.size);
+                    count++;
+                    ref = count < BATCH ? stripe.queue.poll() : null;
+                } while (null != ref);
+            }
+        }
+        return count;
+    }
+
+}